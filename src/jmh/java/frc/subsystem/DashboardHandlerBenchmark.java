@@ -0,0 +1,43 @@
+package frc.subsystem;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks logging a value, which every subsystem does for each of its keys in {@link AbstractSubsystem#logData()}. The
+ * values are pushed to network tables on a separate thread, which isn't started here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class DashboardHandlerBenchmark {
+    private static final String[] KEYS = {
+            "Drive Velocity X", "Drive Velocity Y", "Drive Angular Velocity", "Hopper Ball Count",
+            "Shooter Flywheel Speed", "Shooter Hood Angle", "Climber State", "Vision Distance"
+    };
+
+    private final DashboardHandler dashboardHandler = DashboardHandler.getInstance();
+    private int index = 0;
+    private double value = 0;
+
+    @Benchmark
+    public void logDouble() {
+        index = (index + 1) & (KEYS.length - 1);
+        value += 0.01;
+        dashboardHandler.log(KEYS[index], value);
+    }
+
+    @Benchmark
+    public void logBoolean() {
+        index = (index + 1) & (KEYS.length - 1);
+        dashboardHandler.log(KEYS[index], (index & 1) == 0);
+    }
+
+    @Benchmark
+    public void logWithoutNetworkTables() {
+        index = (index + 1) & (KEYS.length - 1);
+        value += 0.01;
+        dashboardHandler.log(KEYS[index], value, false);
+    }
+}
@@ -0,0 +1,74 @@
+package frc.subsystem;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.Constants.AccelerationLimits;
+import frc.utility.control.SwerveMotionLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static frc.robot.Constants.*;
+
+/**
+ * Benchmarks the math that {@link Drive} runs every drive loop: the acceleration limiting in
+ * {@link Drive#limitAcceleration(ChassisSpeeds)} and converting the chassis speeds to module states. Loading {@link Drive}
+ * creates the motors, so the kinematics and limiter are built here from the same constants. The gyro readings are replaced by
+ * the inputs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class DriveBenchmark {
+    private static final int INPUT_COUNT = 1024;
+    private static final double DT = DRIVE_PERIOD / 1000.0;
+
+    private final SwerveDriveKinematics swerveDriveKinematics = new SwerveDriveKinematics(SWERVE_MODULE_LOCATIONS);
+    private final SwerveMotionLimiter motionLimiter = new SwerveMotionLimiter(
+            ROBOT_CENTER_OF_MASS_HEIGHT,
+            SWERVE_LEFT_FRONT_LOCATION.getX(),
+            SWERVE_LEFT_FRONT_LOCATION.getY(),
+            TIP_OVER_SAFETY_FACTOR,
+            MAX_DRIVE_JERK,
+            MAX_ANGULAR_ACCELERATION);
+
+    private final ChassisSpeeds[] chassisSpeeds = new ChassisSpeeds[INPUT_COUNT];
+    private final double[] robotAngles = new double[INPUT_COUNT];
+    private final ChassisSpeeds limitedVelocity = new ChassisSpeeds();
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(3476);
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            chassisSpeeds[i] = new ChassisSpeeds(
+                    (random.nextDouble() * 2 - 1) * DRIVE_HIGH_SPEED_M,
+                    (random.nextDouble() * 2 - 1) * DRIVE_HIGH_SPEED_M,
+                    (random.nextDouble() * 2 - 1) * 6);
+            robotAngles[i] = (random.nextDouble() * 2 - 1) * Math.PI;
+        }
+        motionLimiter.reset(0, 0, 0);
+    }
+
+    @Benchmark
+    public SwerveModuleState[] toSwerveModuleStates() {
+        index = (index + 1) & (INPUT_COUNT - 1);
+        SwerveModuleState[] moduleStates = swerveDriveKinematics.toSwerveModuleStates(chassisSpeeds[index]);
+        SwerveDriveKinematics.desaturateWheelSpeeds(moduleStates, DRIVE_HIGH_SPEED_M);
+        return moduleStates;
+    }
+
+    @Benchmark
+    public ChassisSpeeds limitAcceleration() {
+        index = (index + 1) & (INPUT_COUNT - 1);
+        ChassisSpeeds commandedVelocity = chassisSpeeds[index];
+        limitedVelocity.vxMetersPerSecond = commandedVelocity.vxMetersPerSecond;
+        limitedVelocity.vyMetersPerSecond = commandedVelocity.vyMetersPerSecond;
+        limitedVelocity.omegaRadiansPerSecond = commandedVelocity.omegaRadiansPerSecond;
+        motionLimiter.calculateRobotRelative(limitedVelocity, AccelerationLimits.NORMAL_DRIVING.acceleration,
+                robotAngles[index], 0.02, -0.01, DT);
+        return limitedVelocity;
+    }
+}
@@ -0,0 +1,53 @@
+package frc.subsystem;
+
+import com.google.common.collect.EvictingQueue;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.utility.tracking.TimestampedPose;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static frc.robot.Constants.ROBOT_TRACKER_PERIOD;
+
+/**
+ * Benchmarks looking up a pose in a full pose history, like {@link RobotTracker#getPoseAtTime(double)} does for every vision
+ * measurement. The tracker itself needs the navX, so this uses the same lookup on a history built here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class RobotTrackerBenchmark {
+    private static final int INPUT_COUNT = 1024;
+    private static final int HISTORY_SIZE = 50;
+    private static final double TRACKER_PERIOD = ROBOT_TRACKER_PERIOD / 1000.0;
+
+    private final EvictingQueue<TimestampedPose> poseHistory = EvictingQueue.create(HISTORY_SIZE);
+    private final Translation2d positionOffset = new Translation2d(0.1, -0.05);
+    private final double[] timestamps = new double[INPUT_COUNT];
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            poseHistory.add(new TimestampedPose(i * TRACKER_PERIOD,
+                    new Pose2d(i * 0.02, i * 0.01, Rotation2d.fromDegrees(i))));
+        }
+
+        // Vision frames are usually a few tracker periods old
+        Random random = new Random(3476);
+        double newestTime = (HISTORY_SIZE - 1) * TRACKER_PERIOD;
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            timestamps[i] = newestTime - random.nextDouble() * 10 * TRACKER_PERIOD;
+        }
+    }
+
+    @Benchmark
+    public Optional<Pose2d> getPoseAtTime() {
+        index = (index + 1) & (INPUT_COUNT - 1);
+        return TimestampedPose.getPoseAtTime(poseHistory, positionOffset, timestamps[index]);
+    }
+}
@@ -0,0 +1,36 @@
+package frc.subsystem;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the shoot while moving solver with the same kind of inputs that {@code ShooterManagerTest} checks it with.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ShooterManagerBenchmark {
+    private static final int INPUT_COUNT = 1024;
+
+    private final Translation2d[] goalPositions = new Translation2d[INPUT_COUNT];
+    private final Translation2d[] robotVelocities = new Translation2d[INPUT_COUNT];
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(719479);
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            goalPositions[i] = new Translation2d((random.nextDouble() * 20) - 10, (random.nextDouble() * 20) - 10);
+            robotVelocities[i] = new Translation2d((random.nextDouble() * 10) - 5, (random.nextDouble() * 10) - 5);
+        }
+    }
+
+    @Benchmark
+    public Translation2d getVelocityAdjustedRelativeTranslation() {
+        index = (index + 1) & (INPUT_COUNT - 1);
+        return ShooterManager.getVelocityAdjustedRelativeTranslation(goalPositions[index], robotVelocities[index]);
+    }
+}
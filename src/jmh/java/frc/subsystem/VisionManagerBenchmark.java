@@ -0,0 +1,49 @@
+package frc.subsystem;
+
+import frc.utility.geometry.MutableTranslation2d;
+import frc.utility.vision.CameraProjection;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks projecting the limelight crosshair onto the goal, which {@link VisionManager} does for every frame to find the
+ * position of the target relative to the robot. The vision manager needs the limelight, so the projection is built here
+ * with the vision manager's default calibration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class VisionManagerBenchmark {
+    private static final int INPUT_COUNT = 1024;
+
+    private CameraProjection cameraProjection;
+    private final MutableTranslation2d targetRelativeToRobot = new MutableTranslation2d();
+    private final double[] pixelX = new double[INPUT_COUNT];
+    private final double[] pixelY = new double[INPUT_COUNT];
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        cameraProjection = VisionManager.createCameraProjection(
+                VisionManager.getCameraRotation(VisionManager.CAMERA_ANGLE),
+                VisionManager.CAMERA_H_OFFSET,
+                VisionManager.CAMERA_DEPTH_OFFSET,
+                new Vector3D(VisionManager.CAMERA_CENTER_OFFSET_X, 0, VisionManager.CAMERA_CENTER_OFFSET_Z));
+
+        // Anywhere in the 320x240 image
+        Random random = new Random(3476);
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            pixelX[i] = random.nextDouble() * 320;
+            pixelY[i] = random.nextDouble() * 240;
+        }
+    }
+
+    @Benchmark
+    public MutableTranslation2d projectTarget() {
+        index = (index + 1) & (INPUT_COUNT - 1);
+        return cameraProjection.project(pixelX[index], pixelY[index], targetRelativeToRobot);
+    }
+}
@@ -0,0 +1,48 @@
+package frc.utility.shooter.visionlookup;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks looking up a shooter preset for a distance, using the default shooter config.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class VisionLookUpTableBenchmark {
+    private static final int INPUT_COUNT = 1024;
+
+    private VisionLookUpTable visionLookUpTable;
+    private final double[] distances = new double[INPUT_COUNT];
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        ArrayList<ShooterPreset> shooterPresets = new ArrayList<>();
+        shooterPresets.add(new ShooterPreset(47, 4800, 58));
+        shooterPresets.add(new ShooterPreset(46, 4800, 73));
+        shooterPresets.add(new ShooterPreset(44, 5100, 111));
+        shooterPresets.add(new ShooterPreset(41, 5200, 124));
+        shooterPresets.add(new ShooterPreset(39, 5400, 150));
+        shooterPresets.add(new ShooterPreset(36.8, 5400, 164));
+        shooterPresets.add(new ShooterPreset(37, 5600, 173));
+        shooterPresets.add(new ShooterPreset(36, 5700, 212));
+        shooterPresets.add(new ShooterPreset(36, 6000, 228));
+        visionLookUpTable = new VisionLookUpTable(new ShooterConfig(shooterPresets));
+
+        // Mostly inside the table, with some distances off either end
+        Random random = new Random(3476);
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            distances[i] = 40 + random.nextDouble() * 210;
+        }
+    }
+
+    @Benchmark
+    public ShooterPreset getShooterPreset() {
+        index = (index + 1) & (INPUT_COUNT - 1);
+        return visionLookUpTable.getShooterPreset(distances[index]);
+    }
+}
@@ -13,6 +13,13 @@ public final class Constants {
 
     public static final boolean IS_PRACTICE = Files.exists(new File("/home/lvuser/practice").toPath());
 
+    public static final boolean IS_COMPETITION = Files.exists(new File("/home/lvuser/competition").toPath());
+
+    /**
+     * Publishes extra high rate data (ex. per module setpoints) that is only useful when tuning. Off at competitions.
+     */
+    public static final boolean LOG_DEBUG_TELEMETRY = !IS_COMPETITION;
+
     // 2048 sensor units per revolution
     public static final double FALCON_ENCODER_TICKS_PER_ROTATIONS = 2048;
     public static final double FALCON_ENCODER_TICKS_PER_100_MS_TO_RPM = 600 / 2048.0d;
@@ -41,7 +48,17 @@ public final class Constants {
     public static final double CAMERA_Y_ANGLE = 35.3203; //TODO: CHANGE
 
     // Vision Manager
+    /**
+     * The vision manager processes every limelight frame as it arrives. This is the longest it will wait for one.
+     */
     public static final int VISION_MANAGER_PERIOD = 1000 / 22; //22Hz
+    /**
+     * Frames that the vision manager hasn't gotten to yet. The oldest ones are dropped if it falls this far behind.
+     */
+    public static final int LIMELIGHT_FRAME_QUEUE_SIZE = 5;
+    /**
+     * The shooter manager aims every time it gets a new pose or limelight frame. This is the longest it will wait for one.
+     */
     public static final int SHOOTER_MANAGER_PERIOD = 1000 / 22; //22Hz
     public static final double SHOOT_TIME_PER_BALL = 0.2; // For Auto
 
@@ -53,13 +70,158 @@ public final class Constants {
      * Relative position of the limelight from the center of the robot.
      */
     public static final Translation2d LIMELIGHT_CENTER_OFFSET = new Translation2d(-0.684, 0); //TODO: CHANGE
-    public static final double VISION_MANAGER_DISTANCE_THRESHOLD_SQUARED = Math.pow(2, 2); //TODO: CHANGE
+
+    /**
+     * Find the goal by fitting the ring of tape to the limelight corners instead of only using the crosshair. Leave off until
+     * the fit has been checked against the crosshair distance on real frames and its noise constants are tuned.
+     */
+    public static final boolean USE_VISION_CORNER_SOLVER = false;
+    /**
+     * Radius of the ring of vision tape around the upper hub (inches)
+     */
+    public static final double VISION_TAPE_RING_RADIUS_IN = 26.69; //TODO: Measure
+    /**
+     * Height of a strip of vision tape (inches)
+     */
+    public static final double VISION_TAPE_HEIGHT_IN = 2;
+    /**
+     * Angular noise of a corner from the limelight. About one pixel at 320x240 (radians)
+     */
+    public static final double VISION_CORNER_ANGLE_STD_DEV = 0.004; //TODO: Tune
+    /**
+     * A corner fit with this standard deviation or better gets the full vision weight in the robot tracker (meters)
+     */
+    public static final double VISION_CORNER_FIT_REFERENCE_STD_DEV = 0.05; //TODO: Tune
+    /**
+     * Corners farther than this from the ring found by RANSAC are ignored by the corner fit (inches)
+     */
+    public static final double VISION_CORNER_RANSAC_INLIER_THRESHOLD_IN = 3; //TODO: Tune
+    /**
+     * Number of pairs of corners RANSAC tries each frame
+     */
+    public static final int VISION_CORNER_RANSAC_ITERATIONS = 30;
+    /**
+     * Standard deviation of the vision position when the corner fit isn't used and we only have the crosshair (meters)
+     */
+    public static final double VISION_CROSSHAIR_STD_DEV = 0.3; //TODO: Tune
+    /**
+     * Standard deviation of the robot tracker's position right after a vision update (meters)
+     */
+    public static final double VISION_GATE_TRACKER_STD_DEV = 0.1; //TODO: Tune
+    /**
+     * How fast the robot tracker's standard deviation grows while vision isn't being used (meters/s)
+     */
+    public static final double VISION_GATE_TRACKER_DRIFT_RATE = 0.2; //TODO: Tune
+    /**
+     * Vision positions with a squared Mahalanobis distance from the robot tracker's position larger than this are thrown away.
+     * 13.8 keeps 99.9% of good measurements (chi-squared with 2 degrees of freedom).
+     */
+    public static final double VISION_GATE_MAHALANOBIS_DISTANCE_SQUARED = 13.8;
+
+    /**
+     * Switch between a low and a high resolution limelight pipeline depending on how far away the goal is. Both pipelines need to
+     * be set up on the limelight with the same settings other than the resolution. Off until the high resolution pipeline is set
+     * up and the switching distance is tuned.
+     */
+    public static final boolean USE_ADAPTIVE_LIMELIGHT_RESOLUTION = false;
+    /**
+     * Limelight pipeline set to 320x240
+     */
+    public static final int LIMELIGHT_LOW_RESOLUTION_PIPELINE = 0;
+    /**
+     * Limelight pipeline set to 960x720
+     */
+    public static final int LIMELIGHT_HIGH_RESOLUTION_PIPELINE = 1;
+    /**
+     * Use the high resolution pipeline when the goal is farther than this (meters)
+     */
+    public static final double VISION_HIGH_RESOLUTION_DISTANCE = 4.5; //TODO: Tune
+    /**
+     * Go back to low resolution once the goal is this much closer than {@link #VISION_HIGH_RESOLUTION_DISTANCE} (meters)
+     */
+    public static final double VISION_RESOLUTION_HYSTERESIS = 0.5;
+    /**
+     * Go back to low resolution if the high resolution pipeline latency is more than this (ms)
+     */
+    public static final double VISION_MAX_HIGH_RESOLUTION_LATENCY_MS = 45; //TODO: Measure
+    /**
+     * Shortest time between pipeline switches. The limelight drops frames while switching. (s)
+     */
+    public static final double VISION_RESOLUTION_MIN_SWITCH_INTERVAL = 0.5;
+    /**
+     * How long to stay in low resolution after the high resolution latency was too high (s)
+     */
+    public static final double VISION_RESOLUTION_LATENCY_LOCKOUT_TIME = 5;
     // This is in inches
     public static final double VISION_DISTANCE_BEFORE_ERROR_TIGHTENING = 200;
 
     //Drive Constants
     public static final int DRIVE_PERIOD = 20;
 
+    /**
+     * How long a drive command blocks lower priority commands from replacing it (s)
+     */
+    public static final double DRIVE_COMMAND_HOLD_TIME = 2 * DRIVE_PERIOD / 1000.0;
+
+    /**
+     * If no drive command has been posted for this long the drive will stop (s)
+     */
+    public static final double DRIVE_COMMAND_TIMEOUT = 0.25;
+
+    /**
+     * Time between the precomputed samples of an auto trajectory (s)
+     */
+    public static final double TRAJECTORY_SAMPLE_PERIOD = 0.005;
+
+    /**
+     * How far ahead of the current time the feed-forward auto follower samples the path to make up for the time it takes the
+     * motors to respond to a new command (s)
+     */
+    public static final double AUTO_FOLLOWER_LOOK_AHEAD = 0.04; //TODO: Tune
+
+    public static final double AUTO_FOLLOWER_TRANSLATION_P = 3;
+    public static final double AUTO_FOLLOWER_HEADING_P = 8;
+    public static final double AUTO_FOLLOWER_MAX_ANGULAR_VELOCITY = 4;
+    public static final double AUTO_FOLLOWER_MAX_ANGULAR_ACCELERATION = 4;
+
+    public static final double AUTO_FOLLOWER_TRANSLATION_TOLERANCE = 0.15;
+    public static final double AUTO_FOLLOWER_HEADING_TOLERANCE = Math.toRadians(5);
+
+    /**
+     * Max time after the end of a path the feed-forward follower will keep trying to get within tolerance before giving up (s)
+     */
+    public static final double AUTO_FOLLOWER_SETTLE_TIMEOUT = 1;
+
+    // Teleop auto drive
+    /**
+     * How often to check if a new trajectory is needed while the driver is holding an auto drive button (s)
+     */
+    public static final double AUTO_DRIVE_REPLAN_PERIOD = 0.1;
+    /**
+     * A new auto drive trajectory is generated if the target has moved more than this since the last one was planned (m)
+     */
+    public static final double AUTO_DRIVE_REPLAN_TARGET_MOVEMENT = 0.1; //TODO: Tune
+    /**
+     * A new auto drive trajectory is generated if the robot is further than this from where the trajectory says it should be
+     * (m)
+     */
+    public static final double AUTO_DRIVE_REPLAN_TRACKING_ERROR = 0.3; //TODO: Tune
+    public static final double AUTO_DRIVE_MAX_VELOCITY = 3.5;
+    /**
+     * Don't bother generating a path if we're closer than this to the target (m)
+     */
+    public static final double AUTO_DRIVE_MIN_DISTANCE = 0.05;
+
+    /**
+     * Distance from {@link #GOAL_POSITION} that the robot will drive to when auto driving to a shooting spot (m)
+     */
+    public static final double AUTO_DRIVE_SHOOTING_RING_RADIUS = 2.8; //TODO: Tune
+    public static final Translation2d AUTO_DRIVE_HANGER_POSITION = new Translation2d(2.6, 2.9); //TODO: Measure
+    /**
+     * Auto drive paths go around the hub. The center of the robot is kept at least this far from {@link #GOAL_POSITION} (m)
+     */
+    public static final double AUTO_DRIVE_HUB_KEEP_OUT_RADIUS = 1.5; //TODO: Measure
+
     public static final int DRIVE_LEFT_FRONT_ID = 11;
     public static final int DRIVE_LEFT_BACK_ID = 12;
     public static final int DRIVE_RIGHT_FRONT_ID = 13;
@@ -102,6 +264,29 @@ public final class Constants {
             new SimpleMotorFeedforward(0.17763, 2.7731, 0.5),
             new SimpleMotorFeedforward(0.17763, 2.7731, 0.5)};
 
+    /**
+     * Adjust {@link #DRIVE_FEEDFORWARD} on the robot using recursive least squares on the measured wheel speeds. Leave off
+     * until it has been checked on the robot.
+     */
+    public static final boolean USE_ADAPTIVE_DRIVE_FEEDFORWARD = false;
+
+    /**
+     * How much of the old data the adaptive drive feedforward keeps each loop. 0.998 forgets half of the data in about 7 seconds
+     * at 50hz.
+     */
+    public static final double DRIVE_FEEDFORWARD_FORGETTING_FACTOR = 0.998;
+
+    /**
+     * Band that the adaptive drive feedforward gains are kept within, as a fraction of {@link #DRIVE_FEEDFORWARD}
+     */
+    public static final double DRIVE_FEEDFORWARD_MIN_SCALE = 0.7;
+    public static final double DRIVE_FEEDFORWARD_MAX_SCALE = 1.3;
+
+    /**
+     * Wheel speeds below this aren't used to adapt the drive feedforward since static friction is hard to model (m/s)
+     */
+    public static final double DRIVE_FEEDFORWARD_ADAPTATION_MIN_SPEED = 0.1;
+
 
     /**
      * What the module states should be in hold mode. The wheels will be put in an X pattern to prevent the robot from moving.
@@ -145,6 +330,16 @@ public final class Constants {
     public static final Translation2d SWERVE_RIGHT_FRONT_LOCATION = new Translation2d(0.307975, -0.307975);
     public static final Translation2d SWERVE_RIGHT_BACK_LOCATION = new Translation2d(-0.307975, -0.307975);
 
+    /**
+     * Same order as {@link #DRIVE_FEEDFORWARD}
+     */
+    public static final Translation2d[] SWERVE_MODULE_LOCATIONS = {
+            SWERVE_LEFT_FRONT_LOCATION,
+            SWERVE_LEFT_BACK_LOCATION,
+            SWERVE_RIGHT_FRONT_LOCATION,
+            SWERVE_RIGHT_BACK_LOCATION
+    };
+
 
     public static final double DRIVE_HIGH_SPEED_M = 4.2;
     @SuppressWarnings("unused") public static final double DRIVE_HIGH_SPEED_IN = Units.metersToInches(DRIVE_HIGH_SPEED_M);
@@ -176,13 +371,39 @@ public final class Constants {
     // TurnPID
 
     public static final double DEFAULT_TURN_P = IS_PRACTICE ? 10.0 : 10.0;
-    public static final double DEFAULT_TURN_I = 0;
-    public static final double DEFAULT_TURN_D = 0.4;
     public static final double TURN_SPEED_LIMIT_WHILE_AIMING = 4.0;
 
+    /**
+     * Fraction of the angular acceleration from {@link #DRIVE_FEEDFORWARD} that the turn controller plans to brake with. Leaves
+     * voltage for driving while turning.
+     */
+    public static final double TURN_ACCELERATION_FRACTION = 0.6; //TODO: Tune
+
+    /**
+     * How far ahead the turn controller predicts the robot heading and the target to make up for latency (s)
+     */
+    public static final double TURN_PREDICTION_HORIZON = 0.04;
+
+    /**
+     * Height of the center of mass of the robot above the floor. Used to calculate how hard we can accelerate before tipping
+     * over. (m)
+     */
+    public static final double ROBOT_CENTER_OF_MASS_HEIGHT = Units.inchesToMeters(8); //TODO: Measure
+
+    /**
+     * Fraction of the acceleration that would tip the robot that we're allowed to use
+     */
+    public static final double TIP_OVER_SAFETY_FACTOR = 0.8;
+
+    /**
+     * Max rate that the drive acceleration can change at. Units are in Meters per Second Cubed
+     */
+    public static final double MAX_DRIVE_JERK = 200; //TODO: Tune
+
     public enum AccelerationLimits {
         /**
-         * Normal acceleration limit while driving. This ensures that the driver can't tip the robot.
+         * Normal acceleration limit while driving. The tip over limit calculated from {@link #ROBOT_CENTER_OF_MASS_HEIGHT} is
+         * usually lower than this, so this only acts as a cap.
          */
         NORMAL_DRIVING(24),
         /**
@@ -220,8 +441,41 @@ public final class Constants {
      */
     public static final double GOAL_RADIUS = Units.inchesToMeters(GOAL_RADIUS_IN);
 
+    /**
+     * Don't shoot while the drive is accelerating harder than this (m/s^2). This is compared against the acceleration commanded
+     * by the drive's motion limiter. It used to be compared against the change in velocity per drive tick, which never got close
+     * to this value. It's above {@link AccelerationLimits#SHOOT_AND_MOVE}, so shooting while moving isn't blocked, and below the
+     * tip over limit, so hard driving at full acceleration still stops the shot.
+     */
     public static final double MAX_ACCELERATION_WHILE_SHOOTING = 7.4;
 
+    /**
+     * Start the feeder when the shooting checks are predicted to pass when the ball leaves the robot, instead of waiting for
+     * them all to pass at once. Off until the logs show how often the prediction commits to a shot that then misses a check.
+     */
+    public static final boolean USE_PREDICTIVE_SHOT_READINESS = false;
+
+    /**
+     * The angular acceleration and jerk used to predict the shooting checks are only differenced over at least this much time
+     * (s)
+     */
+    public static final double SHOT_READINESS_RATE_MIN_DT = 0.015; //TODO: Tune
+
+    /**
+     * The angular acceleration and jerk estimates are reset if the shooting checks haven't run for this long (s)
+     */
+    public static final double SHOT_READINESS_RATE_MAX_DT = 0.2;
+
+    /**
+     * Time constant of the low pass filter on the angular acceleration and jerk used to predict the shooting checks (s)
+     */
+    public static final double SHOT_READINESS_RATE_TIME_CONSTANT = 0.04; //TODO: Tune
+
+    /**
+     * Time from starting the feeder to the ball leaving the shooter (s)
+     */
+    public static final double FEEDER_BALL_EXIT_LATENCY = 0.08; //TODO: Measure
+
     /**
      * Maximum speed of the robot when shooting the ball. (Only applies when doing the static shot) Units are in Meters per Second
      * Squared
@@ -241,8 +495,107 @@ public final class Constants {
      */
     public static final double HOPPER_OUTTAKING_SPEED = 0.3;
 
+    /**
+     * How far the hopper belt moves per rotation of the hopper motor (m)
+     */
+    public static final double HOPPER_METERS_PER_ROTATION = 0.02; //TODO: Measure
+    /**
+     * Distance along the hopper from where balls enter to the beam break (m)
+     */
+    public static final double HOPPER_BEAM_BREAK_POSITION = 0.2; //TODO: Measure
+    /**
+     * Distance along the hopper from where balls enter to the center of a ball waiting at the feeder (m)
+     */
+    public static final double HOPPER_FEEDER_POSITION = 0.8; //TODO: Measure
+    /**
+     * The hopper is stalled if it draws more than this current (A) while moving slower than
+     * {@link #HOPPER_STALL_VELOCITY}
+     */
+    public static final double HOPPER_STALL_CURRENT = 25; //TODO: Tune
+    /**
+     * (m/s)
+     */
+    public static final double HOPPER_STALL_VELOCITY = 0.02;
+    /**
+     * The outtake is throwing balls out when it spins faster than this in the eject direction (rpm)
+     */
+    public static final double OUTTAKE_EJECTING_VELOCITY = 100; //TODO: Tune
+    /**
+     * Stop shooting in auto as soon as the hopper is empty instead of waiting for the whole shoot time. Leave off until the
+     * hopper positions above are measured and a recorded hopper log replays with the right ball counts.
+     */
+    public static final boolean STOP_SHOOTING_WHEN_HOPPER_EMPTY = false;
+    /**
+     * Keep feeding for this long after the hopper looks empty before stopping, in case a ball (like a preload) was put in without
+     * going past the beam break (s)
+     */
+    public static final double HOPPER_EMPTY_FEED_TIME = 0.5; //TODO: Tune
+
+    /**
+     * Record the hopper's ball counting inputs and outputs so they can be rerun offline with {@code ./gradlew replay}. A new
+     * log is started every time the robot code starts, so only turn this on while collecting data.
+     */
+    public static final boolean RECORD_REPLAY_LOGS = false;
+    public static final String REPLAY_LOG_DIRECTORY = "/home/lvuser/replay";
+
+    /**
+     * The oldest replay logs are deleted when there are more than this many. The hopper log grows by about 33 MB for every
+     * hour the robot code runs.
+     */
+    public static final int MAX_REPLAY_LOGS = 20;
+
     public static final String INTAKE_LIMELIGHT_NAME = "limelight-intake";
 
+    /**
+     * Height of the intake limelight lens above the floor (m)
+     */
+    public static final double INTAKE_LIMELIGHT_HEIGHT = 0.6; //TODO: Measure
+    /**
+     * Angle of the intake limelight above horizontal. Negative is pointed down. (degrees)
+     */
+    public static final double INTAKE_LIMELIGHT_PITCH = -30; //TODO: Measure
+    /**
+     * Direction the intake limelight and the intake face, counterclockwise from the front of the robot (degrees)
+     */
+    public static final double INTAKE_LIMELIGHT_YAW = 0; //TODO: Measure
+    /**
+     * Position of the intake limelight relative to the center of the robot (m)
+     */
+    public static final Translation2d INTAKE_LIMELIGHT_OFFSET = new Translation2d(0.35, 0); //TODO: Measure
+    /**
+     * Radius of a cargo ball (m)
+     */
+    public static final double BALL_RADIUS = Units.inchesToMeters(9.5 / 2);
+
+    // Ball chase constants
+    public static final double BALL_CHASE_MAX_VELOCITY = 3; //TODO: Tune
+    /**
+     * Deceleration used to slow down to {@link #BALL_CHASE_CAPTURE_SPEED} before reaching the ball (m/s^2)
+     */
+    public static final double BALL_CHASE_MAX_ACCELERATION = 3; //TODO: Tune
+    /**
+     * How fast to drive through the ball to pick it up (m/s)
+     */
+    public static final double BALL_CHASE_CAPTURE_SPEED = 1; //TODO: Tune
+    /**
+     * Alpha-beta filter gains for the ball position and velocity
+     */
+    public static final double BALL_CHASE_FILTER_ALPHA = 0.5;
+    public static final double BALL_CHASE_FILTER_BETA = 0.1;
+    /**
+     * A detection farther than this from the ball we're chasing is treated as a different ball (m)
+     */
+    public static final double BALL_CHASE_NEW_BALL_DISTANCE = 0.75;
+    /**
+     * Stop chasing a ball the intake limelight hasn't seen for this long (s). It's usually in the intake by then.
+     */
+    public static final double BALL_CHASE_TIMEOUT = 0.5;
+    /**
+     * Number of balls the hopper can hold. The intake limelight goes back to looking for opposing balls once it's full, so
+     * ejecting works again.
+     */
+    public static final int BALL_CHASE_HOPPER_CAPACITY = 2;
+
     public static final int BEAM_BREAK_DIO_ID = 7;
 
     // Outtake Constants
@@ -272,6 +625,29 @@ public final class Constants {
      */
     public static final double OUTTAKE_RUN_PERIOD = 50 / 1000.0d;
 
+    /**
+     * Start ejecting when an opposing ball is predicted to pass {@link #OUTTAKE_VERTICAL_OFFSET_THRESHOLD} within this time, so
+     * the outtake is already spun up when it gets there (s)
+     */
+    public static final double OUTTAKE_EJECT_LEAD_TIME = 0.1; //TODO: Measure
+
+    /**
+     * Noise of the vertical offset of a ball from the intake limelight (degrees)
+     */
+    public static final double INTAKE_BALL_TRACKER_MEASUREMENT_STD_DEV = 0.5; //TODO: Tune
+    /**
+     * How quickly the speed of a ball in the intake limelight's image can change (degrees/s^2)
+     */
+    public static final double INTAKE_BALL_TRACKER_ACCELERATION_STD_DEV = 60; //TODO: Tune
+    /**
+     * A detection this many standard deviations from the tracked ball is treated as a new ball
+     */
+    public static final double INTAKE_BALL_TRACKER_NEW_TRACK_THRESHOLD = 4;
+    /**
+     * Forget a ball if the intake limelight hasn't seen it for this long (s)
+     */
+    public static final double INTAKE_BALL_TRACKER_TIMEOUT = 0.25;
+
     // Shooter Constants
 
     public static final int SHOOTER_PERIOD_MS = 50;
@@ -291,6 +667,47 @@ public final class Constants {
     public static final double DEFAULT_SHOOTER_F = 0.0737;
     public static final double DEFAULT_SHOOTER_IZONE = 500 / FALCON_ENCODER_TICKS_PER_100_MS_TO_RPM;
 
+    /**
+     * Run the flywheel with {@link frc.utility.control.FlywheelController} on the roboRIO instead of the Talon's velocity PID.
+     * Off until the shooter feedforward in {@link SysIdConstants} is refit from a new flywheel log.
+     */
+    public static final boolean USE_ROBORIO_FLYWHEEL_CONTROL = false;
+
+    /**
+     * Period of the roboRIO flywheel control loop (s)
+     */
+    public static final double FLYWHEEL_CONTROL_PERIOD = 0.005;
+
+    /**
+     * Velocity error the flywheel LQR tries to stay within (rotations/s)
+     */
+    public static final double FLYWHEEL_VELOCITY_TOLERANCE = 5; //TODO: Tune
+
+    /**
+     * How much the flywheel Kalman filter trusts the model each loop (rotations/s)
+     */
+    public static final double FLYWHEEL_MODEL_STD_DEV = 0.5;
+
+    /**
+     * How much the flywheel Kalman filter trusts the encoder velocity (rotations/s)
+     */
+    public static final double FLYWHEEL_MEASUREMENT_STD_DEV = 0.5;
+
+    /**
+     * Time from reading the velocity to the Talon applying the new output (s)
+     */
+    public static final double FLYWHEEL_INPUT_DELAY = 0.005;
+
+    /**
+     * Age of the Talon's velocity measurement when we read it. Half of the measurement window plus the status frame period. (s)
+     */
+    public static final double FLYWHEEL_MEASUREMENT_DELAY = 0.01;
+
+    /**
+     * Voltage compensation of the shooter motors. Percent outputs are a fraction of this voltage.
+     */
+    public static final double SHOOTER_VOLTAGE_COMPENSATION = 9;
+
     public static final double SHOOTER_CURRENT_LIMIT = 40;
     public static final double SHOOTER_TRIGGER_THRESHOLD_CURRENT = 40;
     public static final double SHOOTER_TRIGGER_THRESHOLD_TIME = 0;
@@ -439,7 +856,7 @@ public final class Constants {
 
 
     //Climber Constants
-    public static final int CLIMBER_PERIOD = 50;
+    public static final int CLIMBER_PERIOD = 20;
     public static final int CLIMBER_MOTOR_ID = 25;
     public static final int CLIMBER_MOTOR_2_ID = 26;
 
@@ -547,6 +964,40 @@ public final class Constants {
      */
     public static final double ON_NEXT_BAR_ANGLE = 41.0;
 
+    /**
+     * Use the fitted swing to time the transfer to the next bar instead of waiting for the gyro to be in the release window.
+     * Leave off until {@link #CLIMBER_TRANSFER_LATENCY} has been measured on the robot.
+     */
+    public static final boolean USE_SWING_PREDICTOR = false;
+
+    /**
+     * Roll angle the robot should be passing through (while swinging towards the field) when the climb continues to the
+     * next bar (in degrees)
+     */
+    public static final double CLIMBER_RELEASE_ROLL = 0;
+
+    /**
+     * Time between starting the transfer to the next bar and the brake and elevator actually moving (in seconds)
+     */
+    //TODO: Measure
+    public static final double CLIMBER_TRANSFER_LATENCY = 0.08;
+
+    /**
+     * Number of navX roll samples the swing is fit to (2 seconds)
+     */
+    public static final int SWING_ESTIMATOR_HISTORY_SIZE = 400;
+
+    /**
+     * Smallest swing amplitude that the swing estimator will fit (in degrees)
+     */
+    public static final double SWING_ESTIMATOR_MIN_AMPLITUDE = 5;
+
+    /**
+     * Largest RMS error of the swing fit for it to be used (in degrees)
+     */
+    //TODO: Tune
+    public static final double SWING_ESTIMATOR_MAX_RESIDUAL = 1.5;
+
     /**
      * How long only one of the sensor switches can be closed for before the climb will pause
      */
@@ -556,6 +1007,11 @@ public final class Constants {
     public static final double DRIVE_VELOCITY_MEASUREMENT_LATENCY = 0.0025;
     public static final int ROBOT_TRACKER_PERIOD = 10;
 
+    /**
+     * Rate the navX sends new data at (in Hz)
+     */
+    public static final int NAVX_UPDATE_RATE = 200;
+
     public static final int INTAKE_PERIOD = 50;
     public static final int INTAKE_SOLENOID_CHANNEL = 3;
     public static final int INTAKE_MOTOR_DEVICE_ID = 40;
@@ -594,5 +1050,9 @@ public final class Constants {
 
     public static final double BEAM_BREAK_EJECT_TIME = 100000;
     public static final double MIN_AUTO_EJECT_TIME = 0.5;
-    public static final int MAX_BAD_VISION_ITERATIONS = 100 / (VISION_MANAGER_PERIOD);
+    /**
+     * How long the limelight can keep seeing a bad target (without a good frame in between) before we stop shooting (s). This is
+     * a time and not a frame count, so it doesn't depend on the limelight's frame rate.
+     */
+    public static final double MAX_BAD_VISION_TIME = 0.1;
 }
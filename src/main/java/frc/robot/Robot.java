@@ -10,6 +10,7 @@ import com.dacubeking.AutoBuilder.robot.robotinterface.CommandTranslator;
 import com.dacubeking.AutoBuilder.robot.serialization.Serializer;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.networktables.*;
 import edu.wpi.first.wpilibj.DriverStation;
@@ -31,6 +32,7 @@ import frc.utility.OrangeUtility;
 import frc.utility.shooter.visionlookup.ShooterConfig;
 import frc.utility.shooter.visionlookup.ShooterPreset;
 import frc.utility.shooter.visionlookup.VisionLookUpTable;
+import frc.utility.trajectory.TrajectoryPlanner;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
@@ -214,6 +216,8 @@ public class Robot extends TimedRobot {
         enabled.setBoolean(true);
         drive.configBrake();
 
+        drive.setAutoFollower(Drive.AutoFollower.HOLONOMIC_PID);
+
         String autoName = autoChooser.getSelected();
         if (autoName == null) {
             autoName = "1ball"; //Default auto if none is selected
@@ -291,10 +295,17 @@ public class Robot extends TimedRobot {
             GrappleClimber.getInstance().armGrappleClimb();
         }
 
+        if (stick.getFallingEdge(5) || stick.getFallingEdge(6)) {
+            // Stop following the auto drive path once the button is released
+            drive.setTeleop();
+        }
+
         // Shooting / Moving control block
+        boolean chasingBalls = false;
         if (xbox.getRawButton(XboxButtons.LEFT_BUMPER)) {
             // If trying to shoot with left bumper (stop and shoot)
             if (isTryingToRunShooterFromButtonPanel()) {
+                shooterManager.stopAiming();
                 doManualShot(drive, hopper, shooter, visionManager);
             } else {
                 drive.accelerationLimit = AccelerationLimits.STOP_AND_SHOOT;
@@ -304,6 +315,7 @@ public class Robot extends TimedRobot {
             }
         } else if (buttonPanel.getRawButton(6)) {
             // If trying to Hood Eject
+            shooterManager.stopAiming();
             drive.accelerationLimit = AccelerationLimits.NORMAL_DRIVING;
             doShooterEject();
             doNormalDriving();
@@ -312,6 +324,7 @@ public class Robot extends TimedRobot {
             shooter.setFeederChecksDisabled(false);
             if (isTryingToRunShooterFromButtonPanel()) {
                 //If shooting from button (no vision)
+                shooterManager.stopAiming();
                 doManualShot(drive, hopper, shooter, visionManager);
             } else {
                 // Do Shooting while moving (using vision)
@@ -325,6 +338,7 @@ public class Robot extends TimedRobot {
                 }
             }
         } else {
+            shooterManager.stopAiming();
             drive.accelerationLimit = AccelerationLimits.NORMAL_DRIVING;
             if (Timer.getFPGATimestamp() - hopper.getLastBeamBreakOpenTime() > Constants.BEAM_BREAK_EJECT_TIME ||
                     Timer.getFPGATimestamp() < hoodEjectUntilTime) {
@@ -348,6 +362,18 @@ public class Robot extends TimedRobot {
                 // If we're climbing don't allow the robot to be driven
                 if (usingDPad) {
                     drive.updateTurn(getControllerDriveInputs(), Constants.CLIMB_LINEUP_ANGLE, useFieldRelative, 0);
+                } else if (stick.getRawButton(5)) {
+                    // Drive to the closest spot on the shooting ring while facing the goal
+                    Translation2d robotPosition = robotTracker.getLastEstimatedPoseMeters().getTranslation();
+                    Translation2d shootingPosition = TrajectoryPlanner.closestPointOnRing(robotPosition, GOAL_POSITION,
+                            AUTO_DRIVE_SHOOTING_RING_RADIUS);
+                    Translation2d toGoal = GOAL_POSITION.minus(shootingPosition);
+                    drive.driveToPosition(shootingPosition, new Rotation2d(toGoal.getX(), toGoal.getY()));
+                } else if (stick.getRawButton(6)) {
+                    drive.driveToPosition(AUTO_DRIVE_HANGER_POSITION, Constants.CLIMB_LINEUP_ANGLE);
+                } else if (stick.getRawButton(4)) {
+                    drive.chaseBalls();
+                    chasingBalls = true;
                 } else {
                     doNormalDriving();
                 }
@@ -356,6 +382,8 @@ public class Robot extends TimedRobot {
                 drive.swerveDrive(new ChassisSpeeds(0, 0, 0));
             }
         }
+        // The hopper owns the intake limelight, so it has to switch it over for the chase
+        hopper.setChasingBalls(chasingBalls);
 
         updateShooterButtonPanels();
 
@@ -582,6 +610,8 @@ public class Robot extends TimedRobot {
     public void disabledInit() {
         disabledTime = Timer.getFPGATimestamp();
         hasKilledAuto = false;
+        ShooterManager.getInstance().stopAiming();
+        Hopper.getInstance().setChasingBalls(false);
         Drive.getInstance().configCoast();
         enabled.setBoolean(false);
     }
@@ -696,6 +726,7 @@ public class Robot extends TimedRobot {
         Hopper.getInstance().start();
         Shooter.getInstance().start();
         VisionManager.getInstance().start();
+        ShooterManager.getInstance().start();
         DashboardHandler.getInstance().start();
 
         if (Constants.GRAPPLE_CLIMB) {
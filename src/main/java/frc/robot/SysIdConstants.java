@@ -0,0 +1,33 @@
+package frc.robot;
+
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+
+/**
+ * Generated by {@link frc.utility.sysid.SysIdLogFitter}. Do not edit, run {@code ./gradlew fitSysId} instead.
+ * <p>
+ * Drivetrain: sysid_data20220218-191605DRIVETRAIN.json
+ * <p>
+ * Flywheel: sysid_data20220213-161655SHOOTER_FLYWHEEL.json
+ */
+public final class SysIdConstants {
+    private SysIdConstants() {}
+
+    // Left:  kS=0.72530 kV=0.86274 kA=0.00423 (r^2=0.9999, rmse=0.0410 V, 4603 samples, 337 rejected)
+    // Right: kS=0.68858 kV=0.86163 kA=0.02840 (r^2=0.9997, rmse=0.0651 V, 4647 samples, 289 rejected)
+    /**
+     * Same order as {@link Constants#SWERVE_MODULE_LOCATIONS}. The left modules use the left side fit and the right modules
+     * use the right side fit.
+     */
+    public static final SimpleMotorFeedforward[] DRIVE_FEEDFORWARD = {
+            new SimpleMotorFeedforward(0.72530, 0.86274, 0.00423),
+            new SimpleMotorFeedforward(0.72530, 0.86274, 0.00423),
+            new SimpleMotorFeedforward(0.68858, 0.86163, 0.02840),
+            new SimpleMotorFeedforward(0.68858, 0.86163, 0.02840)
+    };
+
+    // kS=0.76129 kV=0.11361 kA=0.00357 (r^2=0.9999, rmse=0.0399 V, 12539 samples, 364 rejected)
+    /**
+     * Flywheel feedforward (in rotations)
+     */
+    public static final SimpleMotorFeedforward SHOOTER_FEEDFORWARD = new SimpleMotorFeedforward(0.76129, 0.11361, 0.00357);
+}
@@ -67,6 +67,18 @@ public abstract class AbstractSubsystem implements Runnable, AutoCloseable {
 
     }
 
+    /**
+     * Called between updates. By default, sleeps for the rest of the period. Subsystems that are driven by new data can override
+     * this to wake up as soon as the data arrives.
+     *
+     * @param executionTimeMS How long the last update took (ms)
+     */
+    protected void waitForNextUpdate(double executionTimeMS) throws InterruptedException {
+        if (period - executionTimeMS > 0) {
+            Thread.sleep((long) (period - executionTimeMS));
+        }
+    }
+
     int lastLength = 20;
 
     @Override
@@ -86,9 +98,7 @@ public abstract class AbstractSubsystem implements Runnable, AutoCloseable {
             double executionTimeMS = (Timer.getFPGATimestamp() - startTime) * 1000;
             logData(subsystemName + " Execution Time", executionTimeMS);
             try {
-                if (period - executionTimeMS > 0) {
-                    Thread.sleep((long) (period - executionTimeMS));
-                }
+                waitForNextUpdate(executionTimeMS);
             } catch (InterruptedException e) {
                 System.out.println("Thread interrupted " + subsystemName + " message: " + e.getMessage());
                 return;
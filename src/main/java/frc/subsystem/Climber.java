@@ -6,57 +6,20 @@ import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.Solenoid;
 import edu.wpi.first.wpilibj.Timer;
 import frc.robot.Constants;
+import frc.utility.DriveCommand.Priority;
 import frc.utility.controllers.LazyTalonSRX;
+import frc.utility.statemachine.StateMachine;
+import frc.utility.statemachine.StateMachine.Command;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.Consumer;
-import java.util.function.Function;
 
 import static frc.robot.Constants.CLIMBER_ENCODER_TICKS_PER_INCH;
 import static frc.robot.Constants.DO_BACK_HOOK_CLIMB;
 import static frc.utility.Pneumatics.getPneumaticsHub;
 
-class ClimbStep {
-    /**
-     * The action to perform when the state is entered.
-     */
-    final Consumer<Climber> startAction;
-
-    /**
-     * The condition to wait for before transitioning to the next state.
-     * <p>
-     * Returns true when the condition is met. (When true is returned, the climber state should be transitioned to the next
-     * state.) aka (true = continue, false = wait)
-     */
-    final Function<Climber, Boolean> waitCondition;
-
-    /**
-     * The action to perform when the state is exited.
-     */
-    final Consumer<Climber> endAction;
-
-    /**
-     * true if this step causes something on the robot to move
-     */
-    final boolean runInStepByStep;
-
-    /**
-     * @param startAction     The action to perform when the state is entered
-     * @param waitCondition   The condition to wait for before transitioning to the next state (true = continue, false = wait)
-     * @param endAction       The action to perform when the state is exited
-     * @param runInStepByStep if this step causes something on the robot to move
-     */
-    ClimbStep(Consumer<Climber> startAction, Function<Climber, Boolean> waitCondition, Consumer<Climber> endAction,
-              boolean runInStepByStep) {
-        this.startAction = startAction;
-        this.waitCondition = waitCondition;
-        this.endAction = endAction;
-        this.runInStepByStep = runInStepByStep;
-    }
-}
-
 public final class Climber extends AbstractSubsystem {
 
     private static Climber INSTANCE;
@@ -102,19 +65,24 @@ public final class Climber extends AbstractSubsystem {
     private final @NotNull Solenoid pivotSolenoid;
     private final @NotNull Solenoid brakeSolenoid;
 
-    private double data;
+    /**
+     * Runs the climb. Only updated on the climber thread; other threads send it commands.
+     */
+    private final @NotNull StateMachine<ClimbState> climbStateMachine;
 
-    private @NotNull Climber.ClimbState climbState = ClimbState.IDLE;
+    private static final String[] CLIMB_STATE_TIME_KEYS = new String[ClimbState.values().length];
+
+    static {
+        for (ClimbState climbState : ClimbState.values()) {
+            CLIMB_STATE_TIME_KEYS[climbState.ordinal()] = "Climber " + climbState + " Time";
+        }
+    }
 
-    private boolean isPaused = false;
     private double pausedClimberSetpoint;
     private @NotNull BrakeState pausedBrakeState = BrakeState.BRAKING;
-    private ControlMode pausedClimberMode;
-    private boolean stepByStep = false;
-    private boolean advanceStep = false;
-    private boolean skipChecks = false;
-    private boolean ranEndAction = false;
-    private boolean startingClimb = true;
+    private ControlMode pausedClimberMode = ControlMode.PercentOutput;
+    private volatile boolean startingClimb = true;
+    private double timeUntilSwingRelease = Double.NaN;
 
     public enum ClawState {
         LATCHED, UNLATCHED
@@ -156,71 +124,27 @@ public final class Climber extends AbstractSubsystem {
         /**
          * The climb state when we're not climbing.
          */
-        IDLE(
-                new ClimbStep(
-                        (cl) -> {},
-                        (cl) -> false,
-                        (cl) -> {},
-                        true
-                )
-        ),
+        IDLE,
 
         /**
          * Waits till the conditions are right to start the climb. Note: we run the same climb sequence twice. The first time it
          * runs we end up at the high bar and the second time we run we end up at the traversal bar.
+         * <p>
+         * With {@link Constants#USE_SWING_PREDICTOR} the fitted swing is used to start the transfer
+         * {@link Constants#CLIMBER_TRANSFER_LATENCY} before the robot swings through {@link Constants#CLIMBER_RELEASE_ROLL}.
          */
-        START_CLIMB(
-                new ClimbStep(
-                        (cl) -> {},
-                        (cl) -> {
-                            // If this is the first time we're running the climb sequence, we want to immediately start the
-                            // climb. (This is after the robot has deployed the climber elevator and the robot is still on the
-                            // ground)
-                            if (cl.startingClimb) return true;
-
-                            // Check that we're in the right part of our swing to continue the climb. We should be in the middle
-                            // of the swing and be moving towards the field. Climbing at this point gives the robot the least
-                            // amount of rotational energy.
-                            AHRS gyro = RobotTracker.getInstance().getGyro();
-                            return (gyro.getRoll() < 10 && gyro.getRoll() > -10 &&
-                                    RobotTracker.getInstance().getGyroRollVelocity() < 0);
-                        },
-                        (cl) -> {},
-                        false
-                )
-        ),
+        START_CLIMB,
 
         /**
          * Lowers the elevator arm until the contact switch is pressed on the bar.
          */
-        LOWER_ELEVATOR_ARM_TILL_PIVOT_ARM_CONTACT(
-                new ClimbStep(
-                        (cl) -> {
-                            cl.startingClimb = false;
-                            cl.setBrakeState(BrakeState.FREE);
-                            cl.climberMotor.set(ControlMode.MotionMagic, Constants.CLIMBER_GRAB_ON_FIRST_BAR_EXTENSION);
-                            cl.setClawState(ClawState.UNLATCHED);
-                        },
-                        (cl) -> Math.abs(
-                                Constants.CLIMBER_GRAB_ON_FIRST_BAR_EXTENSION - cl.climberMotor.getSelectedSensorPosition())
-                                < Constants.CLIMBER_MOTOR_MAX_ERROR,
-                        (cl) -> {},
-                        true
-                )
-        ),
+        LOWER_ELEVATOR_ARM_TILL_PIVOT_ARM_CONTACT,
 
         /**
          * Extends the solenoid to latch the pivoting arm (one with the pneumatic claws) onto the bar. Waits until the latch
          * switch is pressed.
          */
-        LATCH_PIVOT_ARM(
-                new ClimbStep(
-                        (cl) -> cl.setClawState(ClawState.LATCHED),
-                        Climber::isPivotingArmLatched,
-                        (cl) -> {},
-                        true
-                )
-        ),
+        LATCH_PIVOT_ARM,
 
         /**
          * On the first run or when the back hook climb is disabled:
@@ -236,22 +160,7 @@ public final class Climber extends AbstractSubsystem {
          *     ({@link Constants#MAX_CLIMBER_EXTENSION}). At this point the robot is only supporting the pivoting arm.
          * </ul>
          */
-        MOVE_WEIGHT_TO_PIVOT_ARM(
-                new ClimbStep(
-                        (cl) -> {
-                            if (cl.shouldDoBackHookStep()) {
-                                cl.data = Constants.MAX_CLIMBER_EXTENSION;
-                                cl.climberMotor.set(ControlMode.MotionMagic, Constants.MAX_CLIMBER_EXTENSION);
-                            } else {
-                                cl.data = Constants.CLIMBER_ELEVATOR_UNLATCH_AMOUNT;
-                                cl.climberMotor.set(ControlMode.MotionMagic, Constants.CLIMBER_ELEVATOR_MAX_SAFE_HEIGHT);
-                            }
-                        },
-                        (cl) -> cl.climberMotor.getSelectedSensorPosition() > cl.data - Constants.CLIMBER_MOTOR_MAX_ERROR,
-                        (cl) -> {},
-                        true
-                )
-        ),
+        MOVE_WEIGHT_TO_PIVOT_ARM,
 
         /**
          * On the first run or when the back hook climb is disabled:
@@ -264,22 +173,7 @@ public final class Climber extends AbstractSubsystem {
          *     Do Nothing
          * </ul>
          */
-        PIVOT_PIVOT_ARM(
-                new ClimbStep(
-                        (cl) -> {
-                            if (!cl.shouldDoBackHookStep()) {
-                                cl.setPivotState(PivotState.PIVOTED);
-                            }
-                            cl.data = Timer.getFPGATimestamp();
-                        },
-                        (cl) -> {
-                            if (cl.shouldDoBackHookStep()) return true; // We didn't pivot, continue
-                            return Timer.getFPGATimestamp() - cl.data > Constants.ARM_PIVOT_DURATION; // true if we ARM_PIVOT_DURATION time has elapsed
-                        },
-                        (cl) -> {},
-                        true
-                )
-        ),
+        PIVOT_PIVOT_ARM,
 
         /**
          * On the first run or when the back hook climb is disabled:
@@ -293,22 +187,7 @@ public final class Climber extends AbstractSubsystem {
          *     just immediately continue and pivot the robot.
          * </ul>
          */
-        WAIT_TILL_EXTENSION_IS_SAFE(
-                new ClimbStep(
-                        (cl) -> {},
-                        (cl) -> {
-                            AHRS gyro = RobotTracker.getInstance().getGyro();
-                            if (cl.shouldDoBackHookStep()) {
-                                return true;
-                            } else {
-                                return RobotTracker.getInstance().getGyroRollVelocity() > 0
-                                        && gyro.getRoll() > Constants.ELEVATOR_ARM_SAFE_ANGLE;
-                            }
-                        },
-                        (cl) -> {},
-                        false
-                )
-        ),
+        WAIT_TILL_EXTENSION_IS_SAFE,
 
         /**
          * On the first run or when the back hook climb is disabled:
@@ -321,21 +200,7 @@ public final class Climber extends AbstractSubsystem {
          *     Skip this step. The arm has already been commanded to extend past the safe height.
          * </ul>
          */
-        EXTEND_ELEVATOR_ARM_PAST_SAFE_LENGTH(
-                new ClimbStep(
-                        (cl) -> {
-                            if (!cl.shouldDoBackHookStep()) {
-                                cl.climberMotor.set(ControlMode.MotionMagic, Constants.MAX_CLIMBER_EXTENSION);
-                            }
-                        },
-                        (cl) -> {
-                            if (cl.timesRun == 1) return true;
-                            return cl.climberMotor.getSelectedSensorPosition() > Constants.MAX_CLIMBER_EXTENSION - Constants.CLIMBER_MOTOR_MAX_ERROR;
-                        },
-                        (cl) -> {},
-                        true
-                )
-        ),
+        EXTEND_ELEVATOR_ARM_PAST_SAFE_LENGTH,
 
         /**
          * On the first run or when the back hook climb is disabled:
@@ -350,23 +215,7 @@ public final class Climber extends AbstractSubsystem {
          *     bar.
          * </ul>
          */
-        CONTACT_NEXT_BAR(
-                new ClimbStep(
-                        (cl) -> {
-                            if (cl.shouldDoBackHookStep()) {
-                                // Don't unpivot if we're using back hooks
-                                cl.setPivotState(PivotState.PIVOTED);
-                                cl.data = Timer.getFPGATimestamp();
-                            } else {
-                                cl.setPivotState(PivotState.INLINE);
-                                cl.data = Timer.getFPGATimestamp() + Constants.ARM_UNPIVOT_DURATION;
-                            }
-                        },
-                        (cl) -> Timer.getFPGATimestamp() - cl.data > 0,
-                        (cl) -> {},
-                        true
-                )
-        ),
+        CONTACT_NEXT_BAR,
 
         /**
          * On the first run or when the back hook climb is disabled:
@@ -378,20 +227,7 @@ public final class Climber extends AbstractSubsystem {
          *     Stop the climb from continuing. Wait for the operator to force advance the climb to unlatch the robot from the bar.
          * </ul>
          */
-        WAIT_FOR_SWING_STOP(
-                new ClimbStep(
-                        (cl) -> cl.data = Double.MAX_VALUE,
-                        (cl) -> {
-                            AHRS gyro = RobotTracker.getInstance().getGyro();
-                            if (cl.shouldDoBackHookStep()) {
-                                return false;
-                            }
-                            return gyro.getRoll() < Constants.ON_NEXT_BAR_ANGLE;
-                        },
-                        (cl) -> {},
-                        false
-                )
-        ),
+        WAIT_FOR_SWING_STOP,
 
         /**
          * On the first run or when the back hook climb is disabled:
@@ -404,103 +240,228 @@ public final class Climber extends AbstractSubsystem {
          *     Bring the elevator arm down a bit to ensure that the robot doesn't drop much after unlatching from the previous bar.
          * </ul>
          */
-        CONTACT_ELEVATOR_ARM_WITH_NEXT_BAR(
-                new ClimbStep(
-                        (cl) -> {
-                            if (cl.shouldDoBackHookStep()) {
-                                cl.climberMotor.set(ControlMode.MotionMagic,
-                                        Constants.CLIMBER_GRAB_ON_NEXT_BAR_EXTENSION_BACK_HOOK);
-                                cl.data = Constants.CLIMBER_GRAB_ON_NEXT_BAR_EXTENSION_BACK_HOOK;
-                            } else {
-                                cl.climberMotor.set(ControlMode.MotionMagic,
-                                        Constants.CLIMBER_GRAB_ON_NEXT_BAR_EXTENSION_FRONT_HOOK);
-                                cl.data = Constants.CLIMBER_GRAB_ON_NEXT_BAR_EXTENSION_FRONT_HOOK;
-                            }
-                            Drive.getInstance().setSwerveModuleStates(Constants.SWERVE_MODULE_STATE_FORWARD, true);
-                        },
-                        (cl) -> Math.abs(cl.climberMotor.getSelectedSensorPosition() - cl.data)
-                                < (0.3 * CLIMBER_ENCODER_TICKS_PER_INCH),
-                        (cl) -> {
-                            cl.stopClimberMotor();
-                            cl.setBrakeState(BrakeState.BRAKING);
-                        },
-                        true
-                )
-        ),
+        CONTACT_ELEVATOR_ARM_WITH_NEXT_BAR,
 
         /**
          * Wait a short amount of time to ensure that the break is engaged.
          */
-        WAIT_FOR_BRAKE_TIME(
-                new ClimbStep(
-                        (cl) -> cl.data = Timer.getFPGATimestamp(),
-                        (cl) -> {
-                            if (Timer.getFPGATimestamp() - cl.data > 0.25) {
-                                cl.climberMotor.set(ControlMode.PercentOutput, 0);
-                                return true;
-                            }
-                            return false;
-                        },
-                        (cl) -> cl.climberMotor.set(ControlMode.PercentOutput, 0),
-                        true
-                )
-        ),
+        WAIT_FOR_BRAKE_TIME,
 
         /**
          * Unlatches the pivot arm so that the robot is supported by the elevator arm and is on the next bar.
          */
-        UNLATCH_PIVOT_ARM(
-                new ClimbStep(
-                        (cl) -> {
-                            cl.setClawState(ClawState.UNLATCHED);
-                            cl.data = Timer.getFPGATimestamp();
-                        },
-                        (cl) -> Timer.getFPGATimestamp() - cl.data > Constants.PIVOT_ARM_UNLATCH_DURATION,
-                        (cl) -> {},
-                        true
-                )
-        ),
+        UNLATCH_PIVOT_ARM,
 
         /**
          * If we're using back hooks, we need to move the pivot arm back into the robot after we unlatch it.
          */
-        UNPIVOT_ARM(
-                new ClimbStep(
-                        (cl) -> {
-                            cl.setPivotState(PivotState.INLINE);
-                            cl.data = Timer.getFPGATimestamp();
-                        },
-                        (cl) -> {
-                            if (cl.timesRun != 1 || !DO_BACK_HOOK_CLIMB) {
-                                return true; //We've already unpivoted, so we don't need to wait
-                            }
-                            return Timer.getFPGATimestamp() - cl.data > Constants.ARM_UNPIVOT_DURATION;
-                        },
-                        (cl) -> {},
-                        true
-                )
-        );
+        UNPIVOT_ARM
 
         // At this point the climb will either stop or go back to the START_CLIMB step (depending on how many loops
         // we've already done).
+    }
 
-        /**
-         * @param climbStep The climb step to use when doing a manual climb, step by step
-         */
-        ClimbState(ClimbStep climbStep) {
-            this.climbStep = climbStep;
-        }
+    /**
+     * Builds the transition table for the climb. The entry action of each state starts it moving, the done condition is what
+     * it waits for, and the exit action runs as soon as it's done. The climb runs through the states in order and loops back
+     * to {@link ClimbState#START_CLIMB} once to get to the traversal bar.
+     */
+    private @NotNull StateMachine<ClimbState> createClimbStateMachine() {
+        StateMachine<ClimbState> machine = new StateMachine<>(ClimbState.class, ClimbState.IDLE, ClimbState.START_CLIMB);
 
-        /**
-         * The climb step to use when doing a manual climb, step by step
-         */
-        final ClimbStep climbStep;
+        machine.setCommandAction(Command.START, () -> {
+            otherPivotingArmMustContactByTime = Double.MAX_VALUE;
+            startingClimb = true;
+            setBrakeState(BrakeState.FREE);
+            hasPausedState.set(false);
+        }).setCommandAction(Command.STOP, () -> {
+            // stopClimb() already did this, but a state could have moved the climber again before the stop was handled
+            climberMotor.set(ControlMode.PercentOutput, 0);
+            setBrakeState(BrakeState.BRAKING);
+            timesRun = 0;
+            hasPausedState.set(false);
+        }).setCommandAction(Command.PAUSE, () -> {
+            // A state could have started something new after pauseClimb() saved the climber's state and stopped it
+            if (climberMotor.getControlMode() != ControlMode.PercentOutput || climberMotor.getSetpoint() != 0) {
+                savePausedState();
+            }
+            climberMotor.set(ControlMode.PercentOutput, 0);
+            setBrakeState(BrakeState.BRAKING);
+        }).setCommandAction(Command.RESUME, () -> {
+            otherPivotingArmMustContactByTime = Double.MAX_VALUE;
+            setBrakeState(pausedBrakeState);
+            climberMotor.set(pausedClimberMode, pausedClimberSetpoint);
+            hasPausedState.set(false);
+        });
+
+        machine.addState(ClimbState.START_CLIMB,
+                () -> {},
+                () -> {
+                    // If this is the first time we're running the climb sequence, we want to immediately start the
+                    // climb. (This is after the robot has deployed the climber elevator and the robot is still on the
+                    // ground)
+                    if (startingClimb) return true;
+
+                    // Predicted in update() before the state machine runs
+                    if (Constants.USE_SWING_PREDICTOR) {
+                        if (!Double.isNaN(timeUntilSwingRelease)) {
+                            // Start early enough for the brake and motor to be moving at the release, rounded to the
+                            // closest update
+                            return timeUntilSwingRelease - Constants.CLIMBER_TRANSFER_LATENCY
+                                    < Constants.CLIMBER_PERIOD / 2000.0;
+                        }
+                    }
+
+                    // Check that we're in the right part of our swing to continue the climb. We should be in the middle
+                    // of the swing and be moving towards the field. Climbing at this point gives the robot the least
+                    // amount of rotational energy.
+                    AHRS gyro = RobotTracker.getInstance().getGyro();
+                    return (gyro.getRoll() < 10 && gyro.getRoll() > -10 &&
+                            RobotTracker.getInstance().getGyroRollVelocity() < 0);
+                },
+                () -> {},
+                true
+        ).addState(ClimbState.LOWER_ELEVATOR_ARM_TILL_PIVOT_ARM_CONTACT,
+                () -> {
+                    startingClimb = false;
+                    setBrakeState(BrakeState.FREE);
+                    climberMotor.set(ControlMode.MotionMagic, Constants.CLIMBER_GRAB_ON_FIRST_BAR_EXTENSION);
+                    setClawState(ClawState.UNLATCHED);
+                },
+                () -> Math.abs(Constants.CLIMBER_GRAB_ON_FIRST_BAR_EXTENSION - climberMotor.getSelectedSensorPosition())
+                        < Constants.CLIMBER_MOTOR_MAX_ERROR,
+                () -> {},
+                false
+        ).addState(ClimbState.LATCH_PIVOT_ARM,
+                () -> setClawState(ClawState.LATCHED),
+                this::isPivotingArmLatched,
+                () -> {},
+                false
+        ).addState(ClimbState.MOVE_WEIGHT_TO_PIVOT_ARM,
+                () -> {
+                    if (shouldDoBackHookStep()) {
+                        climberMotor.set(ControlMode.MotionMagic, Constants.MAX_CLIMBER_EXTENSION);
+                    } else {
+                        climberMotor.set(ControlMode.MotionMagic, Constants.CLIMBER_ELEVATOR_MAX_SAFE_HEIGHT);
+                    }
+                },
+                () -> {
+                    double weightMovedExtension = shouldDoBackHookStep() ?
+                            Constants.MAX_CLIMBER_EXTENSION : Constants.CLIMBER_ELEVATOR_UNLATCH_AMOUNT;
+                    return climberMotor.getSelectedSensorPosition() > weightMovedExtension - Constants.CLIMBER_MOTOR_MAX_ERROR;
+                },
+                () -> {},
+                false
+        ).addState(ClimbState.PIVOT_PIVOT_ARM,
+                () -> {
+                    if (!shouldDoBackHookStep()) {
+                        setPivotState(PivotState.PIVOTED);
+                    }
+                },
+                // We don't pivot when doing the back hook step
+                () -> shouldDoBackHookStep() || machine.getTimeInState() > Constants.ARM_PIVOT_DURATION,
+                () -> {},
+                false
+        ).addState(ClimbState.WAIT_TILL_EXTENSION_IS_SAFE,
+                () -> {},
+                () -> {
+                    if (shouldDoBackHookStep()) return true;
+                    AHRS gyro = RobotTracker.getInstance().getGyro();
+                    return RobotTracker.getInstance().getGyroRollVelocity() > 0
+                            && gyro.getRoll() > Constants.ELEVATOR_ARM_SAFE_ANGLE;
+                },
+                () -> {},
+                true
+        ).addState(ClimbState.EXTEND_ELEVATOR_ARM_PAST_SAFE_LENGTH,
+                () -> {
+                    if (!shouldDoBackHookStep()) {
+                        climberMotor.set(ControlMode.MotionMagic, Constants.MAX_CLIMBER_EXTENSION);
+                    }
+                },
+                () -> timesRun == 1 || climberMotor.getSelectedSensorPosition()
+                        > Constants.MAX_CLIMBER_EXTENSION - Constants.CLIMBER_MOTOR_MAX_ERROR,
+                () -> {},
+                false
+        ).addState(ClimbState.CONTACT_NEXT_BAR,
+                () -> {
+                    if (shouldDoBackHookStep()) {
+                        // Don't unpivot if we're using back hooks
+                        setPivotState(PivotState.PIVOTED);
+                    } else {
+                        setPivotState(PivotState.INLINE);
+                    }
+                },
+                () -> machine.getTimeInState() > (shouldDoBackHookStep() ? 0 : Constants.ARM_UNPIVOT_DURATION),
+                () -> {},
+                false
+        ).addState(ClimbState.WAIT_FOR_SWING_STOP,
+                () -> {},
+                () -> !shouldDoBackHookStep() && RobotTracker.getInstance().getGyro().getRoll() < Constants.ON_NEXT_BAR_ANGLE,
+                () -> {},
+                true
+        ).addState(ClimbState.CONTACT_ELEVATOR_ARM_WITH_NEXT_BAR,
+                () -> {
+                    climberMotor.set(ControlMode.MotionMagic, getGrabOnNextBarExtension());
+                    Drive.getInstance().setSwerveModuleStates(Constants.SWERVE_MODULE_STATE_FORWARD, true,
+                            Priority.CLIMBER);
+                },
+                () -> Math.abs(climberMotor.getSelectedSensorPosition() - getGrabOnNextBarExtension())
+                        < (0.3 * CLIMBER_ENCODER_TICKS_PER_INCH),
+                () -> {
+                    stopClimberMotor();
+                    setBrakeState(BrakeState.BRAKING);
+                },
+                false
+        ).addState(ClimbState.WAIT_FOR_BRAKE_TIME,
+                () -> {},
+                () -> machine.getTimeInState() > 0.25,
+                () -> climberMotor.set(ControlMode.PercentOutput, 0),
+                false
+        ).addState(ClimbState.UNLATCH_PIVOT_ARM,
+                () -> setClawState(ClawState.UNLATCHED),
+                () -> machine.getTimeInState() > Constants.PIVOT_ARM_UNLATCH_DURATION,
+                () -> {},
+                false
+        ).addState(ClimbState.UNPIVOT_ARM,
+                () -> setPivotState(PivotState.INLINE),
+                () -> {
+                    if (timesRun != 1 || !DO_BACK_HOOK_CLIMB) {
+                        return true; //We've already unpivoted, so we don't need to wait
+                    }
+                    return machine.getTimeInState() > Constants.ARM_UNPIVOT_DURATION;
+                },
+                () -> {},
+                false
+        );
+
+        machine.addTransition(ClimbState.START_CLIMB, ClimbState.LOWER_ELEVATOR_ARM_TILL_PIVOT_ARM_CONTACT)
+                .addTransition(ClimbState.LOWER_ELEVATOR_ARM_TILL_PIVOT_ARM_CONTACT, ClimbState.LATCH_PIVOT_ARM)
+                .addTransition(ClimbState.LATCH_PIVOT_ARM, ClimbState.MOVE_WEIGHT_TO_PIVOT_ARM)
+                .addTransition(ClimbState.MOVE_WEIGHT_TO_PIVOT_ARM, ClimbState.PIVOT_PIVOT_ARM)
+                .addTransition(ClimbState.PIVOT_PIVOT_ARM, ClimbState.WAIT_TILL_EXTENSION_IS_SAFE)
+                .addTransition(ClimbState.WAIT_TILL_EXTENSION_IS_SAFE, ClimbState.EXTEND_ELEVATOR_ARM_PAST_SAFE_LENGTH)
+                .addTransition(ClimbState.EXTEND_ELEVATOR_ARM_PAST_SAFE_LENGTH, ClimbState.CONTACT_NEXT_BAR)
+                .addTransition(ClimbState.CONTACT_NEXT_BAR, ClimbState.WAIT_FOR_SWING_STOP)
+                .addTransition(ClimbState.WAIT_FOR_SWING_STOP, ClimbState.CONTACT_ELEVATOR_ARM_WITH_NEXT_BAR)
+                .addTransition(ClimbState.CONTACT_ELEVATOR_ARM_WITH_NEXT_BAR, ClimbState.WAIT_FOR_BRAKE_TIME)
+                .addTransition(ClimbState.WAIT_FOR_BRAKE_TIME, ClimbState.UNLATCH_PIVOT_ARM)
+                .addTransition(ClimbState.UNLATCH_PIVOT_ARM, ClimbState.UNPIVOT_ARM)
+                // Run the sequence a second time to get from the high bar to the traversal bar
+                .addTransition(ClimbState.UNPIVOT_ARM, ClimbState.START_CLIMB, () -> timesRun < 1, () -> timesRun++)
+                .addTransition(ClimbState.UNPIVOT_ARM, ClimbState.IDLE);
+
+        return machine;
     }
 
     private boolean shouldDoBackHookStep() {
         return this.timesRun == 1 && DO_BACK_HOOK_CLIMB;
     }
 
+    private double getGrabOnNextBarExtension() {
+        return shouldDoBackHookStep() ?
+                Constants.CLIMBER_GRAB_ON_NEXT_BAR_EXTENSION_BACK_HOOK : Constants.CLIMBER_GRAB_ON_NEXT_BAR_EXTENSION_FRONT_HOOK;
+    }
+
     double otherPivotingArmMustContactByTime = Double.MAX_VALUE;
 
     /**
@@ -545,11 +506,11 @@ public final class Climber extends AbstractSubsystem {
         return false;
     }
 
-    private int timesRun;
+    private volatile int timesRun;
 
 
     private Climber() {
-        super(Constants.CLIMBER_PERIOD, 1);
+        super(Constants.CLIMBER_PERIOD, 4);
 
         climberMotor = new LazyTalonSRX(Constants.CLIMBER_MOTOR_ID);
         climberMotor2 = new LazyTalonSRX(Constants.CLIMBER_MOTOR_2_ID);
@@ -604,38 +565,55 @@ public final class Climber extends AbstractSubsystem {
         climberMotor.setSelectedSensorPosition(0);
 
         timesRun = 0;
+
+        climbStateMachine = createClimbStateMachine();
     }
 
     /**
      * Starts the automated climb sequence and deactivates the brake.
      */
-    public synchronized void startClimb() {
-        isPaused = false;
-        otherPivotingArmMustContactByTime = Double.MAX_VALUE;
-        climbState = ClimbState.START_CLIMB;
-        startingClimb = true;
-        setBrakeState(BrakeState.FREE);
+    public void startClimb() {
+        climbStateMachine.sendCommand(Command.START);
     }
 
     /**
      * Stops the climb and resets the climber state. Also activates the brake.
+     * <p>
+     * The motor is stopped and the brake is set right away instead of waiting for the climber thread to handle the stop.
      */
-    public synchronized void stopClimb() {
-        climbState = ClimbState.IDLE;
+    public void stopClimb() {
         climberMotor.set(ControlMode.PercentOutput, 0);
         setBrakeState(BrakeState.BRAKING);
-        timesRun = 0;
+        climbStateMachine.sendCommand(Command.STOP);
         hasStalledIntoBottom = false;
         minRunTime = -1;
     }
 
+    /**
+     * Set once the climber's state has been saved for a pause, so that pausing again before the first pause is handled doesn't
+     * save the stopped climber over it. Cleared when the climb is resumed, started or stopped.
+     */
+    private final @NotNull AtomicBoolean hasPausedState = new AtomicBoolean(false);
+
     /**
      * Pauses the climb.
      * <p>
-     * It first stores the current state of the climber in a variable, then sets stops the climber and activates the brake.
+     * It first stores the current state of the climber in a variable, then stops the climber and activates the brake right
+     * away, without waiting for the climber thread to handle the pause.
+     */
+    public void pauseClimb() {
+        if (!climbStateMachine.isPaused() && hasPausedState.compareAndSet(false, true)) {
+            savePausedState();
+        }
+        climberMotor.set(ControlMode.PercentOutput, 0);
+        setBrakeState(BrakeState.BRAKING);
+        climbStateMachine.sendCommand(Command.PAUSE);
+    }
+
+    /**
+     * Remembers what the climber is doing so that {@link #resumeClimb()} can go back to it
      */
-    public synchronized void pauseClimb() {
-        isPaused = true;
+    private void savePausedState() {
         pausedClimberMode = climberMotor.getControlMode();
         if (pausedClimberMode == ControlMode.PercentOutput) {
             pausedClimberSetpoint = climberMotor.getMotorOutputPercent();
@@ -643,8 +621,6 @@ public final class Climber extends AbstractSubsystem {
             pausedClimberSetpoint = climberMotor.getClosedLoopTarget();
         }
         pausedBrakeState = getBrakeState();
-        climberMotor.set(ControlMode.PercentOutput, 0);
-        setBrakeState(BrakeState.BRAKING);
     }
 
     /**
@@ -652,24 +628,21 @@ public final class Climber extends AbstractSubsystem {
      * <p>
      * It sets the motor to Position Control mode and sets the setpoint to the current position.
      */
-    private synchronized void stopClimberMotor() {
+    private void stopClimberMotor() {
         climberMotor.set(ControlMode.MotionMagic, climberMotor.getSelectedSensorPosition());
     }
 
     /**
      * Resumes the climber from a paused state.
      */
-    public synchronized void resumeClimb() {
-        isPaused = false;
-        otherPivotingArmMustContactByTime = Double.MAX_VALUE;
-        setBrakeState(pausedBrakeState);
-        climberMotor.set(pausedClimberMode, pausedClimberSetpoint);
+    public void resumeClimb() {
+        climbStateMachine.sendCommand(Command.RESUME);
     }
 
     /**
      * Sets the climber in the correct state to initiate a climb and moves the elevator arm to the up above the high bar.
      */
-    public synchronized void deployClimb() {
+    public void deployClimb() {
         timesRun = 0;
         climberMotor.set(ControlMode.MotionMagic, Constants.CLIMBER_DEPLOY_HEIGHT);
         setBrakeState(BrakeState.FREE);
@@ -684,8 +657,8 @@ public final class Climber extends AbstractSubsystem {
      * <p>
      * Step-by-step mode must be enabled for this method to have an effect.
      */
-    public synchronized void advanceStep() {
-        advanceStep = true;
+    public void advanceStep() {
+        climbStateMachine.sendCommand(Command.ADVANCE);
     }
 
     /**
@@ -694,93 +667,72 @@ public final class Climber extends AbstractSubsystem {
      * <p>
      * This method will also work regardless of whether the robot is in step-by-mode or not.
      */
-    public synchronized void forceAdvanceStep() {
-        if (isPaused) resumeClimb();
-        advanceStep = true;
-        skipChecks = true;
+    public void forceAdvanceStep() {
+        climbStateMachine.sendCommand(Command.FORCE_ADVANCE);
     }
 
-    public synchronized void setStepByStep(boolean stepByStep) {
-        this.stepByStep = stepByStep;
+    public void setStepByStep(boolean stepByStep) {
+        climbStateMachine.setStepMode(stepByStep);
     }
 
-    public synchronized boolean isStepByStep() {
-        return stepByStep;
+    public boolean isStepByStep() {
+        return climbStateMachine.isStepMode();
     }
 
     @Override
-    public synchronized void update() {
-        ClimbStep currentClimbStep = climbState.climbStep;
-
+    public void update() {
         if (Timer.getFPGATimestamp() > resetZeroAtTime) {
             climberMotor.setSelectedSensorPosition(0);
             resetZeroAtTime = Double.MAX_VALUE;
         }
 
-        if (!isPaused) {
-//            if (climberMotor.getSelectedSensorPosition() < Constants.MIN_CLIMBER_ELEVATOR_HEIGHT
-//                    && climberMotor.getSelectedSensorVelocity() < 0) {
-//                stopClimb();
-//            } else if (climberMotor.getSelectedSensorPosition() > Constants.MAX_CLIMBER_ELEVATOR_HEIGHT
-//                    && climberMotor.getSelectedSensorVelocity() > 0) {
-//                stopClimb();
-//            }
-
-            if (currentClimbStep.waitCondition.apply(this)) {
-                currentClimbStep.endAction.accept(this);
-                ranEndAction = true;
-            }
-
-            if (skipChecks || ((currentClimbStep.waitCondition.apply(this)) && (!stepByStep || advanceStep))) {
-                if (!ranEndAction) currentClimbStep.endAction.accept(this);
-                do {
-                    climbState = ClimbState.values()[(climbState.ordinal() + 1) % ClimbState.values().length];
-                    if (climbState == ClimbState.IDLE && timesRun < 1) {
-                        climbState = ClimbState.START_CLIMB;
-                        timesRun++;
-                    }
-
-                    currentClimbStep = climbState.climbStep;
-                } while (!currentClimbStep.runInStepByStep && stepByStep);
-
-                currentClimbStep.startAction.accept(this);
-                advanceStep = false;
-                skipChecks = false;
-                ranEndAction = false;
-            }
+        if (Constants.USE_SWING_PREDICTOR && !startingClimb && climbStateMachine.getState() == ClimbState.START_CLIMB) {
+            timeUntilSwingRelease = RobotTracker.getInstance().getTimeUntilSwingReaches(Constants.CLIMBER_RELEASE_ROLL);
+        } else {
+            timeUntilSwingRelease = Double.NaN;
         }
+
+        climbStateMachine.update(Timer.getFPGATimestamp());
     }
 
     /**
+     * Stops the climb and sets the climber motor on the climber thread, so that the climb can't overwrite it.
+     *
      * @param percentOutput The percent output to set the climber motor to. Will automatically activate/deactivate the brake
      */
     public void setClimberMotor(double percentOutput) {
-        isPaused = true;
-        climbState = ClimbState.IDLE;
+        climbStateMachine.sendCommand(Command.INTERRUPT, () -> writeClimberMotor(percentOutput));
+    }
+
+    private void writeClimberMotor(double percentOutput) {
         setBrakeState(Math.abs(percentOutput) < 1.0E-2 ? BrakeState.BRAKING : BrakeState.FREE);
         climberMotor.set(ControlMode.PercentOutput, percentOutput);
     }
 
     private boolean hasStalledIntoBottom = false;
     private double minRunTime = -1;
-    private double resetZeroAtTime = Double.MAX_VALUE;
+    private volatile double resetZeroAtTime = Double.MAX_VALUE;
 
     /**
      * moves the climber down until it stall at the bottom. Press reset button to run again.
      */
-    public synchronized void stallIntoBottom() {
-        if (minRunTime == -1) minRunTime = Timer.getFPGATimestamp() + 0.5;
+    public void stallIntoBottom() {
+        if (minRunTime == -1) {
+            minRunTime = Timer.getFPGATimestamp() + 0.5;
+            // Stop the climb once. It doesn't move anything while it's idle, so the motor can be written directly after this.
+            climbStateMachine.sendCommand(Command.INTERRUPT);
+        }
         if (hasStalledIntoBottom) {
-            setClimberMotor(0);
+            writeClimberMotor(0);
         } else {
-            setClimberMotor(-0.1);
+            writeClimberMotor(-0.1);
         }
 
         if (Math.abs(climberMotor.getStatorCurrent()) > 12 && Timer.getFPGATimestamp() > minRunTime) {
             hasStalledIntoBottom = true;
             climberMotor.setSelectedSensorPosition(0);
             resetZeroAtTime = Timer.getFPGATimestamp() + 1;
-            setClimberMotor(0);
+            writeClimberMotor(0);
         }
     }
 
@@ -788,18 +740,16 @@ public final class Climber extends AbstractSubsystem {
      * Toggles the latch that is on the pivot arm.
      */
     public void toggleClaw() {
-        isPaused = true;
-        climbState = ClimbState.IDLE;
-        setClawState(getClawState() == ClawState.UNLATCHED ? ClawState.LATCHED : ClawState.UNLATCHED);
+        climbStateMachine.sendCommand(Command.INTERRUPT,
+                () -> setClawState(getClawState() == ClawState.UNLATCHED ? ClawState.LATCHED : ClawState.UNLATCHED));
     }
 
     /**
      * Toggles the pivot arm in and out. Also pauses the climber motor.
      */
     public void togglePivot() {
-        isPaused = true;
-        climbState = ClimbState.IDLE;
-        setPivotState(getPivotState() == PivotState.INLINE ? PivotState.PIVOTED : PivotState.INLINE);
+        climbStateMachine.sendCommand(Command.INTERRUPT,
+                () -> setPivotState(getPivotState() == PivotState.INLINE ? PivotState.PIVOTED : PivotState.INLINE));
     }
 
     @Override
@@ -808,7 +758,7 @@ public final class Climber extends AbstractSubsystem {
     }
 
     public @NotNull Climber.ClimbState getClimbState() {
-        return climbState;
+        return climbStateMachine.getState();
     }
 
     public boolean isPivotingArmLatched() {
@@ -845,14 +795,19 @@ public final class Climber extends AbstractSubsystem {
         logData("Latch Solenoid State", getClawState().toString());
         logData("Brake Solenoid State", getBrakeState().toString());
 
-        logData("Climber Is Paused", isPaused);
-        logData("Climber Is Step By Step", stepByStep);
-        logData("Current Climber State", climbState.toString());
+        logData("Climber Is Paused", climbStateMachine.isPaused());
+        logData("Climber Is Step By Step", climbStateMachine.isStepMode());
+        logData("Current Climber State", climbStateMachine.getState().toString());
         logData("Climb Times Run", timesRun);
 
-        logData("Current Climber WaitCondition", climbState.climbStep.waitCondition.apply(this));
+        logData("Current Climber WaitCondition", climbStateMachine.isStateDone());
+        logData("Climber Time In State", climbStateMachine.getTimeInState());
+        for (ClimbState climbState : ClimbState.values()) {
+            logData(CLIMB_STATE_TIME_KEYS[climbState.ordinal()], climbStateMachine.getLastVisitDuration(climbState));
+        }
 
         logData("Starting Climb", startingClimb);
+        logData("Climber Time Until Swing Release", timeUntilSwingRelease);
     }
 
     public void configCoast() {
@@ -869,7 +824,7 @@ public final class Climber extends AbstractSubsystem {
 
 
     public boolean isPaused() {
-        return isPaused;
+        return climbStateMachine.isPaused();
     }
 
 
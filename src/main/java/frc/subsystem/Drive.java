@@ -28,15 +28,29 @@ import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.Constants;
 import frc.utility.ControllerDriveInputs;
+import frc.utility.DriveCommand;
+import frc.utility.DriveCommand.Priority;
+import frc.utility.Limelight;
+import frc.utility.LimelightFrame;
+import frc.utility.control.BallChaseController;
+import frc.utility.control.RecursiveLeastSquaresFeedforward;
+import frc.utility.control.SwerveMotionLimiter;
+import frc.utility.control.TimeOptimalHeadingController;
 import frc.utility.controllers.LazyTalonFX;
+import frc.utility.trajectory.FeedForwardHolonomicFollower;
+import frc.utility.trajectory.SampledTrajectory;
+import frc.utility.trajectory.TrajectoryPlanner;
 import frc.utility.wpimodified.HolonomicDriveController;
-import frc.utility.wpimodified.PIDController;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BinaryOperator;
 
 import static frc.robot.Constants.*;
 
@@ -44,16 +58,16 @@ import static frc.robot.Constants.*;
 public final class Drive extends AbstractSubsystem {
 
     /**
-     * Last requested field relative acceleration
+     * Last field relative acceleration commanded by the {@link #motionLimiter} (m/s^2). Kept in primitives so the drive loop
+     * doesn't allocate.
      */
-    public @NotNull volatile Translation2d lastAcceleration = new Translation2d();
+    private volatile double lastAccelerationX = 0;
+    private volatile double lastAccelerationY = 0;
 
     // PID TUNING
     final @NotNull NetworkTableInstance networkTableInstance = NetworkTableInstance.getDefault();
 
     final @NotNull NetworkTableEntry turnP = SmartDashboard.getEntry("TurnPIDP");
-    final @NotNull NetworkTableEntry turnI = SmartDashboard.getEntry("TurnPIDI");
-    final @NotNull NetworkTableEntry turnD = SmartDashboard.getEntry("TurnPIDD");
     final @NotNull NetworkTableEntry turnMaxVelocity = SmartDashboard.getEntry("TurnMaxVelocity");
     final @NotNull NetworkTableEntry turnMaxAcceleration = SmartDashboard.getEntry("TurnMaxAcceleration");
 
@@ -76,7 +90,11 @@ public final class Drive extends AbstractSubsystem {
     }
 
     public enum DriveState {
-        TELEOP, TURN, HOLD, DONE, RAMSETE, STOP
+        TELEOP, TURN, HOLD, DONE, RAMSETE, STOP,
+        /**
+         * Drives to pick up the balls of our color that the intake limelight sees
+         */
+        BALL_CHASE
     }
 
     public boolean useRelativeEncoderPosition = false;
@@ -87,14 +105,11 @@ public final class Drive extends AbstractSubsystem {
         return INSTANCE;
     }
 
-    private final @NotNull PIDController turnPID;
-
-    {
-        turnPID = new PIDController(DEFAULT_TURN_P, DEFAULT_TURN_I, DEFAULT_TURN_D); //P=1.0
-        // OR 0.8
-        turnPID.enableContinuousInput(-Math.PI, Math.PI);
-        turnPID.setIntegratorRange(-Math.PI * 2 * 4, Math.PI * 2 * 4);
-    }
+    private final @NotNull TimeOptimalHeadingController turnController = new TimeOptimalHeadingController(
+            DEFAULT_TURN_P,
+            TimeOptimalHeadingController.getMaxAngularAcceleration(DRIVE_FEEDFORWARD[0], SWERVE_LEFT_FRONT_LOCATION.getNorm(),
+                    SWERVE_DRIVE_VOLTAGE_LIMIT, TURN_SPEED_LIMIT_WHILE_AIMING) * TURN_ACCELERATION_FRACTION,
+            TURN_PREDICTION_HORIZON);
 
     public @NotNull DriveState driveState;
     volatile Rotation2d wantedHeading = new Rotation2d();
@@ -106,7 +121,10 @@ public final class Drive extends AbstractSubsystem {
         logData("Drive Field Relative Allowed", true);
     }
 
-    private boolean isAiming = false;
+    /**
+     * Whether the last heading command is still outside its tolerance. Only written by the drive thread.
+     */
+    private volatile boolean isAiming = false;
 
     private @NotNull static final SwerveDriveKinematics SWERVE_DRIVE_KINEMATICS = new SwerveDriveKinematics(
             Constants.SWERVE_LEFT_FRONT_LOCATION,
@@ -208,17 +226,9 @@ public final class Drive extends AbstractSubsystem {
         }
 
         turnP.setDouble(Constants.DEFAULT_TURN_P);
-        turnI.setDouble(Constants.DEFAULT_TURN_I);
-        turnD.setDouble(Constants.DEFAULT_TURN_D);
         //turnMaxAcceleration.setDouble(DEFAULT_TURN_MAX_ACCELERATION);
 
-        turnP.addListener(event -> turnPID.setP(event.getEntry().getDouble(Constants.DEFAULT_TURN_P)),
-                EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
-
-        turnI.addListener(event -> turnPID.setI(event.getEntry().getDouble(Constants.DEFAULT_TURN_I)),
-                EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
-
-        turnD.addListener(event -> turnPID.setD(event.getEntry().getDouble(Constants.DEFAULT_TURN_D)),
+        turnP.addListener(event -> turnController.setP(event.getEntry().getDouble(Constants.DEFAULT_TURN_P)),
                 EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
 
 //        turnMaxVelocity.addListener(event -> turnPID.setConstraints(
@@ -322,7 +332,74 @@ public final class Drive extends AbstractSubsystem {
     }
 
     public void doHold() {
-        setSwerveModuleStates(Constants.HOLD_MODULE_STATES, true);
+        postCommand(DriveCommand.ofModuleStates(Constants.HOLD_MODULE_STATES, true, Priority.DRIVER,
+                Timer.getFPGATimestamp()));
+    }
+
+    /**
+     * Latest command posted by another thread that the drive thread hasn't picked up yet
+     */
+    private final @NotNull AtomicReference<DriveCommand> commandMailbox = new AtomicReference<>();
+
+    /**
+     * The command the drive thread is currently executing. Only accessed from the drive thread.
+     */
+    private @Nullable DriveCommand activeCommand;
+
+    private static final @NotNull BinaryOperator<DriveCommand> COMMAND_ARBITRATOR =
+            (current, next) -> next.supersedes(current, DRIVE_COMMAND_HOLD_TIME) ? next : current;
+
+    /**
+     * Posts a command for the drive thread to execute in {@link DriveState#TELEOP}. This never blocks and can be called from any
+     * thread. If multiple commands are posted within one period, the latest one with the highest priority is used.
+     */
+    public void postCommand(@NotNull DriveCommand command) {
+        commandMailbox.accumulateAndGet(command, COMMAND_ARBITRATOR);
+    }
+
+    /**
+     * Stops the robot and lets lower priority commands through right away if the active command has the given priority or
+     * lower. Doesn't change the drive state. Used when something that was steering the robot stops.
+     */
+    public void releaseCommands(@NotNull Priority priority) {
+        postCommand(DriveCommand.ofRelease(priority, Timer.getFPGATimestamp()));
+    }
+
+    private final @NotNull ChassisSpeeds commandSpeeds = new ChassisSpeeds();
+
+    /**
+     * Runs the active command. If no one has posted a command recently the robot is brought to a stop.
+     */
+    private void runActiveCommand() {
+        DriveCommand postedCommand = commandMailbox.getAndSet(null);
+        if (postedCommand != null && postedCommand.supersedes(activeCommand, DRIVE_COMMAND_HOLD_TIME)) {
+            activeCommand = postedCommand;
+        }
+
+        DriveCommand command = activeCommand;
+        if (command == null || Timer.getFPGATimestamp() - command.timestamp > DRIVE_COMMAND_TIMEOUT) {
+            isAiming = false;
+            commandSpeeds.vxMetersPerSecond = 0;
+            commandSpeeds.vyMetersPerSecond = 0;
+            commandSpeeds.omegaRadiansPerSecond = 0;
+            driveChassisSpeeds(commandSpeeds, 0, 0);
+        } else if (command.hasHeadingGoal()) {
+            ChassisSpeeds requestedSpeeds = command.getChassisSpeeds();
+            driveChassisSpeeds(calculateTurn(requestedSpeeds.vxMetersPerSecond, requestedSpeeds.vyMetersPerSecond,
+                    command.fieldRelative, command.headingGoal, command.headingGoalVelocity, command.maxTurnSpeed,
+                    command.headingTolerance), 0, 0);
+        } else if (command.isChassisSpeeds()) {
+            isAiming = false;
+            // Copy the speeds since the acceleration limiting modifies them
+            ChassisSpeeds requestedSpeeds = command.getChassisSpeeds();
+            commandSpeeds.vxMetersPerSecond = requestedSpeeds.vxMetersPerSecond;
+            commandSpeeds.vyMetersPerSecond = requestedSpeeds.vyMetersPerSecond;
+            commandSpeeds.omegaRadiansPerSecond = requestedSpeeds.omegaRadiansPerSecond;
+            driveChassisSpeeds(commandSpeeds, 0, 0);
+        } else {
+            isAiming = false;
+            writeSwerveModuleStates(command.getModuleStates(), command.rotate, null);
+        }
     }
 
     public void swerveDrive(@NotNull ControllerDriveInputs inputs) {
@@ -354,14 +431,36 @@ public final class Drive extends AbstractSubsystem {
         swerveDrive(chassisSpeeds);
     }
 
+    /**
+     * Switches to {@link DriveState#TELEOP} and posts the speeds for the drive thread to execute.
+     *
+     * @param chassisSpeeds Robot relative speeds
+     */
     public void swerveDrive(ChassisSpeeds chassisSpeeds) {
+        swerveDrive(chassisSpeeds, Priority.DRIVER);
+    }
 
-        Translation2d accelerationFR = limitAcceleration(chassisSpeeds);
+    public void swerveDrive(ChassisSpeeds chassisSpeeds, @NotNull Priority priority) {
+        setDriveState(DriveState.TELEOP);
+        postCommand(DriveCommand.ofChassisSpeeds(chassisSpeeds, priority, Timer.getFPGATimestamp()));
+    }
 
+    private final double[] moduleAccelerations = new double[4];
 
-        SmartDashboard.putNumber("Drive Command X Velocity", chassisSpeeds.vxMetersPerSecond);
-        SmartDashboard.putNumber("Drive Command Y Velocity", chassisSpeeds.vyMetersPerSecond);
-        SmartDashboard.putNumber("Drive Command Rotation", chassisSpeeds.omegaRadiansPerSecond);
+    /**
+     * Sets the motors to drive at the given speeds. Must only be called from the drive thread.
+     *
+     * @param chassisSpeeds Robot relative speeds to drive at (modified by the acceleration limiting)
+     * @param accelerationX Robot relative feed-forward acceleration in the x direction (m/s^2)
+     * @param accelerationY Robot relative feed-forward acceleration in the y direction (m/s^2)
+     */
+    private void driveChassisSpeeds(ChassisSpeeds chassisSpeeds, double accelerationX, double accelerationY) {
+
+        limitAcceleration(chassisSpeeds);
+
+        commandedVelocityX = chassisSpeeds.vxMetersPerSecond;
+        commandedVelocityY = chassisSpeeds.vyMetersPerSecond;
+        commandedAngularVelocity = chassisSpeeds.omegaRadiansPerSecond;
 
         SwerveModuleState[] moduleStates = SWERVE_DRIVE_KINEMATICS.toSwerveModuleStates(chassisSpeeds);
 
@@ -370,16 +469,61 @@ public final class Drive extends AbstractSubsystem {
                 chassisSpeeds.omegaRadiansPerSecond != 0;
 
         SwerveDriveKinematics.desaturateWheelSpeeds(moduleStates, DRIVE_HIGH_SPEED_M);
-        setSwerveModuleStates(moduleStates, rotate, accelerationFR);
 
-        lastAcceleration = accelerationFR;
+        if (accelerationX != 0 || accelerationY != 0) {
+            // Acceleration of each module is the chassis acceleration plus the centripetal acceleration from rotating about
+            // the center of the robot, projected onto the direction the wheel is rolling
+            double omegaSquared = chassisSpeeds.omegaRadiansPerSecond * chassisSpeeds.omegaRadiansPerSecond;
+            for (int i = 0; i < 4; i++) {
+                Translation2d moduleLocation = SWERVE_MODULE_LOCATIONS[i];
+                moduleAccelerations[i] =
+                        (accelerationX - omegaSquared * moduleLocation.getX()) * moduleStates[i].angle.getCos() +
+                                (accelerationY - omegaSquared * moduleLocation.getY()) * moduleStates[i].angle.getSin();
+            }
+            writeSwerveModuleStates(moduleStates, rotate, moduleAccelerations);
+        } else {
+            writeSwerveModuleStates(moduleStates, rotate, null);
+        }
+
+        lastAccelerationX = motionLimiter.getAccelerationX();
+        lastAccelerationY = motionLimiter.getAccelerationY();
+    }
+
+    /**
+     * @return The field relative x acceleration from the last drive update, after acceleration limiting (m/s^2)
+     */
+    @Contract(pure = true)
+    public double getLastAccelerationX() {
+        return lastAccelerationX;
+    }
+
+    /**
+     * @return The field relative y acceleration from the last drive update, after acceleration limiting (m/s^2)
+     */
+    @Contract(pure = true)
+    public double getLastAccelerationY() {
+        return lastAccelerationY;
     }
 
     public void setSwerveModuleStates(SwerveModuleState[] moduleStates, boolean rotate) {
-        setSwerveModuleStates(moduleStates, rotate, new Translation2d());
+        setSwerveModuleStates(moduleStates, rotate, Priority.DRIVER);
+    }
+
+    /**
+     * Posts module states for the drive thread to set. The drive needs to be in {@link DriveState#TELEOP} for them to be used.
+     */
+    public void setSwerveModuleStates(SwerveModuleState[] moduleStates, boolean rotate, @NotNull Priority priority) {
+        postCommand(DriveCommand.ofModuleStates(moduleStates, rotate, priority, Timer.getFPGATimestamp()));
     }
 
-    public void setSwerveModuleStates(SwerveModuleState[] moduleStates, boolean rotate, Translation2d acceleration) {
+    /**
+     * Must only be called from the drive thread.
+     *
+     * @param moduleAccelerations The acceleration of each module along the direction of the module state (m/s^2). Null for no
+     *                            acceleration feed-forward.
+     */
+    private void writeSwerveModuleStates(SwerveModuleState[] moduleStates, boolean rotate,
+                                         double @Nullable [] moduleAccelerations) {
         for (int i = 0; i < 4; i++) {
             SwerveModuleState targetState = SwerveModuleState.optimize(moduleStates[i],
                     Rotation2d.fromDegrees(getWheelRotation(i)));
@@ -398,11 +542,21 @@ public final class Drive extends AbstractSubsystem {
 
             double speedModifier = 1; //= 1 - (OrangeUtility.coercedNormalize(Math.abs(angleDiff), 5, 180, 0, 180) / 180);
 
-            setMotorSpeed(i, targetState.speedMetersPerSecond * speedModifier, 0);
+            double acceleration = 0;
+            if (moduleAccelerations != null) {
+                acceleration = moduleAccelerations[i];
+                if (targetState.angle.getCos() * moduleStates[i].angle.getCos()
+                        + targetState.angle.getSin() * moduleStates[i].angle.getSin() < 0) {
+                    // The module was flipped around by the optimization (the angles are more than 90 degrees apart), so the
+                    // acceleration needs to be flipped too. Compare the angles because the speeds can be 0.
+                    acceleration = -acceleration;
+                }
+            }
+
+            setMotorSpeed(i, targetState.speedMetersPerSecond * speedModifier, acceleration);
 
-            SmartDashboard.putNumber("Swerve Motor " + i + " Speed Modifier", speedModifier);
-            SmartDashboard.putNumber("Swerve Motor " + i + " Target Position", getRelativeSwervePosition(i) + angleDiff);
-            SmartDashboard.putNumber("Swerve Motor " + i + " Error", angleDiff);
+            moduleTelemetry[i].targetPosition = getRelativeSwervePosition(i) + angleDiff;
+            moduleTelemetry[i].angleError = angleDiff;
         }
     }
 
@@ -423,105 +577,87 @@ public final class Drive extends AbstractSubsystem {
         return angleDiff;
     }
 
-    @NotNull Translation2d lastRequestedVelocity = new Translation2d();
-    double lastRequestedRotation = 0;
+    final @NotNull SwerveMotionLimiter motionLimiter = new SwerveMotionLimiter(
+            ROBOT_CENTER_OF_MASS_HEIGHT,
+            SWERVE_LEFT_FRONT_LOCATION.getX(),
+            SWERVE_LEFT_FRONT_LOCATION.getY(),
+            TIP_OVER_SAFETY_FACTOR,
+            MAX_DRIVE_JERK,
+            MAX_ANGULAR_ACCELERATION);
 
     private double lastLoopTime = 0;
 
     /**
      * Puts a limit on the acceleration. This method should be called before setting a chassis speeds to the robot drivebase.
      * <p>
-     * Limits the acceleration by ensuring that the difference between the command and previous velocity doesn't exceed a set
-     * value
+     * The acceleration is limited to the lowest of {@link #accelerationLimit}, the acceleration that would tip the robot over
+     * (taking into account how much the robot is already tilted) and a jerk limit. See {@link SwerveMotionLimiter}.
      *
      * @param commandedVelocity Desired velocity (The chassis speeds is mutated to the limited acceleration) (robot centric)
-     * @return The requested acceleration of the robot (field centric)
      */
     @Contract(mutates = "param")
-    @NotNull Translation2d limitAcceleration(@NotNull ChassisSpeeds commandedVelocity) {
-        double dt;
-        if ((Timer.getFPGATimestamp() - lastLoopTime) > ((double) Constants.DRIVE_PERIOD / 1000) * 20) {
+    void limitAcceleration(@NotNull ChassisSpeeds commandedVelocity) {
+        RobotTracker robotTracker = RobotTracker.getInstance();
+        double time = Timer.getFPGATimestamp();
+        double dt = time - lastLoopTime;
+        if (dt > ((double) Constants.DRIVE_PERIOD / 1000) * 20) {
             // If the dt is a lot greater than our nominal dt reset the acceleration limiting
             // (ex. we've been disabled for a while)
-            ChassisSpeeds currentChassisSpeeds = RobotTracker.getInstance().getLatencyCompedChassisSpeeds();
-            lastRequestedVelocity = new Translation2d(
+            ChassisSpeeds currentChassisSpeeds = robotTracker.getLatencyCompedChassisSpeeds();
+            motionLimiter.reset(
                     currentChassisSpeeds.vxMetersPerSecond,
-                    currentChassisSpeeds.vyMetersPerSecond
+                    currentChassisSpeeds.vyMetersPerSecond,
+                    currentChassisSpeeds.omegaRadiansPerSecond
             );
-
-            lastRequestedRotation = currentChassisSpeeds.omegaRadiansPerSecond;
             dt = (double) Constants.DRIVE_PERIOD / 1000;
-        } else {
-            dt = Timer.getFPGATimestamp() - lastLoopTime;
+        } else if (dt <= 0) {
+            dt = (double) Constants.DRIVE_PERIOD / 1000;
         }
-        lastLoopTime = Timer.getFPGATimestamp();
-
-        double maxVelocityChange = accelerationLimit.acceleration * dt;
-        double maxAngularVelocityChange = Constants.MAX_ANGULAR_ACCELERATION * dt;
-
-        //field relative
-        Translation2d velocityCommand = toFieldRelative(
-                new Translation2d(commandedVelocity.vxMetersPerSecond, commandedVelocity.vyMetersPerSecond
-                ));
+        lastLoopTime = time;
 
-        Translation2d velocityChange = velocityCommand.minus(lastRequestedVelocity);
-        double velocityChangeAngle = Math.atan2(velocityChange.getY(), velocityChange.getX()); //Radians
-
-        Translation2d limitedVelocityVectorChange = velocityChange;
-        Translation2d limitedVelocityVector = velocityCommand;
-        // Check if velocity change exceeds max limit
-        if (velocityChange.getNorm() > maxVelocityChange) {
-            // Get limited velocity vector difference in cartesian coordinate system
-            limitedVelocityVectorChange = new Translation2d(maxVelocityChange, new Rotation2d(velocityChangeAngle));
-            limitedVelocityVector = lastRequestedVelocity.plus(limitedVelocityVectorChange);
+        motionLimiter.calculateRobotRelative(commandedVelocity, accelerationLimit.acceleration,
+                robotTracker.getGyroAngle().getRadians(), Math.toRadians(robotTracker.getGyroPitch()),
+                Math.toRadians(robotTracker.getGyroRoll()), dt);
+    }
 
-            //robot relative
-            Translation2d limitedVelocityVectorRotated = toRobotRelative(limitedVelocityVector);
+    private final double[] lastWheelSpeeds = new double[4];
+    private final double[] lastWheelSpeedsTime = new double[4];
+    private final double[] lastWheelVoltages = new double[4];
 
-            commandedVelocity.vxMetersPerSecond = limitedVelocityVectorRotated.getX();
-            commandedVelocity.vyMetersPerSecond = limitedVelocityVectorRotated.getY();
-        }
+    /**
+     * Drive feedforward for each module that is adjusted online from the measured wheel speeds
+     */
+    private final @NotNull RecursiveLeastSquaresFeedforward[] adaptiveFeedforward = new RecursiveLeastSquaresFeedforward[4];
 
-        // Checks if requested change in Angular Velocity is greater than allowed
-        if (Math.abs(commandedVelocity.omegaRadiansPerSecond - lastRequestedRotation)
-                > maxAngularVelocityChange) {
-            // Add the lastCommandVelocity and the maxAngularVelocityChange (changed to have the same sign as the actual change)
-            commandedVelocity.omegaRadiansPerSecond = lastRequestedRotation +
-                    Math.copySign(maxAngularVelocityChange,
-                            commandedVelocity.omegaRadiansPerSecond - lastRequestedRotation);
+    {
+        for (int i = 0; i < 4; i++) {
+            adaptiveFeedforward[i] = new RecursiveLeastSquaresFeedforward(DRIVE_FEEDFORWARD[i],
+                    DRIVE_FEEDFORWARD_FORGETTING_FACTOR, DRIVE_FEEDFORWARD_MIN_SCALE, DRIVE_FEEDFORWARD_MAX_SCALE, 1);
         }
-
-
-        // save our current commanded velocity to be used in next iteration
-        lastRequestedRotation = commandedVelocity.omegaRadiansPerSecond;
-        lastRequestedVelocity = limitedVelocityVector;//field
-
-        return limitedVelocityVectorChange;//field
     }
 
     /**
-     * Converts a field relative velocity to be robot relative
-     *
-     * @param fieldRelativeTranslation a field relative velocity
-     * @return a robot relative velocity
+     * Updates the adaptive feedforward with how the wheel responded to the voltage we applied last loop.
      */
-    private Translation2d toRobotRelative(Translation2d fieldRelativeTranslation) {
-        return fieldRelativeTranslation.rotateBy(RobotTracker.getInstance().getGyroAngle().unaryMinus());
-    }
+    private void updateAdaptiveFeedforward(int module) {
+        double currentTime = Timer.getFPGATimestamp();
+        double wheelSpeed = (getSwerveDriveVelocity(module) / 60.0d) * Constants.SWERVE_METER_PER_ROTATION;
+        double dt = currentTime - lastWheelSpeedsTime[module];
+        double lastWheelSpeed = lastWheelSpeeds[module];
+
+        // The voltage was applied between the last two measurements, so use the average speed over that time
+        double averageSpeed = (wheelSpeed + lastWheelSpeed) / 2;
+        if (dt > 0 && dt < 0.1
+                && Math.abs(averageSpeed) > DRIVE_FEEDFORWARD_ADAPTATION_MIN_SPEED
+                && Math.signum(wheelSpeed) == Math.signum(lastWheelSpeed)
+                && Math.abs(lastWheelVoltages[module]) < Constants.SWERVE_DRIVE_VOLTAGE_LIMIT) {
+            adaptiveFeedforward[module].update(lastWheelVoltages[module], averageSpeed, (wheelSpeed - lastWheelSpeed) / dt);
+        }
 
-    /**
-     * Converts a robot relative velocity to be field relative
-     *
-     * @param robotRelativeTranslation a field relative velocity
-     * @return a field relative velocity
-     */
-    private Translation2d toFieldRelative(Translation2d robotRelativeTranslation) {
-        return robotRelativeTranslation.rotateBy(RobotTracker.getInstance().getGyroAngle());
+        lastWheelSpeeds[module] = wheelSpeed;
+        lastWheelSpeedsTime[module] = currentTime;
     }
 
-    private final double[] lastWheelSpeeds = new double[4];
-    private final double[] lastWheelSpeedsTime = new double[4];
-
     /**
      * Sets the motor voltage
      *
@@ -546,10 +682,17 @@ public final class Drive extends AbstractSubsystem {
 //            acceleration = 0;
 //        }
 
-        double ffv = Constants.DRIVE_FEEDFORWARD[module].calculate(velocity, acceleration);
+        double ffv;
+        if (USE_ADAPTIVE_DRIVE_FEEDFORWARD) {
+            updateAdaptiveFeedforward(module);
+            ffv = adaptiveFeedforward[module].calculate(velocity, acceleration);
+        } else {
+            ffv = Constants.DRIVE_FEEDFORWARD[module].calculate(velocity, acceleration);
+        }
         // Converts ffv voltage to percent output and sets it to motor
         swerveDriveMotors[module].set(ControlMode.PercentOutput, ffv / Constants.SWERVE_DRIVE_VOLTAGE_LIMIT);
-        SmartDashboard.putNumber("Out Volts " + module, ffv);
+        lastWheelVoltages[module] = ffv;
+        moduleTelemetry[module].outputVoltage = ffv;
         //swerveDriveMotors[module].setVoltage(10 * velocity/Constants.SWERVE_METER_PER_ROTATION);
     }
 
@@ -585,16 +728,54 @@ public final class Drive extends AbstractSubsystem {
 
     double autoStartTime;
 
+    public enum AutoFollower {
+        /**
+         * WPILib style holonomic controller. Velocity feed-forward with PID on x, y and a profiled PID on the heading.
+         */
+        HOLONOMIC_PID,
+        /**
+         * Uses the acceleration and curvature of the path as feed-forward and samples ahead to make up for actuator latency.
+         */
+        FEED_FORWARD
+    }
+
+    private volatile @NotNull AutoFollower autoFollower = AutoFollower.HOLONOMIC_PID;
+
+    /**
+     * Changes the follower used for the following auto paths. Autos start with {@link AutoFollower#HOLONOMIC_PID}, so an auto
+     * that has been tuned with a different follower should set it from its script before its first path.
+     */
+    public void setAutoFollower(@NotNull AutoFollower autoFollower) {
+        this.autoFollower = autoFollower;
+    }
+
+    private final @NotNull FeedForwardHolonomicFollower feedForwardFollower = new FeedForwardHolonomicFollower(
+            AUTO_FOLLOWER_TRANSLATION_P, AUTO_FOLLOWER_HEADING_P,
+            AUTO_FOLLOWER_MAX_ANGULAR_VELOCITY, AUTO_FOLLOWER_MAX_ANGULAR_ACCELERATION);
+
     private final ReentrantLock swerveAutoControllerLock = new ReentrantLock();
     private @Nullable HolonomicDriveController swerveAutoController;
     boolean swerveAutoControllerInitialized = false;
 
     public void setAutoPath(Trajectory trajectory) {
+        setAutoPath(trajectory, true);
+        lastAutoDriveTarget = null;
+    }
+
+    /**
+     * @param resetFollower Whether to reset the state of the path follower. Keeping it lets a replanned path continue smoothly
+     *                      from the one it replaces.
+     */
+    private void setAutoPath(Trajectory trajectory, boolean resetFollower) {
+        // Resample outside the lock so the drive thread isn't blocked while we build the tables
+        SampledTrajectory sampledTrajectory = new SampledTrajectory(trajectory, TRAJECTORY_SAMPLE_PERIOD);
         currentAutoTrajectoryLock.lock();
         try {
-            swerveAutoControllerInitialized = false;
+            if (resetFollower) {
+                swerveAutoControllerInitialized = false;
+            }
             setDriveState(DriveState.RAMSETE);
-            this.currentAutoTrajectory = trajectory;
+            this.currentAutoTrajectory = sampledTrajectory;
             this.isAutoAiming = false;
             autoStartTime = Timer.getFPGATimestamp();
         } finally {
@@ -602,7 +783,96 @@ public final class Drive extends AbstractSubsystem {
         }
     }
 
-    Trajectory currentAutoTrajectory;
+    private double lastAutoDrivePlanTime = 0;
+
+    /**
+     * The field relative target of the last trajectory planned by {@link #driveToPosition}. Null if the current path didn't come
+     * from there.
+     */
+    private volatile @Nullable Translation2d lastAutoDriveTarget;
+    private final @NotNull SampledTrajectory.Sample autoDriveTrackingSample = new SampledTrajectory.Sample();
+
+    /**
+     * Drives to a position on the field using a trajectory generated from the robot's current position and velocity. Meant to
+     * be called repeatedly (ex. while a button is held). Every {@link Constants#AUTO_DRIVE_REPLAN_PERIOD} seconds this checks if
+     * the path is still good. A new trajectory is only generated if the target has moved more than
+     * {@link Constants#AUTO_DRIVE_REPLAN_TARGET_MOVEMENT} or the robot is more than
+     * {@link Constants#AUTO_DRIVE_REPLAN_TRACKING_ERROR} off the path. The follower keeps its state across replans.
+     *
+     * @param targetPosition The field relative position to drive to
+     * @param targetRotation The rotation the robot should face while driving
+     */
+    public void driveToPosition(@NotNull Translation2d targetPosition, @NotNull Rotation2d targetRotation) {
+        double now = Timer.getFPGATimestamp();
+        boolean isFollowingPath;
+        synchronized (this) {
+            isFollowingPath = driveState == DriveState.RAMSETE || driveState == DriveState.DONE
+                    || driveState == DriveState.STOP;
+            if (isFollowingPath && now - lastAutoDrivePlanTime < AUTO_DRIVE_REPLAN_PERIOD) {
+                return;
+            }
+        }
+        lastAutoDrivePlanTime = now;
+        Translation2d lastTarget = lastAutoDriveTarget;
+        boolean isFollowingAutoDrive = isFollowingPath && lastTarget != null;
+
+        RobotTracker robotTracker = RobotTracker.getInstance();
+        // The path follower uses the raw odometry pose, so move the target, the hub and the velocity into the same frame
+        Pose2d rawPose = robotTracker.getRawPose();
+        Pose2d estimatedPose = robotTracker.getLastEstimatedPoseMeters();
+        Pose2d target = TrajectoryPlanner.changeFrame(new Pose2d(targetPosition, targetRotation), estimatedPose, rawPose);
+        Translation2d hubPosition = TrajectoryPlanner.changeFrame(new Pose2d(GOAL_POSITION, new Rotation2d()), estimatedPose,
+                rawPose).getTranslation();
+        ChassisSpeeds velocity = robotTracker.getLatencyCompedChassisSpeeds(); // Field relative
+        Rotation2d frameRotation = rawPose.getRotation().minus(estimatedPose.getRotation());
+        double velocityX = velocity.vxMetersPerSecond * frameRotation.getCos()
+                - velocity.vyMetersPerSecond * frameRotation.getSin();
+        double velocityY = velocity.vxMetersPerSecond * frameRotation.getSin()
+                + velocity.vyMetersPerSecond * frameRotation.getCos();
+
+        boolean isPathGood;
+        currentAutoTrajectoryLock.lock();
+        try {
+            autoTargetHeading = target.getRotation();
+            isPathGood = isFollowingAutoDrive
+                    && lastTarget.getDistance(targetPosition) < AUTO_DRIVE_REPLAN_TARGET_MOVEMENT
+                    && getAutoTrackingError(rawPose, now) < AUTO_DRIVE_REPLAN_TRACKING_ERROR;
+        } finally {
+            currentAutoTrajectoryLock.unlock();
+        }
+
+        if (isPathGood) {
+            return;
+        }
+
+        Trajectory trajectory = TrajectoryPlanner.planToPosition(rawPose, velocityX, velocityY, target.getTranslation(),
+                AUTO_DRIVE_MAX_VELOCITY, accelerationLimit.acceleration,
+                SWERVE_DRIVE_KINEMATICS, DRIVE_HIGH_SPEED_M, AUTO_DRIVE_MIN_DISTANCE,
+                hubPosition, AUTO_DRIVE_HUB_KEEP_OUT_RADIUS);
+
+        if (trajectory != null) {
+            setAutoPath(trajectory, !isFollowingAutoDrive);
+            lastAutoDriveTarget = targetPosition;
+        }
+    }
+
+    /**
+     * Must be called while holding {@link #currentAutoTrajectoryLock}.
+     *
+     * @param rawPose The raw odometry pose of the robot
+     * @param time    The current time (s)
+     * @return How far the robot is from where the current auto path says it should be (m)
+     */
+    private double getAutoTrackingError(@NotNull Pose2d rawPose, double time) {
+        if (currentAutoTrajectory == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        currentAutoTrajectory.sample(time - autoStartTime, autoDriveTrackingSample);
+        return Math.hypot(autoDriveTrackingSample.x - rawPose.getX(), autoDriveTrackingSample.y - rawPose.getY());
+    }
+
+    SampledTrajectory currentAutoTrajectory;
+    private final @NotNull SampledTrajectory.Sample autoTrajectorySample = new SampledTrajectory.Sample();
     final Lock currentAutoTrajectoryLock = new ReentrantLock();
     volatile Rotation2d autoTargetHeading;
 
@@ -634,7 +904,13 @@ public final class Drive extends AbstractSubsystem {
                 swerveAutoControllerInitialized = true;
             }
 
-            Trajectory.State goal = currentAutoTrajectory.sample(Timer.getFPGATimestamp() - autoStartTime);
+            if (autoFollower == AutoFollower.FEED_FORWARD) {
+                updateFeedForwardFollower();
+                return;
+            }
+
+            SampledTrajectory.Sample goal =
+                    currentAutoTrajectory.sample(Timer.getFPGATimestamp() - autoStartTime, autoTrajectorySample);
 
             Rotation2d targetHeading = autoTargetHeading;
 
@@ -647,14 +923,14 @@ public final class Drive extends AbstractSubsystem {
                 }
                 ChassisSpeeds adjustedSpeeds = swerveAutoController.calculate(
                         RobotTracker.getInstance().getRawPose(),
-                        goal,
-                        targetHeading);
+                        goal.x, goal.y, goal.heading, goal.velocity,
+                        targetHeading.getRadians());
 
                 if (isAutoAiming) {
                     adjustedSpeeds.omegaRadiansPerSecond = getTurnPidDeltaSpeed(autoAimingRotationGoal, true);
                 }
 
-                swerveDrive(adjustedSpeeds);
+                driveChassisSpeeds(adjustedSpeeds, 0, 0);
                 if (swerveAutoController.atReference() && (Timer.getFPGATimestamp() - autoStartTime) >= currentAutoTrajectory.getTotalTimeSeconds()) {
                     setDriveState(DriveState.DONE);
                     stopMovement();
@@ -670,29 +946,76 @@ public final class Drive extends AbstractSubsystem {
         }
     }
 
+    /**
+     * Drives the current auto path using the {@link FeedForwardHolonomicFollower}. Must be called while holding
+     * {@link #currentAutoTrajectoryLock}.
+     */
+    @SuppressWarnings("ProhibitedExceptionCaught")
+    private void updateFeedForwardFollower() {
+        try {
+            RobotTracker robotTracker = RobotTracker.getInstance();
+            double now = Timer.getFPGATimestamp();
+            double poseTime = robotTracker.getLastOdometryTime();
+            double elapsedTime = now - autoStartTime;
+
+            feedForwardFollower.calculate(currentAutoTrajectory, poseTime - autoStartTime, robotTracker.getRawPose(),
+                    elapsedTime + AUTO_FOLLOWER_LOOK_AHEAD, autoTargetHeading.getRadians());
+
+            ChassisSpeeds speeds = feedForwardFollower.getChassisSpeeds();
+            if (isAutoAiming) {
+                speeds.omegaRadiansPerSecond = getTurnPidDeltaSpeed(autoAimingRotationGoal, true);
+            }
+
+            driveChassisSpeeds(speeds, feedForwardFollower.getAccelerationX(), feedForwardFollower.getAccelerationY());
+
+            logData("Auto Along Track Error", feedForwardFollower.getAlongTrackError());
+            logData("Auto Cross Track Error", feedForwardFollower.getCrossTrackError());
+            logData("Auto Heading Error", Math.toDegrees(feedForwardFollower.getHeadingError()));
+            logData("Auto Pose Latency", now - poseTime);
+
+            if (feedForwardFollower.isFinished(elapsedTime, currentAutoTrajectory.getTotalTimeSeconds(),
+                    AUTO_FOLLOWER_SETTLE_TIMEOUT, AUTO_FOLLOWER_TRANSLATION_TOLERANCE, AUTO_FOLLOWER_HEADING_TOLERANCE)) {
+                setDriveState(DriveState.DONE);
+                stopMovement();
+            }
+        } catch (NullPointerException exception) {
+            if (Timer.getFPGATimestamp() > nextAllowedPrintError) {
+                exception.printStackTrace();
+                nextAllowedPrintError = Timer.getFPGATimestamp() + 2;
+            }
+        }
+    }
+
     /**
      * @param autoAimingRotationGoal The goal to aim at (in radians)
      * @return The speed to turn at (in radians/s)
      */
     private double getTurnPidDeltaSpeed(@NotNull TrapezoidProfile.State autoAimingRotationGoal, boolean limitSpeed) {
-        turnPID.setSetpoint(autoAimingRotationGoal.position);
-
-        if (Timer.getFPGATimestamp() - 0.2 > lastTurnUpdate) {
-            turnPID.reset();
-        } else if (turnPID.getPositionError() > Math.toRadians(7)) {
-            // This is basically an I-Zone
-            turnPID.resetI();
-        }
-        lastTurnUpdate = Timer.getFPGATimestamp();
-        double pidSpeed =
-                turnPID.calculate(RobotTracker.getInstance().getGyroAngle().getRadians()) + autoAimingRotationGoal.velocity;
+        return getTurnPidDeltaSpeed(autoAimingRotationGoal.position, autoAimingRotationGoal.velocity,
+                limitSpeed ? Constants.TURN_SPEED_LIMIT_WHILE_AIMING : MAX_TURN_SPEED);
+    }
 
-        if (limitSpeed) {
-            pidSpeed = Math.copySign(Math.min(Math.abs(pidSpeed), Constants.TURN_SPEED_LIMIT_WHILE_AIMING), pidSpeed);
-        }
-        return pidSpeed;
+    /**
+     * @param goalPosition The heading to aim at (rad)
+     * @param goalVelocity How fast the heading to aim at is moving (rad/s)
+     * @param maxTurnSpeed The fastest to turn towards the goal (rad/s)
+     * @return The speed to turn at (in radians/s)
+     */
+    private double getTurnPidDeltaSpeed(double goalPosition, double goalVelocity, double maxTurnSpeed) {
+        RobotTracker robotTracker = RobotTracker.getInstance();
+        return turnController.calculate(
+                robotTracker.getGyroAngle().getRadians(),
+                robotTracker.getLatencyCompedChassisSpeeds().omegaRadiansPerSecond,
+                goalPosition,
+                goalVelocity,
+                maxTurnSpeed);
     }
 
+    /**
+     * The fastest the robot can turn in place (rad/s)
+     */
+    private static final double MAX_TURN_SPEED = DRIVE_HIGH_SPEED_M / SWERVE_LEFT_FRONT_LOCATION.getNorm();
+
 
     public void setAutoRotation(@NotNull Rotation2d rotation) {
         currentAutoTrajectoryLock.lock();
@@ -708,6 +1031,81 @@ public final class Drive extends AbstractSubsystem {
         return Timer.getFPGATimestamp() - autoStartTime;
     }
 
+    private final @NotNull BlockingQueue<LimelightFrame> intakeLimelightFrames =
+            Limelight.getInstance(INTAKE_LIMELIGHT_NAME).subscribe(LIMELIGHT_FRAME_QUEUE_SIZE);
+
+    /**
+     * Only used on the drive thread
+     */
+    private final @NotNull BallChaseController ballChaseController = new BallChaseController(BALL_CHASE_MAX_VELOCITY,
+            BALL_CHASE_MAX_ACCELERATION, BALL_CHASE_CAPTURE_SPEED, BALL_CHASE_FILTER_ALPHA, BALL_CHASE_FILTER_BETA,
+            BALL_CHASE_NEW_BALL_DISTANCE, BALL_CHASE_TIMEOUT);
+    private final @NotNull State ballChaseHeadingGoal = new State();
+    private @NotNull DriveState lastDriveState = DriveState.TELEOP;
+
+    /**
+     * Switches to {@link DriveState#BALL_CHASE}. The robot stays still until the intake limelight sees one of our balls, so
+     * {@link Hopper#setChasingBalls(boolean)} needs to be on as well.
+     */
+    public void chaseBalls() {
+        setDriveState(DriveState.BALL_CHASE);
+    }
+
+    /**
+     * Drives towards the ball with the intake facing it. Only allocates when a new intake limelight frame comes in, since it
+     * runs every drive update.
+     */
+    private void updateBallChase() {
+        RobotTracker robotTracker = RobotTracker.getInstance();
+        Hopper hopper = Hopper.getInstance();
+        Pose2d pose = robotTracker.getLatencyCompedPoseMeters();
+        double cos = pose.getRotation().getCos();
+        double sin = pose.getRotation().getSin();
+
+        LimelightFrame frame;
+        while ((frame = intakeLimelightFrames.poll()) != null) {
+            if (!frame.targetVisible || !hopper.isDetecting(frame, hopper.getFriendlyAllianceColor())) continue;
+
+            // Angle below horizontal to the center of the ball. Anything at or above the horizon isn't a ball on the floor.
+            double depression = -Math.toRadians(INTAKE_LIMELIGHT_PITCH + frame.verticalOffset);
+            if (depression <= 0) continue;
+            double floorDistance = (INTAKE_LIMELIGHT_HEIGHT - BALL_RADIUS) / Math.tan(depression);
+
+            // tx is positive to the right, but robot relative y is positive to the left
+            double bearing = Math.toRadians(INTAKE_LIMELIGHT_YAW - frame.horizontalOffset);
+            double relativeX = INTAKE_LIMELIGHT_OFFSET.getX() + floorDistance * Math.cos(bearing);
+            double relativeY = INTAKE_LIMELIGHT_OFFSET.getY() + floorDistance * Math.sin(bearing);
+
+            // The robot has moved since the frame was taken, so use where it was at the time
+            Optional<Pose2d> framePoseOptional = robotTracker.getPoseAtTime(frame.timestamp);
+            if (framePoseOptional.isEmpty()) continue;
+            Pose2d framePose = framePoseOptional.get();
+            double frameCos = framePose.getRotation().getCos();
+            double frameSin = framePose.getRotation().getSin();
+            ballChaseController.addBallDetection(frame.timestamp,
+                    framePose.getX() + relativeX * frameCos - relativeY * frameSin,
+                    framePose.getY() + relativeX * frameSin + relativeY * frameCos);
+        }
+
+        if (ballChaseController.calculate(Timer.getFPGATimestamp(), pose.getX(), pose.getY())) {
+            double velocityX = ballChaseController.getVelocityX();
+            double velocityY = ballChaseController.getVelocityY();
+            // Field relative to robot relative
+            commandSpeeds.vxMetersPerSecond = velocityX * cos + velocityY * sin;
+            commandSpeeds.vyMetersPerSecond = -velocityX * sin + velocityY * cos;
+
+            ballChaseHeadingGoal.position = ballChaseController.getTargetHeading() - Math.toRadians(INTAKE_LIMELIGHT_YAW);
+            ballChaseHeadingGoal.velocity = 0;
+            commandSpeeds.omegaRadiansPerSecond = getTurnPidDeltaSpeed(ballChaseHeadingGoal, false);
+            logData("Ball Chase Distance", ballChaseController.getDistance());
+        } else {
+            commandSpeeds.vxMetersPerSecond = 0;
+            commandSpeeds.vyMetersPerSecond = 0;
+            commandSpeeds.omegaRadiansPerSecond = 0;
+        }
+        driveChassisSpeeds(commandSpeeds, 0, 0);
+    }
+
     @Override
     public void update() {
         DriveState snapDriveState;
@@ -717,22 +1115,40 @@ public final class Drive extends AbstractSubsystem {
 
         checkGyroConnection();
 
+        if (snapDriveState != lastDriveState) {
+            if (snapDriveState == DriveState.BALL_CHASE) {
+                // Don't chase a ball we saw the last time we were chasing
+                ballChaseController.reset();
+                intakeLimelightFrames.clear();
+            }
+            lastDriveState = snapDriveState;
+        }
+
         switch (snapDriveState) {
+            case TELEOP:
+                runActiveCommand();
+                break;
             case TURN:
                 updateTurn();
                 break;
             case HOLD:
-                doHold();
+                writeSwerveModuleStates(Constants.HOLD_MODULE_STATES, true, null);
                 break;
             case RAMSETE:
                 updateRamsete();
                 break;
+            case BALL_CHASE:
+                updateBallChase();
+                break;
             case STOP:
-                swerveDrive(new ChassisSpeeds(0, 0, 0));
+                commandSpeeds.vxMetersPerSecond = 0;
+                commandSpeeds.vyMetersPerSecond = 0;
+                commandSpeeds.omegaRadiansPerSecond = 0;
+                driveChassisSpeeds(commandSpeeds, 0, 0);
         }
     }
 
-    synchronized public boolean isAiming() {
+    public boolean isAiming() {
         return isAiming;
     }
 
@@ -740,7 +1156,6 @@ public final class Drive extends AbstractSubsystem {
         wantedHeading = angle;
         driveState = DriveState.TURN;
         rotateAuto = true;
-        isAiming = !isTurningDone();
     }
 
     public void setRotation(double angle) {
@@ -760,11 +1175,18 @@ public final class Drive extends AbstractSubsystem {
      * Default method when the x and y velocity and the target heading are not passed
      */
     private void updateTurn() {
-        updateTurn(new ControllerDriveInputs(0, 0, 0), wantedHeading, false, Math.toRadians(Constants.MAX_TURN_ERROR));
         // Field relative flag won't do anything since we're not moving
-    }
+        driveChassisSpeeds(calculateTurn(0, 0, false, wantedHeading.getRadians(), 0, MAX_TURN_SPEED,
+                Math.toRadians(Constants.MAX_TURN_ERROR)), 0, 0);
 
-    double lastTurnUpdate = 0;
+        if (rotateAuto && !isAiming) {
+            synchronized (this) {
+                if (driveState == DriveState.TURN) {
+                    driveState = DriveState.DONE;
+                }
+            }
+        }
+    }
 
     /**
      * This method takes in x and y velocity as well as the target heading to calculate how much the robot needs to turn in order
@@ -782,8 +1204,8 @@ public final class Drive extends AbstractSubsystem {
     }
 
     /**
-     * This method takes in x and y velocity as well as the target heading to calculate how much the robot needs to turn in order
-     * to face a target
+     * This method takes in x and y velocity as well as the target heading and posts a command for the drive thread to turn
+     * towards the target while moving. The turn speed is calculated by the drive thread.
      * <p>
      * xVelocity and yVelocity are in m/s
      *
@@ -797,45 +1219,47 @@ public final class Drive extends AbstractSubsystem {
             if (driveState != DriveState.TURN) setDriveState(DriveState.TELEOP);
         }
 
+        boolean isMoving = !(controllerDriveInputs.getX() == 0 && controllerDriveInputs.getY() == 0);
+        postCommand(DriveCommand.ofHeading(
+                controllerDriveInputs.getX() * DRIVE_HIGH_SPEED_M * 0.45,
+                controllerDriveInputs.getY() * DRIVE_HIGH_SPEED_M * 0.45,
+                useFieldRelative, goal.position, goal.velocity,
+                isMoving ? Constants.TURN_SPEED_LIMIT_WHILE_AIMING : MAX_TURN_SPEED, turnErrorRadians,
+                Priority.AIMING, Timer.getFPGATimestamp()));
+    }
 
-        double pidDeltaSpeed = getTurnPidDeltaSpeed(goal, !(controllerDriveInputs.getX() == 0 && controllerDriveInputs.getY() == 0));
+    /**
+     * Calculates the speeds to turn towards the goal while moving and updates {@link #isAiming}. Must only be called from the
+     * drive thread.
+     *
+     * @return The robot relative speeds to turn towards the goal while moving at the given speeds
+     */
+    private @NotNull ChassisSpeeds calculateTurn(double vx, double vy, boolean useFieldRelative, double goalPosition,
+                                                 double goalVelocity, double maxTurnSpeed, double turnErrorRadians) {
+        RobotTracker robotTracker = RobotTracker.getInstance();
+        Rotation2d gyroAngle = robotTracker.getGyroAngle();
+        double pidDeltaSpeed = getTurnPidDeltaSpeed(goalPosition, goalVelocity, maxTurnSpeed);
 
 //        System.out.println(
 //                "turn error: " + Math.toDegrees(turnPID.getPositionError()) + " delta speed: " + Math.toDegrees(pidDeltaSpeed));
-        double curSpeed = RobotTracker.getInstance().getLatencyCompedChassisSpeeds().omegaRadiansPerSecond;
+        double curSpeed = robotTracker.getLatencyCompedChassisSpeeds().omegaRadiansPerSecond;
 
+        ChassisSpeeds chassisSpeeds;
         if (useFieldRelative) {
-            swerveDrive(ChassisSpeeds.fromFieldRelativeSpeeds(
-                    controllerDriveInputs.getX() * DRIVE_HIGH_SPEED_M * 0.45,
-                    controllerDriveInputs.getY() * DRIVE_HIGH_SPEED_M * 0.45,
-                    pidDeltaSpeed,
-                    RobotTracker.getInstance().getGyroAngle()));
+            chassisSpeeds = ChassisSpeeds.fromFieldRelativeSpeeds(vx, vy, pidDeltaSpeed, gyroAngle);
         } else {
-            swerveDrive(new ChassisSpeeds(
-                    controllerDriveInputs.getX() * DRIVE_HIGH_SPEED_M * 0.45,
-                    controllerDriveInputs.getY() * DRIVE_HIGH_SPEED_M * 0.45,
-                    pidDeltaSpeed));
+            chassisSpeeds = new ChassisSpeeds(vx, vy, pidDeltaSpeed);
         }
 
-        if (Math.abs(goal.position - RobotTracker.getInstance().getGyroAngle().getRadians()) < turnErrorRadians) {
-            synchronized (this) {
-                isAiming = false;
-                if (rotateAuto) {
-                    this.driveState = DriveState.DONE;
-                }
-            }
-        } else {
-            synchronized (this) {
-                isAiming = true;
-            }
-        }
+        isAiming = Math.abs(goalPosition - gyroAngle.getRadians()) >= turnErrorRadians;
 
-        logData("Turn Position Error", Math.toDegrees(turnPID.getPositionError()));
+        logData("Turn Position Error", Math.toDegrees(turnController.getError()));
         logData("Turn Actual Speed", curSpeed);
         logData("Turn PID Command", pidDeltaSpeed);
-        logData("Turn PID Setpoint Position", goal.position);
-        logData("Turn PID Setpoint Velocity", goal.velocity);
-        logData("Turn PID Measurement", RobotTracker.getInstance().getGyroAngle().getRadians());
+        logData("Turn PID Setpoint Position", goalPosition);
+        logData("Turn PID Setpoint Velocity", goalVelocity);
+        logData("Turn PID Measurement", gyroAngle.getRadians());
+        return chassisSpeeds;
     }
 
     public void stopMovement() {
@@ -851,18 +1275,85 @@ public final class Drive extends AbstractSubsystem {
 
     }
 
+    /**
+     * Values from the drive loop for one module. The drive thread only writes the numbers, they get published in
+     * {@link #logData()}, so the keys are built once here instead of every loop.
+     */
+    private static final class ModuleTelemetry {
+        final @NotNull String relativePositionKey;
+        final @NotNull String absolutePositionKey;
+        final @NotNull String driveVelocityKey;
+        final @NotNull String driveCurrentKey;
+        final @NotNull String swerveCurrentKey;
+        final @NotNull String swerveTempKey;
+        final @NotNull String driveTempKey;
+        final @NotNull String targetPositionKey;
+        final @NotNull String angleErrorKey;
+        final @NotNull String outputVoltageKey;
+        final @NotNull String ksKey;
+        final @NotNull String kvKey;
+        final @NotNull String kaKey;
+
+        volatile double targetPosition;
+        volatile double angleError;
+        volatile double outputVoltage;
+
+        ModuleTelemetry(int module) {
+            relativePositionKey = "Swerve Motor " + module + " Relative Position";
+            absolutePositionKey = "Swerve Motor " + module + " Absolute Position";
+            driveVelocityKey = "Drive Motor " + module + " Velocity";
+            driveCurrentKey = "Drive Motor " + module + " Current";
+            swerveCurrentKey = "Swerve Motor " + module + " Current";
+            swerveTempKey = "Swerve Motor " + module + " Temp";
+            driveTempKey = "Drive Motor " + module + " Temp";
+            targetPositionKey = "Swerve Motor " + module + " Target Position";
+            angleErrorKey = "Swerve Motor " + module + " Error";
+            outputVoltageKey = "Out Volts " + module;
+            ksKey = "Drive Motor " + module + " kS";
+            kvKey = "Drive Motor " + module + " kV";
+            kaKey = "Drive Motor " + module + " kA";
+        }
+    }
+
+    private final @NotNull ModuleTelemetry[] moduleTelemetry = {
+            new ModuleTelemetry(0), new ModuleTelemetry(1), new ModuleTelemetry(2), new ModuleTelemetry(3)
+    };
+
+    private volatile double commandedVelocityX;
+    private volatile double commandedVelocityY;
+    private volatile double commandedAngularVelocity;
+
     @Override
     public void logData() {
         for (int i = 0; i < 4; i++) {
+            ModuleTelemetry telemetry = moduleTelemetry[i];
             double relPos = getRelativeSwervePosition(i) % 360;
             if (relPos < 0) relPos += 360;
-            logData("Swerve Motor " + i + " Relative Position", relPos);
-            logData("Swerve Motor " + i + " Absolute Position", getWheelRotation(i));
-            logData("Drive Motor " + i + " Velocity", getSwerveDriveVelocity(i) / 60.0d);
-            logData("Drive Motor " + i + " Current", swerveDriveMotors[i].getStatorCurrent());
-            logData("Swerve Motor " + i + " Current", swerveMotors[i].getStatorCurrent());
-            logData("Swerve Motor " + i + " Temp", swerveMotors[i].getTemperature());
-            logData("Drive Motor " + i + " Temp", swerveDriveMotors[i].getTemperature());
+            logData(telemetry.relativePositionKey, relPos);
+            logData(telemetry.absolutePositionKey, getWheelRotation(i));
+            logData(telemetry.driveVelocityKey, getSwerveDriveVelocity(i) / 60.0d);
+            logData(telemetry.driveCurrentKey, swerveDriveMotors[i].getStatorCurrent());
+            logData(telemetry.swerveCurrentKey, swerveMotors[i].getStatorCurrent());
+            logData(telemetry.swerveTempKey, swerveMotors[i].getTemperature());
+            logData(telemetry.driveTempKey, swerveDriveMotors[i].getTemperature());
+
+            if (USE_ADAPTIVE_DRIVE_FEEDFORWARD) {
+                logData(telemetry.ksKey, adaptiveFeedforward[i].getKs());
+                logData(telemetry.kvKey, adaptiveFeedforward[i].getKv());
+                logData(telemetry.kaKey, adaptiveFeedforward[i].getKa());
+            }
+
+            if (LOG_DEBUG_TELEMETRY) {
+                logData(telemetry.targetPositionKey, telemetry.targetPosition);
+                logData(telemetry.angleErrorKey, telemetry.angleError);
+                logData(telemetry.outputVoltageKey, telemetry.outputVoltage);
+            }
+        }
+
+        if (LOG_DEBUG_TELEMETRY) {
+            logData("Drive Command X Velocity", commandedVelocityX);
+            logData("Drive Command Y Velocity", commandedVelocityY);
+            logData("Drive Command Rotation", commandedAngularVelocity);
         }
         logData("Drive State", driveState.toString());
     }
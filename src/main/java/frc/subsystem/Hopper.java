@@ -6,6 +6,7 @@ import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
 import com.revrobotics.RelativeEncoder;
 import edu.wpi.first.wpilibj.DigitalInput;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.Timer;
 import frc.robot.Constants;
 import frc.robot.Robot;
@@ -13,12 +14,20 @@ import frc.subsystem.Intake.IntakeSolState;
 import frc.subsystem.Shooter.FeederWheelState;
 import frc.subsystem.Shooter.ShooterState;
 import frc.utility.Limelight;
+import frc.utility.LimelightFrame;
 import frc.utility.OrangeUtility;
 import frc.utility.controllers.LazyCANSparkMax;
+import frc.utility.replay.HopperReplay;
+import frc.utility.replay.ReplayLogWriter;
+import frc.utility.tracking.HopperBallEstimator;
+import frc.utility.vision.BallTracker;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
 import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
 
 import static frc.robot.Constants.*;
 
@@ -26,16 +35,50 @@ public final class Hopper extends AbstractSubsystem {
 
     private static @NotNull Hopper INSTANCE = new Hopper();
     private final @NotNull LazyCANSparkMax hopperMotor;
+    private final @NotNull RelativeEncoder hopperEncoder;
     private final RelativeEncoder outtakeWheelsQuadrature;
     private final LazyCANSparkMax outtakeWheels;
     private double lastDetectionTime;
     private boolean disableEject = true;
     private final Limelight intakeLimelight = Limelight.getInstance(Constants.INTAKE_LIMELIGHT_NAME);
+    private final @NotNull BlockingQueue<LimelightFrame> intakeLimelightFrames =
+            intakeLimelight.subscribe(LIMELIGHT_FRAME_QUEUE_SIZE);
+
+    /**
+     * Tracks the opposing balls the intake limelight sees, so we can start ejecting before they get to the outtake
+     */
+    private final @NotNull BallTracker opposingBallTracker = BallTracker.forIntakeLimelight();
+
+    /**
+     * The color of balls the intake limelight pipeline was last set to detect. Null until it's set.
+     */
+    private volatile @Nullable BallColor intakeDetectionColor = null;
+
+    /**
+     * When true, the intake limelight looks for our balls (for {@link Drive.DriveState#BALL_CHASE}) instead of the opposing ones
+     * while there's room in the hopper. The limelight can only look for one color, so ejecting is off while it's looking for
+     * ours.
+     */
+    private volatile boolean chasingBalls = false;
     private boolean isBeamBreakEnabled = true;
 
     private final DigitalInput beamBreak;
     private double lastBeamBreakOpenTime = 0;
 
+    /**
+     * Only used on the hopper thread
+     */
+    private final @NotNull HopperBallEstimator ballEstimator = HopperBallEstimator.fromConstants();
+    private volatile int ballCount = 0;
+    private volatile int ballsShot = 0;
+
+    /**
+     * Records the inputs and outputs of the ball tracker and estimator so they can be rerun with {@link HopperReplay}. Null
+     * when not recording. Only used on the hopper thread.
+     */
+    private final @Nullable ReplayLogWriter replayLog = RECORD_REPLAY_LOGS && RobotBase.isReal() ?
+            ReplayLogWriter.create(new File(REPLAY_LOG_DIRECTORY), HopperReplay.SOURCE, MAX_REPLAY_LOGS) : null;
+
     public static Hopper getInstance() {
         return INSTANCE;
     }
@@ -68,8 +111,8 @@ public final class Hopper extends AbstractSubsystem {
         NO_BALL
     }
 
-    BallColor opposingAllianceColor = BallColor.BLUE;
-    BallColor friendlyAllianceColor = BallColor.RED;
+    volatile BallColor opposingAllianceColor = BallColor.BLUE;
+    volatile BallColor friendlyAllianceColor = BallColor.RED;
 
     private Hopper() {
         super(Constants.HOPPER_PERIOD, 5);
@@ -77,10 +120,15 @@ public final class Hopper extends AbstractSubsystem {
         hopperMotor.setSmartCurrentLimit(HOPPER_CURRENT_LIMIT);
 
         hopperMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus0, 100);
-        hopperMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, 500);
-        hopperMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus2, 500);
+        // The ball estimator needs the current, velocity (status 1) and position (status 2)
+        hopperMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, 50);
+        hopperMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus2, 20);
         hopperMotor.setControlFramePeriodMs(25);
 
+        hopperEncoder = hopperMotor.getEncoder();
+        hopperEncoder.setPositionConversionFactor(HOPPER_METERS_PER_ROTATION);
+        hopperEncoder.setVelocityConversionFactor(HOPPER_METERS_PER_ROTATION / 60);
+
         outtakeWheels = new LazyCANSparkMax(Constants.OUTTAKE_CAN_ID, MotorType.kBrushless);
         outtakeWheels.setIdleMode(IdleMode.kCoast);
         outtakeWheels.setInverted(true);
@@ -107,18 +155,94 @@ public final class Hopper extends AbstractSubsystem {
         if (Objects.equals(Robot.sideChooser.getSelected(), "blue")) {
             opposingAllianceColor = BallColor.RED;
             friendlyAllianceColor = BallColor.BLUE;
-
-            // Will detect opposite color balls and outtake when it sees them
-            intakeLimelight.setPipeline(1);
         } else {
             opposingAllianceColor = BallColor.BLUE;
             friendlyAllianceColor = BallColor.RED;
+        }
+
+        // Only write to network tables when the color we're looking for changes
+        BallColor detectionColor = isLookingForFriendlyBalls() ? friendlyAllianceColor : opposingAllianceColor;
+        if (intakeDetectionColor != detectionColor) {
+            intakeLimelight.setPipeline(getIntakeLimelightPipeline(detectionColor));
+            intakeDetectionColor = detectionColor;
+            // Balls seen by the old pipeline aren't the color we're looking for anymore
+            opposingBallTracker.reset();
+            intakeLimelightFrames.clear();
+            if (replayLog != null) {
+                replayLog.beginCycle(Timer.getFPGATimestamp());
+                replayLog.record(HopperReplay.BALL_TRACKER_RESET, true);
+                replayLog.endCycle();
+            }
+        }
+    }
+
+    /**
+     * @return The intake limelight pipeline that detects balls of the color
+     */
+    @Contract(pure = true)
+    public static int getIntakeLimelightPipeline(@NotNull BallColor color) {
+        return color == BallColor.RED ? 1 : 0;
+    }
+
+    /**
+     * @return If the intake limelight frame came from the pipeline that detects balls of the color
+     */
+    @Contract(pure = true)
+    public boolean isDetecting(@NotNull LimelightFrame frame, @NotNull BallColor color) {
+        if (frame.pipeline == -1) {
+            // Older limelight firmware doesn't say which pipeline took the frame
+            return intakeDetectionColor == color;
+        }
+        return frame.pipeline == getIntakeLimelightPipeline(color);
+    }
+
+    public @NotNull BallColor getFriendlyAllianceColor() {
+        return friendlyAllianceColor;
+    }
+
+    /**
+     * Switches the intake limelight to look for our own balls so that the drive can chase them
+     */
+    public void setChasingBalls(boolean chasingBalls) {
+        this.chasingBalls = chasingBalls;
+    }
+
+    /**
+     * Chasing only takes the limelight away from the eject while there's room for another ball and nothing is being ejected.
+     * Once the hopper is full the drive stops seeing balls to chase.
+     */
+    private boolean isLookingForFriendlyBalls() {
+        return chasingBalls && ballCount < Constants.BALL_CHASE_HOPPER_CAPACITY && outtakeState != OuttakeState.AUTO_EJECT;
+    }
 
-            // Will detect same colored balls and intake when it sees them
-            intakeLimelight.setPipeline(0);
+    private void updateBallTracker() {
+        LimelightFrame frame;
+        while ((frame = intakeLimelightFrames.poll()) != null) {
+            if (frame.targetVisible && isDetecting(frame, opposingAllianceColor)) {
+                opposingBallTracker.addDetection(frame.timestamp, frame.verticalOffset);
+                if (replayLog != null) {
+                    replayLog.beginCycle(frame.timestamp);
+                    replayLog.record(HopperReplay.BALL_DETECTION, frame.verticalOffset);
+                    replayLog.endCycle();
+                }
+            }
         }
     }
 
+    /**
+     * @return If the tracked opposing ball will reach the outtake within {@link Constants#OUTTAKE_EJECT_LEAD_TIME}
+     */
+    private boolean isOpposingBallArriving() {
+        return getPredictedBallArrivalTime() < Constants.OUTTAKE_EJECT_LEAD_TIME;
+    }
+
+    /**
+     * @return How long until the tracked opposing ball reaches the outtake. Infinity if there isn't one coming.
+     */
+    private double getPredictedBallArrivalTime() {
+        return opposingBallTracker.getTimeUntilBelow(Timer.getFPGATimestamp(), Constants.OUTTAKE_VERTICAL_OFFSET_THRESHOLD);
+    }
+
     /**
      * Toggles disableEject
      */
@@ -148,7 +272,7 @@ public final class Hopper extends AbstractSubsystem {
             return;
         }
 
-        if (getBallColor() == opposingAllianceColor
+        if ((getBallColor() == opposingAllianceColor || isOpposingBallArriving())
                 && intake.getIntakeSolState() == IntakeSolState.OPEN
                 && !disableEject) { // If disable eject is on, it will not outtake
             lastDetectionTime = Timer.getFPGATimestamp();
@@ -178,7 +302,9 @@ public final class Hopper extends AbstractSubsystem {
     public BallColor getBallColor() {
         @NotNull BallColor currentBallColor;
 
-        if (intakeLimelight.getVerticalOffset() < Constants.OUTTAKE_VERTICAL_OFFSET_THRESHOLD) {
+        LimelightFrame frame = intakeLimelight.getLatestFrame();
+        if (isDetecting(frame, opposingAllianceColor)
+                && frame.verticalOffset < Constants.OUTTAKE_VERTICAL_OFFSET_THRESHOLD) {
             currentBallColor = opposingAllianceColor;
         } else {
             currentBallColor = BallColor.NO_BALL;
@@ -195,11 +321,13 @@ public final class Hopper extends AbstractSubsystem {
     @Override
     public void update() {
         updateAllianceColor();
+        updateBallTracker();
         updateOuttakeState();
 
         if (!isBeamBroken()) {
             lastBeamBreakOpenTime = Timer.getFPGATimestamp();
         }
+        updateBallEstimator();
 
         // Outtake motor control
 
@@ -248,6 +376,49 @@ public final class Hopper extends AbstractSubsystem {
         }
     }
 
+    private void updateBallEstimator() {
+        double time = Timer.getFPGATimestamp();
+        double beltPosition = hopperEncoder.getPosition();
+        boolean beamBroken = isBeamBroken();
+        boolean stalled = isHopperMotorRunning()
+                && hopperMotor.getOutputCurrent() > HOPPER_STALL_CURRENT
+                && Math.abs(hopperEncoder.getVelocity()) < HOPPER_STALL_VELOCITY;
+        boolean feederRunning = Shooter.getInstance().getFeederWheelState() == FeederWheelState.FORWARD;
+        boolean outtakeEjecting = outtakeWheelsQuadrature.getVelocity() > OUTTAKE_EJECTING_VELOCITY;
+
+        ballEstimator.update(time, beltPosition, beamBroken, stalled, feederRunning, outtakeEjecting);
+        ballCount = ballEstimator.getBallCount();
+        ballsShot = ballEstimator.getBallsShot();
+
+        if (replayLog != null) {
+            replayLog.beginCycle(time);
+            replayLog.record(HopperReplay.BELT_POSITION, beltPosition);
+            replayLog.record(HopperReplay.BEAM_BROKEN, beamBroken);
+            replayLog.record(HopperReplay.HOPPER_STALLED, stalled);
+            replayLog.record(HopperReplay.FEEDER_RUNNING, feederRunning);
+            replayLog.record(HopperReplay.OUTTAKE_EJECTING, outtakeEjecting);
+            replayLog.record(HopperReplay.BALL_COUNT, ballCount);
+            replayLog.record(HopperReplay.BALLS_SHOT, ballsShot);
+            replayLog.record(HopperReplay.PREDICTED_BALL_ARRIVAL_TIME,
+                    opposingBallTracker.getTimeUntilBelow(time, OUTTAKE_VERTICAL_OFFSET_THRESHOLD));
+            replayLog.endCycle();
+        }
+    }
+
+    /**
+     * @return The estimated number of balls in the hopper
+     */
+    public int getBallCount() {
+        return ballCount;
+    }
+
+    /**
+     * @return The estimated number of balls that have gone into the shooter since the robot started
+     */
+    public int getBallsShot() {
+        return ballsShot;
+    }
+
     private void setHopperSpeed(double speed) {
         synchronized (hopperMotor) {
             hopperMotor.set(speed);
@@ -308,10 +479,15 @@ public final class Hopper extends AbstractSubsystem {
         logData("Outtake Velocity", outtakeWheelsQuadrature.getVelocity());
         logData("Outtake Current", outtakeWheels.getOutputCurrent());
         logData("Current Ball Color", getBallColor());
+        logData("Predicted Ball Arrival Time", getPredictedBallArrivalTime());
+        logData("Opposing Balls Seen", opposingBallTracker.getTrackCount());
         logData("Eject Disabled", disableEject);
         logData("Hopper State", wantedHopperState);
         logData("Is Beam Broken", isBeamBroken());
         logData("Last Beam Break Open Time", getLastBeamBreakOpenTime());
+        logData("Hopper Ball Count", ballCount);
+        logData("Hopper Balls Shot", ballsShot);
+        logData("Hopper Belt Position", hopperEncoder.getPosition());
         logData("Eject Motor Temperature", outtakeWheels.getMotorTemperature());
         logData("Hopper Motor Temperature", hopperMotor.getMotorTemperature());
     }
@@ -319,6 +495,7 @@ public final class Hopper extends AbstractSubsystem {
     @Override
     public void close() throws Exception {
         setHopperState(HopperState.OFF);
+        if (replayLog != null) replayLog.close();
         INSTANCE = new Hopper();
     }
 }
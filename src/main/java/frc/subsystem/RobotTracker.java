@@ -16,7 +16,9 @@ import edu.wpi.first.wpilibj.SPI;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.Constants;
+import frc.utility.UpdateSignal;
 import frc.utility.net.editing.LiveEditableValue;
+import frc.utility.tracking.SwingEstimator;
 import frc.utility.tracking.TimestampedPose;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
@@ -68,6 +70,21 @@ public final class RobotTracker extends AbstractSubsystem {
     private double maxGyroRoll = 0;
     private double minGyroRoll = 0;
 
+    /**
+     * Fed every roll sample from the navX. Locked on itself since the samples come in on the navX thread.
+     */
+    private final @NotNull SwingEstimator swingEstimator = new SwingEstimator(1.0 / Constants.NAVX_UPDATE_RATE,
+            Constants.SWING_ESTIMATOR_HISTORY_SIZE, Constants.SWING_ESTIMATOR_MIN_AMPLITUDE,
+            Constants.SWING_ESTIMATOR_MAX_RESIDUAL);
+
+    /**
+     * Copy of {@link #swingEstimator}'s samples that is fit outside the lock, so the navX thread never waits on a fit. Only
+     * used by {@link #getTimeUntilSwingReaches(double)}.
+     */
+    private final @NotNull SwingEstimator swingFit = new SwingEstimator(1.0 / Constants.NAVX_UPDATE_RATE,
+            Constants.SWING_ESTIMATOR_HISTORY_SIZE, Constants.SWING_ESTIMATOR_MIN_AMPLITUDE,
+            Constants.SWING_ESTIMATOR_MAX_RESIDUAL);
+
     private final @NotNull SwerveDriveKinematics swerveDriveKinematics = Drive.getSwerveDriveKinematics();
 
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
@@ -80,14 +97,26 @@ public final class RobotTracker extends AbstractSubsystem {
 
     private @NotNull Translation2d positionOffset = new Translation2d();
 
+    /**
+     * Signaled every time the odometry updates
+     */
+    public final @NotNull UpdateSignal poseUpdateSignal = new UpdateSignal();
+
     private final LiveEditableValue<Double> visionUsagePercent = new LiveEditableValue<>(0.2,
             SmartDashboard.getEntry("Vision Position Weight Percentage"));
 
 
     private RobotTracker() {
         super(Constants.ROBOT_TRACKER_PERIOD, 5);
-        gyroSensor = new AHRS(SPI.Port.kMXP, (byte) 200);
+        gyroSensor = new AHRS(SPI.Port.kMXP, (byte) Constants.NAVX_UPDATE_RATE);
         gyroSensor.getRequestedUpdateRate();
+        // Sample the roll at the navX's rate instead of the odometry rate so that the swing can be fit accurately
+        gyroSensor.registerCallback((systemTimestamp, sensorTimestamp, sensorData, context) -> {
+            double time = Timer.getFPGATimestamp();
+            synchronized (swingEstimator) {
+                swingEstimator.addSample(time, sensorData.roll);
+            }
+        }, null);
         //@formatter:off
 //        swerveDriveOdometry = new SwerveDrivePoseEstimator(
 //                gyroSensor.getRotation2d(),
@@ -108,8 +137,6 @@ public final class RobotTracker extends AbstractSubsystem {
         //swerveDriveOdometry = new SwerveDriveOdometry(drive.getSwerveDriveKinematics(), gyroSensor.getRotation2d());
     }
 
-    private static final Pose2d ZERO_POSE = new Pose2d();
-
     /**
      * Add a vision measurement to the Unscented Kalman Filter. This will correct the odometry pose estimate while still
      * accounting for measurement noise.
@@ -124,11 +151,21 @@ public final class RobotTracker extends AbstractSubsystem {
      *                                     the same epoch as Timer.getFPGATimestamp.) This means that you should use
      */
     public void addVisionMeasurement(Translation2d visionRobotTranslationMeters, double timestampSeconds, boolean force) {
+        addVisionMeasurement(visionRobotTranslationMeters, timestampSeconds, force, 1);
+    }
+
+    /**
+     * Same as {@link #addVisionMeasurement(Translation2d, double, boolean)}, but lets the caller say how good the measurement is.
+     *
+     * @param weight How much to trust this measurement compared to a normal one (0-1). Ignored if {@code force} is true.
+     */
+    public void addVisionMeasurement(Translation2d visionRobotTranslationMeters, double timestampSeconds, boolean force,
+                                     double weight) {
         lock.writeLock().lock();
         try {
             getPoseAtTime(timestampSeconds).ifPresent(pose2d ->
                     positionOffset = visionRobotTranslationMeters.minus(pose2d.getTranslation())
-                            .times((force ? 1 : visionUsagePercent.get()))
+                            .times((force ? 1 : visionUsagePercent.get() * weight))
                             .plus(positionOffset));
         } finally {
             lock.writeLock().unlock();
@@ -249,6 +286,7 @@ public final class RobotTracker extends AbstractSubsystem {
             } finally {
                 lock.writeLock().unlock();
             }
+            poseUpdateSignal.signal();
         }
 
 
@@ -526,6 +564,19 @@ public final class RobotTracker extends AbstractSubsystem {
         }
     }
 
+    /**
+     * @return The time that the latest pose was measured at (same epoch as Timer.getFPGATimestamp)
+     */
+    @Contract(pure = true)
+    public double getLastOdometryTime() {
+        lock.readLock().lock();
+        try {
+            return currentOdometryTime;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
 
     @Override
     public void selfTest() {
@@ -584,6 +635,26 @@ public final class RobotTracker extends AbstractSubsystem {
         instance = new RobotTracker();
     }
 
+    /**
+     * Fits the robot's swing and predicts when it will next pass through a roll angle while swinging towards the field.
+     *
+     * @param roll The roll angle (degrees)
+     * @return The time from now until the robot passes through the angle (s). NaN if the swing can't be predicted.
+     */
+    public synchronized double getTimeUntilSwingReaches(double roll) {
+        double time = Timer.getFPGATimestamp();
+        boolean newSamples;
+        synchronized (swingEstimator) {
+            newSamples = swingFit.copySamplesFrom(swingEstimator);
+        }
+        // Only refit when the navX has sent something new
+        if (newSamples) swingFit.fit();
+
+        // Infinite when there isn't a valid fit
+        double timeUntilCrossing = swingFit.getTimeUntilFallingCrossing(time, roll);
+        return Double.isInfinite(timeUntilCrossing) ? Double.NaN : timeUntilCrossing;
+    }
+
     @Contract(pure = true)
     public double getGyroRollVelocity() {
         lock.readLock().lock();
@@ -594,6 +665,32 @@ public final class RobotTracker extends AbstractSubsystem {
         }
     }
 
+    /**
+     * @return The pitch of the robot from the last odometry update (degrees)
+     */
+    @Contract(pure = true)
+    public double getGyroPitch() {
+        lock.readLock().lock();
+        try {
+            return lastGyroPitch;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The roll of the robot from the last odometry update (degrees)
+     */
+    @Contract(pure = true)
+    public double getGyroRoll() {
+        lock.readLock().lock();
+        try {
+            return lastGyroRoll;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     @Contract(pure = true)
     public double getGyroPitchVelocity() {
         lock.readLock().lock();
@@ -639,36 +736,7 @@ public final class RobotTracker extends AbstractSubsystem {
     public Optional<Pose2d> getPoseAtTime(double timestampSeconds) {
         lock.writeLock().lock();
         try {
-            List<TimestampedPose> timestampedPoses = poseHistory.stream().collect(Collectors.toUnmodifiableList());
-            int index = Collections.binarySearch(timestampedPoses, new TimestampedPose(timestampSeconds, ZERO_POSE));
-
-            if (index < 0) { //Convert the binary search index into an actual index
-                index = -(index + 1);
-            }
-
-            if (timestampedPoses.isEmpty()) {
-                return Optional.empty();
-            }
-
-            if (timestampedPoses.get(0).timestamp >= timestampSeconds) {
-                // If the vision data is older than our oldest pose in our history, we have to throw out the vision data
-                return Optional.empty();
-            } else if (timestampedPoses.get(timestampedPoses.size() - 1).timestamp < timestampSeconds) {
-                // The vision data is newer than our newest pose. Assume that they happen at the same time
-                Pose2d rawPose = timestampedPoses.get(index - 1).pose;
-                Translation2d adjustedTranslation = rawPose.getTranslation().plus(positionOffset);
-                return Optional.of(new Pose2d(adjustedTranslation, rawPose.getRotation()));
-            } else {
-                // The vision data is somewhere in between poses in history. Interpolate between values to get the pose
-                // that lines up with vision
-                double percentIn = (timestampSeconds - timestampedPoses.get(index - 1).timestamp) /
-                        (timestampedPoses.get(index).timestamp - timestampedPoses.get(index - 1).timestamp);
-
-                Pose2d rawPose = timestampedPoses.get(index - 1).pose
-                        .interpolate(timestampedPoses.get(index).pose, percentIn);
-                Translation2d adjustedTranslation = rawPose.getTranslation().plus(positionOffset);
-                return Optional.of(new Pose2d(adjustedTranslation, rawPose.getRotation()));
-            }
+            return TimestampedPose.getPoseAtTime(poseHistory, positionOffset, timestampSeconds);
         } finally {
             lock.writeLock().unlock();
         }
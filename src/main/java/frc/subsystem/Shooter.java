@@ -15,13 +15,16 @@ import edu.wpi.first.networktables.EntryListenerFlags;
 import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.GenericHID.RumbleType;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj.util.Color8Bit;
 import frc.robot.Constants;
 import frc.robot.Robot;
+import frc.robot.SysIdConstants;
 import frc.utility.OrangeUtility;
+import frc.utility.control.FlywheelController;
 import frc.utility.controllers.LazyCANSparkMax;
 import frc.utility.controllers.LazyTalonFX;
 import frc.utility.shooter.visionlookup.ShooterPreset;
@@ -53,7 +56,30 @@ public final class Shooter extends AbstractSubsystem {
     // Shooter Flywheel
     private final LazyTalonFX shooterWheelMaster;
     private final LazyTalonFX shooterWheelSlave;
-    private double desiredShooterSpeed;
+    private volatile double desiredShooterSpeed;
+
+    private final @NotNull FlywheelController flywheelController = new FlywheelController(
+            SysIdConstants.SHOOTER_FEEDFORWARD.ks,
+            SysIdConstants.SHOOTER_FEEDFORWARD.kv,
+            SysIdConstants.SHOOTER_FEEDFORWARD.ka,
+            FLYWHEEL_CONTROL_PERIOD,
+            FLYWHEEL_VELOCITY_TOLERANCE,
+            0, // The flywheel only spins forward (see configPeakOutputReverse)
+            SHOOTER_VOLTAGE_COMPENSATION,
+            FLYWHEEL_MODEL_STD_DEV,
+            FLYWHEEL_MEASUREMENT_STD_DEV,
+            FLYWHEEL_INPUT_DELAY,
+            FLYWHEEL_MEASUREMENT_DELAY);
+
+    /**
+     * Runs {@link #updateFlywheel()} faster than the rest of the shooter
+     */
+    private final @NotNull Notifier flywheelNotifier = new Notifier(this::updateFlywheel);
+
+    /**
+     * Flywheel speed from the Kalman filter (RPM)
+     */
+    private volatile double estimatedShooterRPM;
 
     // Feeder
     private final LazyTalonFX feederWheel;
@@ -193,7 +219,7 @@ public final class Shooter extends AbstractSubsystem {
         TEST
     }
 
-    private ShooterState shooterState = ShooterState.OFF;
+    private volatile ShooterState shooterState = ShooterState.OFF;
 
     /**
      * A 1 slot queue that holds a requested state change if the state could not be changed at the moment.
@@ -271,6 +297,31 @@ public final class Shooter extends AbstractSubsystem {
         desiredRPMHudElement.push();
         hoodAngleHudElement.push();
         rpmHudElement.push();
+
+        if (USE_ROBORIO_FLYWHEEL_CONTROL) {
+            flywheelNotifier.setName("Flywheel");
+            flywheelNotifier.startPeriodic(FLYWHEEL_CONTROL_PERIOD);
+        }
+    }
+
+    /**
+     * Runs the roboRIO side flywheel controller. Called by {@link #flywheelNotifier}.
+     * <p>
+     * When {@link Constants#USE_ROBORIO_FLYWHEEL_CONTROL} is on this is the only place that sets the flywheel motor, so the
+     * controller's model always matches what was actually sent. The rest of the shooter only posts {@link #shooterState} and
+     * {@link #desiredShooterSpeed}.
+     */
+    private void updateFlywheel() {
+        // The Kalman filter works in rotations per second
+        flywheelController.correct(getShooterRPM() / 60);
+        if (shooterState == ShooterState.ON) {
+            double voltage = flywheelController.calculate(desiredShooterSpeed / 60);
+            shooterWheelMaster.set(ControlMode.PercentOutput, voltage / SHOOTER_VOLTAGE_COMPENSATION);
+        } else {
+            shooterWheelMaster.set(ControlMode.PercentOutput, 0);
+            flywheelController.predict(0);
+        }
+        estimatedShooterRPM = flywheelController.getEstimatedVelocity() * 60;
     }
 
     private void configPID() {
@@ -281,9 +332,9 @@ public final class Shooter extends AbstractSubsystem {
         shooterWheelMaster.configSelectedFeedbackSensor(FeedbackDevice.IntegratedSensor);
         shooterWheelMaster.configPeakOutputForward(1);
         shooterWheelMaster.configPeakOutputReverse(0);
-        shooterWheelMaster.configVoltageCompSaturation(9);
+        shooterWheelMaster.configVoltageCompSaturation(SHOOTER_VOLTAGE_COMPENSATION);
         shooterWheelMaster.enableVoltageCompensation(true);
-        shooterWheelSlave.configVoltageCompSaturation(9);
+        shooterWheelSlave.configVoltageCompSaturation(SHOOTER_VOLTAGE_COMPENSATION);
         shooterWheelSlave.enableVoltageCompensation(true);
 
         shooterWheelMaster.configSupplyCurrentLimit(new SupplyCurrentLimitConfiguration(true, Constants.SHOOTER_CURRENT_LIMIT,
@@ -294,9 +345,16 @@ public final class Shooter extends AbstractSubsystem {
         shooterWheelMaster.configVelocityMeasurementPeriod(SensorVelocityMeasPeriod.Period_10Ms);
 
         shooterWheelMaster.setStatusFramePeriod(StatusFrameEnhanced.Status_1_General, 20); // Default is 10ms
-        shooterWheelMaster.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, 25); // Default is 10ms
         shooterWheelMaster.setStatusFramePeriod(StatusFrameEnhanced.Status_Brushless_Current, 100); // Default is 50ms
-        shooterWheelMaster.setControlFramePeriod(ControlFrame.Control_3_General, 25);
+        if (USE_ROBORIO_FLYWHEEL_CONTROL) {
+            // The roboRIO controller needs fresh velocity measurements and has to be able to send outputs every loop
+            shooterWheelMaster.configVelocityMeasurementWindow(8);
+            shooterWheelMaster.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, 5);
+            shooterWheelMaster.setControlFramePeriod(ControlFrame.Control_3_General, 5);
+        } else {
+            shooterWheelMaster.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, 25); // Default is 10ms
+            shooterWheelMaster.setControlFramePeriod(ControlFrame.Control_3_General, 25);
+        }
         shooterWheelMaster.setControlFramePeriod(ControlFrame.Control_4_Advanced, 25);
         shooterWheelMaster.setControlFramePeriod(ControlFrame.Control_6_MotProfAddTrajPoint, 500);
 
@@ -524,10 +582,12 @@ public final class Shooter extends AbstractSubsystem {
     }
 
     /**
-     * Checks if shooter is at target speed within a configurable allowed error.
+     * Checks if shooter is at target speed within a configurable allowed error. Uses the filtered speed when the flywheel is
+     * controlled by the roboRIO.
      */
     public boolean isShooterAtTargetSpeed() {
-        return Math.abs(getShooterRPM() - getDesiredShooterSpeed()) < Constants.ALLOWED_SHOOTER_SPEED_ERROR_RPM;
+        double shooterRPM = USE_ROBORIO_FLYWHEEL_CONTROL ? estimatedShooterRPM : getShooterRPM();
+        return Math.abs(shooterRPM - getDesiredShooterSpeed()) < Constants.ALLOWED_SHOOTER_SPEED_ERROR_RPM;
     }
 
     /**
@@ -617,7 +677,10 @@ public final class Shooter extends AbstractSubsystem {
         // Switch statement only allows certain code to be run for specific states of the robot
         switch (shooterState) {
             case OFF:
-                shooterWheelMaster.set(ControlMode.PercentOutput, 0);
+                if (!USE_ROBORIO_FLYWHEEL_CONTROL) {
+                    // Otherwise the flywheel notifier turns the motor off
+                    shooterWheelMaster.set(ControlMode.PercentOutput, 0);
+                }
                 setHoodPosition(Constants.HOOD_MAX_ANGLE); // Sets hood to the lowest possible position
 
                 if (!isHoodAtTargetAngle()) {
@@ -643,8 +706,10 @@ public final class Shooter extends AbstractSubsystem {
 
             case ON:
 
-                shooterWheelMaster.set(ControlMode.Velocity,
-                        desiredShooterSpeed * Constants.SET_SHOOTER_SPEED_CONVERSION_FACTOR); // Sets shooter motor to desired shooter
+                if (!USE_ROBORIO_FLYWHEEL_CONTROL) {
+                    shooterWheelMaster.set(ControlMode.Velocity,
+                            desiredShooterSpeed * Constants.SET_SHOOTER_SPEED_CONVERSION_FACTOR); // Sets shooter motor to desired shooter
+                }
 
                 if (!isHoodAtTargetAngle()) {
                     moveHoodMotor(); // Sets Motor to travel to desired hood angle
@@ -810,6 +875,7 @@ public final class Shooter extends AbstractSubsystem {
     @Override
     public void logData() {
         logData("Shooter Flywheel Speed", getShooterRPM());
+        logData("Shooter Flywheel Estimated Speed", estimatedShooterRPM);
         logData("Shooter Native Flywheel SPeed", getDesiredShooterSpeed() * Constants.SET_SHOOTER_SPEED_CONVERSION_FACTOR);
         logData("Hood Angle", getHoodAngle());
         logData("Relative Hood Angle", getHoodRelativeAngle());
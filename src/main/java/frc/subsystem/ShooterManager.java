@@ -17,8 +17,13 @@ import frc.subsystem.Drive.DriveState;
 import frc.subsystem.Hopper.HopperState;
 import frc.subsystem.Shooter.FeederWheelState;
 import frc.utility.ControllerDriveInputs;
+import frc.utility.DriveCommand.Priority;
 import frc.utility.Limelight;
+import frc.utility.UpdateSignal;
+import frc.utility.control.RateFilter;
 import frc.utility.geometry.MutableTranslation2d;
+import frc.utility.shooter.ShotReadinessPredictor;
+import frc.utility.shooter.ShotReadinessPredictor.Check;
 import frc.utility.shooter.visionlookup.ShooterConfig;
 import frc.utility.shooter.visionlookup.VisionLookUpTable;
 import org.jetbrains.annotations.Contract;
@@ -28,6 +33,8 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 
@@ -51,7 +58,9 @@ public final class ShooterManager extends AbstractSubsystem {
     private static final Color8Bit GREEN = new Color8Bit(0, 255, 0);
 
     private ShooterManager() {
-        super(Constants.SHOOTER_MANAGER_PERIOD, 1);
+        super(Constants.SHOOTER_MANAGER_PERIOD, 3);
+        RobotTracker.getInstance().poseUpdateSignal.addListener(aimInputSignal::signal);
+        Limelight.getInstance().frameSignal.addListener(aimInputSignal::signal);
     }
 
     private static final ReentrantReadWriteLock SHOOTER_MANGER_INSTANCE_LOCK = new ReentrantReadWriteLock();
@@ -153,10 +162,155 @@ public final class ShooterManager extends AbstractSubsystem {
         double allowedTurnError = getAllowedTurnError(aimToPosition.getNorm());
 
         logData("Allowed Turn Error", allowedTurnError);
+
+        for (Check check : SHOT_CHECKS) {
+            logData("Shot Check " + check.name + " Failures", shotReadinessPredictor.getFailures(check));
+            logData("Shot Check " + check.name + " Blocking Time", shotReadinessPredictor.getBlockingTime(check));
+        }
+        logData("Shot Check Early Commits", shotReadinessPredictor.getEarlyCommits());
+    }
+
+    private enum AimMode {
+        SHOOT_AND_MOVE, STOP_AND_SHOOT, AUTO
+    }
+
+    private static final class AimRequest {
+        final @NotNull AimMode aimMode;
+        final @NotNull ControllerDriveInputs controllerDriveInputs;
+        final boolean fieldRelative;
+
+        AimRequest(@NotNull AimMode aimMode, @NotNull ControllerDriveInputs controllerDriveInputs, boolean fieldRelative) {
+            this.aimMode = aimMode;
+            this.controllerDriveInputs = controllerDriveInputs;
+            this.fieldRelative = fieldRelative;
+        }
     }
 
+    /**
+     * What to aim for. Replaced from any thread, read by the shooter manager thread at the start of every update.
+     */
+    private final @NotNull AtomicReference<AimRequest> aimRequest = new AtomicReference<>();
+
+    /**
+     * Incremented every time aiming is stopped. Nothing is sent to the drive or the shooter if this has changed since the
+     * current update started, so an update that was already running can't undo {@link #stopAiming()}.
+     */
+    private final @NotNull AtomicLong aimGeneration = new AtomicLong();
+
+    /**
+     * The value of {@link #aimGeneration} when the current update started. Only accessed from the shooter manager thread.
+     */
+    private long updateAimGeneration = 0;
+
+    /**
+     * Signaled when the robot tracker has a new pose, the limelight has a new frame, or the aim request changes
+     */
+    private final @NotNull UpdateSignal aimInputSignal = new UpdateSignal();
+    private long lastAimInputCount = 0;
+
+    /**
+     * Signaled every time we finish aiming
+     */
+    private final @NotNull UpdateSignal aimUpdateSignal = new UpdateSignal();
+
+    @Override
+    public void update() {
+        // Read the generation first so that a stop that happens after this is always noticed
+        updateAimGeneration = aimGeneration.get();
+        AimRequest request = aimRequest.get();
+        if (request == null) return;
+        switch (request.aimMode) {
+            case SHOOT_AND_MOVE:
+                updateShootAndMove(request.controllerDriveInputs, request.fieldRelative, true);
+                break;
+            case STOP_AND_SHOOT:
+                updateStopAndShoot(request.controllerDriveInputs, request.fieldRelative);
+                break;
+            case AUTO:
+                final @NotNull Drive drive = Drive.getInstance();
+                if (drive.driveState == DriveState.RAMSETE) {
+                    State autoAimingGoal = updateShootAndMove(request.controllerDriveInputs, request.fieldRelative, false);
+                    if (isAimCurrent()) {
+                        drive.setAutoAiming(autoAimingGoal);
+                        if (!isAimCurrent()) {
+                            // stopAiming() ran while we were setting the goal
+                            drive.setAutoAiming(false);
+                        }
+                    }
+                } else {
+                    updateAutoTurnAndShoot(request.controllerDriveInputs, request.fieldRelative);
+                }
+                break;
+        }
+        aimUpdateSignal.signal();
+    }
+
+    /**
+     * @return False if aiming has been stopped since the current update started. Check this before sending anything to the
+     * drive or the shooter.
+     */
+    private boolean isAimCurrent() {
+        return aimGeneration.get() == updateAimGeneration;
+    }
+
+    /**
+     * Posts a turn to the drive unless aiming has been stopped since the current update started.
+     */
+    private void postTurn(@NotNull ControllerDriveInputs controllerDriveInputs, @NotNull State goal, boolean fieldRelative,
+                          double turnErrorRadians) {
+        if (!isAimCurrent()) return;
+        final @NotNull Drive drive = Drive.getInstance();
+        drive.updateTurn(controllerDriveInputs, goal, fieldRelative, turnErrorRadians);
+        if (!isAimCurrent()) {
+            // stopAiming() ran while we were posting. Release again so the turn doesn't outlive the stop.
+            drive.releaseCommands(Priority.AIMING);
+        }
+    }
+
+    /**
+     * Instead of running at a fixed rate, aim again as soon as there is new data to aim with. The period is only used as a
+     * timeout.
+     */
+    @Override
+    protected void waitForNextUpdate(double executionTimeMS) throws InterruptedException {
+        lastAimInputCount = aimInputSignal.awaitUpdate(lastAimInputCount, SHOOTER_MANAGER_PERIOD);
+    }
+
+    private void requestAim(@NotNull AimMode aimMode, @NotNull ControllerDriveInputs controllerDriveInputs,
+                            boolean fieldRelative) {
+        AimRequest lastRequest = aimRequest.getAndSet(new AimRequest(aimMode, controllerDriveInputs, fieldRelative));
+        boolean isNewRequest = lastRequest == null || lastRequest.aimMode != aimMode;
+        if (isNewRequest) {
+            // Don't wait for the next pose to start aiming
+            aimInputSignal.signal();
+        }
+    }
+
+    /**
+     * Stops aiming and shooting. This never blocks. Once this returns, the shooter manager will not send any more commands until
+     * it is asked to aim again, and the last aiming command is released so the driver gets control back right away.
+     */
+    public void stopAiming() {
+        if (aimRequest.getAndSet(null) != null) {
+            aimGeneration.incrementAndGet();
+            Drive.getInstance().releaseCommands(Priority.AIMING);
+        }
+    }
+
+    /**
+     * Aims while letting the driver move the robot. The shooter manager will keep aiming every time it gets new data until
+     * {@link #stopAiming()} is called.
+     */
     public void shootAndMove(ControllerDriveInputs controllerDriveInputs, boolean useFieldRelative) {
-        shootAndMove(controllerDriveInputs, useFieldRelative, true);
+        requestAim(AimMode.SHOOT_AND_MOVE, controllerDriveInputs, useFieldRelative);
+    }
+
+    /**
+     * Stops the robot and aims. The shooter manager will keep aiming every time it gets new data until {@link #stopAiming()} is
+     * called.
+     */
+    public void stopAndShoot(ControllerDriveInputs controllerDriveInputs, boolean fieldRelative) {
+        requestAim(AimMode.STOP_AND_SHOOT, controllerDriveInputs, fieldRelative);
     }
 
     private final static Rotation2d ROTATION_OFFSET = Rotation2d.fromDegrees(0);
@@ -167,8 +321,8 @@ public final class ShooterManager extends AbstractSubsystem {
      * @param sendDriveCommand      Whether to send the drive command to move the robot
      * @return The turn command to send to the drive subsystem
      */
-    public State shootAndMove(ControllerDriveInputs controllerDriveInputs, boolean useFieldRelative, boolean sendDriveCommand) {
-        final @NotNull Drive drive = Drive.getInstance();
+    private State updateShootAndMove(ControllerDriveInputs controllerDriveInputs, boolean useFieldRelative,
+                                     boolean sendDriveCommand) {
         final @NotNull Shooter shooter = Shooter.getInstance();
 
         double timeFromLastShoot = Timer.getFPGATimestamp() - shooter.getLastShotTime();
@@ -188,23 +342,21 @@ public final class ShooterManager extends AbstractSubsystem {
 
         State turnGoal = new State(targetAngle, (futureTargetAngle - targetAngle) * 10);
         if (sendDriveCommand) {
-            drive.updateTurn(controllerDriveInputs,
+            postTurn(controllerDriveInputs,
                     turnGoal,
                     useFieldRelative,
                     0);
         }
 
         Translation2d aimChecksPosition = getAdjustedTranslation(shooterLookAheadTime).times(-1);
-        updateShooterState(aimChecksPosition.getNorm());
+        if (isAimCurrent()) updateShooterState(aimChecksPosition.getNorm());
 
         tryToShoot(aimChecksPosition, (futureTargetAngle - targetAngle) * 10, false);
         return turnGoal;
     }
 
 
-    public void autoTurnAndShoot(ControllerDriveInputs controllerDriveInputs, boolean fieldRelative) {
-        final @NotNull Drive drive = Drive.getInstance();
-
+    private void updateAutoTurnAndShoot(ControllerDriveInputs controllerDriveInputs, boolean fieldRelative) {
         Optional<Translation2d> visionTranslation = VisionManager.getInstance().getVisionTranslation();
         Translation2d aimPoint;
         if (visionTranslation.isPresent()) {
@@ -214,20 +366,21 @@ public final class ShooterManager extends AbstractSubsystem {
             aimPoint = getRelativeGoalTranslation().times(-1);
         }
 
-        drive.updateTurn(controllerDriveInputs, aimPointToDriveRotation(aimPoint).plus(ROTATION_OFFSET), fieldRelative,
-                getAllowedTurnError());
-        updateShooterState(aimPoint.getNorm());
+        postTurn(controllerDriveInputs, new State(aimPointToDriveRotation(aimPoint).plus(ROTATION_OFFSET).getRadians(), 0),
+                fieldRelative, getAllowedTurnError());
+        if (isAimCurrent()) updateShooterState(aimPoint.getNorm());
         tryToShoot(aimPoint, 0, true);
     }
 
-    public void stopAndShoot(ControllerDriveInputs controllerDriveInputs, boolean fieldRelative) {
+    private void updateStopAndShoot(ControllerDriveInputs controllerDriveInputs, boolean fieldRelative) {
         final @NotNull Drive drive = Drive.getInstance();
         Translation2d aimPoint = predictFutureTranslation(
                 getRobotVel().getNorm() / drive.accelerationLimit.acceleration,
                 getRelativeGoalTranslation(), getRobotVel(), getAccel()).times(-1);
 
-        drive.updateTurn(controllerDriveInputs, aimPointToDriveRotation(aimPoint), fieldRelative, getAllowedTurnError());
-        updateShooterState(aimPoint.getNorm());
+        postTurn(controllerDriveInputs, new State(aimPointToDriveRotation(aimPoint).getRadians(), 0), fieldRelative,
+                getAllowedTurnError());
+        if (isAimCurrent()) updateShooterState(aimPoint.getNorm());
         tryToShoot(aimPoint, 0, true);
     }
 
@@ -237,31 +390,65 @@ public final class ShooterManager extends AbstractSubsystem {
         final @NotNull Shooter shooter = Shooter.getInstance();
         final @NotNull VisionManager visionManager = VisionManager.getInstance();
 
+        double time = Timer.getFPGATimestamp();
+
+        ChassisSpeeds chassisSpeeds = robotTracker.getLatencyCompedChassisSpeeds();
+        Translation2d accel = getAccel();
+        double accelNorm = accel.getNorm();
+
+        // Rates that aren't tracked anywhere else are filtered so that short cycles don't blow up the noise
+        double angularAcceleration = angularAccelerationFilter.calculate(chassisSpeeds.omegaRadiansPerSecond, time);
+        double jerk = jerkFilter.calculate(accelNorm, time);
+
+        shotReadinessPredictor.beginCycle(time);
 
         double turnError = aimPointToDriveRotation(aimPoint)
                 .plus(ROTATION_OFFSET).minus(robotTracker.getGyroAngle()).getRadians();
-        final boolean isAimed = Math.abs(turnError) < getAllowedTurnError(aimPoint.getNorm());
+        shotReadinessPredictor.update(Check.AIM, turnError, targetAngularSpeed - chassisSpeeds.omegaRadiansPerSecond,
+                -angularAcceleration, getAllowedTurnError(aimPoint.getNorm()));
+
+        shotReadinessPredictor.update(Check.TURN_SPEED, chassisSpeeds.omegaRadiansPerSecond - targetAngularSpeed,
+                angularAcceleration, Math.toRadians(8));
+
+        shotReadinessPredictor.update(Check.ACCELERATION, accelNorm, jerk, MAX_ACCELERATION_WHILE_SHOOTING);
+
+        if (doSpeedCheck) {
+            double speed = Math.sqrt(drive.getSpeedSquared());
+            // Only the acceleration along the direction we're moving changes our speed
+            double speedRate = speed > 1.0E-6 ?
+                    (chassisSpeeds.vxMetersPerSecond * accel.getX() + chassisSpeeds.vyMetersPerSecond * accel.getY())
+                            / Math.hypot(chassisSpeeds.vxMetersPerSecond, chassisSpeeds.vyMetersPerSecond) : accelNorm;
+            shotReadinessPredictor.update(Check.STOPPED, speed, Double.isFinite(speedRate) ? speedRate : 0,
+                    MAX_SHOOT_SPEED);
+        }
 
-        final boolean isTurningSpeedCorrect =
-                Math.abs(robotTracker.getLatencyCompedChassisSpeeds().omegaRadiansPerSecond - targetAngularSpeed)
-                        < Math.toRadians(8);
+        if (!IS_PRACTICE) { //The roborio on the practice bot is tilted a bit and cause this check to fail
+            shotReadinessPredictor.update(Check.FLAT_ON_GROUND, robotTracker.getGyro().getRoll(),
+                    robotTracker.getGyroRollVelocity(), 3);
+            shotReadinessPredictor.update(Check.FLAT_ON_GROUND, robotTracker.getGyro().getPitch(),
+                    robotTracker.getGyroPitchVelocity(), 3);
+        }
 
-        final boolean isUnderAccelLimit = getAccel().getNorm() < MAX_ACCELERATION_WHILE_SHOOTING;
-        final boolean isStopped = (drive.getSpeedSquared() < Constants.MAX_SHOOT_SPEED_SQUARED || !doSpeedCheck);
-        final boolean isFlatOnGround = (Math.abs(robotTracker.getGyro().getRoll()) < 3 &&
-                Math.abs(robotTracker.getGyro().getPitch()) < 3) || IS_PRACTICE; //The roborio on the practice bot is tilted a
-        // bit and cause this check to fail
+        shotReadinessPredictor.update(Check.VISION, !visionManager.isVisionBad());
 
-        logData("Is allowed Shoot Turn Speed", isTurningSpeedCorrect);
-        logData("Is Robot Allowed Shoot Aiming", isAimed);
-        logData("Is Robot Allowed Shoot Acceleration", isUnderAccelLimit);
+        final boolean isPredictedReady = shotReadinessPredictor.endCycle();
+        final boolean isReady;
+        if (USE_PREDICTIVE_SHOT_READINESS) {
+            isReady = isPredictedReady;
+        } else {
+            isReady = true;
+            for (Check check : SHOT_CHECKS) {
+                isReady &= shotReadinessPredictor.isPassing(check);
+            }
+        }
 
-        final boolean hasBadVision = visionManager.getLoopsWithBadVision() < Constants.MAX_BAD_VISION_ITERATIONS;
+        logData("Is allowed Shoot Turn Speed", shotReadinessPredictor.isPassing(Check.TURN_SPEED));
+        logData("Is Robot Allowed Shoot Aiming", shotReadinessPredictor.isPassing(Check.AIM));
+        logData("Is Robot Allowed Shoot Acceleration", shotReadinessPredictor.isPassing(Check.ACCELERATION));
 
-        if (isAimed && isTurningSpeedCorrect && isUnderAccelLimit && isStopped && isFlatOnGround && hasBadVision) {
+        if (isReady && isAimCurrent()) {
             shooter.setFiring(true);
             if (shooter.isFiring()) {
-                double time = Timer.getFPGATimestamp();
                 if (!checksPassedLastTime && lastPrintTime + 1 < time) {
                     lastPrintTime = time;
                     checksPassedLastTime = true;
@@ -273,19 +460,19 @@ public final class ShooterManager extends AbstractSubsystem {
                                     + "LL Angle to Target: " + Limelight.getInstance().getHorizontalOffset());
                 }
             } else {
-                lastChecksFailedTime = Timer.getFPGATimestamp();
+                lastChecksFailedTime = time;
                 checksPassedLastTime = false;
             }
         } else {
             checksPassedLastTime = false;
-            lastChecksFailedTime = Timer.getFPGATimestamp();
+            lastChecksFailedTime = time;
         }
 
         Hopper.getInstance().setHopperState(HopperState.ON);
 
         logData("Is Shooter Firing", shooter.isFiring());
 
-        logData("Last Shooter Checks Failed Time", Timer.getFPGATimestamp() - lastChecksFailedTime);
+        logData("Last Shooter Checks Failed Time", time - lastChecksFailedTime);
     }
 
     /**
@@ -337,6 +524,15 @@ public final class ShooterManager extends AbstractSubsystem {
     double lastPrintTime = 0;
     boolean checksPassedLastTime = false;
 
+    private static final Check[] SHOT_CHECKS = Check.values();
+    private final @NotNull ShotReadinessPredictor shotReadinessPredictor =
+            new ShotReadinessPredictor(FEEDER_BALL_EXIT_LATENCY);
+
+    private final @NotNull RateFilter angularAccelerationFilter =
+            new RateFilter(SHOT_READINESS_RATE_MIN_DT, SHOT_READINESS_RATE_MAX_DT, SHOT_READINESS_RATE_TIME_CONSTANT);
+    private final @NotNull RateFilter jerkFilter =
+            new RateFilter(SHOT_READINESS_RATE_MIN_DT, SHOT_READINESS_RATE_MAX_DT, SHOT_READINESS_RATE_TIME_CONSTANT);
+
     /**
      * {@code Math.tan(Constants.GOAL_RADIUS / getDistanceToTarget())}
      *
@@ -378,7 +574,7 @@ public final class ShooterManager extends AbstractSubsystem {
      * @return The position of the "fake" target
      */
     @Contract(pure = true)
-    @NotNull Translation2d getVelocityAdjustedRelativeTranslation(
+    static @NotNull Translation2d getVelocityAdjustedRelativeTranslation(
             @NotNull Translation2d relativeGoalTranslation, @NotNull Translation2d robotVelocity) {
 
         MutableTranslation2d fakeGoalPos = new MutableTranslation2d(relativeGoalTranslation);
@@ -405,7 +601,7 @@ public final class ShooterManager extends AbstractSubsystem {
      * @param translation2d The position of the target
      * @return the time of flight to the target
      */
-    double getTimeOfFlight(Translation2d translation2d) {
+    static double getTimeOfFlight(Translation2d translation2d) {
         double distance = Units.metersToInches(translation2d.getNorm());
 
         double timeOfFlightFrames;
@@ -435,8 +631,8 @@ public final class ShooterManager extends AbstractSubsystem {
 
 
     private Translation2d getAccel() {
-        final @NotNull RobotTracker robotTracker = RobotTracker.getInstance();
-        return Drive.getInstance().lastAcceleration;
+        Drive drive = Drive.getInstance();
+        return new Translation2d(drive.getLastAccelerationX(), drive.getLastAccelerationY());
         //return robotTracker.getAcceleration();
         //return ZERO;
     }
@@ -463,42 +659,59 @@ public final class ShooterManager extends AbstractSubsystem {
     /**
      * For auto use only
      */
-    @SuppressWarnings({"unused", "BusyWait"})
+    @SuppressWarnings("unused")
     public void shootBalls(double shootTime, Function<ShooterManager, Boolean> additionalWait) throws InterruptedException {
         final @NotNull Drive drive = Drive.getInstance();
         final @NotNull Shooter shooter = Shooter.getInstance();
 
+        final @NotNull Hopper hopper = Hopper.getInstance();
+
         VisionManager.getInstance().forceVisionOn(this);
+        try {
+            int ballsShotAtStart = hopper.getBallsShot();
+            long lastAimCount = aimUpdateSignal.getCount();
+            requestAim(AimMode.AUTO, CONTROLLER_DRIVE_NO_MOVEMENT, true);
 
-        do {
-            if (drive.driveState == DriveState.RAMSETE) {
-                drive.setAutoAiming(shootAndMove(CONTROLLER_DRIVE_NO_MOVEMENT, true, false));
-            } else {
-                autoTurnAndShoot(CONTROLLER_DRIVE_NO_MOVEMENT, true);
-            }
-            Thread.sleep(10); // Will exit if interrupted
-        } while (shooter.getFeederWheelState() != FeederWheelState.FORWARD || !additionalWait.apply(this));
+            do {
+                lastAimCount = aimUpdateSignal.awaitUpdate(lastAimCount, SHOOTER_MANAGER_PERIOD); // Will exit if interrupted
+            } while (shooter.getFeederWheelState() != FeederWheelState.FORWARD || !additionalWait.apply(this));
 
-        double lastTime = Timer.getFPGATimestamp();
-        double timeShooting = 0;
+            double lastTime = Timer.getFPGATimestamp();
+            double timeShooting = 0;
+            boolean sawBall = hopper.getBallCount() > 0;
+            double timeFeedingEmpty = 0;
 
-        while (timeShooting < shootTime) {
-            if (drive.driveState == DriveState.RAMSETE) {
-                drive.setAutoAiming(shootAndMove(CONTROLLER_DRIVE_NO_MOVEMENT, true, false));
-            } else {
-                autoTurnAndShoot(CONTROLLER_DRIVE_NO_MOVEMENT, true);
-            }
-            double time = Timer.getFPGATimestamp();
-            if (shooter.getFeederWheelState() == FeederWheelState.FORWARD) {
-                timeShooting += time - lastTime;
+            while (timeShooting < shootTime) {
+                lastAimCount = aimUpdateSignal.awaitUpdate(lastAimCount, SHOOTER_MANAGER_PERIOD); // Will exit if interrupted
+                double time = Timer.getFPGATimestamp();
+                boolean feeding = shooter.getFeederWheelState() == FeederWheelState.FORWARD;
+                if (feeding) {
+                    timeShooting += time - lastTime;
+                }
+
+                int ballCount = hopper.getBallCount();
+                if (ballCount > 0) {
+                    sawBall = true;
+                    timeFeedingEmpty = 0;
+                } else if (feeding) {
+                    timeFeedingEmpty += time - lastTime;
+                }
+                lastTime = time;
+
+                // Only trust the count once we've seen a ball in the hopper and one go out. Then keep feeding for a bit in case
+                // there's a ball the hopper never saw coming in.
+                if (STOP_SHOOTING_WHEN_HOPPER_EMPTY && sawBall && hopper.getBallsShot() > ballsShotAtStart
+                        && timeFeedingEmpty >= HOPPER_EMPTY_FEED_TIME) {
+                    break;
+                }
             }
-            lastTime = time;
-            Thread.sleep(10); // Will exit if interrupted
+        } finally {
+            stopAiming();
+            VisionManager.getInstance().unForceVisionOn(this);
+            shooter.setFiring(false);
+            shooter.setSpeed(0);
+            drive.setAutoAiming(false);
         }
-        VisionManager.getInstance().unForceVisionOn(this);
-        shooter.setFiring(false);
-        shooter.setSpeed(0);
-        drive.setAutoAiming(false);
     }
 
     public void shootBalls(double shootTime) throws InterruptedException {
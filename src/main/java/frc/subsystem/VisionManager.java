@@ -2,26 +2,27 @@ package frc.subsystem;
 
 import com.dacubeking.AutoBuilder.robot.sender.pathpreview.RobotPositionSender;
 import com.dacubeking.AutoBuilder.robot.sender.pathpreview.RobotState;
-import edu.wpi.first.math.MatBuilder;
-import edu.wpi.first.math.Matrix;
-import edu.wpi.first.math.Nat;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.numbers.N1;
-import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.drive.Vector2d;
 import frc.robot.Constants;
 import frc.subsystem.BlinkinLED.BlinkinLedMode;
 import frc.subsystem.BlinkinLED.LedStatus;
 import frc.utility.Limelight;
 import frc.utility.Limelight.LedMode;
 import frc.utility.Limelight.LimelightResolution;
+import frc.utility.LimelightFrame;
+import frc.utility.geometry.MutableTranslation2d;
 import frc.utility.net.editing.LiveEditableValue;
+import frc.utility.vision.CameraProjection;
+import frc.utility.vision.ResolutionSelector;
+import frc.utility.vision.TargetRingSolver;
+import frc.utility.vision.VisionGate;
+import frc.utility.vision.VisionGate.Rejection;
 import org.apache.commons.math3.geometry.euclidean.threed.Rotation;
 import org.apache.commons.math3.geometry.euclidean.threed.RotationConvention;
 import org.apache.commons.math3.geometry.euclidean.threed.RotationOrder;
@@ -34,11 +35,10 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static frc.robot.Constants.*;
-import static frc.utility.MathUtil.dist2;
 
 public final class VisionManager extends AbstractSubsystem {
     private static final ReentrantReadWriteLock VISION_MANGER_INSTANCE_LOCK = new ReentrantReadWriteLock();
@@ -48,9 +48,25 @@ public final class VisionManager extends AbstractSubsystem {
     private final @NotNull Limelight limelight = Limelight.getInstance();
 
     {
-        limelight.setCameraResolution(LimelightResolution.k960x720);
+        if (USE_ADAPTIVE_LIMELIGHT_RESOLUTION) {
+            limelight.setPipelineResolution(LIMELIGHT_LOW_RESOLUTION_PIPELINE, LimelightResolution.k320x240);
+            limelight.setPipelineResolution(LIMELIGHT_HIGH_RESOLUTION_PIPELINE, LimelightResolution.k960x720);
+            limelight.setPipeline(LIMELIGHT_LOW_RESOLUTION_PIPELINE);
+        } else {
+            limelight.setCameraResolution(LimelightResolution.k960x720);
+        }
     }
 
+    /**
+     * Only used on the vision manager thread
+     */
+    private final @NotNull ResolutionSelector resolutionSelector = new ResolutionSelector(
+            VISION_HIGH_RESOLUTION_DISTANCE, VISION_RESOLUTION_HYSTERESIS, VISION_MAX_HIGH_RESOLUTION_LATENCY_MS,
+            VISION_RESOLUTION_MIN_SWITCH_INTERVAL, VISION_RESOLUTION_LATENCY_LOCKOUT_TIME);
+
+    private final @NotNull BlockingQueue<LimelightFrame> limelightFrames = limelight.subscribe(LIMELIGHT_FRAME_QUEUE_SIZE);
+    private long lastFrameCount = 0;
+
     private VisionManager() {
         super(Constants.VISION_MANAGER_PERIOD, 1);
         logData("IS VISION GOOD", true);
@@ -81,13 +97,11 @@ public final class VisionManager extends AbstractSubsystem {
 
     @Override
     public void logData() {
-        Vector3D targetPosition = getPositionOfTargetRelativeToRobot();
-        logData("New Distance", Math.hypot(targetPosition.getX(), targetPosition.getZ()));
-
-        Vector2d targetPx = limelight.getTargetPosInCameraPixels();
+        LimelightFrame frame = limelight.getLatestFrame();
+        logData("New Distance", projectedTarget.getNorm());
 
-        logData("py", targetPx.y);
-        logData("px", targetPx.x);
+        logData("py", frame.getTargetPixelY());
+        logData("px", frame.getTargetPixelX());
     }
 
     /**
@@ -96,29 +110,53 @@ public final class VisionManager extends AbstractSubsystem {
      */
     @Contract(pure = true)
     @NotNull Optional<Translation2d> getVisionTranslation() {
-        if (!limelight.isTargetVisible()) return Optional.empty();
+        if (!limelight.isConnected()) return Optional.empty();
+        return getVisionTranslation(limelight.getLatestFrame());
+    }
 
-        Rotation2d currentGyroAngle = getLatencyCompedLimelightRotation();
+    /**
+     * @return the translation of the robot when the frame was taken. Empty if the frame doesn't have a target.
+     */
+    @Contract(pure = true)
+    private @NotNull Optional<Translation2d> getVisionTranslation(@NotNull LimelightFrame frame) {
+        if (!frame.targetVisible) return Optional.empty();
+        return Optional.of(getVisionTranslation(frame, projectTarget(frame, new MutableTranslation2d())));
+    }
+
+    /**
+     * @param targetRelativeToRobot The position of the goal relative to the robot from {@link #projectTarget}
+     * @return the translation of the robot when the frame was taken
+     */
+    @Contract(pure = true)
+    private @NotNull Translation2d getVisionTranslation(@NotNull LimelightFrame frame,
+                                                        @NotNull Translation2d targetRelativeToRobot) {
+        Rotation2d currentGyroAngle = getLatencyCompedLimelightRotation(frame);
 
-        Vector3D offsetVector = getPositionOfTargetRelativeToRobot();
-        double angleOffset = Math.atan2(offsetVector.getX(), offsetVector.getZ());
+        double angleOffset = Math.atan2(targetRelativeToRobot.getX(), targetRelativeToRobot.getY());
 
 
-        double distanceToTarget = Units.inchesToMeters(Math.hypot(offsetVector.getX(), offsetVector.getZ()));
+        double distanceToTarget = Units.inchesToMeters(targetRelativeToRobot.getNorm());
 
         double angleToTarget = currentGyroAngle.getRadians() - angleOffset;
-        return Optional.of(new Translation2d(distanceToTarget * Math.cos(angleToTarget),
+        return new Translation2d(distanceToTarget * Math.cos(angleToTarget),
                 distanceToTarget * Math.sin(angleToTarget))
-                .plus(GOAL_POSITION));
+                .plus(GOAL_POSITION);
     }
 
-    private static final Matrix<N3, N3> CAMERA_MATRIX_INVERSE = new MatBuilder<>(Nat.N3(), Nat.N3()).fill(
+    static final double[] CAMERA_MATRIX_INVERSE = {
             0.00392173, 0, -0.6274771,
             0, 0.00389782, -0.46773827,
             0, 0, 1
-    );
+    };
 
-    private static final MatBuilder<N3, N1> THREE_BY_ONE_MAT_BUILDER = new MatBuilder<>(Nat.N3(), Nat.N1());
+    /**
+     * Default limelight calibration. Can be changed from the limelight gui table while the robot is running.
+     */
+    static final double CAMERA_ANGLE = IS_PRACTICE ? -37.5 : -34.5;
+    static final double CAMERA_H_OFFSET = IS_PRACTICE ? 57.05 : 59.75;
+    static final double CAMERA_DEPTH_OFFSET = IS_PRACTICE ? 32.0 : 14;
+    static final double CAMERA_CENTER_OFFSET_X = 0;
+    static final double CAMERA_CENTER_OFFSET_Z = IS_PRACTICE ? 6.9 : 18;
 
     private final LiveEditableValue<Rotation> cameraRotation;
 
@@ -128,48 +166,142 @@ public final class VisionManager extends AbstractSubsystem {
 
     {
         NetworkTable guiTable = limelight.limelightGuiTable;
-        hOffset = new LiveEditableValue<>(IS_PRACTICE ? 57.05 : 59.75, guiTable.getEntry("hOffset"));
-        depthOffset = new LiveEditableValue<>(IS_PRACTICE ? 32.0 : 14, guiTable.getEntry("depthOffset"));
-        centerOffset = new LiveEditableValue<>(new Vector3D(0, 0, IS_PRACTICE ? 6.9 : 18),
+        hOffset = new LiveEditableValue<>(CAMERA_H_OFFSET, guiTable.getEntry("hOffset"));
+        depthOffset = new LiveEditableValue<>(CAMERA_DEPTH_OFFSET, guiTable.getEntry("depthOffset"));
+        centerOffset = new LiveEditableValue<>(new Vector3D(CAMERA_CENTER_OFFSET_X, 0, CAMERA_CENTER_OFFSET_Z),
                 guiTable.getEntry("centerOffset"),
                 (value) -> new Vector3D(0, 0, (Double) value),
                 Vector3D::getZ);
         cameraRotation = new LiveEditableValue<>(
-                new Rotation(RotationOrder.XYZ, RotationConvention.VECTOR_OPERATOR,
-                        Math.toRadians(IS_PRACTICE ? -37.5 : -34.5), 0, 0),
+                getCameraRotation(CAMERA_ANGLE),
                 guiTable.getEntry("angle"),
-                (value) ->
-                        new Rotation(
-                                RotationOrder.XYZ, RotationConvention.VECTOR_OPERATOR,
-                                Math.toRadians((Double) value), 0, 0),
+                (value) -> getCameraRotation((Double) value),
                 (value) ->
                         Math.toDegrees(value.getAngles(RotationOrder.XYZ, RotationConvention.VECTOR_OPERATOR)[0])
         );
     }
 
-    private Vector3D getPositionOfTargetRelativeToRobot() {
+    /**
+     * @param angle The angle of the limelight (degrees)
+     * @return The rotation from the camera to the robot
+     */
+    static @NotNull Rotation getCameraRotation(double angle) {
+        return new Rotation(RotationOrder.XYZ, RotationConvention.VECTOR_OPERATOR, Math.toRadians(angle), 0, 0);
+    }
 
-        Vector2d targetPosInCameraPixels = limelight.getTargetPosInCameraPixels();
+    /**
+     * Builds the projection from the crosshair to the goal for a limelight calibration.
+     *
+     * @param rotation     The rotation from the camera to the robot
+     * @param height       Height of the vision tape above the camera (inches)
+     * @param depth        Distance from the vision tape to the center of the goal (inches)
+     * @param centerOffset Offset from the camera to the center of the robot (inches)
+     */
+    static @NotNull CameraProjection createCameraProjection(@NotNull Rotation rotation, double height, double depth,
+                                                            @NotNull Vector3D centerOffset) {
+        Vector3D xColumn = rotation.applyTo(Vector3D.PLUS_I);
+        Vector3D yColumn = rotation.applyTo(Vector3D.PLUS_J);
+        Vector3D zColumn = rotation.applyTo(Vector3D.PLUS_K);
+        double[] rotationMatrix = {
+                xColumn.getX(), yColumn.getX(), zColumn.getX(),
+                xColumn.getY(), yColumn.getY(), zColumn.getY(),
+                xColumn.getZ(), yColumn.getZ(), zColumn.getZ()
+        };
+        return new CameraProjection(CAMERA_MATRIX_INVERSE, rotationMatrix, height, depth, centerOffset.getX(),
+                centerOffset.getZ());
+    }
 
-        double py = targetPosInCameraPixels.y;
-        double px = targetPosInCameraPixels.x;
+    private @Nullable CameraProjection cameraProjection = null;
+    private @Nullable Rotation projectionCameraRotation = null;
+    private @Nullable Double projectionHOffset = null;
+    private @Nullable Double projectionDepthOffset = null;
+    private @Nullable Vector3D projectionCenterOffset = null;
 
-        Matrix<N3, N1> cameraUnitVector = CAMERA_MATRIX_INVERSE.times(THREE_BY_ONE_MAT_BUILDER.fill(px, py, 1));
+    /**
+     * Only used on the vision manager thread. Position of the goal relative to the robot from the last processed frame (inches)
+     */
+    private final @NotNull MutableTranslation2d projectedTarget = new MutableTranslation2d();
 
-        Vector3D vector3D = new Vector3D(
-                cameraUnitVector.get(0, 0),
-                cameraUnitVector.get(1, 0),
-                cameraUnitVector.get(2, 0)
-        );
+    /**
+     * @return The camera projection for the current calibration. Only rebuilt when one of the calibration values changes.
+     */
+    private synchronized @NotNull CameraProjection getCameraProjection() {
+        Rotation rotation = cameraRotation.get();
+        Double height = hOffset.get();
+        Double depth = depthOffset.get();
+        Vector3D center = centerOffset.get();
+
+        // The live editable values are replaced with new objects when they change
+        if (cameraProjection == null || rotation != projectionCameraRotation || height != projectionHOffset
+                || depth != projectionDepthOffset || center != projectionCenterOffset) {
+            cameraProjection = createCameraProjection(rotation, height, depth, center);
+            projectionCameraRotation = rotation;
+            projectionHOffset = height;
+            projectionDepthOffset = depth;
+            projectionCenterOffset = center;
+        }
+        return cameraProjection;
+    }
+
+    /**
+     * Only used on the vision manager thread
+     */
+    private final @NotNull TargetRingSolver targetRingSolver = new TargetRingSolver(VISION_TAPE_RING_RADIUS_IN, MAX_CORNERS);
+    private final @NotNull MutableTranslation2d cornerPosition = new MutableTranslation2d();
 
-        Vector3D goalDir = cameraRotation.get().applyTo(vector3D);
-        double angle = Math.atan2(goalDir.getX(), goalDir.getZ());
+    /**
+     * Fits the ring of tape to the corners of the frame. The result is in {@link #targetRingSolver}.
+     *
+     * @param initialGuess The position of the goal relative to the robot from the crosshair (inches)
+     * @return If the fit succeeded
+     */
+    private boolean solveTargetRing(@NotNull LimelightFrame frame, @NotNull Translation2d initialGuess) {
+        int cornerCount = frame.getCornerCount();
+        // We can only tell which corners are the top of the tape if we have all 4 corners of each strip
+        if (cornerCount < 4 || cornerCount % 4 != 0) return false;
+
+        CameraProjection projection = getCameraProjection();
+        double tapeCenterHeight = hOffset.get();
+
+        targetRingSolver.reset();
+        for (int tape = 0; tape < cornerCount; tape += 4) {
+            for (int i = tape; i < tape + 4; i++) {
+                // The two corners highest in the image (smallest y) are the top of the tape
+                int higherCorners = 0;
+                for (int j = tape; j < tape + 4; j++) {
+                    if (frame.getCornerY(j) < frame.getCornerY(i) || (frame.getCornerY(j) == frame.getCornerY(i) && j < i)) {
+                        higherCorners++;
+                    }
+                }
+                double height = tapeCenterHeight + (higherCorners < 2 ? 0.5 : -0.5) * VISION_TAPE_HEIGHT_IN;
 
-        double k = hOffset.get() / goalDir.getY();
+                // The camera matrix is for a 320x240 image with y going up, like the crosshair
+                projection.projectToHeight(frame.getCornerPixelX(i), frame.getCornerPixelY(i), height, cornerPosition);
 
-        return goalDir.scalarMultiply(k)
-                .add(centerOffset.get()) //5.875
-                .add(new Vector3D(Math.sin(angle) * depthOffset.get(), 0, Math.cos(angle) * depthOffset.get()));
+                // How far the corner moves on the floor for the angular noise of the camera
+                double distanceSquared = cornerPosition.getX() * cornerPosition.getX()
+                        + cornerPosition.getY() * cornerPosition.getY();
+                double stdDev = VISION_CORNER_ANGLE_STD_DEV * (distanceSquared + height * height) / Math.abs(height);
+                targetRingSolver.addPoint(cornerPosition.getX(), cornerPosition.getY(), 1 / (stdDev * stdDev));
+            }
+        }
+
+        // Reflections and other tape in the frame would pull the fit off the ring
+        targetRingSolver.rejectOutliers(initialGuess.getX(), initialGuess.getY(),
+                VISION_CORNER_RANSAC_INLIER_THRESHOLD_IN, VISION_CORNER_RANSAC_ITERATIONS);
+        if (!targetRingSolver.solve(initialGuess.getX(), initialGuess.getY())) return false;
+
+        // Throw away fits that ended up somewhere completely different from the crosshair
+        return Math.hypot(targetRingSolver.getCenterX() - initialGuess.getX(),
+                targetRingSolver.getCenterY() - initialGuess.getY()) < 2 * VISION_TAPE_RING_RADIUS_IN;
+    }
+
+    /**
+     * @param out Set to the position of the goal relative to the robot (inches). x is to the right and y is forward.
+     * @return {@code out}
+     */
+    private @NotNull MutableTranslation2d projectTarget(@NotNull LimelightFrame frame, @NotNull MutableTranslation2d out) {
+        return getCameraProjection().project(frame.getTargetPixelX(), frame.getTargetPixelY(), out);
     }
 
     /**
@@ -179,31 +311,37 @@ public final class VisionManager extends AbstractSubsystem {
      */
     public void forceUpdatePose() {
         final @NotNull RobotTracker robotTracker = RobotTracker.getInstance();
-        Optional<Translation2d> visionTranslation = getVisionTranslation();
+        LimelightFrame frame = limelight.getLatestFrame();
+        if (!limelight.isConnected()) return;
+        Optional<Translation2d> visionTranslation = getVisionTranslation(frame);
         visionTranslation.ifPresent(
                 translation2d -> {
-                    loopsWithBadVision.set(0);
+                    badVisionStartTime = Double.NaN;
                     robotTracker.addVisionMeasurement(
                             translation2d,
-                            getLimelightTime(), true);
+                            getLimelightTime(frame), true);
                 }
         );
     }
 
     @Contract(pure = true)
     public @NotNull Rotation2d getLatencyCompedLimelightRotation() {
+        return getLatencyCompedLimelightRotation(limelight.getLatestFrame());
+    }
+
+    @Contract(pure = true)
+    private @NotNull Rotation2d getLatencyCompedLimelightRotation(@NotNull LimelightFrame frame) {
         final @NotNull RobotTracker robotTracker = RobotTracker.getInstance();
-        return robotTracker.getGyroRotation(getLimelightTime());
+        return robotTracker.getGyroRotation(getLimelightTime(frame));
     }
 
     /**
-     * @return the time of the last vision update in seconds
+     * @return the time the frame was taken in seconds
      */
     @Contract(pure = true)
-    private double getLimelightTime() {
-        double limelightTime = Limelight.getInstance().getTimestamp();
-        logData("Limelight Latency", Timer.getFPGATimestamp() - limelightTime);
-        return limelightTime;
+    private double getLimelightTime(@NotNull LimelightFrame frame) {
+        logData("Limelight Latency", Timer.getFPGATimestamp() - frame.timestamp);
+        return frame.timestamp;
     }
 
     private final Set<Object> forceVisionOn = new HashSet<>(5);
@@ -246,7 +384,10 @@ public final class VisionManager extends AbstractSubsystem {
     private final LedStatus limelightTooFarFromExpectedStatus = new LedStatus(BlinkinLedMode.SOLID_ORANGE, 100);
     private final LedStatus limelightNotVisibleStatus = new LedStatus(BlinkinLedMode.SOLID_RED_ORANGE, 100);
 
-    private final AtomicInteger loopsWithBadVision = new AtomicInteger(0);
+    /**
+     * When the limelight started seeing a bad target, NaN if the last frame with a target was good
+     */
+    private volatile double badVisionStartTime = Double.NaN;
 
     @Override
     public void update() {
@@ -275,65 +416,185 @@ public final class VisionManager extends AbstractSubsystem {
 
         logData("Angle To Target", angleToTarget);
 
+        LimelightFrame frame;
+        while ((frame = limelightFrames.poll()) != null) {
+            processFrame(frame);
+        }
+    }
 
-        Optional<Translation2d> robotTranslationOptional = getVisionTranslation();
-        if (robotTranslationOptional.isPresent()) {
-            Translation2d robotTranslation = robotTranslationOptional.get();
-
-            Pose2d visionPose = new Pose2d(robotTranslation, getLatencyCompedLimelightRotation());
-            logData("Vision Pose X", visionPose.getX());
-            logData("Vision Pose Y", visionPose.getY());
-            logData("Vision Pose Angle", visionPose.getRotation().getRadians());
-            logData("Vision Pose Time", getLimelightTime());
-
-            RobotPositionSender.addRobotPosition(new RobotState(
-                    visionPose.getX(),
-                    visionPose.getY(),
-                    visionPose.getRotation().getRadians(),
-                    getLimelightTime(),
-                    "Vision Pose"
-            ));
-
-
-            Translation2d trackerTranslation = robotTracker.getLatencyCompedPoseMeters().getTranslation();
-
-            logData("Tracker Translation X", trackerTranslation.getX());
-            logData("Tracker Translation Y", trackerTranslation.getY());
-            if (limelight.areCornersTouchingEdge()) {
-                logData("Using Vision Info", "Corners touching edge");
-            } else {
-                double positionError =
-                        dist2(robotTracker.getPoseAtTime(limelight.getTimestamp()).orElseGet(Pose2d::new).getTranslation(),
-                                robotTranslation);
-                if ((limelight.getCorners().length % 4 == 0 || positionError < Constants.VISION_MANAGER_DISTANCE_THRESHOLD_SQUARED)
-                        && limelight.getCorners().length >= MIN_CORNERS && limelight.getCorners().length <= MAX_CORNERS) {
-                    if (DriverStation.isTeleopEnabled()) {
-                        robotTracker.addVisionMeasurement(robotTranslation, getLimelightTime(), false);
-                    }
+    /**
+     * Wake up as soon as the limelight has a new frame instead of waiting for the rest of the period
+     */
+    @Override
+    protected void waitForNextUpdate(double executionTimeMS) throws InterruptedException {
+        lastFrameCount = limelight.frameSignal.awaitUpdate(lastFrameCount, VISION_MANAGER_PERIOD);
+    }
 
-                    logData("Using Vision Info", "Using Vision Info");
-                    loopsWithBadVision.set(0);
-                    blinkinLED.setStatus(limelightUsingVisionStatus);
-                    logData("IS VISION GOOD", true);
-                } else {
-                    if (loopsWithBadVision.incrementAndGet() > Constants.MAX_BAD_VISION_ITERATIONS) {
-                        logData("IS VISION GOOD", false);
-                    } else {
-                        logData("IS VISION GOOD", true);
-                    }
-                    logData("Using Vision Info", "Position is too far from expected");
-                    blinkinLED.setStatus(limelightTooFarFromExpectedStatus);
-                }
-            }
+    /**
+     * The stages a frame goes through before it's added to the robot tracker. Frames can be rejected after every stage except
+     * the last, so the cheap checks come first.
+     */
+    private enum Stage {
+        SANITY_CHECK("Sanity Check"),
+        FIT("Fit"),
+        GATE("Gate"),
+        EMIT("Emit");
+
+        final @NotNull String timeKey;
+
+        Stage(@NotNull String name) {
+            this.timeKey = "Vision Stage " + name + " Time";
+        }
+    }
+
+    /**
+     * Only used on the vision manager thread
+     */
+    private final long[] rejectionCounts = new long[Rejection.values().length];
+    private long acceptedFrames = 0;
+
+    private final @NotNull VisionGate visionGate = new VisionGate(MIN_CORNERS, MAX_CORNERS, VISION_GATE_TRACKER_STD_DEV,
+            VISION_GATE_TRACKER_DRIFT_RATE, VISION_GATE_MAHALANOBIS_DISTANCE_SQUARED);
+
+    /**
+     * Logs how long a stage took
+     *
+     * @param stageStart The {@link System#nanoTime()} the stage started at
+     * @return The {@link System#nanoTime()} the stage ended at, which is when the next one starts
+     */
+    private long endStage(@NotNull Stage stage, long stageStart) {
+        long now = System.nanoTime();
+        logData(stage.timeKey, (now - stageStart) / 1.0E6);
+        return now;
+    }
+
+    private void processFrame(@NotNull LimelightFrame frame) {
+        final @NotNull RobotTracker robotTracker = RobotTracker.getInstance();
+        final @NotNull BlinkinLED blinkinLED = BlinkinLED.getInstance();
+
+        long stageStart = System.nanoTime();
+
+        Rejection rejection = visionGate.checkFrame(frame);
+        stageStart = endStage(Stage.SANITY_CHECK, stageStart);
+        if (rejection != null) {
+            rejectFrame(rejection);
+            return;
+        }
+
+        // Position of the goal relative to the robot and its covariance (in^2), x is to the right and y is forward
+        projectTarget(frame, projectedTarget);
+        double covarianceXX, covarianceXY, covarianceYY;
+        double visionWeight = 1;
+        if (USE_VISION_CORNER_SOLVER && solveTargetRing(frame, projectedTarget)) {
+            projectedTarget.set(targetRingSolver.getCenterX(), targetRingSolver.getCenterY());
+            covarianceXX = targetRingSolver.getCovarianceXX();
+            covarianceXY = targetRingSolver.getCovarianceXY();
+            covarianceYY = targetRingSolver.getCovarianceYY();
+
+            double stdDev = Units.inchesToMeters(Math.sqrt(covarianceXX + covarianceYY));
+            visionWeight = Math.min(1, Math.pow(VISION_CORNER_FIT_REFERENCE_STD_DEV / stdDev, 2));
+            logData("Vision Corner Fit Std Dev", stdDev);
+            logData("Vision Corner Fit RMS Residual", targetRingSolver.getRmsResidual());
+            logData("Vision Corner Outliers", targetRingSolver.getPointCount() - targetRingSolver.getInlierCount());
         } else {
-            logData("Using Vision Info", "No target visible");
-            blinkinLED.setStatus(limelightNotVisibleStatus);
+            double variance = Math.pow(Units.metersToInches(VISION_CROSSHAIR_STD_DEV), 2);
+            covarianceXX = variance;
+            covarianceXY = 0;
+            covarianceYY = variance;
+        }
+        logData("Vision Weight", visionWeight);
+
+        Translation2d robotTranslation = getVisionTranslation(frame, projectedTarget);
+        if (USE_ADAPTIVE_LIMELIGHT_RESOLUTION) {
+            updateResolution(frame, Units.inchesToMeters(projectedTarget.getNorm()));
         }
+        stageStart = endStage(Stage.FIT, stageStart);
+
+        double limelightTime = getLimelightTime(frame);
+        Pose2d visionPose = new Pose2d(robotTranslation, getLatencyCompedLimelightRotation(frame));
+        logData("Vision Pose X", visionPose.getX());
+        logData("Vision Pose Y", visionPose.getY());
+        logData("Vision Pose Angle", visionPose.getRotation().getRadians());
+        logData("Vision Pose Time", limelightTime);
+
+        RobotPositionSender.addRobotPosition(new RobotState(
+                visionPose.getX(),
+                visionPose.getY(),
+                visionPose.getRotation().getRadians(),
+                limelightTime,
+                "Vision Pose"
+        ));
+
+        Translation2d trackerTranslation = robotTracker.getLatencyCompedPoseMeters().getTranslation();
+        logData("Tracker Translation X", trackerTranslation.getX());
+        logData("Tracker Translation Y", trackerTranslation.getY());
+
+        Optional<Pose2d> expectedPose = robotTracker.getPoseAtTime(limelightTime);
+        Translation2d error = expectedPose.isPresent()
+                ? robotTranslation.minus(expectedPose.get().getTranslation()) : new Translation2d();
+        rejection = visionGate.checkPosition(expectedPose.isPresent(), error.getX(), error.getY(),
+                visionPose.getRotation().getRadians(), limelightTime, covarianceXX, covarianceXY, covarianceYY);
+        logData("Vision Mahalanobis Distance", Math.sqrt(visionGate.getLastDistanceSquared()));
+        stageStart = endStage(Stage.GATE, stageStart);
+        if (rejection != null) {
+            rejectFrame(rejection);
+            return;
+        }
+
+        if (DriverStation.isTeleopEnabled()) {
+            robotTracker.addVisionMeasurement(robotTranslation, limelightTime, false, visionWeight);
+            visionGate.onMeasurementUsed(limelightTime);
+        }
+        acceptedFrames++;
+
+        logData("Vision Accepted Frames", acceptedFrames);
+        logData("Using Vision Info", "Using Vision Info");
+        badVisionStartTime = Double.NaN;
+        blinkinLED.setStatus(limelightUsingVisionStatus);
+        logData("IS VISION GOOD", true);
+        endStage(Stage.EMIT, stageStart);
     }
 
+    /**
+     * Switches to the high resolution pipeline when we're far away and back to the low resolution one when we're close or the
+     * high resolution one is too slow.
+     *
+     * @param distance The distance to the goal from this frame (meters)
+     */
+    private void updateResolution(@NotNull LimelightFrame frame, double distance) {
+        boolean highResolution = resolutionSelector.isHighResolution();
+        // Frames from the old pipeline can still show up right after switching
+        if (frame.resolution != (highResolution ? LimelightResolution.k960x720 : LimelightResolution.k320x240)) return;
+
+        if (resolutionSelector.update(frame.timestamp, distance, frame.latency) != highResolution) {
+            limelight.setPipeline(highResolution ? LIMELIGHT_LOW_RESOLUTION_PIPELINE : LIMELIGHT_HIGH_RESOLUTION_PIPELINE);
+        }
+        logData("Limelight High Resolution", resolutionSelector.isHighResolution());
+        logData("Limelight Filtered Latency", resolutionSelector.getFilteredLatency());
+    }
 
-    public int getLoopsWithBadVision() {
-        return loopsWithBadVision.get();
+    private void rejectFrame(@NotNull Rejection rejection) {
+        final @NotNull BlinkinLED blinkinLED = BlinkinLED.getInstance();
+
+        logData(rejection.countKey, ++rejectionCounts[rejection.ordinal()]);
+        logData("Using Vision Info", rejection.name);
+        if (rejection == Rejection.NO_TARGET) {
+            blinkinLED.setStatus(limelightNotVisibleStatus);
+        } else if (rejection.badVision) {
+            if (Double.isNaN(badVisionStartTime)) {
+                badVisionStartTime = Timer.getFPGATimestamp();
+            }
+            logData("IS VISION GOOD", !isVisionBad());
+            blinkinLED.setStatus(limelightTooFarFromExpectedStatus);
+        }
+    }
+
+    /**
+     * @return If the limelight has been seeing a bad target for longer than {@link Constants#MAX_BAD_VISION_TIME}
+     */
+    public boolean isVisionBad() {
+        double startTime = badVisionStartTime;
+        return !Double.isNaN(startTime) && Timer.getFPGATimestamp() - startTime > Constants.MAX_BAD_VISION_TIME;
     }
 
 
@@ -0,0 +1,208 @@
+package frc.utility;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable request for the drivebase to do something. Commands are posted to {@link frc.subsystem.Drive} from any thread
+ * and are only ever turned into motor outputs by the drive thread.
+ */
+public final class DriveCommand {
+
+    /**
+     * When multiple commands are posted close together, the one with the highest priority wins.
+     */
+    public enum Priority {
+        /**
+         * Normal driving from the controller
+         */
+        DRIVER,
+        /**
+         * Automatic aiming (ex. the shooter turning the robot towards the goal)
+         */
+        AIMING,
+        /**
+         * The climber putting the modules in a safe position
+         */
+        CLIMBER
+    }
+
+    public final @NotNull Priority priority;
+
+    /**
+     * The time the command was posted (same epoch as Timer.getFPGATimestamp)
+     */
+    public final double timestamp;
+
+    /**
+     * Robot relative speeds to drive at. Null if this command sets the module states directly.
+     */
+    private final @Nullable ChassisSpeeds chassisSpeeds;
+
+    private final SwerveModuleState @Nullable [] moduleStates;
+    public final boolean rotate;
+
+    private final boolean hasHeadingGoal;
+
+    /**
+     * Whether the translation speeds of a heading command are field relative
+     */
+    public final boolean fieldRelative;
+
+    /**
+     * The heading to turn to (rad). Only used if {@link #hasHeadingGoal()}.
+     */
+    public final double headingGoal;
+
+    /**
+     * How fast the heading goal is moving (rad/s)
+     */
+    public final double headingGoalVelocity;
+
+    /**
+     * The fastest the robot may turn towards the heading goal (rad/s)
+     */
+    public final double maxTurnSpeed;
+
+    /**
+     * The robot is considered to be aimed when it's within this of the heading goal (rad)
+     */
+    public final double headingTolerance;
+
+    /**
+     * Commands with this priority or lower are replaced by this command even if they haven't been held for long enough. Null if
+     * this command doesn't release anything.
+     */
+    private final @Nullable Priority releasedPriority;
+
+    private DriveCommand(@NotNull Priority priority, double timestamp, @Nullable ChassisSpeeds chassisSpeeds,
+                         SwerveModuleState @Nullable [] moduleStates, boolean rotate, @Nullable Priority releasedPriority) {
+        this(priority, timestamp, chassisSpeeds, moduleStates, rotate, false, false, 0, 0, 0, 0, releasedPriority);
+    }
+
+    private DriveCommand(@NotNull Priority priority, double timestamp, @Nullable ChassisSpeeds chassisSpeeds,
+                         SwerveModuleState @Nullable [] moduleStates, boolean rotate, boolean hasHeadingGoal,
+                         boolean fieldRelative, double headingGoal, double headingGoalVelocity, double maxTurnSpeed,
+                         double headingTolerance, @Nullable Priority releasedPriority) {
+        this.priority = priority;
+        this.timestamp = timestamp;
+        this.chassisSpeeds = chassisSpeeds;
+        this.moduleStates = moduleStates;
+        this.rotate = rotate;
+        this.hasHeadingGoal = hasHeadingGoal;
+        this.fieldRelative = fieldRelative;
+        this.headingGoal = headingGoal;
+        this.headingGoalVelocity = headingGoalVelocity;
+        this.maxTurnSpeed = maxTurnSpeed;
+        this.headingTolerance = headingTolerance;
+        this.releasedPriority = releasedPriority;
+    }
+
+    /**
+     * @param chassisSpeeds Robot relative speeds. A copy is made so that the caller can keep using the object.
+     */
+    @Contract("_, _, _ -> new")
+    public static @NotNull DriveCommand ofChassisSpeeds(@NotNull ChassisSpeeds chassisSpeeds, @NotNull Priority priority,
+                                                        double timestamp) {
+        return new DriveCommand(priority, timestamp,
+                new ChassisSpeeds(chassisSpeeds.vxMetersPerSecond, chassisSpeeds.vyMetersPerSecond,
+                        chassisSpeeds.omegaRadiansPerSecond),
+                null, false, null);
+    }
+
+    /**
+     * A command to drive with the given translation speeds while turning towards a heading. The turn speed is calculated by
+     * the drive thread from the latest gyro reading every time the command is run.
+     *
+     * @param vx                  Speed in the x direction (m/s)
+     * @param vy                  Speed in the y direction (m/s)
+     * @param fieldRelative       Whether the speeds are field relative or robot relative
+     * @param headingGoal         The heading to turn to (rad)
+     * @param headingGoalVelocity How fast the heading goal is moving (rad/s)
+     * @param maxTurnSpeed        The fastest to turn towards the goal (rad/s)
+     * @param headingTolerance    How close to the goal counts as aimed (rad)
+     */
+    @Contract("_, _, _, _, _, _, _, _, _ -> new")
+    public static @NotNull DriveCommand ofHeading(double vx, double vy, boolean fieldRelative, double headingGoal,
+                                                  double headingGoalVelocity, double maxTurnSpeed, double headingTolerance,
+                                                  @NotNull Priority priority, double timestamp) {
+        return new DriveCommand(priority, timestamp, new ChassisSpeeds(vx, vy, 0), null, false, true, fieldRelative,
+                headingGoal, headingGoalVelocity, maxTurnSpeed, headingTolerance, null);
+    }
+
+    /**
+     * @param moduleStates The states to put the modules in. Should not be modified after being posted.
+     * @param rotate       Whether to rotate the modules to the requested angles
+     */
+    @Contract("_, _, _, _ -> new")
+    public static @NotNull DriveCommand ofModuleStates(SwerveModuleState @NotNull [] moduleStates, boolean rotate,
+                                                       @NotNull Priority priority, double timestamp) {
+        return new DriveCommand(priority, timestamp, null, moduleStates, rotate, null);
+    }
+
+    /**
+     * A {@link Priority#DRIVER} command that stops the robot and immediately replaces any command at or below the released
+     * priority. Used when something that was steering the robot stops, so its last command doesn't keep blocking the driver
+     * for the hold time.
+     *
+     * @param releasedPriority The priority of the commands to release
+     */
+    @Contract("_, _ -> new")
+    public static @NotNull DriveCommand ofRelease(@NotNull Priority releasedPriority, double timestamp) {
+        return new DriveCommand(Priority.DRIVER, timestamp, new ChassisSpeeds(), null, false, releasedPriority);
+    }
+
+    @Contract(pure = true)
+    public boolean isChassisSpeeds() {
+        return chassisSpeeds != null;
+    }
+
+    /**
+     * @return True if the drive thread should calculate the turn speed to reach {@link #headingGoal}. The chassis speeds of
+     * these commands only contain the translation.
+     */
+    @Contract(pure = true)
+    public boolean hasHeadingGoal() {
+        return hasHeadingGoal;
+    }
+
+    /**
+     * @return The requested speeds. Do not modify the returned object.
+     * @throws IllegalStateException if this command sets the module states directly
+     */
+    @Contract(pure = true)
+    public @NotNull ChassisSpeeds getChassisSpeeds() {
+        if (chassisSpeeds == null) {
+            throw new IllegalStateException("This command does not contain chassis speeds");
+        }
+        return chassisSpeeds;
+    }
+
+    /**
+     * @return The requested module states. Do not modify the returned array.
+     * @throws IllegalStateException if this command contains chassis speeds
+     */
+    @Contract(pure = true)
+    public SwerveModuleState @NotNull [] getModuleStates() {
+        if (moduleStates == null) {
+            throw new IllegalStateException("This command does not contain module states");
+        }
+        return moduleStates;
+    }
+
+    /**
+     * @param other    The command that is currently active
+     * @param holdTime How long a command blocks lower priority commands for (s)
+     * @return True if this command should replace the other command
+     */
+    @Contract(pure = true)
+    public boolean supersedes(@Nullable DriveCommand other, double holdTime) {
+        return other == null
+                || priority.compareTo(other.priority) >= 0
+                || (releasedPriority != null && releasedPriority.compareTo(other.priority) >= 0)
+                || timestamp - other.timestamp > holdTime;
+    }
+}
@@ -2,6 +2,7 @@ package frc.utility;
 
 import edu.wpi.first.networktables.EntryListenerFlags;
 import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.drive.Vector2d;
@@ -10,6 +11,11 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -39,14 +45,38 @@ public final class Limelight extends AbstractSubsystem {
 
         final int width;
         final int height;
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
     }
 
-    public LimelightResolution cameraResolution = LimelightResolution.k320x240;
+    /**
+     * The resolution of frames from pipelines that don't have one set with {@link #setPipelineResolution}
+     */
+    public volatile LimelightResolution cameraResolution = LimelightResolution.k320x240;
 
     public void setCameraResolution(LimelightResolution resolution) {
         cameraResolution = resolution;
     }
 
+    private final @NotNull AtomicReferenceArray<LimelightResolution> pipelineResolutions = new AtomicReferenceArray<>(10);
+
+    /**
+     * The resolution is a setting of the pipeline on the limelight, so switching pipelines can change it. This lets frames be
+     * tagged with the resolution of the pipeline that took them.
+     *
+     * @param pipeline   The pipeline 0...9
+     * @param resolution The resolution the pipeline is set to on the limelight
+     */
+    public void setPipelineResolution(int pipeline, @NotNull LimelightResolution resolution) {
+        pipelineResolutions.set(pipeline, resolution);
+    }
+
 
     public static @NotNull Limelight getInstance(String name) {
         LIMELIGHT_MAP_LOCK.readLock().lock();
@@ -162,8 +192,17 @@ public final class Limelight extends AbstractSubsystem {
         limelightTable = NetworkTableInstance.getDefault().getTable(name);
         limelightGuiTable = NetworkTableInstance.getDefault().getTable(name + "gui");
 
-        limelightTable.getEntry("tl").addListener(event -> lastUpdate = Timer.getFPGATimestamp(),
-                EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
+        targetVisibleEntry = limelightTable.getEntry("tv");
+        horizontalOffsetEntry = limelightTable.getEntry("tx");
+        verticalOffsetEntry = limelightTable.getEntry("ty");
+        targetAreaEntry = limelightTable.getEntry("ta");
+        targetSkewEntry = limelightTable.getEntry("ts");
+        latencyEntry = limelightTable.getEntry("tl");
+        cornersEntry = limelightTable.getEntry("tcornxy");
+        activePipelineEntry = limelightTable.getEntry("getpipe");
+
+        // The limelight updates tl on every frame
+        latencyEntry.addListener(event -> onNewFrame(), EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
 
         limelightGuiTable.getEntry("forceledon").addListener(event -> {
             if (event.getEntry().getBoolean(false)) {
@@ -178,10 +217,86 @@ public final class Limelight extends AbstractSubsystem {
      * @return Whether the limelight has any valid targets
      */
     public boolean isTargetVisible() {
-        return limelightTable.getEntry("tv").getDouble(0) == 1 && isConnected();
+        return latestFrame.targetVisible && isConnected();
+    }
+
+    volatile double lastUpdate = 0;
+
+    /**
+     * Signaled every time the limelight publishes a new frame
+     */
+    public final @NotNull UpdateSignal frameSignal = new UpdateSignal();
+
+    private final @NotNull NetworkTableEntry targetVisibleEntry;
+    private final @NotNull NetworkTableEntry horizontalOffsetEntry;
+    private final @NotNull NetworkTableEntry verticalOffsetEntry;
+    private final @NotNull NetworkTableEntry targetAreaEntry;
+    private final @NotNull NetworkTableEntry targetSkewEntry;
+    private final @NotNull NetworkTableEntry latencyEntry;
+    private final @NotNull NetworkTableEntry cornersEntry;
+    private final @NotNull NetworkTableEntry activePipelineEntry;
+
+    private volatile @NotNull LimelightFrame latestFrame = LimelightFrame.EMPTY;
+    private final @NotNull List<BlockingQueue<LimelightFrame>> frameSubscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Captures all the target data at once so that it all comes from the same frame, then hands it to the subscribers.
+     */
+    private void onNewFrame() {
+        double time = Timer.getFPGATimestamp();
+        double latency = latencyEntry.getDouble(0);
+        int pipeline = (int) activePipelineEntry.getDouble(-1);
+        LimelightResolution resolution = pipeline >= 0 && pipeline < pipelineResolutions.length()
+                ? pipelineResolutions.get(pipeline) : null;
+        LimelightFrame frame = new LimelightFrame(
+                time - (latency / 1000),
+                latency,
+                pipeline,
+                resolution == null ? cameraResolution : resolution,
+                targetVisibleEntry.getDouble(0) == 1,
+                horizontalOffsetEntry.getDouble(0) - 1,
+                verticalOffsetEntry.getDouble(0),
+                targetAreaEntry.getDouble(0),
+                targetSkewEntry.getDouble(0),
+                cornersEntry.getDoubleArray(EMPTY_DOUBLE_ARRAY)
+        );
+
+        latestFrame = frame;
+        lastUpdate = time;
+
+        for (BlockingQueue<LimelightFrame> subscriber : frameSubscribers) {
+            offerDroppingOldest(subscriber, frame);
+        }
+        frameSignal.signal();
+    }
+
+    /**
+     * Adds the frame to the subscriber's queue. If the subscriber is falling behind, its oldest frames are dropped to make room.
+     */
+    static void offerDroppingOldest(@NotNull BlockingQueue<LimelightFrame> subscriber, @NotNull LimelightFrame frame) {
+        while (!subscriber.offer(frame)) {
+            subscriber.poll();
+        }
     }
 
-    double lastUpdate = 0;
+    /**
+     * @param capacity The max number of frames to keep if they aren't being taken from the queue. The oldest frames are dropped
+     *                 first.
+     * @return A queue that will get every new frame from the limelight
+     */
+    public @NotNull BlockingQueue<LimelightFrame> subscribe(int capacity) {
+        BlockingQueue<LimelightFrame> subscriber = new ArrayBlockingQueue<>(capacity);
+        frameSubscribers.add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * @return The most recent frame from the limelight
+     */
+    @Contract(pure = true)
+    public @NotNull LimelightFrame getLatestFrame() {
+        return latestFrame;
+    }
 
     public boolean isConnected() {
         //System.out.println(Timer.getFPGATimestamp() - lastUpdate);
@@ -192,43 +307,42 @@ public final class Limelight extends AbstractSubsystem {
      * @return Horizontal Offset From Crosshair To Target (LL1: -27 degrees to 27 degrees | LL2: -29.8 to 29.8 degrees)
      */
     public double getHorizontalOffset() {
-        return limelightTable.getEntry("tx").getDouble(0) - 1;
+        return latestFrame.horizontalOffset;
     }
 
     /**
      * @return Vertical Offset From Crosshair To Target (LL1: -20.5 degrees to 20.5 degrees | LL2: -24.85 to 24.85 degrees)
      */
     public double getVerticalOffset() {
-        return limelightTable.getEntry("ty").getDouble(0);
+        return latestFrame.verticalOffset;
     }
 
     /**
      * @return Target Area (0% of image to 100% of image)
      */
     public double getTargetArea() {
-        return limelightTable.getEntry("ta").getDouble(0);
+        return latestFrame.targetArea;
     }
 
     /**
      * @return Skew or rotation (-90 degrees to 0 degrees)
      */
     public double getTargetSkew() {
-        return limelightTable.getEntry("ts").getDouble(0);
+        return latestFrame.targetSkew;
     }
 
     /**
      * @return The pipeline’s latency contribution (ms). Add at least 11ms for image capture latency.
      */
     public double getLatency() {
-        return limelightTable.getEntry("tl").getDouble(0);
+        return latestFrame.latency;
     }
 
     /**
      * @return The timeStamp of the last processed frame
      */
     public double getTimestamp() {
-        //return Timer.getFPGATimestamp();
-        return lastUpdate - ((getLatency()) / 1000);
+        return latestFrame.timestamp;
     }
 
     /**
@@ -284,35 +398,23 @@ public final class Limelight extends AbstractSubsystem {
 
     @Contract(" -> new")
     public @NotNull Vector2d getTargetPosInCameraPixels() {
-        return new Vector2d(
-                (getHorizontalOffset() / 29.8) * (320 / 2.0) + (320 / 2.0),
-                (getVerticalOffset() / 24.85) * (240 / 2.0) + (240 / 2.0)
-        );
+        return latestFrame.getTargetPosInCameraPixels();
     }
 
     /**
-     * Top right is (0,0)
+     * Top left is (0,0) and y is down
      *
      * @return The position of all the corners in the camera frame.
      */
     public Vector2d[] getCorners() {
-        double[] corners = limelightTable.getEntry("tcornxy").getDoubleArray(EMPTY_DOUBLE_ARRAY);
-        Vector2d[] processedCorners = new Vector2d[corners.length / 2];
-        for (int i = 0; i < corners.length; i += 2) {
-            if (i + 1 < corners.length) {
-                processedCorners[i / 2] = new Vector2d(corners[i], corners[i + 1]);
-            }
-        }
-        return processedCorners;
+        return latestFrame.getCorners();
     }
 
     public boolean areCornersTouchingEdge() {
-        Vector2d[] corners = getCorners();
-        for (Vector2d corner : corners) {
-            if (corner.x < 30 || corner.x > cameraResolution.width - 30 || corner.y < 30 || corner.y > cameraResolution.height) {
-                return true;
-            }
-        }
-        return false;
+        return areCornersTouchingEdge(latestFrame);
+    }
+
+    public boolean areCornersTouchingEdge(@NotNull LimelightFrame frame) {
+        return frame.areCornersTouchingEdge();
     }
-}
\ No newline at end of file
+}
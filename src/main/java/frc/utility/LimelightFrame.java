@@ -0,0 +1,176 @@
+package frc.utility;
+
+import edu.wpi.first.wpilibj.drive.Vector2d;
+import frc.utility.Limelight.LimelightResolution;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * All the target data from a single limelight frame. Reading the values from one of these instead of from network tables
+ * guarantees that they all came from the same image.
+ */
+public final class LimelightFrame {
+
+    /**
+     * Used before the limelight has sent any frames
+     */
+    public static final LimelightFrame EMPTY = new LimelightFrame(0, 0, -1, LimelightResolution.k320x240, false, 0, 0, 0,
+            0, new double[0]);
+
+    /**
+     * The FPGA time the image was captured (s)
+     */
+    public final double timestamp;
+
+    /**
+     * The pipeline's latency contribution (ms)
+     */
+    public final double latency;
+
+    /**
+     * The pipeline that took the image. -1 if the limelight didn't say.
+     */
+    public final int pipeline;
+
+    /**
+     * The resolution of the pipeline that took the image. The corners are in this resolution.
+     */
+    public final @NotNull LimelightResolution resolution;
+
+    /**
+     * Whether the limelight had any valid targets
+     */
+    public final boolean targetVisible;
+
+    /**
+     * Horizontal offset from the crosshair to the target (degrees)
+     */
+    public final double horizontalOffset;
+
+    /**
+     * Vertical offset from the crosshair to the target (degrees)
+     */
+    public final double verticalOffset;
+
+    /**
+     * Target area (0% of image to 100% of image)
+     */
+    public final double targetArea;
+
+    /**
+     * Skew or rotation (-90 degrees to 0 degrees)
+     */
+    public final double targetSkew;
+
+    /**
+     * x0, y0, x1, y1, ... in the resolution of the pipeline. Top left is (0,0) and y is down.
+     */
+    private final double[] corners;
+
+    /**
+     * Frames normally come from {@link Limelight}. This is public so that frames can be made for tests and replays.
+     *
+     * @param corners The corners array from network tables. It's copied, so the frame can't be changed through it afterwards.
+     */
+    public LimelightFrame(double timestamp, double latency, int pipeline, @NotNull LimelightResolution resolution,
+                          boolean targetVisible, double horizontalOffset, double verticalOffset, double targetArea,
+                          double targetSkew, double @NotNull [] corners) {
+        this.timestamp = timestamp;
+        this.latency = latency;
+        this.pipeline = pipeline;
+        this.resolution = resolution;
+        this.targetVisible = targetVisible;
+        this.horizontalOffset = horizontalOffset;
+        this.verticalOffset = verticalOffset;
+        this.targetArea = targetArea;
+        this.targetSkew = targetSkew;
+        this.corners = corners.clone();
+    }
+
+    /**
+     * @return The number of corners the limelight found
+     */
+    @Contract(pure = true)
+    public int getCornerCount() {
+        return corners.length / 2;
+    }
+
+    @Contract(pure = true)
+    public double getCornerX(int corner) {
+        return corners[corner * 2];
+    }
+
+    @Contract(pure = true)
+    public double getCornerY(int corner) {
+        return corners[corner * 2 + 1];
+    }
+
+    /**
+     * @return If any of the corners are close to the edge of the image, which means part of the target could be cut off
+     */
+    @Contract(pure = true)
+    public boolean areCornersTouchingEdge() {
+        for (int i = 0; i < getCornerCount(); i++) {
+            double x = getCornerX(i);
+            double y = getCornerY(i);
+            if (x < 30 || x > resolution.getWidth() - 30 || y < 30 || y > resolution.getHeight()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Top left is (0,0) and y is down
+     *
+     * @return The position of all the corners in the camera frame.
+     */
+    @Contract(pure = true)
+    public Vector2d @NotNull [] getCorners() {
+        Vector2d[] processedCorners = new Vector2d[getCornerCount()];
+        for (int i = 0; i < processedCorners.length; i++) {
+            processedCorners[i] = new Vector2d(getCornerX(i), getCornerY(i));
+        }
+        return processedCorners;
+    }
+
+    /**
+     * @return The x position of the corner in a 320x240 image, the same way as {@link #getTargetPixelX()} (pixels)
+     */
+    @Contract(pure = true)
+    public double getCornerPixelX(int corner) {
+        return getCornerX(corner) * (320.0 / resolution.getWidth());
+    }
+
+    /**
+     * The limelight's corners have y going down, but the crosshair target has y going up. This flips the corner so that it can
+     * be projected the same way as the crosshair.
+     *
+     * @return The y position of the corner in a 320x240 image, the same way as {@link #getTargetPixelY()} (pixels)
+     */
+    @Contract(pure = true)
+    public double getCornerPixelY(int corner) {
+        return 240 - getCornerY(corner) * (240.0 / resolution.getHeight());
+    }
+
+    /**
+     * @return The x position of the crosshair target in a 320x240 image (pixels)
+     */
+    @Contract(pure = true)
+    public double getTargetPixelX() {
+        return (horizontalOffset / 29.8) * (320 / 2.0) + (320 / 2.0);
+    }
+
+    /**
+     * @return The y position of the crosshair target in a 320x240 image (pixels)
+     */
+    @Contract(pure = true)
+    public double getTargetPixelY() {
+        return (verticalOffset / 24.85) * (240 / 2.0) + (240 / 2.0);
+    }
+
+    @Contract(" -> new")
+    public @NotNull Vector2d getTargetPosInCameraPixels() {
+        return new Vector2d(getTargetPixelX(), getTargetPixelY());
+    }
+}
@@ -0,0 +1,72 @@
+package frc.utility;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Lets threads wait for new data instead of polling for it.
+ * <p>
+ * Every {@link #signal()} increments a counter. A waiting thread remembers the last count it saw and
+ * {@link #awaitUpdate(long, long)} returns as soon as the count is different, so signals that happen while the thread is busy
+ * are never missed.
+ */
+public final class UpdateSignal {
+    private final Object lock = new Object();
+    private long count = 0;
+    private final @NotNull List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Wakes up all the threads waiting for an update and runs the listeners on the calling thread.
+     */
+    public void signal() {
+        synchronized (lock) {
+            count++;
+            lock.notifyAll();
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * @return The number of times this has been signaled
+     */
+    @Contract(pure = true)
+    public long getCount() {
+        synchronized (lock) {
+            return count;
+        }
+    }
+
+    /**
+     * Blocks until this is signaled after {@code lastCount}, or until the timeout is reached.
+     *
+     * @param lastCount The count returned from the last call or {@link #getCount()}
+     * @param timeoutMs The max time to wait (ms)
+     * @return The current count. It will be the same as {@code lastCount} if the wait timed out.
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public long awaitUpdate(long lastCount, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000;
+        synchronized (lock) {
+            while (count == lastCount) {
+                long remainingMs = (deadline - System.nanoTime()) / 1_000_000;
+                if (remainingMs <= 0) {
+                    break;
+                }
+                lock.wait(remainingMs);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * @param listener Will be run on the signaling thread every time this is signaled. Should be quick.
+     */
+    public void addListener(@NotNull Runnable listener) {
+        listeners.add(listener);
+    }
+}
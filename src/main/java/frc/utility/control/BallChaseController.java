@@ -0,0 +1,186 @@
+package frc.utility.control;
+
+import org.jetbrains.annotations.Contract;
+
+/**
+ * Drives the robot to intercept a ball.
+ * <p>
+ * The ball's field position is smoothed with an alpha-beta filter, which also estimates how fast it's rolling. The robot drives
+ * towards where the ball will be when we get there, at the speed it could still slow down from to reach the ball at
+ * {@code captureSpeed}. This way the robot drives through the ball instead of stopping in front of it.
+ * <p>
+ * Everything is stored in primitive fields so that the path can be recalculated every frame without allocating.
+ */
+public final class BallChaseController {
+    /**
+     * Number of times the intercept time is refined
+     */
+    private static final int INTERCEPT_ITERATIONS = 3;
+
+    private final double maxVelocity;
+    private final double maxAcceleration;
+    private final double captureSpeed;
+    private final double alpha;
+    private final double beta;
+    private final double newBallDistance;
+    private final double ballTimeout;
+
+    private boolean hasBall = false;
+    private double lastDetectionTime;
+    private double ballX, ballY;
+    private double ballVelocityX, ballVelocityY;
+
+    private double velocityX, velocityY;
+    private double targetHeading;
+    private double distance;
+
+    /**
+     * @param maxVelocity     The fastest to drive at (m/s)
+     * @param maxAcceleration The deceleration used to slow down before the ball (m/s^2)
+     * @param captureSpeed    How fast to be going when we reach the ball (m/s)
+     * @param alpha           How much of the position error of each detection goes into the ball position (0-1)
+     * @param beta            How much of the position error of each detection goes into the ball velocity (0-1)
+     * @param newBallDistance A detection farther than this from the current ball is treated as a different ball (m)
+     * @param ballTimeout     How long to keep chasing a ball that isn't being seen anymore (s)
+     */
+    public BallChaseController(double maxVelocity, double maxAcceleration, double captureSpeed, double alpha, double beta,
+                               double newBallDistance, double ballTimeout) {
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        this.captureSpeed = captureSpeed;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.newBallDistance = newBallDistance;
+        this.ballTimeout = ballTimeout;
+    }
+
+    /**
+     * Forgets the current ball
+     */
+    public void reset() {
+        hasBall = false;
+    }
+
+    /**
+     * @param time The time the ball was seen (s)
+     * @param x    The field relative x position of the ball (m)
+     * @param y    The field relative y position of the ball (m)
+     */
+    public void addBallDetection(double time, double x, double y) {
+        double dt = time - lastDetectionTime;
+        if (!hasBall || dt > ballTimeout || dt <= 0) {
+            startBall(time, x, y);
+            return;
+        }
+
+        double predictedX = ballX + ballVelocityX * dt;
+        double predictedY = ballY + ballVelocityY * dt;
+        double errorX = x - predictedX;
+        double errorY = y - predictedY;
+        if (Math.hypot(errorX, errorY) > newBallDistance) {
+            startBall(time, x, y);
+            return;
+        }
+
+        ballX = predictedX + alpha * errorX;
+        ballY = predictedY + alpha * errorY;
+        ballVelocityX += beta / dt * errorX;
+        ballVelocityY += beta / dt * errorY;
+        lastDetectionTime = time;
+    }
+
+    private void startBall(double time, double x, double y) {
+        hasBall = true;
+        lastDetectionTime = time;
+        ballX = x;
+        ballY = y;
+        ballVelocityX = 0;
+        ballVelocityY = 0;
+    }
+
+    @Contract(pure = true)
+    public boolean hasBall(double time) {
+        return hasBall && time - lastDetectionTime <= ballTimeout;
+    }
+
+    /**
+     * Calculates the velocity and heading to intercept the ball. Does nothing if there isn't a ball.
+     *
+     * @param time   The current time (s)
+     * @param robotX The field relative x position of the robot (m)
+     * @param robotY The field relative y position of the robot (m)
+     * @return If there is a ball to chase
+     */
+    public boolean calculate(double time, double robotX, double robotY) {
+        if (!hasBall(time)) return false;
+
+        double elapsedTime = time - lastDetectionTime;
+        double currentBallX = ballX + ballVelocityX * elapsedTime;
+        double currentBallY = ballY + ballVelocityY * elapsedTime;
+
+        // Aim for where the ball will be when we get there
+        double interceptX = currentBallX;
+        double interceptY = currentBallY;
+        for (int i = 0; i < INTERCEPT_ITERATIONS; i++) {
+            double timeToIntercept = Math.hypot(interceptX - robotX, interceptY - robotY) / maxVelocity;
+            interceptX = currentBallX + ballVelocityX * timeToIntercept;
+            interceptY = currentBallY + ballVelocityY * timeToIntercept;
+        }
+
+        double dx = interceptX - robotX;
+        double dy = interceptY - robotY;
+        distance = Math.hypot(dx, dy);
+        double speed = Math.min(maxVelocity, Math.sqrt(captureSpeed * captureSpeed + 2 * maxAcceleration * distance));
+        if (distance > 1.0E-6) {
+            velocityX = dx / distance * speed;
+            velocityY = dy / distance * speed;
+            targetHeading = Math.atan2(dy, dx);
+        } else {
+            velocityX = 0;
+            velocityY = 0;
+        }
+        return true;
+    }
+
+    /**
+     * @return The field relative x velocity to drive at (m/s)
+     */
+    @Contract(pure = true)
+    public double getVelocityX() {
+        return velocityX;
+    }
+
+    /**
+     * @return The field relative y velocity to drive at (m/s)
+     */
+    @Contract(pure = true)
+    public double getVelocityY() {
+        return velocityY;
+    }
+
+    /**
+     * @return The field relative direction from the robot to the intercept point (rad)
+     */
+    @Contract(pure = true)
+    public double getTargetHeading() {
+        return targetHeading;
+    }
+
+    /**
+     * @return The distance from the robot to the intercept point (m)
+     */
+    @Contract(pure = true)
+    public double getDistance() {
+        return distance;
+    }
+
+    @Contract(pure = true)
+    public double getBallX() {
+        return ballX;
+    }
+
+    @Contract(pure = true)
+    public double getBallY() {
+        return ballY;
+    }
+}
@@ -0,0 +1,182 @@
+package frc.utility.control;
+
+import org.jetbrains.annotations.Contract;
+
+/**
+ * Velocity controller for a flywheel modeled as {@code V = kS * sgn(v) + kV * v + kA * a}.
+ * <p>
+ * The flywheel only has one state, so the LQR and the steady state Kalman filter gains are scalars that are solved once in the
+ * constructor. Every loop is then a handful of multiplications with no allocation, which lets it run much faster than the
+ * subsystem loops.
+ * <ul>
+ *     <li>The LQR gain is compensated for the time between calculating the output and the motor applying it.</li>
+ *     <li>Velocity measurements from the motor controller are delayed (measurement window + status frame). The filter keeps a
+ *     short history of its estimates, applies each measurement to the estimate from when it was taken, and propagates the
+ *     correction forward to the current estimate.</li>
+ * </ul>
+ */
+public final class FlywheelController {
+
+    private final double ks;
+    private final double kv;
+    private final double minVoltage;
+    private final double maxVoltage;
+
+    /**
+     * Discrete plant {@code x[k+1] = a * x[k] + b * (u[k] - kS * sgn(x[k]))}
+     */
+    private final double a;
+    private final double b;
+
+    private final double lqrGain;
+    private final double kalmanGain;
+
+    /**
+     * Estimate history, index {@code historyIndex} is the current estimate. Older estimates are at lower indices (wrapping).
+     */
+    private final double[] estimateHistory;
+    private int historyIndex;
+
+    /**
+     * {@code a^i} for propagating a correction forward by {@code i} steps
+     */
+    private final double[] aPowers;
+
+    private final int measurementDelaySteps;
+
+    /**
+     * @param ks                   Static friction (V)
+     * @param kv                   Velocity gain (V / (units/s))
+     * @param ka                   Acceleration gain (V / (units/s^2))
+     * @param dt                   Loop period (s)
+     * @param velocityTolerance    LQR velocity error tolerance. Smaller makes the controller more aggressive. (units/s)
+     * @param minVoltage           The min voltage to output. Should match what the motor controller can apply (ex. 0 if it can't
+     *                             reverse), so the estimate doesn't assume braking that never happens. (V)
+     * @param maxVoltage           The max voltage to output. Also used as the LQR control effort tolerance. (V)
+     * @param modelStdDev          How much we trust the model, per loop (units/s)
+     * @param measurementStdDev    How much we trust the velocity measurements (units/s)
+     * @param inputDelay           Time between calculating the output and the motor applying it (s)
+     * @param measurementDelay     How old velocity measurements are when they arrive (s)
+     */
+    public FlywheelController(double ks, double kv, double ka, double dt, double velocityTolerance, double minVoltage,
+                              double maxVoltage, double modelStdDev, double measurementStdDev, double inputDelay,
+                              double measurementDelay) {
+        this.ks = ks;
+        this.kv = kv;
+        this.minVoltage = minVoltage;
+        this.maxVoltage = maxVoltage;
+
+        // Exact discretization of dv/dt = -kV/kA * v + 1/kA * u
+        a = Math.exp(-kv / ka * dt);
+        b = (1 - a) / kv;
+
+        // Scalar discrete algebraic Riccati equation
+        double q = 1 / (velocityTolerance * velocityTolerance);
+        double r = 1 / (maxVoltage * maxVoltage);
+        double p = q;
+        for (int i = 0; i < 1000; i++) {
+            double next = q + a * a * p - (a * b * p) * (a * b * p) / (r + b * b * p);
+            if (Math.abs(next - p) < 1.0E-12 * p) {
+                p = next;
+                break;
+            }
+            p = next;
+        }
+        double gain = a * b * p / (r + b * b * p);
+        // By the time the output is applied, the error will have changed by the closed loop dynamics
+        lqrGain = gain * Math.pow(a - b * gain, inputDelay / dt);
+
+        // Steady state Kalman filter
+        double processVariance = modelStdDev * modelStdDev;
+        double measurementVariance = measurementStdDev * measurementStdDev;
+        double covariance = processVariance;
+        double filterGain = 0;
+        for (int i = 0; i < 1000; i++) {
+            double predicted = a * a * covariance + processVariance;
+            filterGain = predicted / (predicted + measurementVariance);
+            double next = (1 - filterGain) * predicted;
+            if (Math.abs(next - covariance) < 1.0E-12 * covariance) break;
+            covariance = next;
+        }
+        kalmanGain = filterGain;
+
+        measurementDelaySteps = Math.max(0, (int) Math.round(measurementDelay / dt));
+        estimateHistory = new double[measurementDelaySteps + 1];
+        aPowers = new double[measurementDelaySteps + 1];
+        for (int i = 0; i <= measurementDelaySteps; i++) {
+            aPowers[i] = Math.pow(a, i);
+        }
+    }
+
+    /**
+     * Resets the estimate to the given velocity
+     */
+    public void reset(double velocity) {
+        for (int i = 0; i < estimateHistory.length; i++) {
+            estimateHistory[i] = velocity;
+        }
+    }
+
+    /**
+     * Corrects the estimate with a velocity measurement that is {@code measurementDelay} seconds old.
+     */
+    public void correct(double measuredVelocity) {
+        int length = estimateHistory.length;
+        int measuredIndex = (historyIndex - measurementDelaySteps + length) % length;
+        double correction = kalmanGain * (measuredVelocity - estimateHistory[measuredIndex]);
+
+        // The system is linear (apart from kS), so correcting an old estimate and replaying the inputs is the same as adding
+        // the propagated correction to every estimate since then
+        for (int i = 0; i <= measurementDelaySteps; i++) {
+            estimateHistory[(measuredIndex + i) % length] += correction * aPowers[i];
+        }
+    }
+
+    /**
+     * Calculates the voltage to apply and advances the estimate by one loop assuming the voltage gets applied.
+     *
+     * @param reference The velocity we want to be at (units/s)
+     * @return The voltage to apply (V)
+     */
+    public double calculate(double reference) {
+        double voltage = ks * Math.signum(reference) + kv * reference + lqrGain * (reference - getEstimatedVelocity());
+        // Clamp before predicting so the estimate only uses voltages the motor can actually apply
+        voltage = Math.max(minVoltage, Math.min(voltage, maxVoltage));
+        predict(voltage);
+        return voltage;
+    }
+
+    /**
+     * Advances the estimate by one loop.
+     *
+     * @param voltage The voltage applied to the motor during the loop (V)
+     */
+    public void predict(double voltage) {
+        double estimate = getEstimatedVelocity();
+        double next = a * estimate + b * (voltage - ks * Math.signum(estimate));
+        if (Math.signum(next) != Math.signum(estimate) && estimate != 0) {
+            // Friction can stop the flywheel but can't make it spin the other way
+            next = 0;
+        }
+        historyIndex = (historyIndex + 1) % estimateHistory.length;
+        estimateHistory[historyIndex] = next;
+    }
+
+    /**
+     * @return The current estimated velocity (units/s)
+     */
+    @Contract(pure = true)
+    public double getEstimatedVelocity() {
+        return estimateHistory[historyIndex];
+    }
+
+    @Contract(pure = true)
+    public double getLqrGain() {
+        return lqrGain;
+    }
+
+    @Contract(pure = true)
+    public double getKalmanGain() {
+        return kalmanGain;
+    }
+}
@@ -0,0 +1,69 @@
+package frc.utility.control;
+
+/**
+ * Estimates how fast a value is changing from samples that come in at an uneven rate.
+ * <p>
+ * Samples closer together than the minimum dt are skipped, so a cycle that runs a millisecond after the last one doesn't turn
+ * sensor noise into a huge rate. The differenced rate is then low pass filtered. If no sample has come in for longer than the
+ * max dt the filter starts over, because the old rate no longer says anything about what the value is doing now.
+ */
+public final class RateFilter {
+
+    private final double minDt;
+    private final double maxDt;
+    private final double timeConstant;
+
+    private boolean hasSample = false;
+    private double lastValue;
+    private double lastTime;
+    private double rate = 0;
+
+    /**
+     * @param minDt        Samples closer together than this are skipped (s)
+     * @param maxDt        The filter is reset if the samples are further apart than this (s)
+     * @param timeConstant Time constant of the low pass filter on the rate (s)
+     */
+    public RateFilter(double minDt, double maxDt, double timeConstant) {
+        this.minDt = minDt;
+        this.maxDt = maxDt;
+        this.timeConstant = timeConstant;
+    }
+
+    /**
+     * @param value The new sample
+     * @param time  The time the sample was taken (s)
+     * @return The filtered rate of change of the value (units/s)
+     */
+    public double calculate(double value, double time) {
+        double dt = time - lastTime;
+        if (!hasSample || dt > maxDt || dt < 0) {
+            hasSample = true;
+            lastValue = value;
+            lastTime = time;
+            rate = 0;
+            return rate;
+        }
+
+        if (dt < minDt) {
+            return rate;
+        }
+
+        double rawRate = (value - lastValue) / dt;
+        rate += dt / (timeConstant + dt) * (rawRate - rate);
+        lastValue = value;
+        lastTime = time;
+        return rate;
+    }
+
+    /**
+     * @return The last calculated rate (units/s)
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public void reset() {
+        hasSample = false;
+        rate = 0;
+    }
+}
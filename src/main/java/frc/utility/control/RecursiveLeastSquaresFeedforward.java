@@ -0,0 +1,129 @@
+package frc.utility.control;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link SimpleMotorFeedforward} whose gains are updated online with recursive least squares.
+ * <p>
+ * Every update fits {@code V = kS * sgn(v) + kV * v + kA * a} to the newest sample while exponentially forgetting old samples,
+ * so the gains follow slow changes like battery sag and carpet wear. The gains are kept within a band around the gains from
+ * characterization so a bad stretch of data (ex. getting pushed by another robot) can't make the robot undrivable.
+ * <p>
+ * If the motor isn't accelerating, the samples don't tell us anything about kA. Normally the covariance of kA would then grow
+ * without bound and the next acceleration would cause a huge jump in the gains, so the covariance is only grown while its trace
+ * is below the trace of the initial covariance.
+ */
+public final class RecursiveLeastSquaresFeedforward {
+
+    private final double nominalKs, nominalKv, nominalKa;
+    private final double minScale, maxScale;
+    private final double forgettingFactor;
+    private final double initialCovariance;
+
+    private double ks, kv, ka;
+
+    /**
+     * Covariance matrix, row major
+     */
+    private final double[] p = new double[9];
+
+    /**
+     * @param nominal           The gains from characterization
+     * @param forgettingFactor  How much of the old data to keep with every update (0-1). Closer to 1 adapts slower.
+     * @param minScale          The smallest the gains can get as a fraction of the nominal gains
+     * @param maxScale          The largest the gains can get as a fraction of the nominal gains
+     * @param initialCovariance How uncertain the nominal gains are
+     */
+    public RecursiveLeastSquaresFeedforward(@NotNull SimpleMotorFeedforward nominal, double forgettingFactor,
+                                            double minScale, double maxScale, double initialCovariance) {
+        this.nominalKs = nominal.ks;
+        this.nominalKv = nominal.kv;
+        this.nominalKa = nominal.ka;
+        this.forgettingFactor = forgettingFactor;
+        this.minScale = minScale;
+        this.maxScale = maxScale;
+        this.initialCovariance = initialCovariance;
+        reset();
+    }
+
+    /**
+     * Goes back to the nominal gains
+     */
+    public void reset() {
+        ks = nominalKs;
+        kv = nominalKv;
+        ka = nominalKa;
+        for (int i = 0; i < 9; i++) {
+            p[i] = i % 4 == 0 ? initialCovariance : 0;
+        }
+    }
+
+    /**
+     * @param voltage      The voltage applied to the motor (V)
+     * @param velocity     The velocity measured while the voltage was applied
+     * @param acceleration The acceleration measured while the voltage was applied
+     */
+    public void update(double voltage, double velocity, double acceleration) {
+        double x0 = Math.signum(velocity);
+        double x1 = velocity;
+        double x2 = acceleration;
+
+        // P * x
+        double px0 = p[0] * x0 + p[1] * x1 + p[2] * x2;
+        double px1 = p[3] * x0 + p[4] * x1 + p[5] * x2;
+        double px2 = p[6] * x0 + p[7] * x1 + p[8] * x2;
+
+        double denominator = forgettingFactor + x0 * px0 + x1 * px1 + x2 * px2;
+        double k0 = px0 / denominator;
+        double k1 = px1 / denominator;
+        double k2 = px2 / denominator;
+
+        double error = voltage - (ks * x0 + kv * x1 + ka * x2);
+        ks = clamp(ks + k0 * error, nominalKs);
+        kv = clamp(kv + k1 * error, nominalKv);
+        ka = clamp(ka + k2 * error, nominalKa);
+
+        // P = (P - k * (P * x)^T) / lambda. P is symmetric so x^T * P = (P * x)^T
+        double trace = p[0] + p[4] + p[8];
+        double scale = trace < 3 * initialCovariance ? 1 / forgettingFactor : 1;
+        p[0] = (p[0] - k0 * px0) * scale;
+        p[1] = (p[1] - k0 * px1) * scale;
+        p[2] = (p[2] - k0 * px2) * scale;
+        p[3] = (p[3] - k1 * px0) * scale;
+        p[4] = (p[4] - k1 * px1) * scale;
+        p[5] = (p[5] - k1 * px2) * scale;
+        p[6] = (p[6] - k2 * px0) * scale;
+        p[7] = (p[7] - k2 * px1) * scale;
+        p[8] = (p[8] - k2 * px2) * scale;
+    }
+
+    private double clamp(double gain, double nominal) {
+        return MathUtil.clamp(gain, nominal * minScale, nominal * maxScale);
+    }
+
+    /**
+     * @return The voltage to apply to the motor (V)
+     */
+    @Contract(pure = true)
+    public double calculate(double velocity, double acceleration) {
+        return ks * Math.signum(velocity) + kv * velocity + ka * acceleration;
+    }
+
+    @Contract(pure = true)
+    public double getKs() {
+        return ks;
+    }
+
+    @Contract(pure = true)
+    public double getKv() {
+        return kv;
+    }
+
+    @Contract(pure = true)
+    public double getKa() {
+        return ka;
+    }
+}
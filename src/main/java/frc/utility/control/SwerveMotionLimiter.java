@@ -0,0 +1,242 @@
+package frc.utility.control;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Limits how quickly the commanded velocity of a swerve drive can change.
+ * <p>
+ * The acceleration is limited by:
+ * <ul>
+ *     <li>A caller supplied limit (ex. to keep the robot steady while shooting)</li>
+ *     <li>The acceleration that would tip the robot over. A robot with its center of mass at height {@code h} and its wheels
+ *     {@code d} away from the center starts to tip at {@code g * d / h}. When the robot is already tilted by {@code theta}
+ *     this drops to {@code g * tan(atan(d / h) - theta)}. This is checked separately for the forward/backward and left/right
+ *     axes of the robot.</li>
+ *     <li>A jerk limit on the change in acceleration as a vector, so the chassis isn't kicked into rocking by speeding up,
+ *     reversing or turning the acceleration. To still stop at the commanded velocity without overshooting it, the acceleration
+ *     towards it is also limited to what can be ramped back down in time (about {@code sqrt(2 * maxJerk * velocityError)}).</li>
+ * </ul>
+ * The tip over limit wins over the jerk limit: if the robot tilts, the acceleration is cut right away.
+ * Velocities and accelerations are field relative. All state is kept in primitives and nothing is allocated per call.
+ */
+public final class SwerveMotionLimiter {
+
+    private static final double GRAVITY = 9.80665;
+
+    private final double tipAngleX;
+    private final double tipAngleY;
+    private final double safetyFactor;
+    private final double maxJerk;
+    private final double maxAngularAcceleration;
+
+    private double velocityX;
+    private double velocityY;
+    private double angularVelocity;
+    private double accelerationX;
+    private double accelerationY;
+
+    /**
+     * @param centerOfMassHeight     Height of the robot's center of mass above the floor (m)
+     * @param halfWheelbase          Distance from the center of the robot to the front/back wheels (m)
+     * @param halfTrackWidth         Distance from the center of the robot to the left/right wheels (m)
+     * @param safetyFactor           Fraction of the tipping acceleration that we're allowed to use (0-1)
+     * @param maxJerk                Max rate that the acceleration can change at (m/s^3)
+     * @param maxAngularAcceleration Max angular acceleration (rad/s^2)
+     */
+    public SwerveMotionLimiter(double centerOfMassHeight, double halfWheelbase, double halfTrackWidth, double safetyFactor,
+                               double maxJerk, double maxAngularAcceleration) {
+        this.tipAngleX = Math.atan2(halfWheelbase, centerOfMassHeight);
+        this.tipAngleY = Math.atan2(halfTrackWidth, centerOfMassHeight);
+        this.safetyFactor = safetyFactor;
+        this.maxJerk = maxJerk;
+        this.maxAngularAcceleration = maxAngularAcceleration;
+    }
+
+    /**
+     * Resets the limiter to the given velocity with no acceleration.
+     *
+     * @param velocityX       Field relative x velocity (m/s)
+     * @param velocityY       Field relative y velocity (m/s)
+     * @param angularVelocity Angular velocity (rad/s)
+     */
+    public void reset(double velocityX, double velocityY, double angularVelocity) {
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.angularVelocity = angularVelocity;
+        this.accelerationX = 0;
+        this.accelerationY = 0;
+    }
+
+    /**
+     * @param tilt     How far the robot is tilted about the axis (rad)
+     * @param tipAngle The angle at which the robot would tip over with no acceleration (rad)
+     * @return The acceleration along the axis that would start to tip the robot (m/s^2)
+     */
+    private double getTipAcceleration(double tilt, double tipAngle) {
+        // We don't rely on the sign of the gyro reading, so assume that the robot is tilted towards the side it would tip to
+        double margin = tipAngle - Math.abs(tilt);
+        if (margin <= 0) {
+            return 0;
+        }
+        return GRAVITY * Math.tan(margin) * safetyFactor;
+    }
+
+    /**
+     * @return How much a field relative acceleration has to be scaled by to stay within the robot relative tip limits (0-1)
+     */
+    @Contract(pure = true)
+    private static double getTipScale(double accelerationX, double accelerationY, double cos, double sin,
+                                      double maxAccelerationX, double maxAccelerationY) {
+        double robotAccelerationX = Math.abs(accelerationX * cos + accelerationY * sin);
+        double robotAccelerationY = Math.abs(-accelerationX * sin + accelerationY * cos);
+        double scale = 1;
+        if (robotAccelerationX > maxAccelerationX) {
+            scale = maxAccelerationX / robotAccelerationX;
+        }
+        if (robotAccelerationY * scale > maxAccelerationY) {
+            scale = maxAccelerationY / robotAccelerationY;
+        }
+        return scale;
+    }
+
+    /**
+     * Moves the limited velocity towards the commanded velocity. Read the result using the getters.
+     *
+     * @param commandedVelocityX        Field relative x velocity we want to be at (m/s)
+     * @param commandedVelocityY        Field relative y velocity we want to be at (m/s)
+     * @param commandedAngularVelocity  Angular velocity we want to be at (rad/s)
+     * @param accelerationLimit         Max linear acceleration allowed by the caller (m/s^2)
+     * @param robotAngle                The angle of the robot on the field (rad)
+     * @param pitch                     Tilt of the robot about its left/right axis (rad)
+     * @param roll                      Tilt of the robot about its forward/backward axis (rad)
+     * @param dt                        Time since the last call (s)
+     */
+    public void calculate(double commandedVelocityX, double commandedVelocityY, double commandedAngularVelocity,
+                          double accelerationLimit, double robotAngle, double pitch, double roll, double dt) {
+        double errorX = commandedVelocityX - velocityX;
+        double errorY = commandedVelocityY - velocityY;
+        double error = Math.hypot(errorX, errorY);
+
+        double wantedAccelerationX = errorX / dt;
+        double wantedAccelerationY = errorY / dt;
+        double wantedAcceleration = error / dt;
+
+        // Leave room to ramp the acceleration back down before reaching the commanded velocity. Ramping down from a in steps of
+        // maxJerk * dt changes the velocity by a^2 / (2 * maxJerk) + a * dt / 2.
+        double halfJerkStep = maxJerk * dt / 2;
+        double maxAcceleration = Math.min(accelerationLimit,
+                Math.sqrt(halfJerkStep * halfJerkStep + 2 * maxJerk * error) - halfJerkStep);
+        if (wantedAcceleration > maxAcceleration) {
+            wantedAccelerationX *= maxAcceleration / wantedAcceleration;
+            wantedAccelerationY *= maxAcceleration / wantedAcceleration;
+        }
+
+        // Tip over limits are in the robot's frame
+        double cos = Math.cos(robotAngle);
+        double sin = Math.sin(robotAngle);
+        double maxAccelerationX = getTipAcceleration(pitch, tipAngleX);
+        double maxAccelerationY = getTipAcceleration(roll, tipAngleY);
+        double scale = getTipScale(wantedAccelerationX, wantedAccelerationY, cos, sin, maxAccelerationX, maxAccelerationY);
+        wantedAccelerationX *= scale;
+        wantedAccelerationY *= scale;
+
+        // Limit how fast the acceleration can change, including reversing or turning it
+        double changeX = wantedAccelerationX - accelerationX;
+        double changeY = wantedAccelerationY - accelerationY;
+        double change = Math.hypot(changeX, changeY);
+        double maxChange = maxJerk * dt;
+        if (change > maxChange) {
+            changeX *= maxChange / change;
+            changeY *= maxChange / change;
+        }
+        accelerationX += changeX;
+        accelerationY += changeY;
+
+        // The robot might have tilted since the last call, and not tipping over matters more than the jerk
+        scale = getTipScale(accelerationX, accelerationY, cos, sin, maxAccelerationX, maxAccelerationY);
+        accelerationX *= scale;
+        accelerationY *= scale;
+
+        velocityX += accelerationX * dt;
+        velocityY += accelerationY * dt;
+
+        double maxAngularVelocityChange = maxAngularAcceleration * dt;
+        double angularVelocityChange = commandedAngularVelocity - angularVelocity;
+        if (Math.abs(angularVelocityChange) > maxAngularVelocityChange) {
+            angularVelocity += Math.copySign(maxAngularVelocityChange, angularVelocityChange);
+        } else {
+            angularVelocity = commandedAngularVelocity;
+        }
+    }
+
+    /**
+     * Limits a robot relative velocity. Same as {@link #calculate}, but the velocity is rotated onto the field before limiting
+     * it and back onto the robot afterwards.
+     *
+     * @param commandedVelocity Velocity we want to be at (robot relative). Is set to the limited velocity.
+     * @param accelerationLimit Max linear acceleration allowed by the caller (m/s^2)
+     * @param robotAngle        The angle of the robot on the field (rad)
+     * @param pitch             Tilt of the robot about its left/right axis (rad)
+     * @param roll              Tilt of the robot about its forward/backward axis (rad)
+     * @param dt                Time since the last call (s)
+     */
+    @Contract(mutates = "this,param1")
+    public void calculateRobotRelative(@NotNull ChassisSpeeds commandedVelocity, double accelerationLimit, double robotAngle,
+                                       double pitch, double roll, double dt) {
+        double cos = Math.cos(robotAngle);
+        double sin = Math.sin(robotAngle);
+
+        //field relative
+        double commandX = commandedVelocity.vxMetersPerSecond * cos - commandedVelocity.vyMetersPerSecond * sin;
+        double commandY = commandedVelocity.vxMetersPerSecond * sin + commandedVelocity.vyMetersPerSecond * cos;
+
+        calculate(commandX, commandY, commandedVelocity.omegaRadiansPerSecond, accelerationLimit, robotAngle, pitch, roll, dt);
+
+        //robot relative
+        commandedVelocity.vxMetersPerSecond = velocityX * cos + velocityY * sin;
+        commandedVelocity.vyMetersPerSecond = -velocityX * sin + velocityY * cos;
+        commandedVelocity.omegaRadiansPerSecond = angularVelocity;
+    }
+
+    /**
+     * @return The limited field relative x velocity (m/s)
+     */
+    @Contract(pure = true)
+    public double getVelocityX() {
+        return velocityX;
+    }
+
+    /**
+     * @return The limited field relative y velocity (m/s)
+     */
+    @Contract(pure = true)
+    public double getVelocityY() {
+        return velocityY;
+    }
+
+    /**
+     * @return The limited angular velocity (rad/s)
+     */
+    @Contract(pure = true)
+    public double getAngularVelocity() {
+        return angularVelocity;
+    }
+
+    /**
+     * @return The field relative x acceleration used in the last call (m/s^2)
+     */
+    @Contract(pure = true)
+    public double getAccelerationX() {
+        return accelerationX;
+    }
+
+    /**
+     * @return The field relative y acceleration used in the last call (m/s^2)
+     */
+    @Contract(pure = true)
+    public double getAccelerationY() {
+        return accelerationY;
+    }
+}
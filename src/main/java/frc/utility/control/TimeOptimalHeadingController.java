@@ -0,0 +1,88 @@
+package frc.utility.control;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Turns the robot to a (possibly moving) heading as fast as the drivetrain allows.
+ * <p>
+ * Relative to a target that turns at a constant rate, the heading error behaves like a double integrator. The fastest way to
+ * close an error {@code e} with a max deceleration {@code a} is to turn towards the target at {@code sqrt(2 * a * |e|)} so that
+ * braking at full deceleration lands exactly on the target. Close to the target this is replaced by a proportional term so the
+ * output doesn't chatter around zero error.
+ * <p>
+ * Both the robot heading and the target are predicted forward by a short horizon to make up for the time between reading the
+ * gyro and the modules responding to the command.
+ */
+public final class TimeOptimalHeadingController {
+
+    private double kP;
+    private final double maxAngularAcceleration;
+    private final double horizon;
+
+    private double error;
+
+    /**
+     * @param kP                     Gain used close to the target ((rad/s)/rad)
+     * @param maxAngularAcceleration The deceleration the robot can reliably turn with (rad/s^2)
+     * @param horizon                How far ahead to predict the heading and the target (s)
+     */
+    public TimeOptimalHeadingController(double kP, double maxAngularAcceleration, double horizon) {
+        this.kP = kP;
+        this.maxAngularAcceleration = maxAngularAcceleration;
+        this.horizon = horizon;
+    }
+
+    /**
+     * Calculates the max angular acceleration of a swerve drive turning in place from the feedforward of its drive motors.
+     * Turning at {@code w} makes each wheel move at {@code w * r}, so the voltage needed is
+     * {@code kS + kV * w * r + kA * alpha * r}.
+     *
+     * @param feedforward     Feedforward of a drive motor (in meters)
+     * @param moduleRadius    Distance from the center of the robot to the modules (m)
+     * @param maxVoltage      The voltage available to the motors (V)
+     * @param angularVelocity The angular velocity to calculate the acceleration at (rad/s)
+     * @return The max angular acceleration (rad/s^2)
+     */
+    @Contract(pure = true)
+    public static double getMaxAngularAcceleration(@NotNull SimpleMotorFeedforward feedforward, double moduleRadius,
+                                                   double maxVoltage, double angularVelocity) {
+        double voltage = maxVoltage - feedforward.ks - feedforward.kv * Math.abs(angularVelocity) * moduleRadius;
+        return Math.max(voltage, 0) / (feedforward.ka * moduleRadius);
+    }
+
+    /**
+     * @param heading               The current heading of the robot (rad)
+     * @param angularVelocity       The current angular velocity of the robot (rad/s)
+     * @param targetHeading         The heading we want to be at (rad)
+     * @param targetAngularVelocity How fast the target heading is changing (rad/s)
+     * @param maxAngularVelocity    The max angular velocity to command (rad/s)
+     * @return The angular velocity to turn at (rad/s)
+     */
+    public double calculate(double heading, double angularVelocity, double targetHeading, double targetAngularVelocity,
+                            double maxAngularVelocity) {
+        error = MathUtil.angleModulus(targetHeading - heading);
+
+        double predictedError = MathUtil.angleModulus(
+                (targetHeading + targetAngularVelocity * horizon) - (heading + angularVelocity * horizon));
+        double absError = Math.abs(predictedError);
+        double closingSpeed = Math.min(kP * absError, Math.sqrt(2 * maxAngularAcceleration * absError));
+
+        double output = targetAngularVelocity + Math.copySign(closingSpeed, predictedError);
+        return MathUtil.clamp(output, -maxAngularVelocity, maxAngularVelocity);
+    }
+
+    /**
+     * @return The heading error from the last call to {@link #calculate}, without any prediction (rad)
+     */
+    @Contract(pure = true)
+    public double getError() {
+        return error;
+    }
+
+    public void setP(double kP) {
+        this.kP = kP;
+    }
+}
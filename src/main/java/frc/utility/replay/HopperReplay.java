@@ -0,0 +1,74 @@
+package frc.utility.replay;
+
+import frc.utility.tracking.HopperBallEstimator;
+import frc.utility.vision.BallTracker;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+import static frc.robot.Constants.*;
+
+/**
+ * Reruns the hopper's ball counting and opposing ball tracking against a log recorded by {@link frc.subsystem.Hopper}.
+ * <p>
+ * The log has three kinds of cycles, in the order they happened on the robot:
+ * <ul>
+ *     <li>{@link #BALL_TRACKER_RESET}: The intake limelight switched colors</li>
+ *     <li>{@link #BALL_DETECTION}: The intake limelight saw an opposing ball. The cycle time is the frame time.</li>
+ *     <li>{@link #BELT_POSITION} and the other estimator inputs: One hopper update, along with the outputs it produced</li>
+ * </ul>
+ * The estimators are built from the current constants, so the replay shows how changes to them would have behaved on the
+ * recorded data.
+ */
+public final class HopperReplay {
+    public static final String SOURCE = "Hopper";
+
+    public static final String BALL_TRACKER_RESET = "Ball Tracker Reset";
+    public static final String BALL_DETECTION = "Ball Detection Vertical Offset";
+
+    public static final String BELT_POSITION = "Belt Position";
+    public static final String BEAM_BROKEN = "Beam Broken";
+    public static final String HOPPER_STALLED = "Hopper Stalled";
+    public static final String FEEDER_RUNNING = "Feeder Running";
+    public static final String OUTTAKE_EJECTING = "Outtake Ejecting";
+
+    public static final String BALL_COUNT = "Ball Count";
+    public static final String BALLS_SHOT = "Balls Shot";
+    public static final String PREDICTED_BALL_ARRIVAL_TIME = "Predicted Ball Arrival Time";
+
+    private HopperReplay() {}
+
+    /**
+     * @param log  A log with {@link #SOURCE} as the source
+     * @param diff Where to put the differences between the recorded and replayed outputs
+     * @return The number of cycles replayed
+     */
+    public static int replay(@NotNull ReplayLogReader log, @NotNull ReplayDiff diff) throws IOException {
+        HopperBallEstimator ballEstimator = HopperBallEstimator.fromConstants();
+        BallTracker ballTracker = BallTracker.forIntakeLimelight();
+
+        int cycles = 0;
+        while (log.nextCycle()) {
+            cycles++;
+            double time = log.getTime();
+            if (log.has(BALL_TRACKER_RESET)) {
+                ballTracker.reset();
+            } else if (log.has(BALL_DETECTION)) {
+                ballTracker.addDetection(time, log.getDouble(BALL_DETECTION));
+            } else if (log.has(BELT_POSITION)) {
+                ballEstimator.update(time,
+                        log.getDouble(BELT_POSITION),
+                        log.getBoolean(BEAM_BROKEN),
+                        log.getBoolean(HOPPER_STALLED),
+                        log.getBoolean(FEEDER_RUNNING),
+                        log.getBoolean(OUTTAKE_EJECTING));
+
+                diff.compare(BALL_COUNT, time, log.getDouble(BALL_COUNT), ballEstimator.getBallCount());
+                diff.compare(BALLS_SHOT, time, log.getDouble(BALLS_SHOT), ballEstimator.getBallsShot());
+                diff.compare(PREDICTED_BALL_ARRIVAL_TIME, time, log.getDouble(PREDICTED_BALL_ARRIVAL_TIME),
+                        ballTracker.getTimeUntilBelow(time, OUTTAKE_VERTICAL_OFFSET_THRESHOLD));
+            }
+        }
+        return cycles;
+    }
+}
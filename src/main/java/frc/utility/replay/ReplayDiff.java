@@ -0,0 +1,90 @@
+package frc.utility.replay;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares the outputs that were recorded on the robot with the outputs of the logic when it's replayed.
+ * <p>
+ * Values are matched if they're within the tolerance of each other, or if they're both the same infinity or both NaN.
+ */
+public final class ReplayDiff {
+
+    private static final class ChannelDiff {
+        int count = 0;
+        int mismatches = 0;
+        double maxError = 0;
+        double firstMismatchTime = Double.NaN;
+    }
+
+    private final double tolerance;
+    private final @NotNull Map<String, ChannelDiff> channels = new LinkedHashMap<>();
+
+    /**
+     * @param tolerance The largest difference between two values that still counts as a match
+     */
+    public ReplayDiff(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @param channel  The name of the output
+     * @param time     The time of the cycle (s)
+     * @param recorded The value recorded on the robot
+     * @param replayed The value from the replay
+     */
+    public void compare(@NotNull String channel, double time, double recorded, double replayed) {
+        ChannelDiff diff = channels.computeIfAbsent(channel, c -> new ChannelDiff());
+        diff.count++;
+
+        if (recorded == replayed || (Double.isNaN(recorded) && Double.isNaN(replayed))) return;
+        double error = Math.abs(recorded - replayed);
+        if (Double.isNaN(error)) error = Double.POSITIVE_INFINITY;
+        if (error <= tolerance) return;
+
+        diff.maxError = Math.max(diff.maxError, error);
+        if (diff.mismatches == 0) diff.firstMismatchTime = time;
+        diff.mismatches++;
+    }
+
+    /**
+     * @return The number of values that didn't match across all the channels
+     */
+    @Contract(pure = true)
+    public int getMismatchCount() {
+        int mismatches = 0;
+        for (ChannelDiff diff : channels.values()) {
+            mismatches += diff.mismatches;
+        }
+        return mismatches;
+    }
+
+    /**
+     * @return The number of values of the channel that didn't match
+     */
+    @Contract(pure = true)
+    public int getMismatchCount(@NotNull String channel) {
+        ChannelDiff diff = channels.get(channel);
+        return diff == null ? 0 : diff.mismatches;
+    }
+
+    /**
+     * @return One line per channel with how many values didn't match, the biggest difference and when they started to differ
+     */
+    @Override
+    public @NotNull String toString() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, ChannelDiff> entry : channels.entrySet()) {
+            ChannelDiff diff = entry.getValue();
+            report.append(String.format("%-32s %6d / %6d differ", entry.getKey(), diff.mismatches, diff.count));
+            if (diff.mismatches > 0) {
+                report.append(String.format(", max difference %.6g, first at %.3f s", diff.maxError, diff.firstMismatchTime));
+            }
+            report.append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package frc.utility.replay;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a log written by {@link ReplayLogWriter} one cycle at a time.
+ */
+public final class ReplayLogReader implements AutoCloseable {
+    private final @NotNull DataInputStream input;
+    private final @NotNull String source;
+    private final @NotNull Map<String, Short> channelIds = new HashMap<>();
+
+    private double time;
+    /**
+     * The value of each channel in the current cycle, indexed by the channel id. NaN if the channel isn't in the cycle.
+     */
+    private double[] values = new double[16];
+
+    /**
+     * @throws IOException If the stream isn't a replay log
+     */
+    public ReplayLogReader(@NotNull InputStream input) throws IOException {
+        this.input = new DataInputStream(input);
+        if (this.input.readInt() != ReplayLogWriter.MAGIC) {
+            throw new IOException("Not a replay log");
+        }
+        short version = this.input.readShort();
+        if (version != ReplayLogWriter.VERSION) {
+            throw new IOException("Unsupported replay log version " + version);
+        }
+        source = this.input.readUTF();
+    }
+
+    /**
+     * Reads the next cycle.
+     *
+     * @return false if the end of the log has been reached. A cycle that was cut off (ex. the robot lost power while it was
+     * being written) counts as the end of the log.
+     * @throws IOException If the log is corrupted
+     */
+    public boolean nextCycle() throws IOException {
+        try {
+            while (true) {
+                byte type = input.readByte();
+                if (type == ReplayLogWriter.CHANNEL_RECORD) {
+                    short id = input.readShort();
+                    channelIds.put(input.readUTF(), id);
+                    if (id >= values.length) {
+                        values = Arrays.copyOf(values, Math.max(values.length * 2, id + 1));
+                    }
+                } else if (type == ReplayLogWriter.CYCLE_RECORD) {
+                    Arrays.fill(values, Double.NaN);
+                    time = input.readDouble();
+                    int count = input.readShort();
+                    for (int i = 0; i < count; i++) {
+                        short id = input.readShort();
+                        if (id < 0 || id >= values.length) throw new IOException("Unknown channel " + id);
+                        values[id] = input.readDouble();
+                    }
+                    return true;
+                } else {
+                    throw new IOException("Unknown record type " + type);
+                }
+            }
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The name of the logic that was recorded
+     */
+    @Contract(pure = true)
+    public @NotNull String getSource() {
+        return source;
+    }
+
+    /**
+     * @return The time of the current cycle (s)
+     */
+    @Contract(pure = true)
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * @return If the channel was recorded in the current cycle. A recorded NaN looks the same as a missing value.
+     */
+    @Contract(pure = true)
+    public boolean has(@NotNull String channel) {
+        return !Double.isNaN(getDouble(channel));
+    }
+
+    /**
+     * @return The value of the channel in the current cycle. NaN if it wasn't recorded.
+     */
+    @Contract(pure = true)
+    public double getDouble(@NotNull String channel) {
+        Short id = channelIds.get(channel);
+        return id == null ? Double.NaN : values[id];
+    }
+
+    @Contract(pure = true)
+    public boolean getBoolean(@NotNull String channel) {
+        return getDouble(channel) != 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,209 @@
+package frc.utility.replay;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records the inputs and outputs of a piece of robot logic every cycle so that the logic can be rerun offline with
+ * {@link ReplayRunner}.
+ * <p>
+ * The log is a binary stream that starts with a header (magic number, version, source name). After that there are two kinds of
+ * records:
+ * <ul>
+ *     <li>Channel: {@code [CHANNEL_RECORD, short id, UTF name]}. Written the first time a channel is recorded.</li>
+ *     <li>Cycle: {@code [CYCLE_RECORD, double time, short count, count * (short id, double value)]}</li>
+ * </ul>
+ * Booleans are stored as 0 or 1. Only one thread should record into a writer.
+ * <p>
+ * If writing fails the error is printed once and everything after it is dropped, so a full disk can't stop the robot.
+ */
+public final class ReplayLogWriter implements AutoCloseable {
+    static final int MAGIC = 0x52504C59; // "RPLY"
+    static final short VERSION = 1;
+    static final byte CHANNEL_RECORD = 0;
+    static final byte CYCLE_RECORD = 1;
+    static final String LOG_EXTENSION = ".rlog";
+
+    /**
+     * How often the buffer is flushed to the file (s)
+     */
+    private static final double FLUSH_INTERVAL = 1;
+
+    private final @NotNull DataOutputStream output;
+    private final @NotNull Map<String, Short> channelIds = new HashMap<>();
+
+    private double cycleTime;
+    private short[] cycleIds = new short[16];
+    private double[] cycleValues = new double[16];
+    private int cycleCount = 0;
+    private double lastFlushTime = Double.NEGATIVE_INFINITY;
+
+    private boolean failed = false;
+
+    /**
+     * @param output Where to write the log
+     * @param source The name of the logic being recorded (ex. Hopper). Used by {@link ReplayRunner} to pick the replay.
+     */
+    public ReplayLogWriter(@NotNull OutputStream output, @NotNull String source) {
+        this.output = new DataOutputStream(output);
+        try {
+            this.output.writeInt(MAGIC);
+            this.output.writeShort(VERSION);
+            this.output.writeUTF(source);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Opens a new log file named after the source and a number that goes up with each log. The oldest logs from the same
+     * source are deleted so that there are at most {@code maxLogs} of them, including the new one.
+     * <p>
+     * The logs are numbered instead of named after the time since the roboRIO's clock isn't set until it talks to the driver
+     * station.
+     *
+     * @param directory The directory to put the log in. Is created if it doesn't exist.
+     * @param maxLogs   The most logs from this source to keep in the directory
+     * @return The writer, or null if the file couldn't be opened
+     */
+    public static @Nullable ReplayLogWriter create(@NotNull File directory, @NotNull String source, int maxLogs) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.err.println("Could not create replay log directory " + directory);
+            return null;
+        }
+
+        long[] logNumbers = getLogNumbers(directory, source);
+        for (int i = 0; i <= logNumbers.length - maxLogs; i++) {
+            File oldLog = getLogFile(directory, source, logNumbers[i]);
+            if (!oldLog.delete()) {
+                System.err.println("Could not delete old replay log " + oldLog);
+            }
+        }
+
+        long logNumber = logNumbers.length == 0 ? 0 : logNumbers[logNumbers.length - 1] + 1;
+        File file = getLogFile(directory, source, logNumber);
+        try {
+            return new ReplayLogWriter(new BufferedOutputStream(new FileOutputStream(file), 1 << 16), source);
+        } catch (IOException e) {
+            System.err.println("Could not open replay log " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return The numbers of the logs from the source in the directory, oldest first
+     */
+    static long @NotNull [] getLogNumbers(@NotNull File directory, @NotNull String source) {
+        String prefix = source + "-";
+        String[] names = directory.list();
+        if (names == null) return new long[0];
+
+        long[] logNumbers = new long[names.length];
+        int count = 0;
+        for (String name : names) {
+            if (!name.startsWith(prefix) || !name.endsWith(LOG_EXTENSION)) continue;
+            try {
+                logNumbers[count] = Long.parseLong(name.substring(prefix.length(), name.length() - LOG_EXTENSION.length()));
+                count++;
+            } catch (NumberFormatException ignored) {
+                // Not one of ours
+            }
+        }
+        logNumbers = Arrays.copyOf(logNumbers, count);
+        Arrays.sort(logNumbers);
+        return logNumbers;
+    }
+
+    private static @NotNull File getLogFile(@NotNull File directory, @NotNull String source, long logNumber) {
+        return new File(directory, source + "-" + logNumber + LOG_EXTENSION);
+    }
+
+    /**
+     * Starts a new cycle. Values recorded until {@link #endCycle()} are stored together with this time.
+     *
+     * @param time The time of the cycle (s)
+     */
+    public void beginCycle(double time) {
+        cycleTime = time;
+        cycleCount = 0;
+    }
+
+    public void record(@NotNull String channel, double value) {
+        if (failed) return;
+
+        Short id = channelIds.get(channel);
+        if (id == null) {
+            id = (short) channelIds.size();
+            channelIds.put(channel, id);
+            try {
+                output.writeByte(CHANNEL_RECORD);
+                output.writeShort(id);
+                output.writeUTF(channel);
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+        }
+
+        if (cycleCount == cycleIds.length) {
+            cycleIds = Arrays.copyOf(cycleIds, cycleCount * 2);
+            cycleValues = Arrays.copyOf(cycleValues, cycleCount * 2);
+        }
+        cycleIds[cycleCount] = id;
+        cycleValues[cycleCount] = value;
+        cycleCount++;
+    }
+
+    public void record(@NotNull String channel, boolean value) {
+        record(channel, value ? 1 : 0);
+    }
+
+    /**
+     * Writes the cycle to the log.
+     */
+    public void endCycle() {
+        if (failed) return;
+        try {
+            output.writeByte(CYCLE_RECORD);
+            output.writeDouble(cycleTime);
+            output.writeShort(cycleCount);
+            for (int i = 0; i < cycleCount; i++) {
+                output.writeShort(cycleIds[i]);
+                output.writeDouble(cycleValues[i]);
+            }
+            if (cycleTime - lastFlushTime > FLUSH_INTERVAL) {
+                output.flush();
+                lastFlushTime = cycleTime;
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(@NotNull IOException e) {
+        failed = true;
+        System.err.println("Stopped writing replay log: " + e.getMessage());
+    }
+
+    /**
+     * @return If writing has failed and the log is no longer being written
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
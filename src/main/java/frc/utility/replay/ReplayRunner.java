@@ -0,0 +1,76 @@
+package frc.utility.replay;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+//TODO: Replay the rest of the robot (RobotTracker, VisionManager, ShooterManager, Drive, Climber). They read the CTRE, REV and
+// navX devices and the robot clock directly, so those reads need to go through a recorded input layer first.
+
+/**
+ * Offline tool that reruns the hopper's ball counting against replay logs pulled off the robot (from
+ * {@link frc.robot.Constants#REPLAY_LOG_DIRECTORY}) and prints where the outputs differ from what was recorded.
+ * <p>
+ * The logic is run as fast as the log can be read, with the recorded cycle times standing in for the robot clock.
+ * <p>
+ * Only {@link HopperReplay} exists so far. It replays logic that takes plain values as inputs, so no devices or time need to
+ * be mocked.
+ * <p>
+ * Run with {@code ./gradlew replay -PreplayLogs=<log file>,<log file>}.
+ */
+public final class ReplayRunner {
+    /**
+     * Outputs closer than this are treated as the same
+     */
+    static final double TOLERANCE = 1.0E-9;
+
+    private ReplayRunner() {}
+
+    /**
+     * Replays one log with the replay that matches its source.
+     *
+     * @return The number of cycles replayed
+     * @throws IOException If the log can't be read or there is no replay for its source
+     */
+    public static int replay(@NotNull ReplayLogReader log, @NotNull ReplayDiff diff) throws IOException {
+        switch (log.getSource()) {
+            case HopperReplay.SOURCE:
+                return HopperReplay.replay(log, diff);
+            default:
+                throw new IOException("No replay for " + log.getSource());
+        }
+    }
+
+    /**
+     * @param args The replay logs to run
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: ReplayRunner <replay log>...");
+            System.exit(1);
+        }
+
+        int totalMismatches = 0;
+        for (String path : args) {
+            File file = new File(path);
+            long startTime = System.nanoTime();
+            ReplayDiff diff = new ReplayDiff(TOLERANCE);
+            int cycles;
+            try (ReplayLogReader log = new ReplayLogReader(new BufferedInputStream(new FileInputStream(file)))) {
+                cycles = replay(log, diff);
+            }
+
+            System.out.printf("%s: replayed %d cycles in %.0f ms%n", file.getName(), cycles,
+                    (System.nanoTime() - startTime) / 1.0e6);
+            System.out.print(diff);
+            totalMismatches += diff.getMismatchCount();
+        }
+
+        if (totalMismatches > 0) {
+            System.out.println(totalMismatches + " outputs differ from the recorded logs");
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package frc.utility.shooter;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Decides whether the shooter checks will all be passing when the ball leaves the robot.
+ * <p>
+ * The shooter manager only samples the checks at 22Hz and the feeder takes time to push the ball out, so waiting for every check
+ * to pass at the same sample wastes shots. Each check is instead given its current value and how fast it is changing and is
+ * projected forward by the feeder latency. The feeder can then be started as soon as the checks are predicted to pass when the
+ * ball exits.
+ * <p>
+ * It also keeps track of how often each check fails and how long each check was the only thing stopping us from shooting, so
+ * we can see which gate is costing us the most shots.
+ * <p>
+ * Usage every cycle: {@link #beginCycle(double)}, one or more {@code update} calls per check, then {@link #endCycle()}. Checks
+ * that are not updated during a cycle are treated as passing.
+ */
+public final class ShotReadinessPredictor {
+
+    public enum Check {
+        AIM("Aim"),
+        TURN_SPEED("Turn Speed"),
+        ACCELERATION("Acceleration"),
+        STOPPED("Stopped"),
+        FLAT_ON_GROUND("Flat On Ground"),
+        VISION("Vision");
+
+        public final String name;
+
+        Check(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final Check[] CHECKS = Check.values();
+
+    private final double latency;
+
+    private final boolean[] passingNow = new boolean[CHECKS.length];
+    private final boolean[] passingPredicted = new boolean[CHECKS.length];
+
+    private final long[] failures = new long[CHECKS.length];
+    private final double[] blockingTime = new double[CHECKS.length];
+    private long earlyCommits = 0;
+
+    private double cycleTime = Double.NaN;
+    private double lastCycleTime = Double.NaN;
+    private boolean ready = false;
+
+    /**
+     * @param latency The time from starting the feeder to the ball leaving the robot (s)
+     */
+    public ShotReadinessPredictor(double latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Starts a new set of checks
+     *
+     * @param time The current time (s)
+     */
+    public void beginCycle(double time) {
+        lastCycleTime = cycleTime;
+        cycleTime = time;
+        for (int i = 0; i < CHECKS.length; i++) {
+            passingNow[i] = true;
+            passingPredicted[i] = true;
+        }
+    }
+
+    /**
+     * Adds a check that passes when {@code |value| < limit}. If a check is updated multiple times in a cycle, all of them must
+     * pass.
+     *
+     * @param value The current value of the checked quantity
+     * @param rate  How fast the value is changing (units/s)
+     * @param limit The largest value that still passes
+     */
+    public void update(@NotNull Check check, double value, double rate, double limit) {
+        update(check, value, rate, 0, limit);
+    }
+
+    /**
+     * Adds a check that passes when {@code |value| < limit}. If a check is updated multiple times in a cycle, all of them must
+     * pass.
+     *
+     * @param value        The current value of the checked quantity
+     * @param rate         How fast the value is changing (units/s)
+     * @param acceleration How fast the rate is changing (units/s^2)
+     * @param limit        The largest value that still passes
+     */
+    public void update(@NotNull Check check, double value, double rate, double acceleration, double limit) {
+        double predictedValue = value + rate * latency + 0.5 * acceleration * latency * latency;
+        int i = check.ordinal();
+        passingNow[i] &= Math.abs(value) < limit;
+        passingPredicted[i] &= Math.abs(predictedValue) < limit;
+    }
+
+    /**
+     * Adds a check that can't be predicted. It will be assumed to stay the same for the next {@code latency} seconds.
+     */
+    public void update(@NotNull Check check, boolean passing) {
+        int i = check.ordinal();
+        passingNow[i] &= passing;
+        passingPredicted[i] &= passing;
+    }
+
+    /**
+     * Finishes the cycle and updates the metrics
+     *
+     * @return If all the checks are predicted to be passing when the ball would leave the robot
+     */
+    public boolean endCycle() {
+        double dt = Double.isNaN(lastCycleTime) ? 0 : cycleTime - lastCycleTime;
+
+        int failing = 0;
+        int lastFailing = -1;
+        boolean allPassingNow = true;
+        for (int i = 0; i < CHECKS.length; i++) {
+            allPassingNow &= passingNow[i];
+            if (!passingPredicted[i]) {
+                failures[i]++;
+                failing++;
+                lastFailing = i;
+            }
+        }
+
+        if (failing == 1) {
+            blockingTime[lastFailing] += dt;
+        }
+
+        ready = failing == 0;
+        if (ready && !allPassingNow) {
+            earlyCommits++;
+        }
+        return ready;
+    }
+
+    /**
+     * @return If all the checks were predicted to pass in the last cycle
+     */
+    @Contract(pure = true)
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return If the check is passing right now
+     */
+    @Contract(pure = true)
+    public boolean isPassing(@NotNull Check check) {
+        return passingNow[check.ordinal()];
+    }
+
+    /**
+     * @return If the check is predicted to be passing when the ball would leave the robot
+     */
+    @Contract(pure = true)
+    public boolean isPredictedPassing(@NotNull Check check) {
+        return passingPredicted[check.ordinal()];
+    }
+
+    /**
+     * @return The number of cycles the check was predicted to fail
+     */
+    @Contract(pure = true)
+    public long getFailures(@NotNull Check check) {
+        return failures[check.ordinal()];
+    }
+
+    /**
+     * @return The total time the check was the only one stopping us from shooting (s)
+     */
+    @Contract(pure = true)
+    public double getBlockingTime(@NotNull Check check) {
+        return blockingTime[check.ordinal()];
+    }
+
+    /**
+     * @return The number of cycles we were ready to shoot before all the checks were actually passing
+     */
+    @Contract(pure = true)
+    public long getEarlyCommits() {
+        return earlyCommits;
+    }
+
+    @Contract(pure = true)
+    public double getLatency() {
+        return latency;
+    }
+}
@@ -52,6 +52,15 @@ public final class VisionLookUpTable {
         Collections.sort(shooterConfig.getShooterConfigs());
     }
 
+    /**
+     * Creates a table from the given config instead of the one in the deploy directory. Used by the benchmarks, which run
+     * without the robot's native libraries.
+     */
+    VisionLookUpTable(@NotNull ShooterConfig shooterConfig) {
+        this.shooterConfig = shooterConfig;
+        Collections.sort(shooterConfig.getShooterConfigs());
+    }
+
     final @NotNull Comparator comparator = (o1, o2) -> {
         ShooterPreset sp = (ShooterPreset) o1;
         double d = (double) o2;
@@ -0,0 +1,412 @@
+package frc.utility.statemachine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A state machine that runs off a transition table.
+ * <p>
+ * Every state has an entry action, a done condition (what the state is waiting for) and an exit action. Once a state is done
+ * the first transition out of it whose guard passes is taken, and that transition's action is run. Guards only pick where to
+ * go; they can't hold the machine in a state, so a forced advance ignores the done condition but still follows the guards.
+ * <p>
+ * In step mode the machine waits for an {@link Command#ADVANCE} after each state is done, and skips through the states that
+ * were added with {@code skipInStepMode} without running any of their actions.
+ * <p>
+ * {@link #update(double)} and all the actions must be run on one thread. Other threads control the machine with
+ * {@link #sendCommand(Command)}, which only puts the command in a lock-free queue. The queue is emptied at the start of the
+ * next update. The current time is passed into every update so that the machine can be run off-robot.
+ *
+ * @param <S> The enum of states
+ */
+public final class StateMachine<S extends Enum<S>> {
+
+    public enum Command {
+        /**
+         * Stops updating the current state and runs the pause action. Does nothing if the machine is already paused or
+         * stopped.
+         */
+        PAUSE,
+        /**
+         * Runs the resume action and continues updating the current state. Does nothing if the machine isn't paused.
+         */
+        RESUME,
+        /**
+         * Lets the machine leave the current state once it's done when in step mode. The advance is kept until it's used.
+         */
+        ADVANCE,
+        /**
+         * Resumes the machine if it's paused and leaves the current state on the next update, whether it's done or not.
+         */
+        FORCE_ADVANCE,
+        /**
+         * Runs the start action and goes to the start state.
+         */
+        START,
+        /**
+         * Runs the stop action and goes to the stop state.
+         */
+        STOP,
+        /**
+         * Goes to the stop state without running the stop action. Used when something else has taken control of whatever
+         * the machine was controlling.
+         */
+        INTERRUPT
+    }
+
+    private static final Runnable NO_ACTION = () -> {};
+    private static final BooleanSupplier ALWAYS = () -> true;
+
+    private static final class QueuedCommand {
+        final @NotNull Command command;
+        final @NotNull Runnable action;
+
+        QueuedCommand(@NotNull Command command, @NotNull Runnable action) {
+            this.command = command;
+            this.action = action;
+        }
+    }
+
+    /**
+     * Commands without an action, so that sending one doesn't allocate
+     */
+    private static final QueuedCommand[] PLAIN_COMMANDS = new QueuedCommand[Command.values().length];
+
+    static {
+        for (Command command : Command.values()) {
+            PLAIN_COMMANDS[command.ordinal()] = new QueuedCommand(command, NO_ACTION);
+        }
+    }
+
+    private final class Transition {
+        final @NotNull S to;
+        final @NotNull BooleanSupplier guard;
+        final @NotNull Runnable action;
+
+        Transition(@NotNull S to, @NotNull BooleanSupplier guard, @NotNull Runnable action) {
+            this.to = to;
+            this.guard = guard;
+            this.action = action;
+        }
+    }
+
+    private final @NotNull S[] states;
+    private final @NotNull S stopState;
+    private final @NotNull S startState;
+
+    private final @NotNull Runnable[] entryActions;
+    private final @NotNull BooleanSupplier[] doneConditions;
+    private final @NotNull Runnable[] exitActions;
+    private final boolean[] skipInStepMode;
+    private final @NotNull List<List<Transition>> transitions;
+
+    private final @NotNull Map<Command, Runnable> commandActions;
+    private final @NotNull Queue<QueuedCommand> commands = new ConcurrentLinkedQueue<>();
+
+    private volatile @NotNull S state;
+    private volatile boolean paused = false;
+    private volatile boolean stepMode = false;
+
+    private boolean advanceRequested = false;
+    private boolean forceAdvanceRequested = false;
+    private boolean ranExitAction = false;
+
+    private double time = 0;
+    private double stateEntryTime = 0;
+    private final int[] entryCounts;
+    private final double[] totalTimes;
+    private final double[] lastVisitDurations;
+
+    /**
+     * @param stateClass The class of the state enum
+     * @param stopState  The state the machine is in when it isn't running. The machine starts here.
+     * @param startState The state the machine goes to when it's started
+     */
+    public StateMachine(@NotNull Class<S> stateClass, @NotNull S stopState, @NotNull S startState) {
+        this.states = stateClass.getEnumConstants();
+        this.stopState = stopState;
+        this.startState = startState;
+
+        entryActions = new Runnable[states.length];
+        doneConditions = new BooleanSupplier[states.length];
+        exitActions = new Runnable[states.length];
+        skipInStepMode = new boolean[states.length];
+        transitions = new ArrayList<>(states.length);
+        for (int i = 0; i < states.length; i++) {
+            entryActions[i] = NO_ACTION;
+            doneConditions[i] = () -> false;
+            exitActions[i] = NO_ACTION;
+            transitions.add(new ArrayList<>(2));
+        }
+        commandActions = new EnumMap<>(Command.class);
+
+        entryCounts = new int[states.length];
+        totalTimes = new double[states.length];
+        lastVisitDurations = new double[states.length];
+
+        state = stopState;
+    }
+
+    /**
+     * @param state          The state to set up
+     * @param entryAction    Run when the machine goes into the state
+     * @param doneCondition  Returns true once the state has finished what it's doing
+     * @param exitAction     Run once when the state is done, or before it's left by a forced advance. This runs even when
+     *                       the machine is waiting for an advance in step mode, so anything the state started can be stopped
+     *                       right away.
+     * @param skipInStepMode If the state should be passed through in step mode (ex. it doesn't move anything)
+     * @return this
+     */
+    public @NotNull StateMachine<S> addState(@NotNull S state, @NotNull Runnable entryAction,
+                                             @NotNull BooleanSupplier doneCondition, @NotNull Runnable exitAction,
+                                             boolean skipInStepMode) {
+        int index = state.ordinal();
+        entryActions[index] = entryAction;
+        doneConditions[index] = doneCondition;
+        exitActions[index] = exitAction;
+        this.skipInStepMode[index] = skipInStepMode;
+        return this;
+    }
+
+    /**
+     * Adds a transition. Transitions out of a state are checked in the order they were added.
+     *
+     * @param from   The state the transition leaves
+     * @param to     The state the transition goes to
+     * @param guard  Returns true if this transition should be taken when {@code from} is left
+     * @param action Run when the transition is taken, before the entry action of {@code to}
+     * @return this
+     */
+    public @NotNull StateMachine<S> addTransition(@NotNull S from, @NotNull S to, @NotNull BooleanSupplier guard,
+                                                  @NotNull Runnable action) {
+        transitions.get(from.ordinal()).add(new Transition(to, guard, action));
+        return this;
+    }
+
+    /**
+     * Adds a transition that is always taken when {@code from} is left.
+     *
+     * @return this
+     */
+    public @NotNull StateMachine<S> addTransition(@NotNull S from, @NotNull S to) {
+        return addTransition(from, to, ALWAYS, NO_ACTION);
+    }
+
+    /**
+     * @param command The command to run an action for
+     * @param action  Run on the update thread when the command is handled. Isn't run if the command does nothing.
+     * @return this
+     */
+    public @NotNull StateMachine<S> setCommandAction(@NotNull Command command, @NotNull Runnable action) {
+        commandActions.put(command, action);
+        return this;
+    }
+
+    /**
+     * Queues a command to be handled on the next update. Can be called from any thread.
+     */
+    public void sendCommand(@NotNull Command command) {
+        commands.add(PLAIN_COMMANDS[command.ordinal()]);
+    }
+
+    /**
+     * Queues a command to be handled on the next update, with an action that's run on the update thread right after it. Use
+     * this with {@link Command#INTERRUPT} to take control of whatever the machine was controlling, so that none of the
+     * machine's actions can run after the action and overwrite it. Can be called from any thread.
+     *
+     * @param action Run after the command is handled, even if the command does nothing
+     */
+    public void sendCommand(@NotNull Command command, @NotNull Runnable action) {
+        commands.add(new QueuedCommand(command, action));
+    }
+
+    /**
+     * @param stepMode If the machine should wait for an {@link Command#ADVANCE} before leaving each state
+     */
+    public void setStepMode(boolean stepMode) {
+        this.stepMode = stepMode;
+    }
+
+    @Contract(pure = true)
+    public boolean isStepMode() {
+        return stepMode;
+    }
+
+    /**
+     * Handles any queued commands, then updates the current state.
+     *
+     * @param time The current time (s)
+     */
+    public void update(double time) {
+        this.time = time;
+
+        QueuedCommand queuedCommand;
+        while ((queuedCommand = commands.poll()) != null) {
+            handleCommand(queuedCommand.command);
+            queuedCommand.action.run();
+        }
+
+        if (paused) return;
+
+        int index = state.ordinal();
+        boolean done = doneConditions[index].getAsBoolean();
+        if (done && !ranExitAction) {
+            exitActions[index].run();
+            ranExitAction = true;
+        }
+
+        if (forceAdvanceRequested || (done && (!stepMode || advanceRequested))) {
+            Transition transition = findTransition(state);
+            if (transition == null) return;
+
+            if (!ranExitAction) exitActions[index].run();
+            transition.action.run();
+            S next = transition.to;
+            while (stepMode && skipInStepMode[next.ordinal()]) {
+                Transition skip = findTransition(next);
+                if (skip == null) break;
+                next = skip.to;
+            }
+            enterState(next);
+        }
+    }
+
+    private void handleCommand(@NotNull Command command) {
+        switch (command) {
+            case PAUSE:
+                if (paused || state == stopState) return;
+                paused = true;
+                break;
+            case RESUME:
+                if (!paused) return;
+                paused = false;
+                break;
+            case ADVANCE:
+                advanceRequested = true;
+                break;
+            case FORCE_ADVANCE:
+                handleCommand(Command.RESUME);
+                forceAdvanceRequested = true;
+                break;
+            case START:
+            case STOP:
+            case INTERRUPT:
+                paused = false;
+                break;
+        }
+
+        commandActions.getOrDefault(command, NO_ACTION).run();
+
+        if (command == Command.START) {
+            enterState(startState);
+        } else if (command == Command.STOP || command == Command.INTERRUPT) {
+            enterState(stopState);
+        }
+    }
+
+    private @Nullable Transition findTransition(@NotNull S from) {
+        for (Transition transition : transitions.get(from.ordinal())) {
+            if (transition.guard.getAsBoolean()) {
+                return transition;
+            }
+        }
+        return null;
+    }
+
+    private void enterState(@NotNull S next) {
+        double duration = time - stateEntryTime;
+        totalTimes[state.ordinal()] += duration;
+        lastVisitDurations[state.ordinal()] = duration;
+
+        state = next;
+        stateEntryTime = time;
+        entryCounts[next.ordinal()]++;
+        advanceRequested = false;
+        forceAdvanceRequested = false;
+        ranExitAction = false;
+        entryActions[next.ordinal()].run();
+    }
+
+    /**
+     * Can be called from any thread.
+     */
+    @Contract(pure = true)
+    public @NotNull S getState() {
+        return state;
+    }
+
+    /**
+     * Can be called from any thread.
+     */
+    @Contract(pure = true)
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * @return If the current state's done condition passed on the last update
+     */
+    @Contract(pure = true)
+    public boolean isStateDone() {
+        return ranExitAction;
+    }
+
+    /**
+     * @return The time of the last update (s)
+     */
+    @Contract(pure = true)
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * @return The time the machine went into the current state (s)
+     */
+    @Contract(pure = true)
+    public double getStateEntryTime() {
+        return stateEntryTime;
+    }
+
+    /**
+     * @return How long the machine has been in the current state as of the last update (s)
+     */
+    @Contract(pure = true)
+    public double getTimeInState() {
+        return time - stateEntryTime;
+    }
+
+    /**
+     * @return The number of times the machine has gone into the state
+     */
+    @Contract(pure = true)
+    public int getEntryCount(@NotNull S state) {
+        return entryCounts[state.ordinal()];
+    }
+
+    /**
+     * @return The total time the machine has spent in the state, including the current visit (s)
+     */
+    @Contract(pure = true)
+    public double getTotalTime(@NotNull S state) {
+        double total = totalTimes[state.ordinal()];
+        if (state == this.state) total += getTimeInState();
+        return total;
+    }
+
+    /**
+     * @return How long the machine stayed in the state the last time it left it (s)
+     */
+    @Contract(pure = true)
+    public double getLastVisitDuration(@NotNull S state) {
+        return lastVisitDurations[state.ordinal()];
+    }
+}
@@ -0,0 +1,177 @@
+package frc.utility.sysid;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Fits {@code V = kS * sgn(v) + kV * v + kA * a} to characterization samples with ordinary least squares.
+ * <p>
+ * Samples are kept in primitive arrays so that outliers can be rejected after the first fit. Samples with a residual of more than
+ * {@link #OUTLIER_THRESHOLD} standard deviations (estimated from the median absolute residual) are thrown out and the fit is
+ * repeated, up to {@link #MAX_ITERATIONS} times. This mostly removes the first few samples of the dynamic tests where the step in
+ * voltage makes the acceleration noisy.
+ */
+public final class FeedforwardFitter {
+
+    static final double OUTLIER_THRESHOLD = 3;
+    static final int MAX_ITERATIONS = 3;
+
+    /**
+     * Converts the median absolute residual to a standard deviation for normally distributed noise
+     */
+    private static final double MAD_TO_STANDARD_DEVIATION = 1.4826;
+
+    private double[] voltage = new double[1024];
+    private double[] velocity = new double[1024];
+    private double[] acceleration = new double[1024];
+    private int size;
+
+    /**
+     * @param voltage      Voltage applied to the motor (V)
+     * @param velocity     Measured velocity (units/s)
+     * @param acceleration Measured acceleration (units/s^2)
+     */
+    public void addSample(double voltage, double velocity, double acceleration) {
+        if (size == this.voltage.length) {
+            int newLength = size * 2;
+            this.voltage = Arrays.copyOf(this.voltage, newLength);
+            this.velocity = Arrays.copyOf(this.velocity, newLength);
+            this.acceleration = Arrays.copyOf(this.acceleration, newLength);
+        }
+        this.voltage[size] = voltage;
+        this.velocity[size] = velocity;
+        this.acceleration[size] = acceleration;
+        size++;
+    }
+
+    @Contract(pure = true)
+    public int getSampleCount() {
+        return size;
+    }
+
+    /**
+     * @return The fitted gains
+     * @throws IllegalStateException if there aren't enough samples to fit the gains
+     */
+    public @NotNull FeedforwardGains fit() {
+        boolean[] rejected = new boolean[size];
+        double[] gains = new double[3];
+        int used = size;
+
+        double[] absoluteResiduals = new double[size];
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            solve(rejected, gains);
+
+            // Use the median absolute residual to estimate the noise so that the outliers don't inflate it
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (!rejected[i]) {
+                    absoluteResiduals[count++] = Math.abs(residual(i, gains));
+                }
+            }
+            Arrays.sort(absoluteResiduals, 0, count);
+            double standardDeviation = MAD_TO_STANDARD_DEVIATION * absoluteResiduals[count / 2];
+            if (standardDeviation < 1.0E-9) break; // Perfect fit
+
+            int newlyRejected = 0;
+            double threshold = OUTLIER_THRESHOLD * standardDeviation;
+            for (int i = 0; i < size; i++) {
+                if (!rejected[i] && Math.abs(residual(i, gains)) > threshold) {
+                    rejected[i] = true;
+                    newlyRejected++;
+                }
+            }
+            if (newlyRejected == 0) break;
+            used -= newlyRejected;
+        }
+
+        // Fit once more without the outliers found in the last iteration
+        solve(rejected, gains);
+
+        double meanVoltage = 0;
+        for (int i = 0; i < size; i++) {
+            if (!rejected[i]) meanVoltage += voltage[i];
+        }
+        meanVoltage /= used;
+
+        double sumSquaredResiduals = 0;
+        double sumSquaredTotal = 0;
+        for (int i = 0; i < size; i++) {
+            if (!rejected[i]) {
+                double residual = residual(i, gains);
+                sumSquaredResiduals += residual * residual;
+                sumSquaredTotal += (voltage[i] - meanVoltage) * (voltage[i] - meanVoltage);
+            }
+        }
+        double rmse = Math.sqrt(sumSquaredResiduals / used);
+
+        return new FeedforwardGains(gains[0], gains[1], gains[2], 1 - sumSquaredResiduals / sumSquaredTotal, rmse, used,
+                size - used);
+    }
+
+    private double residual(int i, double @NotNull [] gains) {
+        return voltage[i] - (gains[0] * Math.signum(velocity[i]) + gains[1] * velocity[i] + gains[2] * acceleration[i]);
+    }
+
+    /**
+     * Solves the normal equations {@code (X^T X) b = X^T y} for the samples that haven't been rejected.
+     */
+    private void solve(boolean @NotNull [] rejected, double @NotNull [] gains) {
+        double[][] xtx = new double[3][4]; // Augmented with X^T y
+        int used = 0;
+        for (int i = 0; i < size; i++) {
+            if (rejected[i]) continue;
+            used++;
+            double x0 = Math.signum(velocity[i]);
+            double x1 = velocity[i];
+            double x2 = acceleration[i];
+            double y = voltage[i];
+            xtx[0][0] += x0 * x0;
+            xtx[0][1] += x0 * x1;
+            xtx[0][2] += x0 * x2;
+            xtx[1][1] += x1 * x1;
+            xtx[1][2] += x1 * x2;
+            xtx[2][2] += x2 * x2;
+            xtx[0][3] += x0 * y;
+            xtx[1][3] += x1 * y;
+            xtx[2][3] += x2 * y;
+        }
+        if (used < 3) {
+            throw new IllegalStateException("Need at least 3 samples to fit a feedforward, got " + used);
+        }
+        xtx[1][0] = xtx[0][1];
+        xtx[2][0] = xtx[0][2];
+        xtx[2][1] = xtx[1][2];
+
+        // Gaussian elimination with partial pivoting
+        for (int col = 0; col < 3; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < 3; row++) {
+                if (Math.abs(xtx[row][col]) > Math.abs(xtx[pivot][col])) pivot = row;
+            }
+            double[] temp = xtx[col];
+            xtx[col] = xtx[pivot];
+            xtx[pivot] = temp;
+
+            if (Math.abs(xtx[col][col]) < 1.0E-12) {
+                throw new IllegalStateException("Samples don't excite all the gains (ex. no acceleration or only one direction)");
+            }
+
+            for (int row = col + 1; row < 3; row++) {
+                double factor = xtx[row][col] / xtx[col][col];
+                for (int k = col; k < 4; k++) {
+                    xtx[row][k] -= factor * xtx[col][k];
+                }
+            }
+        }
+        for (int row = 2; row >= 0; row--) {
+            double sum = xtx[row][3];
+            for (int k = row + 1; k < 3; k++) {
+                sum -= xtx[row][k] * gains[k];
+            }
+            gains[row] = sum / xtx[row][row];
+        }
+    }
+}
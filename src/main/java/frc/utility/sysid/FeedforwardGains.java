@@ -0,0 +1,41 @@
+package frc.utility.sysid;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Result of a {@link FeedforwardFitter} fit.
+ */
+public final class FeedforwardGains {
+    public final double ks;
+    public final double kv;
+    public final double ka;
+
+    /**
+     * Coefficient of determination of the fit (1 is a perfect fit)
+     */
+    public final double rSquared;
+
+    /**
+     * Root mean squared error of the fit (V)
+     */
+    public final double rmse;
+
+    public final int samples;
+    public final int rejectedSamples;
+
+    public FeedforwardGains(double ks, double kv, double ka, double rSquared, double rmse, int samples, int rejectedSamples) {
+        this.ks = ks;
+        this.kv = kv;
+        this.ka = ka;
+        this.rSquared = rSquared;
+        this.rmse = rmse;
+        this.samples = samples;
+        this.rejectedSamples = rejectedSamples;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return String.format("kS=%.5f kV=%.5f kA=%.5f (r^2=%.4f, rmse=%.4f V, %d samples, %d rejected)",
+                ks, kv, ka, rSquared, rmse, samples, rejectedSamples);
+    }
+}
@@ -0,0 +1,205 @@
+package frc.utility.sysid;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Offline tool that fits feedforward gains to the raw data files saved by the sysId logger (in {@code sysId/Log}) and writes
+ * them to a generated constants class.
+ * <p>
+ * The log files are streamed with a Jackson {@link JsonParser} so that the whole file never has to be in memory as a tree. Each
+ * test (ex. {@code slow-forward}) is an array of rows:
+ * <ul>
+ *     <li>Drivetrain: {@code [time, left volts, right volts, left position, right position, left velocity, right velocity,
+ *     angle, angular rate]}</li>
+ *     <li>Simple (flywheel): {@code [time, volts, position, velocity]}</li>
+ * </ul>
+ * The acceleration of each sample is found with a central difference of the velocity.
+ * <p>
+ * Run with {@code ./gradlew fitSysId}.
+ */
+public final class SysIdLogFitter {
+
+    /**
+     * Samples slower than this are ignored since static friction makes them hard to fit (units/s)
+     */
+    static final double MOTION_THRESHOLD = 0.01;
+
+    private static final int DRIVETRAIN_COLUMNS = 9;
+    private static final int SIMPLE_COLUMNS = 4;
+
+    private SysIdLogFitter() {}
+
+    /**
+     * The samples from one log file. For drivetrain logs there is a fitter for each side and one for both sides together.
+     */
+    static final class LogSamples {
+        final @NotNull FeedforwardFitter left = new FeedforwardFitter();
+        final @NotNull FeedforwardFitter right = new FeedforwardFitter();
+        final @NotNull FeedforwardFitter combined = new FeedforwardFitter();
+        boolean isDrivetrain;
+    }
+
+    /**
+     * Keeps the last two samples of one motor so the acceleration can be calculated with a central difference.
+     */
+    private static final class CentralDifference {
+        private final @NotNull FeedforwardFitter fitter;
+        private final @NotNull FeedforwardFitter combined;
+        private double lastTime, lastVoltage, lastVelocity;
+        private double previousTime, previousVelocity;
+        private int count;
+
+        CentralDifference(@NotNull FeedforwardFitter fitter, @NotNull FeedforwardFitter combined) {
+            this.fitter = fitter;
+            this.combined = combined;
+        }
+
+        void add(double time, double voltage, double velocity) {
+            if (count >= 2) {
+                double dt = time - previousTime;
+                if (dt > 0 && Math.abs(lastVelocity) > MOTION_THRESHOLD && lastVoltage != 0) {
+                    double acceleration = (velocity - previousVelocity) / dt;
+                    fitter.addSample(lastVoltage, lastVelocity, acceleration);
+                    if (combined != fitter) {
+                        combined.addSample(lastVoltage, lastVelocity, acceleration);
+                    }
+                }
+            }
+            previousTime = lastTime;
+            previousVelocity = lastVelocity;
+            lastTime = time;
+            lastVoltage = voltage;
+            lastVelocity = velocity;
+            count++;
+        }
+    }
+
+    /**
+     * Reads all the tests in a sysId log file.
+     *
+     * @throws IOException if the file can't be read or isn't a sysId log
+     */
+    static @NotNull LogSamples read(@NotNull File file) throws IOException {
+        LogSamples samples = new LogSamples();
+        try (JsonParser parser = new JsonFactory().createParser(file)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException(file + " is not a sysId log");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_ARRAY) {
+                    readTest(parser, samples);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return samples;
+    }
+
+    private static void readTest(@NotNull JsonParser parser, @NotNull LogSamples samples) throws IOException {
+        CentralDifference left = new CentralDifference(samples.left, samples.combined);
+        CentralDifference right = new CentralDifference(samples.right, samples.combined);
+        CentralDifference simple = new CentralDifference(samples.combined, samples.combined);
+        double[] row = new double[DRIVETRAIN_COLUMNS];
+
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            int columns = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (columns < row.length) {
+                    row[columns] = parser.getDoubleValue();
+                }
+                columns++;
+            }
+
+            if (columns == DRIVETRAIN_COLUMNS) {
+                samples.isDrivetrain = true;
+                left.add(row[0], row[1], row[5]);
+                right.add(row[0], row[2], row[6]);
+            } else if (columns == SIMPLE_COLUMNS) {
+                simple.add(row[0], row[1], row[3]);
+            } else {
+                throw new IOException("Unexpected row length " + columns + " at " + parser.getCurrentLocation());
+            }
+        }
+    }
+
+    /**
+     * @param args The file to write the constants to, the drivetrain log, and the flywheel log
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: SysIdLogFitter <output java file> <drivetrain log> <flywheel log>");
+            System.exit(1);
+        }
+        long startTime = System.nanoTime();
+
+        File output = new File(args[0]);
+        File drivetrainLog = new File(args[1]);
+        File flywheelLog = new File(args[2]);
+
+        LogSamples drivetrain = read(drivetrainLog);
+        if (!drivetrain.isDrivetrain) {
+            throw new IOException(drivetrainLog + " is not a drivetrain log");
+        }
+        FeedforwardGains left = drivetrain.left.fit();
+        FeedforwardGains right = drivetrain.right.fit();
+        FeedforwardGains flywheel = read(flywheelLog).combined.fit();
+
+        System.out.println("Drive left:  " + left);
+        System.out.println("Drive right: " + right);
+        System.out.println("Flywheel:    " + flywheel);
+
+        String className = output.getName().replace(".java", "");
+        try (PrintWriter writer = new PrintWriter(output, StandardCharsets.UTF_8)) {
+            writer.println("package frc.robot;");
+            writer.println();
+            writer.println("import edu.wpi.first.math.controller.SimpleMotorFeedforward;");
+            writer.println();
+            writer.println("/**");
+            writer.println(" * Generated by {@link frc.utility.sysid.SysIdLogFitter}. Do not edit, run {@code ./gradlew fitSysId} instead.");
+            writer.println(" * <p>");
+            writer.println(" * Drivetrain: " + drivetrainLog.getName());
+            writer.println(" * <p>");
+            writer.println(" * Flywheel: " + flywheelLog.getName());
+            writer.println(" */");
+            writer.println("public final class " + className + " {");
+            writer.println("    private " + className + "() {}");
+            writer.println();
+            writer.println("    // Left:  " + left);
+            writer.println("    // Right: " + right);
+            writer.println("    /**");
+            writer.println("     * Same order as {@link Constants#SWERVE_MODULE_LOCATIONS}. The left modules use the left side fit and the "
+                    + "right modules");
+            writer.println("     * use the right side fit.");
+            writer.println("     */");
+            writer.println("    public static final SimpleMotorFeedforward[] DRIVE_FEEDFORWARD = {");
+            writer.println("            " + feedforward(left) + ",");
+            writer.println("            " + feedforward(left) + ",");
+            writer.println("            " + feedforward(right) + ",");
+            writer.println("            " + feedforward(right));
+            writer.println("    };");
+            writer.println();
+            writer.println("    // " + flywheel);
+            writer.println("    /**");
+            writer.println("     * Flywheel feedforward (in rotations)");
+            writer.println("     */");
+            writer.println("    public static final SimpleMotorFeedforward SHOOTER_FEEDFORWARD = " + feedforward(flywheel) + ";");
+            writer.println("}");
+        }
+
+        System.out.printf("Wrote %s in %.0f ms%n", output, (System.nanoTime() - startTime) / 1.0e6);
+    }
+
+    private static @NotNull String feedforward(@NotNull FeedforwardGains gains) {
+        return String.format("new SimpleMotorFeedforward(%.5f, %.5f, %.5f)", gains.ks, gains.kv, gains.ka);
+    }
+}
@@ -0,0 +1,224 @@
+package frc.utility.tracking;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import static frc.robot.Constants.*;
+
+/**
+ * Keeps track of how many balls are in the hopper and where they are.
+ * <p>
+ * Positions are distances along the hopper (m) measured from where balls enter. The balls are moved with the hopper belt's
+ * encoder and can't pass the feeder or each other. The beam break corrects the positions: a ball's edge has to be at it
+ * whenever it changes, and a new ball is added if there isn't one close enough. A ball is counted as shot once it has been
+ * held against a running feeder for the time the feeder takes to push it out.
+ * <p>
+ * A hopper motor stall means the balls are stacked up against the feeder, so their positions are snapped to that. Balls
+ * reversed out of the bottom of the hopper are removed if the outtake is ejecting.
+ */
+public final class HopperBallEstimator {
+    /**
+     * The most balls that fit in the hopper. Balls past this are ignored.
+     */
+    public static final int MAX_BALLS = 4;
+
+    private final double beamBreakPosition;
+    private final double feederPosition;
+    private final double ballDiameter;
+    private final double feederExitTime;
+
+    /**
+     * Sorted with the ball closest to the feeder first
+     */
+    private final double[] positions = new double[MAX_BALLS];
+    private int ballCount = 0;
+
+    private boolean initialized = false;
+    private double lastBeltPosition;
+    private double lastTime;
+    private boolean lastBeamBroken;
+    private double lastDirection = 1;
+
+    private double timeAgainstFeeder = 0;
+    private int ballsShot = 0;
+    private double lastShotTime = Double.NaN;
+
+    /**
+     * @param beamBreakPosition The position of the beam break (m)
+     * @param feederPosition    The position the center of a ball is at when it's waiting at the feeder (m)
+     * @param ballDiameter      The diameter of a ball (m)
+     * @param feederExitTime    How long the feeder takes to push a ball out of the hopper (s)
+     */
+    public HopperBallEstimator(double beamBreakPosition, double feederPosition, double ballDiameter, double feederExitTime) {
+        this.beamBreakPosition = beamBreakPosition;
+        this.feederPosition = feederPosition;
+        this.ballDiameter = ballDiameter;
+        this.feederExitTime = feederExitTime;
+    }
+
+    /**
+     * @return An estimator for the robot's hopper, built from the constants. Used by both the hopper and its replay so they
+     * always match.
+     */
+    public static @NotNull HopperBallEstimator fromConstants() {
+        return new HopperBallEstimator(HOPPER_BEAM_BREAK_POSITION, HOPPER_FEEDER_POSITION, BALL_RADIUS * 2,
+                FEEDER_BALL_EXIT_LATENCY);
+    }
+
+    /**
+     * @param time            The current time (s)
+     * @param beltPosition    How far the hopper belt has moved (m)
+     * @param beamBroken      If the beam break is broken
+     * @param hopperStalled   If the hopper motor is pushing but not moving (ex. high current and no encoder movement)
+     * @param feederRunning   If the feeder is pulling balls into the shooter
+     * @param outtakeEjecting If the outtake is spinning to throw balls out of the bottom of the hopper
+     */
+    public void update(double time, double beltPosition, boolean beamBroken, boolean hopperStalled, boolean feederRunning,
+                       boolean outtakeEjecting) {
+        if (!initialized) {
+            initialized = true;
+            lastBeltPosition = beltPosition;
+            lastTime = time;
+            lastBeamBroken = beamBroken;
+            if (beamBroken) addBall(beamBreakPosition);
+            return;
+        }
+
+        double dt = time - lastTime;
+        double travel = beltPosition - lastBeltPosition;
+        lastTime = time;
+        lastBeltPosition = beltPosition;
+        if (travel != 0) lastDirection = Math.signum(travel);
+
+        moveBalls(travel);
+
+        if (beamBroken != lastBeamBroken) {
+            // The beam changes when the edge of a ball passes it, so the center is half a ball away
+            double edgeOffset = ballDiameter / 2 * lastDirection;
+            double correctedPosition = beamBroken ? beamBreakPosition - edgeOffset : beamBreakPosition + edgeOffset;
+            int closest = findClosestBall(correctedPosition);
+            if (closest != -1 && Math.abs(positions[closest] - correctedPosition) < ballDiameter / 2) {
+                positions[closest] = correctedPosition;
+                sortBalls();
+            } else if (beamBroken) {
+                addBall(correctedPosition);
+            }
+            lastBeamBroken = beamBroken;
+        }
+
+        if (hopperStalled) {
+            // Everything is pushed up against the feeder
+            for (int i = 0; i < ballCount; i++) {
+                positions[i] = feederPosition - i * ballDiameter;
+            }
+        }
+
+        if (outtakeEjecting) {
+            while (ballCount > 0 && positions[ballCount - 1] < 0) {
+                ballCount--;
+            }
+        }
+
+        if (feederRunning && ballCount > 0 && positions[0] >= feederPosition - ballDiameter / 2) {
+            timeAgainstFeeder += dt;
+            if (timeAgainstFeeder >= feederExitTime) {
+                removeFrontBall();
+                ballsShot++;
+                lastShotTime = time;
+                timeAgainstFeeder = 0;
+            }
+        } else {
+            timeAgainstFeeder = 0;
+        }
+    }
+
+    private void moveBalls(double travel) {
+        if (travel > 0) {
+            // Balls can't go past the feeder or the ball in front of them
+            double limit = feederPosition;
+            for (int i = 0; i < ballCount; i++) {
+                positions[i] = Math.min(positions[i] + travel, limit);
+                limit = positions[i] - ballDiameter;
+            }
+        } else if (travel < 0) {
+            for (int i = 0; i < ballCount; i++) {
+                positions[i] += travel;
+            }
+        }
+    }
+
+    private int findClosestBall(double position) {
+        int closest = -1;
+        for (int i = 0; i < ballCount; i++) {
+            if (closest == -1 || Math.abs(positions[i] - position) < Math.abs(positions[closest] - position)) {
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    private void addBall(double position) {
+        if (ballCount >= MAX_BALLS) return;
+        positions[ballCount] = position;
+        ballCount++;
+        sortBalls();
+    }
+
+    private void removeFrontBall() {
+        System.arraycopy(positions, 1, positions, 0, ballCount - 1);
+        ballCount--;
+    }
+
+    /**
+     * Insertion sort, closest to the feeder first. There are only a few balls and they're almost always already sorted.
+     */
+    private void sortBalls() {
+        for (int i = 1; i < ballCount; i++) {
+            double position = positions[i];
+            int j = i - 1;
+            while (j >= 0 && positions[j] < position) {
+                positions[j + 1] = positions[j];
+                j--;
+            }
+            positions[j + 1] = position;
+        }
+    }
+
+    /**
+     * Forgets all the balls. Use when the hopper is known to be empty.
+     */
+    public void clear() {
+        ballCount = 0;
+        timeAgainstFeeder = 0;
+    }
+
+    @Contract(pure = true)
+    public int getBallCount() {
+        return ballCount;
+    }
+
+    /**
+     * @param ball 0 is the ball closest to the feeder
+     * @return The position of the center of the ball (m)
+     */
+    @Contract(pure = true)
+    public double getBallPosition(int ball) {
+        return positions[ball];
+    }
+
+    /**
+     * @return The number of balls that have gone into the shooter
+     */
+    @Contract(pure = true)
+    public int getBallsShot() {
+        return ballsShot;
+    }
+
+    /**
+     * @return The time the last ball went into the shooter. NaN if none have.
+     */
+    @Contract(pure = true)
+    public double getLastShotTime() {
+        return lastShotTime;
+    }
+}
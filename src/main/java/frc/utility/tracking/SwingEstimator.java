@@ -0,0 +1,311 @@
+package frc.utility.tracking;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Fits a damped pendulum to the robot's swing so that we can predict when it will be at an angle.
+ * <p>
+ * The swing is modeled as {@code angle(t) = equilibrium + A * e^(-damping * t) * cos(frequency * t + phase)}. Evenly spaced
+ * samples of a damped oscillation follow {@code x[k] = p1 * x[k-d] + p2 * x[k-2d] + c}, so the frequency, damping and
+ * equilibrium come from a linear least squares fit of the sample history. The amplitude and phase are then fit to the same
+ * history with the frequency and damping held fixed. The fit is rejected if the swing is too small or the samples don't look
+ * like a pendulum.
+ * <p>
+ * Samples are stored in a ring buffer, so adding one never allocates.
+ */
+public final class SwingEstimator {
+    /**
+     * The number of steps per period used when searching for a crossing before it's refined with bisection
+     */
+    private static final int CROSSING_SEARCH_STEPS = 100;
+    private static final int CROSSING_BISECTION_ITERATIONS = 20;
+
+    /**
+     * The time between the terms of the recurrence (s). At the gyro's sample rate neighbouring samples barely change, which
+     * makes the fit very sensitive to noise, so the recurrence is fit across a good part of a swing instead. Swings with a
+     * period shorter than twice this can't be fit.
+     */
+    private static final double FIT_LAG_TIME = 0.25;
+
+    private final double samplePeriod;
+    private final int fitLag;
+    private final double minAmplitude;
+    private final double maxResidual;
+
+    private final double[] samples;
+    private int sampleCount = 0;
+    private int nextSample = 0;
+    private double lastSampleTime = Double.NaN;
+
+    private boolean valid = false;
+    private double equilibrium;
+    private double amplitude;
+    private double phase;
+    private double frequency;
+    private double damping;
+    private double residual;
+
+    /**
+     * @param samplePeriod The time between samples (s)
+     * @param historySize  The number of samples to fit. Should cover at least half a swing, and has to cover more than
+     *                     {@link #FIT_LAG_TIME} twice.
+     * @param minAmplitude The smallest swing that will be fit (degrees)
+     * @param maxResidual  The largest RMS error between the samples and the fit for the fit to be used (degrees)
+     */
+    public SwingEstimator(double samplePeriod, int historySize, double minAmplitude, double maxResidual) {
+        this.samplePeriod = samplePeriod;
+        this.fitLag = Math.max(1, (int) Math.round(FIT_LAG_TIME / samplePeriod));
+        this.samples = new double[historySize];
+        this.minAmplitude = minAmplitude;
+        this.maxResidual = maxResidual;
+    }
+
+    /**
+     * @param time  The time of the sample (s)
+     * @param angle The swing angle (degrees)
+     */
+    public void addSample(double time, double angle) {
+        samples[nextSample] = angle;
+        nextSample = (nextSample + 1) % samples.length;
+        if (sampleCount < samples.length) sampleCount++;
+        lastSampleTime = time;
+    }
+
+    /**
+     * Copies the samples from another estimator with the same history size. The other estimator's samples can be copied while
+     * they're locked, and this one fit afterwards without holding the lock.
+     *
+     * @return If the samples changed since the last copy, which means the estimator needs to be fit again
+     */
+    public boolean copySamplesFrom(@NotNull SwingEstimator other) {
+        if (other.samples.length != samples.length) {
+            throw new IllegalArgumentException("Can't copy " + other.samples.length + " samples into a history of "
+                    + samples.length);
+        }
+        if (other.sampleCount == sampleCount && other.nextSample == nextSample
+                && Double.compare(other.lastSampleTime, lastSampleTime) == 0) {
+            return false;
+        }
+        System.arraycopy(other.samples, 0, samples, 0, samples.length);
+        sampleCount = other.sampleCount;
+        nextSample = other.nextSample;
+        lastSampleTime = other.lastSampleTime;
+        return true;
+    }
+
+    /**
+     * Forgets all the samples
+     */
+    public void reset() {
+        sampleCount = 0;
+        nextSample = 0;
+        valid = false;
+    }
+
+    /**
+     * @param i 0 is the oldest sample
+     */
+    private double getSample(int i) {
+        return samples[(nextSample - sampleCount + i + samples.length) % samples.length];
+    }
+
+    /**
+     * Fits the pendulum model to the samples.
+     *
+     * @return If the fit can be used to predict the swing
+     */
+    public boolean fit() {
+        valid = false;
+        if (sampleCount < samples.length || sampleCount <= 2 * fitLag) return false;
+
+        // Center the samples so the least squares problem is well conditioned
+        double mean = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            mean += getSample(i);
+        }
+        mean /= sampleCount;
+
+        // Normal equations for x[k] = p1 * x[k-d] + p2 * x[k-2d] + c
+        double s11 = 0, s12 = 0, s1 = 0, s22 = 0, s2 = 0, n = 0;
+        double t1 = 0, t2 = 0, t0 = 0;
+        for (int k = 2 * fitLag; k < sampleCount; k++) {
+            double x0 = getSample(k) - mean;
+            double x1 = getSample(k - fitLag) - mean;
+            double x2 = getSample(k - 2 * fitLag) - mean;
+            s11 += x1 * x1;
+            s12 += x1 * x2;
+            s1 += x1;
+            s22 += x2 * x2;
+            s2 += x2;
+            n++;
+            t1 += x1 * x0;
+            t2 += x2 * x0;
+            t0 += x0;
+        }
+
+        double det = s11 * (s22 * n - s2 * s2) - s12 * (s12 * n - s2 * s1) + s1 * (s12 * s2 - s22 * s1);
+        if (Math.abs(det) < 1.0E-12) return false;
+        double p1 = (t1 * (s22 * n - s2 * s2) - s12 * (t2 * n - s2 * t0) + s1 * (t2 * s2 - s22 * t0)) / det;
+        double p2 = (s11 * (t2 * n - s2 * t0) - t1 * (s12 * n - s2 * s1) + s1 * (s12 * t0 - t2 * s1)) / det;
+        double c = (s11 * (s22 * t0 - t2 * s2) - s12 * (s12 * t0 - t2 * s1) + t1 * (s12 * s2 - s22 * s1)) / det;
+
+        // The poles have to be complex for the samples to be oscillating
+        if (p2 >= 0 || p1 * p1 + 4 * p2 >= 0) return false;
+        double r = Math.sqrt(-p2);
+        frequency = Math.acos(p1 / (2 * r)) / (fitLag * samplePeriod);
+        damping = -Math.log(r) / (fitLag * samplePeriod);
+        equilibrium = mean + c / (1 - p1 - p2);
+
+        // Fit x(t) = e^(-damping * t) * (a * cos(frequency * t) - b * sin(frequency * t)) with t = 0 at the newest sample
+        double cc = 0, cs = 0, ss = 0, cx = 0, sx = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            double t = (i - (sampleCount - 1)) * samplePeriod;
+            double envelope = Math.exp(-damping * t);
+            double cos = envelope * Math.cos(frequency * t);
+            double sin = -envelope * Math.sin(frequency * t);
+            double x = getSample(i) - equilibrium;
+            cc += cos * cos;
+            cs += cos * sin;
+            ss += sin * sin;
+            cx += cos * x;
+            sx += sin * x;
+        }
+        double amplitudeDet = cc * ss - cs * cs;
+        if (Math.abs(amplitudeDet) < 1.0E-12) return false;
+        double a = (cx * ss - sx * cs) / amplitudeDet;
+        double b = (sx * cc - cx * cs) / amplitudeDet;
+        amplitude = Math.hypot(a, b);
+        phase = Math.atan2(b, a);
+
+        double squaredError = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            double error = getSample(i) - getAngleAtOffset((i - (sampleCount - 1)) * samplePeriod);
+            squaredError += error * error;
+        }
+        residual = Math.sqrt(squaredError / sampleCount);
+
+        valid = amplitude >= minAmplitude && residual <= maxResidual;
+        return valid;
+    }
+
+    /**
+     * @param t Time after the newest sample (s)
+     */
+    private double getAngleAtOffset(double t) {
+        return equilibrium + amplitude * Math.exp(-damping * t) * Math.cos(frequency * t + phase);
+    }
+
+    /**
+     * @param t Time after the newest sample (s)
+     */
+    private double getVelocityAtOffset(double t) {
+        return -amplitude * Math.exp(-damping * t)
+                * (damping * Math.cos(frequency * t + phase) + frequency * Math.sin(frequency * t + phase));
+    }
+
+    /**
+     * @return The predicted angle at the time (degrees)
+     */
+    @Contract(pure = true)
+    public double predictAngle(double time) {
+        return getAngleAtOffset(time - lastSampleTime);
+    }
+
+    /**
+     * @return The predicted angular velocity at the time (degrees/s)
+     */
+    @Contract(pure = true)
+    public double predictVelocity(double time) {
+        return getVelocityAtOffset(time - lastSampleTime);
+    }
+
+    /**
+     * Finds the next time the swing passes through an angle while the angle is decreasing.
+     *
+     * @param time  The current time (s)
+     * @param angle The angle to cross (degrees)
+     * @return The time from now until the crossing (s). Infinity if the swing isn't predicted to reach the angle in the next
+     * period or there isn't a valid fit.
+     */
+    @Contract(pure = true)
+    public double getTimeUntilFallingCrossing(double time, double angle) {
+        if (!valid) return Double.POSITIVE_INFINITY;
+
+        double start = time - lastSampleTime;
+        double step = 2 * Math.PI / frequency / CROSSING_SEARCH_STEPS;
+        double previous = getAngleAtOffset(start) - angle;
+        for (int i = 1; i <= CROSSING_SEARCH_STEPS; i++) {
+            double t = start + i * step;
+            double current = getAngleAtOffset(t) - angle;
+            if (previous > 0 && current <= 0) {
+                double low = t - step;
+                double high = t;
+                for (int j = 0; j < CROSSING_BISECTION_ITERATIONS; j++) {
+                    double mid = (low + high) / 2;
+                    if (getAngleAtOffset(mid) - angle > 0) {
+                        low = mid;
+                    } else {
+                        high = mid;
+                    }
+                }
+                return (low + high) / 2 - start;
+            }
+            previous = current;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return If the last fit can be used
+     */
+    @Contract(pure = true)
+    public boolean isValid() {
+        return valid;
+    }
+
+    @Contract(pure = true)
+    public double getEquilibrium() {
+        return equilibrium;
+    }
+
+    /**
+     * @return The amplitude of the swing at the newest sample (degrees)
+     */
+    @Contract(pure = true)
+    public double getAmplitude() {
+        return amplitude;
+    }
+
+    /**
+     * @return The phase of the swing at the newest sample (rad)
+     */
+    @Contract(pure = true)
+    public double getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return The damped angular frequency of the swing (rad/s)
+     */
+    @Contract(pure = true)
+    public double getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * @return The exponential decay rate of the amplitude (1/s)
+     */
+    @Contract(pure = true)
+    public double getDamping() {
+        return damping;
+    }
+
+    /**
+     * @return The RMS error between the samples and the last fit (degrees)
+     */
+    @Contract(pure = true)
+    public double getResidual() {
+        return residual;
+    }
+}
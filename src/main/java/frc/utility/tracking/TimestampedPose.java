@@ -1,12 +1,20 @@
 package frc.utility.tracking;
 
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 
 public final class TimestampedPose implements Comparable<TimestampedPose> {
+    private static final Pose2d ZERO_POSE = new Pose2d();
+
     public final double timestamp;
     public final @NotNull Pose2d pose;
 
@@ -33,4 +41,43 @@ public final class TimestampedPose implements Comparable<TimestampedPose> {
     public int compareTo(@NotNull TimestampedPose o) {
         return Double.compare(timestamp, o.timestamp);
     }
+
+    /**
+     * @param poseHistory    The poses to interpolate between, oldest first
+     * @param positionOffset Offset from the vision measurements that is added to the pose
+     * @return The pose at the given time. Empty if the time is older than the oldest pose in the history.
+     */
+    public static @NotNull Optional<Pose2d> getPoseAtTime(@NotNull Collection<TimestampedPose> poseHistory,
+                                                          @NotNull Translation2d positionOffset, double timestampSeconds) {
+        List<TimestampedPose> timestampedPoses = poseHistory.stream().collect(Collectors.toUnmodifiableList());
+        int index = Collections.binarySearch(timestampedPoses, new TimestampedPose(timestampSeconds, ZERO_POSE));
+
+        if (index < 0) { //Convert the binary search index into an actual index
+            index = -(index + 1);
+        }
+
+        if (timestampedPoses.isEmpty()) {
+            return Optional.empty();
+        }
+
+        if (timestampedPoses.get(0).timestamp >= timestampSeconds) {
+            // If the vision data is older than our oldest pose in our history, we have to throw out the vision data
+            return Optional.empty();
+        } else if (timestampedPoses.get(timestampedPoses.size() - 1).timestamp < timestampSeconds) {
+            // The vision data is newer than our newest pose. Assume that they happen at the same time
+            Pose2d rawPose = timestampedPoses.get(index - 1).pose;
+            Translation2d adjustedTranslation = rawPose.getTranslation().plus(positionOffset);
+            return Optional.of(new Pose2d(adjustedTranslation, rawPose.getRotation()));
+        } else {
+            // The vision data is somewhere in between poses in history. Interpolate between values to get the pose
+            // that lines up with vision
+            double percentIn = (timestampSeconds - timestampedPoses.get(index - 1).timestamp) /
+                    (timestampedPoses.get(index).timestamp - timestampedPoses.get(index - 1).timestamp);
+
+            Pose2d rawPose = timestampedPoses.get(index - 1).pose
+                    .interpolate(timestampedPoses.get(index).pose, percentIn);
+            Translation2d adjustedTranslation = rawPose.getTranslation().plus(positionOffset);
+            return Optional.of(new Pose2d(adjustedTranslation, rawPose.getRotation()));
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package frc.utility.trajectory;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Follows a {@link SampledTrajectory} with a swerve drive using the full path feed-forward (velocity, tangential acceleration and
+ * centripetal acceleration from the curvature) and a proportional correction on the position error.
+ * <p>
+ * Two different points on the path are used:
+ * <ul>
+ *     <li>The correction reference is sampled at the time the pose was measured, so odometry latency doesn't show up as
+ *     following error.</li>
+ *     <li>The feed-forward reference is sampled at the time the command is expected to take effect (now + actuator latency), so
+ *     the motors are told what the path wants when they can actually respond.</li>
+ * </ul>
+ * All outputs are robot relative and written into reused fields, so calling {@link #calculate} does not allocate.
+ */
+public final class FeedForwardHolonomicFollower {
+
+    private final double translationP;
+    private final double headingP;
+    private final double maxAngularVelocity;
+    private final double maxAngularAcceleration;
+
+    private final @NotNull SampledTrajectory.Sample correctionReference = new SampledTrajectory.Sample();
+    private final @NotNull SampledTrajectory.Sample feedForwardReference = new SampledTrajectory.Sample();
+
+    private final @NotNull ChassisSpeeds chassisSpeeds = new ChassisSpeeds();
+    private double accelerationX;
+    private double accelerationY;
+
+    private double alongTrackError;
+    private double crossTrackError;
+    private double headingError;
+
+    /**
+     * @param translationP           Proportional gain on the field relative position error (1/s)
+     * @param headingP               Proportional gain on the heading error (1/s)
+     * @param maxAngularVelocity     Max angular velocity the heading correction can request (rad/s)
+     * @param maxAngularAcceleration Max angular acceleration used to slow down before reaching the target heading (rad/s^2)
+     */
+    public FeedForwardHolonomicFollower(double translationP, double headingP, double maxAngularVelocity,
+                                        double maxAngularAcceleration) {
+        this.translationP = translationP;
+        this.headingP = headingP;
+        this.maxAngularVelocity = maxAngularVelocity;
+        this.maxAngularAcceleration = maxAngularAcceleration;
+    }
+
+    /**
+     * Calculates the next command. Read the results with {@link #getChassisSpeeds()}, {@link #getAccelerationX()} and
+     * {@link #getAccelerationY()}.
+     *
+     * @param trajectory          The trajectory to follow
+     * @param poseTime            The trajectory time at which {@code pose} was measured (s)
+     * @param pose                The measured pose of the robot
+     * @param commandTime         The trajectory time at which the command will take effect (s)
+     * @param targetAngleRadians  The angle the robot should face (rad)
+     */
+    public void calculate(@NotNull SampledTrajectory trajectory, double poseTime, @NotNull Pose2d pose, double commandTime,
+                          double targetAngleRadians) {
+        trajectory.sample(poseTime, correctionReference);
+        trajectory.sample(commandTime, feedForwardReference);
+
+        double robotAngle = pose.getRotation().getRadians();
+
+        // Following error, split into the components along and across the path
+        double errorX = correctionReference.x - pose.getX();
+        double errorY = correctionReference.y - pose.getY();
+        double pathCos = Math.cos(correctionReference.heading);
+        double pathSin = Math.sin(correctionReference.heading);
+        alongTrackError = errorX * pathCos + errorY * pathSin;
+        crossTrackError = -errorX * pathSin + errorY * pathCos;
+
+        // Field relative feed-forward
+        double heading = feedForwardReference.heading;
+        double velocity = feedForwardReference.velocity;
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double centripetalAcceleration = velocity * velocity * feedForwardReference.curvature;
+
+        double fieldVelocityX = velocity * cos + translationP * errorX;
+        double fieldVelocityY = velocity * sin + translationP * errorY;
+        double fieldAccelerationX = feedForwardReference.acceleration * cos - centripetalAcceleration * sin;
+        double fieldAccelerationY = feedForwardReference.acceleration * sin + centripetalAcceleration * cos;
+
+        // Heading correction. Limit the speed so that we can still stop at the target with the allowed acceleration.
+        headingError = MathUtil.angleModulus(targetAngleRadians - robotAngle);
+        double absHeadingError = Math.abs(headingError);
+        double omega = Math.min(headingP * absHeadingError,
+                Math.min(Math.sqrt(2 * maxAngularAcceleration * absHeadingError), maxAngularVelocity));
+        omega = Math.copySign(omega, headingError);
+
+        // Rotate into the frame the robot will be in when the command is applied
+        double predictedAngle = robotAngle + omega * (commandTime - poseTime);
+        double robotCos = Math.cos(predictedAngle);
+        double robotSin = Math.sin(predictedAngle);
+
+        chassisSpeeds.vxMetersPerSecond = fieldVelocityX * robotCos + fieldVelocityY * robotSin;
+        chassisSpeeds.vyMetersPerSecond = -fieldVelocityX * robotSin + fieldVelocityY * robotCos;
+        chassisSpeeds.omegaRadiansPerSecond = omega;
+
+        accelerationX = fieldAccelerationX * robotCos + fieldAccelerationY * robotSin;
+        accelerationY = -fieldAccelerationX * robotSin + fieldAccelerationY * robotCos;
+    }
+
+    /**
+     * @return The robot relative speeds to command. This object is reused between calls.
+     */
+    @Contract(pure = true)
+    public @NotNull ChassisSpeeds getChassisSpeeds() {
+        return chassisSpeeds;
+    }
+
+    /**
+     * @return The robot relative feed-forward acceleration in the x direction (m/s^2)
+     */
+    @Contract(pure = true)
+    public double getAccelerationX() {
+        return accelerationX;
+    }
+
+    /**
+     * @return The robot relative feed-forward acceleration in the y direction (m/s^2)
+     */
+    @Contract(pure = true)
+    public double getAccelerationY() {
+        return accelerationY;
+    }
+
+    /**
+     * @return How far the robot is behind (positive) or ahead (negative) of the path (m)
+     */
+    @Contract(pure = true)
+    public double getAlongTrackError() {
+        return alongTrackError;
+    }
+
+    /**
+     * @return How far the robot is to the right (positive) or left (negative) of the path (m)
+     */
+    @Contract(pure = true)
+    public double getCrossTrackError() {
+        return crossTrackError;
+    }
+
+    /**
+     * @return The error between the target angle and the robot angle (rad)
+     */
+    @Contract(pure = true)
+    public double getHeadingError() {
+        return headingError;
+    }
+
+    /**
+     * @param translationTolerance The allowed position error (m)
+     * @param headingTolerance     The allowed heading error (rad)
+     * @return True if the robot is within tolerance of the reference
+     */
+    @Contract(pure = true)
+    public boolean atReference(double translationTolerance, double headingTolerance) {
+        return Math.hypot(alongTrackError, crossTrackError) < translationTolerance && Math.abs(headingError) < headingTolerance;
+    }
+
+    /**
+     * @param elapsedTime          Time since the start of the trajectory (s)
+     * @param totalTime            The duration of the trajectory (s)
+     * @param settleTimeout        How long to wait past the end of the trajectory for the robot to reach the end (s)
+     * @param translationTolerance The allowed position error (m)
+     * @param headingTolerance     The allowed heading error (rad)
+     * @return True if the trajectory is over and the robot is at the end of it, or if the settle timeout has passed
+     */
+    @Contract(pure = true)
+    public boolean isFinished(double elapsedTime, double totalTime, double settleTimeout, double translationTolerance,
+                              double headingTolerance) {
+        if (elapsedTime < totalTime) return false;
+        return elapsedTime >= totalTime + settleTimeout || atReference(translationTolerance, headingTolerance);
+    }
+}
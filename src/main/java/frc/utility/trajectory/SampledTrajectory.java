@@ -0,0 +1,176 @@
+package frc.utility.trajectory;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.trajectory.Trajectory;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link Trajectory} that has been resampled at a fixed time step into primitive arrays.
+ * <p>
+ * {@link Trajectory#sample(double)} binary searches the state list and allocates a new {@link Trajectory.State} (and its
+ * {@link edu.wpi.first.math.geometry.Pose2d}) on every call. This class does that work once when the path is loaded, so that
+ * sampling is a constant time index lookup plus a linear interpolation that writes into a reusable {@link Sample}.
+ */
+public final class SampledTrajectory {
+
+    /**
+     * A mutable trajectory sample. Reuse one instance per caller to keep sampling allocation free.
+     */
+    public static final class Sample {
+        /**
+         * Time since the start of the trajectory (s)
+         */
+        public double time;
+
+        /**
+         * Field relative position (m)
+         */
+        public double x, y;
+
+        /**
+         * Direction of travel, continuous (not wrapped to +-pi) so it can be interpolated (rad)
+         */
+        public double heading;
+
+        /**
+         * Speed along the path (m/s)
+         */
+        public double velocity;
+
+        /**
+         * Acceleration along the path (m/s^2)
+         */
+        public double acceleration;
+
+        /**
+         * Curvature of the path (rad/m)
+         */
+        public double curvature;
+
+        /**
+         * @return The field relative x velocity (m/s)
+         */
+        public double getVelocityX() {
+            return velocity * Math.cos(heading);
+        }
+
+        /**
+         * @return The field relative y velocity (m/s)
+         */
+        public double getVelocityY() {
+            return velocity * Math.sin(heading);
+        }
+    }
+
+    private final double dt;
+    private final double totalTime;
+    private final int length;
+
+    private final double @NotNull [] x;
+    private final double @NotNull [] y;
+    private final double @NotNull [] heading;
+    private final double @NotNull [] velocity;
+    private final double @NotNull [] acceleration;
+    private final double @NotNull [] curvature;
+
+    /**
+     * @param trajectory The trajectory to resample
+     * @param dt         The time between samples (s)
+     */
+    public SampledTrajectory(@NotNull Trajectory trajectory, double dt) {
+        if (dt <= 0) {
+            throw new IllegalArgumentException("dt must be positive");
+        }
+        this.dt = dt;
+        this.totalTime = trajectory.getTotalTimeSeconds();
+        // +1 for the sample at t = 0 and +1 so that the last sample is at or past the end of the trajectory
+        this.length = (int) Math.ceil(totalTime / dt) + 1;
+
+        x = new double[length];
+        y = new double[length];
+        heading = new double[length];
+        velocity = new double[length];
+        acceleration = new double[length];
+        curvature = new double[length];
+
+        for (int i = 0; i < length; i++) {
+            Trajectory.State state = trajectory.sample(Math.min(i * dt, totalTime));
+            x[i] = state.poseMeters.getX();
+            y[i] = state.poseMeters.getY();
+            velocity[i] = state.velocityMetersPerSecond;
+            acceleration[i] = state.accelerationMetersPerSecondSq;
+            curvature[i] = state.curvatureRadPerMeter;
+
+            double rawHeading = state.poseMeters.getRotation().getRadians();
+            if (i == 0) {
+                heading[i] = rawHeading;
+            } else {
+                // Unwrap the heading so that interpolating across +-pi doesn't spin the other way around
+                heading[i] = heading[i - 1] + MathUtil.angleModulus(rawHeading - heading[i - 1]);
+            }
+        }
+    }
+
+    /**
+     * Samples the trajectory at the given time. Times outside the trajectory are clamped to the first or last state.
+     *
+     * @param t   Time since the start of the trajectory (s)
+     * @param out The sample to write into
+     * @return {@code out}
+     */
+    @Contract(value = "_, _ -> param2", mutates = "param2")
+    public @NotNull Sample sample(double t, @NotNull Sample out) {
+        out.time = t;
+
+        if (t <= 0) {
+            write(0, 0, 0, out);
+            return out;
+        }
+
+        if (t >= totalTime) {
+            write(length - 1, length - 1, 0, out);
+            return out;
+        }
+
+        double index = t / dt;
+        int lower = (int) index;
+        int upper = Math.min(lower + 1, length - 1);
+        write(lower, upper, index - lower, out);
+        return out;
+    }
+
+    private void write(int lower, int upper, double alpha, @NotNull Sample out) {
+        out.x = lerp(x, lower, upper, alpha);
+        out.y = lerp(y, lower, upper, alpha);
+        out.heading = lerp(heading, lower, upper, alpha);
+        out.velocity = lerp(velocity, lower, upper, alpha);
+        out.acceleration = lerp(acceleration, lower, upper, alpha);
+        out.curvature = lerp(curvature, lower, upper, alpha);
+    }
+
+    private static double lerp(double @NotNull [] values, int lower, int upper, double alpha) {
+        return values[lower] + (values[upper] - values[lower]) * alpha;
+    }
+
+    /**
+     * @return The duration of the trajectory (s)
+     */
+    public double getTotalTimeSeconds() {
+        return totalTime;
+    }
+
+    /**
+     * @return The time between samples (s)
+     */
+    public double getSamplePeriod() {
+        return dt;
+    }
+
+    /**
+     * @return The number of precomputed samples
+     */
+    public int getLength() {
+        return length;
+    }
+}
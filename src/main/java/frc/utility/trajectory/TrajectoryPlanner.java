@@ -0,0 +1,175 @@
+package frc.utility.trajectory;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import edu.wpi.first.math.trajectory.constraint.CentripetalAccelerationConstraint;
+import edu.wpi.first.math.trajectory.constraint.SwerveDriveKinematicsConstraint;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates trajectories at runtime from the robot's current state to a target position.
+ * <p>
+ * The path is a single quintic spline that leaves in the direction the robot is already moving (so the current velocity
+ * doesn't have to be killed first) and arrives heading straight at the target. WPILib's time parameterization makes the
+ * trajectory as fast as possible along that path given the velocity, acceleration and module speed constraints. If the straight
+ * line to the target passes through a circular keep out zone (ex. the hub) a waypoint is added beside it, so the path goes
+ * around it. With two or three waypoints this takes around a millisecond, so it can be called repeatedly to replan while the
+ * robot is driving.
+ */
+public final class TrajectoryPlanner {
+
+    /**
+     * Below this speed the robot is considered stopped and the path will start by heading straight for the target (m/s)
+     */
+    private static final double MIN_START_SPEED = 0.25;
+
+    private TrajectoryPlanner() {}
+
+    /**
+     * @param start           The current position of the robot (the rotation is ignored)
+     * @param velocityX       The current field relative x velocity of the robot (m/s)
+     * @param velocityY       The current field relative y velocity of the robot (m/s)
+     * @param target          The position to drive to
+     * @param maxVelocity     The max velocity along the path (m/s)
+     * @param maxAcceleration The max acceleration of the robot (m/s^2)
+     * @param kinematics      The kinematics of the drivebase
+     * @param maxModuleSpeed  The max speed of a single module (m/s)
+     * @param minDistance     If the robot is closer than this to the target no trajectory is generated (m)
+     * @param obstacleCenter  The center of a zone to drive around. Null if there is nothing in the way.
+     * @param obstacleRadius  How close the center of the robot can get to {@code obstacleCenter} (m)
+     * @return A trajectory that ends at the target, or null if the robot is already there
+     */
+    @Contract(pure = true)
+    public static @Nullable Trajectory planToPosition(@NotNull Pose2d start, double velocityX, double velocityY,
+                                                      @NotNull Translation2d target, double maxVelocity,
+                                                      double maxAcceleration, @NotNull SwerveDriveKinematics kinematics,
+                                                      double maxModuleSpeed, double minDistance,
+                                                      @Nullable Translation2d obstacleCenter, double obstacleRadius) {
+        Translation2d startTranslation = start.getTranslation();
+        double deltaX = target.getX() - startTranslation.getX();
+        double deltaY = target.getY() - startTranslation.getY();
+        double distance = Math.hypot(deltaX, deltaY);
+        if (distance < minDistance) {
+            return null;
+        }
+
+        Rotation2d directionToTarget = new Rotation2d(deltaX, deltaY);
+        Rotation2d startHeading = directionToTarget;
+        double startVelocity = 0;
+
+        double speed = Math.hypot(velocityX, velocityY);
+        // Only carry the current velocity into the path if we're moving towards the target. Otherwise, the spline would have to
+        // loop around to turn back, and it's faster to let the acceleration limiter slow us down.
+        if (speed > MIN_START_SPEED && velocityX * deltaX + velocityY * deltaY > 0) {
+            startHeading = new Rotation2d(velocityX, velocityY);
+            startVelocity = Math.min(speed, maxVelocity);
+        }
+
+        TrajectoryConfig config = new TrajectoryConfig(maxVelocity, maxAcceleration)
+                .setStartVelocity(startVelocity)
+                .setEndVelocity(0)
+                .addConstraint(new SwerveDriveKinematicsConstraint(kinematics, maxModuleSpeed))
+                .addConstraint(new CentripetalAccelerationConstraint(maxAcceleration));
+
+        List<Pose2d> waypoints = new ArrayList<>(3);
+        waypoints.add(new Pose2d(startTranslation, startHeading));
+        Rotation2d endHeading = directionToTarget;
+        if (obstacleCenter != null) {
+            Translation2d detour = getDetour(startTranslation, target, obstacleCenter, obstacleRadius);
+            if (detour != null) {
+                // Pass the obstacle parallel to the straight line, then head for the target
+                waypoints.add(new Pose2d(detour, directionToTarget));
+                endHeading = new Rotation2d(target.getX() - detour.getX(), target.getY() - detour.getY());
+            }
+        }
+        waypoints.add(new Pose2d(target, endHeading));
+
+        return TrajectoryGenerator.generateTrajectory(waypoints, config);
+    }
+
+    /**
+     * Extra distance beyond the obstacle radius to put the detour waypoint at, so the spline doesn't clip the edge of the
+     * obstacle on the way to and from the waypoint
+     */
+    private static final double DETOUR_MARGIN = 1.25;
+
+    /**
+     * @return A point beside the obstacle to drive through, or null if the straight line from the start to the target doesn't
+     * go through the obstacle (or if the start or target are inside it, in which case there's no way around)
+     */
+    @Contract(pure = true)
+    private static @Nullable Translation2d getDetour(@NotNull Translation2d start, @NotNull Translation2d target,
+                                                     @NotNull Translation2d obstacleCenter, double obstacleRadius) {
+        if (start.getDistance(obstacleCenter) < obstacleRadius || target.getDistance(obstacleCenter) < obstacleRadius) {
+            return null;
+        }
+
+        // Closest point on the line to the center of the obstacle
+        double deltaX = target.getX() - start.getX();
+        double deltaY = target.getY() - start.getY();
+        double t = ((obstacleCenter.getX() - start.getX()) * deltaX + (obstacleCenter.getY() - start.getY()) * deltaY)
+                / (deltaX * deltaX + deltaY * deltaY);
+        t = Math.max(0, Math.min(1, t));
+        double offsetX = start.getX() + deltaX * t - obstacleCenter.getX();
+        double offsetY = start.getY() + deltaY * t - obstacleCenter.getY();
+        double offset = Math.hypot(offsetX, offsetY);
+        if (offset >= obstacleRadius) {
+            return null;
+        }
+
+        if (offset < 1.0E-6) {
+            // Going straight through the center, go around the left side
+            offsetX = -deltaY;
+            offsetY = deltaX;
+            offset = Math.hypot(offsetX, offsetY);
+        }
+        double detourDistance = obstacleRadius * DETOUR_MARGIN;
+        return new Translation2d(obstacleCenter.getX() + offsetX * detourDistance / offset,
+                obstacleCenter.getY() + offsetY * detourDistance / offset);
+    }
+
+    /**
+     * Moves a pose into another frame, given the pose of the robot in both frames. Used to move field relative targets into
+     * the odometry frame that the path follower uses.
+     *
+     * @param pose          The pose to move
+     * @param robotPose     The pose of the robot in the same frame as {@code pose}
+     * @param robotNewFrame The pose of the robot in the new frame
+     * @return {@code pose} in the new frame
+     */
+    @Contract(pure = true)
+    public static @NotNull Pose2d changeFrame(@NotNull Pose2d pose, @NotNull Pose2d robotPose, @NotNull Pose2d robotNewFrame) {
+        Rotation2d frameRotation = robotNewFrame.getRotation().minus(robotPose.getRotation());
+        Translation2d relativeToRobot = pose.getTranslation().minus(robotPose.getTranslation()).rotateBy(frameRotation);
+        return new Pose2d(robotNewFrame.getTranslation().plus(relativeToRobot), pose.getRotation().plus(frameRotation));
+    }
+
+    /**
+     * @param position The current position of the robot
+     * @param center   The center of the ring
+     * @param radius   The radius of the ring
+     * @return The closest point on the ring to the robot
+     */
+    @Contract(pure = true)
+    public static @NotNull Translation2d closestPointOnRing(@NotNull Translation2d position, @NotNull Translation2d center,
+                                                            double radius) {
+        double deltaX = position.getX() - center.getX();
+        double deltaY = position.getY() - center.getY();
+        double distance = Math.hypot(deltaX, deltaY);
+        if (distance < 1.0E-6) {
+            // We're on top of the center, any point works
+            return new Translation2d(center.getX() + radius, center.getY());
+        }
+        return new Translation2d(center.getX() + deltaX * radius / distance, center.getY() + deltaY * radius / distance);
+    }
+}
@@ -0,0 +1,165 @@
+package frc.utility.vision;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import static frc.robot.Constants.*;
+
+/**
+ * Tracks a ball seen by a camera along one axis (ex. the vertical offset from the intake limelight) with a constant velocity
+ * Kalman filter, so we can predict when it will get somewhere.
+ * <p>
+ * The limelight only reports one target per frame, so only one ball is tracked at a time. A detection that is too far from where
+ * the current ball should be, or that comes after the current ball hasn't been seen for a while, starts a new track.
+ */
+public final class BallTracker {
+    /**
+     * Variance of the velocity of a new track. Large since we don't know which way the ball is going yet.
+     */
+    private static final double INITIAL_VELOCITY_VARIANCE = 1.0E4;
+
+    private final double measurementVariance;
+    private final double accelerationVariance;
+    private final double newTrackThreshold;
+    private final double trackTimeout;
+
+    private boolean hasTrack = false;
+    private int trackCount = 0;
+    private double lastDetectionTime;
+
+    // State and covariance at lastDetectionTime
+    private double position, velocity;
+    private double p00, p01, p11;
+
+    /**
+     * @param measurementStdDev  Standard deviation of a detection
+     * @param accelerationStdDev Standard deviation of the ball's acceleration (units/s^2)
+     * @param newTrackThreshold  A detection that is more than this many standard deviations from where the ball should be starts a
+     *                           new track
+     * @param trackTimeout       How long a track is kept without any detections (s)
+     */
+    public BallTracker(double measurementStdDev, double accelerationStdDev, double newTrackThreshold, double trackTimeout) {
+        this.measurementVariance = measurementStdDev * measurementStdDev;
+        this.accelerationVariance = accelerationStdDev * accelerationStdDev;
+        this.newTrackThreshold = newTrackThreshold;
+        this.trackTimeout = trackTimeout;
+    }
+
+    /**
+     * @return A tracker for opposing balls seen by the intake limelight, built from the constants. Used by both the hopper and
+     * its replay so they always match.
+     */
+    public static @NotNull BallTracker forIntakeLimelight() {
+        return new BallTracker(INTAKE_BALL_TRACKER_MEASUREMENT_STD_DEV, INTAKE_BALL_TRACKER_ACCELERATION_STD_DEV,
+                INTAKE_BALL_TRACKER_NEW_TRACK_THRESHOLD, INTAKE_BALL_TRACKER_TIMEOUT);
+    }
+
+    /**
+     * @param time     The time the ball was seen (s)
+     * @param position Where the ball was seen
+     */
+    public void addDetection(double time, double position) {
+        double dt = time - lastDetectionTime;
+        if (!hasTrack || dt > trackTimeout || dt < 0) {
+            startTrack(time, position);
+            return;
+        }
+
+        // Predict
+        double dt2 = dt * dt;
+        double predictedPosition = this.position + velocity * dt;
+        double q00 = accelerationVariance * dt2 * dt2 / 4;
+        double q01 = accelerationVariance * dt2 * dt / 2;
+        double q11 = accelerationVariance * dt2;
+        double pp00 = p00 + 2 * dt * p01 + dt2 * p11 + q00;
+        double pp01 = p01 + dt * p11 + q01;
+        double pp11 = p11 + q11;
+
+        double innovation = position - predictedPosition;
+        double innovationVariance = pp00 + measurementVariance;
+        if (innovation * innovation > newTrackThreshold * newTrackThreshold * innovationVariance) {
+            startTrack(time, position);
+            return;
+        }
+
+        // Update
+        double k0 = pp00 / innovationVariance;
+        double k1 = pp01 / innovationVariance;
+        this.position = predictedPosition + k0 * innovation;
+        velocity += k1 * innovation;
+        p00 = (1 - k0) * pp00;
+        p01 = (1 - k0) * pp01;
+        p11 = pp11 - k1 * pp01;
+        lastDetectionTime = time;
+    }
+
+    private void startTrack(double time, double position) {
+        hasTrack = true;
+        trackCount++;
+        lastDetectionTime = time;
+        this.position = position;
+        velocity = 0;
+        p00 = measurementVariance;
+        p01 = 0;
+        p11 = INITIAL_VELOCITY_VARIANCE;
+    }
+
+    /**
+     * Drops the current track
+     */
+    public void reset() {
+        hasTrack = false;
+    }
+
+    /**
+     * @return If a ball has been seen within the timeout
+     */
+    @Contract(pure = true)
+    public boolean hasTrack(double time) {
+        return hasTrack && time - lastDetectionTime <= trackTimeout;
+    }
+
+    /**
+     * @return Where the ball should be at the time
+     */
+    @Contract(pure = true)
+    public double getPosition(double time) {
+        return position + velocity * (time - lastDetectionTime);
+    }
+
+    @Contract(pure = true)
+    public double getVelocity() {
+        return velocity;
+    }
+
+    /**
+     * @return The variance of the velocity estimate
+     */
+    @Contract(pure = true)
+    public double getVelocityVariance() {
+        return p11;
+    }
+
+    /**
+     * @param time      The current time (s)
+     * @param threshold The position to reach
+     * @return How long until the ball is below the threshold. Infinity if there isn't a track, the ball isn't moving towards it, or
+     * the ball has already passed it, so that a ball that's already there isn't predicted again until the track times out.
+     */
+    @Contract(pure = true)
+    public double getTimeUntilBelow(double time, double threshold) {
+        if (!hasTrack(time)) return Double.POSITIVE_INFINITY;
+        double currentPosition = getPosition(time);
+        if (currentPosition < threshold) return Double.POSITIVE_INFINITY;
+        if (velocity >= 0) return Double.POSITIVE_INFINITY;
+        return (threshold - currentPosition) / velocity;
+    }
+
+    /**
+     * @return The number of tracks that have been started. About the number of balls that have been seen.
+     */
+    @Contract(pure = true)
+    public int getTrackCount() {
+        return trackCount;
+    }
+}
@@ -0,0 +1,113 @@
+package frc.utility.vision;
+
+import frc.utility.geometry.MutableTranslation2d;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Projects a pixel in the limelight image onto the plane of the vision tape and returns where that point is relative to the
+ * robot.
+ * <p>
+ * The inverse camera matrix (intrinsics) and the camera rotation (extrinsics) are multiplied together once in the constructor, so
+ * a projection is a 3x3 matrix multiply, a division, and a square root. Create a new instance when the calibration changes.
+ * <p>
+ * Pixels are in a 320x240 image with y going up, the same as the limelight's crosshair (see
+ * {@link frc.utility.LimelightFrame#getTargetPixelY()}). Corners from the limelight have y going down and need to be flipped
+ * first.
+ */
+public final class CameraProjection {
+
+    /**
+     * cameraRotation * cameraMatrixInverse, row major
+     */
+    private final double m00, m01, m02;
+    private final double m10, m11, m12;
+    private final double m20, m21, m22;
+
+    private final double targetHeight;
+    private final double depthOffset;
+    private final double centerOffsetX, centerOffsetZ;
+
+    /**
+     * @param cameraMatrixInverse Inverse of the camera intrinsics matrix, row major (9 elements)
+     * @param cameraRotation      Rotation from the camera to the robot, row major (9 elements)
+     * @param targetHeight        Height of the vision tape above the camera
+     * @param depthOffset         Distance from the vision tape to the center of the goal
+     * @param centerOffsetX       Offset from the camera to the center of the robot (right)
+     * @param centerOffsetZ       Offset from the camera to the center of the robot (forward)
+     */
+    public CameraProjection(double @NotNull [] cameraMatrixInverse, double @NotNull [] cameraRotation, double targetHeight,
+                            double depthOffset, double centerOffsetX, double centerOffsetZ) {
+        double[] m = new double[9];
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                double sum = 0;
+                for (int i = 0; i < 3; i++) {
+                    sum += cameraRotation[row * 3 + i] * cameraMatrixInverse[i * 3 + col];
+                }
+                m[row * 3 + col] = sum;
+            }
+        }
+        m00 = m[0];
+        m01 = m[1];
+        m02 = m[2];
+        m10 = m[3];
+        m11 = m[4];
+        m12 = m[5];
+        m20 = m[6];
+        m21 = m[7];
+        m22 = m[8];
+
+        this.targetHeight = targetHeight;
+        this.depthOffset = depthOffset;
+        this.centerOffsetX = centerOffsetX;
+        this.centerOffsetZ = centerOffsetZ;
+    }
+
+    /**
+     * @param px  The x position of the target in the image (pixels)
+     * @param py  The y position of the target in the image (pixels)
+     * @param out Set to the position of the center of the goal relative to the robot. x is to the right and y is forward.
+     * @return {@code out}
+     */
+    @Contract("_, _, _ -> param3")
+    public @NotNull MutableTranslation2d project(double px, double py, @NotNull MutableTranslation2d out) {
+        // Direction from the camera to the target, relative to the robot
+        double dirX = m00 * px + m01 * py + m02;
+        double dirY = m10 * px + m11 * py + m12;
+        double dirZ = m20 * px + m21 * py + m22;
+
+        // Scale the direction so that it reaches the height of the tape
+        double k = targetHeight / dirY;
+        double x = dirX * k;
+        double z = dirZ * k;
+
+        // Move from the tape to the center of the goal, along the direction we're looking
+        double horizontalNorm = Math.hypot(dirX, dirZ);
+        return out.set(
+                x + centerOffsetX + dirX / horizontalNorm * depthOffset,
+                z + centerOffsetZ + dirZ / horizontalNorm * depthOffset
+        );
+    }
+
+    /**
+     * Finds where a point in the image is, if we know how high it is. Unlike {@link #project}, this doesn't move the point to the
+     * center of the goal.
+     *
+     * @param px     The x position of the point in the image (pixels)
+     * @param py     The y position of the point in the image (pixels)
+     * @param height The height of the point above the camera
+     * @param out    Set to the position of the point relative to the robot. x is to the right and y is forward.
+     * @return {@code out}
+     */
+    @Contract("_, _, _, _ -> param4")
+    public @NotNull MutableTranslation2d projectToHeight(double px, double py, double height,
+                                                         @NotNull MutableTranslation2d out) {
+        double dirX = m00 * px + m01 * py + m02;
+        double dirY = m10 * px + m11 * py + m12;
+        double dirZ = m20 * px + m21 * py + m22;
+
+        double k = height / dirY;
+        return out.set(dirX * k + centerOffsetX, dirZ * k + centerOffsetZ);
+    }
+}
@@ -0,0 +1,94 @@
+package frc.utility.vision;
+
+import org.jetbrains.annotations.Contract;
+
+/**
+ * Decides when the limelight should use its high resolution pipeline.
+ * <p>
+ * Far away, the target is only a few pixels tall, so the extra resolution makes the corners much more accurate. Up close, the low
+ * resolution is accurate enough and has less latency. If the high resolution pipeline is too slow, we go back to low resolution
+ * and stay there for a while even if we're far away.
+ * <p>
+ * Switching pipelines takes a few frames, so there is a minimum time between switches and a hysteresis band around the switching
+ * distance to keep it from going back and forth.
+ */
+public final class ResolutionSelector {
+    /**
+     * How much of each new latency measurement goes into the filtered latency
+     */
+    private static final double LATENCY_FILTER_GAIN = 0.2;
+
+    private final double highResolutionDistance;
+    private final double hysteresis;
+    private final double maxHighResolutionLatency;
+    private final double minSwitchInterval;
+    private final double latencyLockoutTime;
+
+    private boolean highResolution = false;
+    private double lastSwitchTime = Double.NEGATIVE_INFINITY;
+    private double lockedOutUntil = Double.NEGATIVE_INFINITY;
+    private double filteredLatency = Double.NaN;
+
+    /**
+     * @param highResolutionDistance   Use high resolution when the target is farther than this
+     * @param hysteresis               Go back to low resolution once the target is closer than {@code highResolutionDistance}
+     *                                 minus this
+     * @param maxHighResolutionLatency Go back to low resolution if the filtered high resolution latency is more than this (ms)
+     * @param minSwitchInterval        The shortest time between switches (s)
+     * @param latencyLockoutTime       How long to stay in low resolution after the latency was too high (s)
+     */
+    public ResolutionSelector(double highResolutionDistance, double hysteresis, double maxHighResolutionLatency,
+                              double minSwitchInterval, double latencyLockoutTime) {
+        this.highResolutionDistance = highResolutionDistance;
+        this.hysteresis = hysteresis;
+        this.maxHighResolutionLatency = maxHighResolutionLatency;
+        this.minSwitchInterval = minSwitchInterval;
+        this.latencyLockoutTime = latencyLockoutTime;
+    }
+
+    /**
+     * @param time     The current time (s)
+     * @param distance The distance to the target
+     * @param latency  The pipeline latency of the latest frame (ms). Should come from a frame taken with the resolution that
+     *                 {@link #isHighResolution()} returned before this call.
+     * @return If the high resolution pipeline should be used
+     */
+    public boolean update(double time, double distance, double latency) {
+        filteredLatency = Double.isNaN(filteredLatency) ? latency
+                : filteredLatency + (latency - filteredLatency) * LATENCY_FILTER_GAIN;
+
+        if (time - lastSwitchTime < minSwitchInterval) return highResolution;
+
+        if (highResolution) {
+            if (filteredLatency > maxHighResolutionLatency) {
+                lockedOutUntil = time + latencyLockoutTime;
+                switchResolution(time);
+            } else if (distance < highResolutionDistance - hysteresis) {
+                switchResolution(time);
+            }
+        } else if (distance > highResolutionDistance && time >= lockedOutUntil) {
+            switchResolution(time);
+        }
+        return highResolution;
+    }
+
+    private void switchResolution(double time) {
+        highResolution = !highResolution;
+        lastSwitchTime = time;
+        // The latency of the other pipeline doesn't tell us anything about this one
+        filteredLatency = Double.NaN;
+    }
+
+    @Contract(pure = true)
+    public boolean isHighResolution() {
+        return highResolution;
+    }
+
+    /**
+     * @return The filtered pipeline latency since the last switch (ms). NaN if there haven't been any frames since then.
+     */
+    @Contract(pure = true)
+    public double getFilteredLatency() {
+        return filteredLatency;
+    }
+}
@@ -0,0 +1,254 @@
+package frc.utility.vision;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Random;
+
+/**
+ * Finds the center of the goal from the corners of the vision tape.
+ * <p>
+ * The tape is on a ring of known radius around the center of the goal, so after the corners are projected onto the floor plane,
+ * the center is the point whose distance to every corner is closest to the radius. This is solved with weighted Gauss-Newton
+ * starting from an initial guess (ex. from the crosshair). Corners that are farther away should be given less weight since a
+ * pixel of error moves them further.
+ * <p>
+ * The covariance of the center comes from the fit, so it gets larger when there are fewer corners, when they are noisier, or
+ * when they only cover a small part of the ring.
+ * <p>
+ * Corners that don't belong to the ring (reflections, lights, other robots' tape) can be removed first with
+ * {@link #rejectOutliers}, which runs RANSAC using the fact that two points and the radius are enough to place the ring.
+ * <p>
+ * Points are stored in preallocated arrays, so a solver can be reused every frame without allocating.
+ */
+public final class TargetRingSolver {
+    private static final int MAX_ITERATIONS = 20;
+    private static final double CONVERGENCE_THRESHOLD = 1.0E-6;
+
+    private final double radius;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] weights;
+    private final boolean[] inliers;
+    private int count = 0;
+    private int inlierCount = 0;
+
+    /**
+     * Seeded so that replaying the same frames gives the same results
+     */
+    private final @NotNull Random random = new Random(3476);
+
+    private double centerX, centerY;
+    private double covarianceXX, covarianceXY, covarianceYY;
+    private double rmsResidual;
+
+    /**
+     * @param radius    The radius of the ring of tape
+     * @param maxPoints The most points that will be added before solving
+     */
+    public TargetRingSolver(double radius, int maxPoints) {
+        this.radius = radius;
+        xs = new double[maxPoints];
+        ys = new double[maxPoints];
+        weights = new double[maxPoints];
+        inliers = new boolean[maxPoints];
+    }
+
+    /**
+     * Removes all the points
+     */
+    public void reset() {
+        count = 0;
+        inlierCount = 0;
+    }
+
+    /**
+     * @param weight 1 / variance of the point. Points past {@code maxPoints} are ignored.
+     */
+    public void addPoint(double x, double y, double weight) {
+        if (count >= xs.length) return;
+        xs[count] = x;
+        ys[count] = y;
+        weights[count] = weight;
+        inliers[count] = true;
+        count++;
+        inlierCount++;
+    }
+
+    /**
+     * Marks the points that don't fit on a ring as outliers so that {@link #solve} ignores them. Every iteration places a ring
+     * through two random points and counts how many other points are on it. The ring with the most points wins.
+     *
+     * @param initialX          A guess for the x position of the center. Picks between the two rings through a pair of points.
+     * @param initialY          A guess for the y position of the center. Picks between the two rings through a pair of points.
+     * @param inlierThreshold   How far a point can be from the ring and still be on it
+     * @param iterations        The number of pairs of points to try
+     * @return The number of points that were marked as outliers
+     */
+    public int rejectOutliers(double initialX, double initialY, double inlierThreshold, int iterations) {
+        if (count < 3) return 0;
+
+        double bestX = 0, bestY = 0;
+        int bestInliers = 0;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            int a = random.nextInt(count);
+            int b = random.nextInt(count - 1);
+            if (b >= a) b++;
+
+            // Center of a ring through both points: go to the midpoint, then along the perpendicular
+            double chordX = xs[b] - xs[a];
+            double chordY = ys[b] - ys[a];
+            double halfChord = Math.hypot(chordX, chordY) / 2;
+            if (halfChord > radius || halfChord < 1.0E-9) continue;
+            double offset = Math.sqrt(radius * radius - halfChord * halfChord) / (2 * halfChord);
+            double midX = (xs[a] + xs[b]) / 2;
+            double midY = (ys[a] + ys[b]) / 2;
+
+            double cx1 = midX - chordY * offset;
+            double cy1 = midY + chordX * offset;
+            double cx2 = midX + chordY * offset;
+            double cy2 = midY - chordX * offset;
+            boolean useFirst = Math.hypot(cx1 - initialX, cy1 - initialY) < Math.hypot(cx2 - initialX, cy2 - initialY);
+            double cx = useFirst ? cx1 : cx2;
+            double cy = useFirst ? cy1 : cy2;
+
+            int pointsOnRing = 0;
+            for (int i = 0; i < count; i++) {
+                if (Math.abs(Math.hypot(xs[i] - cx, ys[i] - cy) - radius) < inlierThreshold) {
+                    pointsOnRing++;
+                }
+            }
+            if (pointsOnRing > bestInliers) {
+                bestInliers = pointsOnRing;
+                bestX = cx;
+                bestY = cy;
+            }
+        }
+
+        // Don't throw away everything if no ring fit
+        if (bestInliers < 3) return 0;
+
+        inlierCount = 0;
+        for (int i = 0; i < count; i++) {
+            inliers[i] = Math.abs(Math.hypot(xs[i] - bestX, ys[i] - bestY) - radius) < inlierThreshold;
+            if (inliers[i]) inlierCount++;
+        }
+        return count - inlierCount;
+    }
+
+    /**
+     * @param initialX A guess for the x position of the center. Should be on the far side of the points.
+     * @param initialY A guess for the y position of the center. Should be on the far side of the points.
+     * @return If a center was found. Needs at least 3 points that aren't all in the same direction from the center.
+     */
+    public boolean solve(double initialX, double initialY) {
+        if (inlierCount < 3) return false;
+
+        double cx = initialX;
+        double cy = initialY;
+        double axx = 0, axy = 0, ayy = 0;
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            axx = 0;
+            axy = 0;
+            ayy = 0;
+            double bx = 0, by = 0;
+            for (int i = 0; i < count; i++) {
+                if (!inliers[i]) continue;
+                double dx = xs[i] - cx;
+                double dy = ys[i] - cy;
+                double distance = Math.hypot(dx, dy);
+                if (distance < 1.0E-9) continue;
+                double ux = dx / distance;
+                double uy = dy / distance;
+                double residual = distance - radius;
+                double w = weights[i];
+
+                // The jacobian of the residual is -u, so the normal equations are (sum w u u^T) delta = sum w r u
+                axx += w * ux * ux;
+                axy += w * ux * uy;
+                ayy += w * uy * uy;
+                bx += w * residual * ux;
+                by += w * residual * uy;
+            }
+
+            double determinant = axx * ayy - axy * axy;
+            if (!(Math.abs(determinant) > 1.0E-12 * (axx + ayy) * (axx + ayy))) return false;
+
+            double deltaX = (ayy * bx - axy * by) / determinant;
+            double deltaY = (axx * by - axy * bx) / determinant;
+            cx += deltaX;
+            cy += deltaY;
+            if (!Double.isFinite(cx) || !Double.isFinite(cy)) return false;
+
+            if (Math.hypot(deltaX, deltaY) < CONVERGENCE_THRESHOLD) break;
+        }
+
+        double weightedSquaredError = 0;
+        double squaredError = 0;
+        for (int i = 0; i < count; i++) {
+            if (!inliers[i]) continue;
+            double residual = Math.hypot(xs[i] - cx, ys[i] - cy) - radius;
+            weightedSquaredError += weights[i] * residual * residual;
+            squaredError += residual * residual;
+        }
+
+        // If the points are noisier than their weights say, make the covariance bigger to match
+        double scale = Math.max(1, weightedSquaredError / (inlierCount - 2));
+        double determinant = axx * ayy - axy * axy;
+        covarianceXX = ayy / determinant * scale;
+        covarianceXY = -axy / determinant * scale;
+        covarianceYY = axx / determinant * scale;
+
+        centerX = cx;
+        centerY = cy;
+        rmsResidual = Math.sqrt(squaredError / inlierCount);
+        return true;
+    }
+
+    @Contract(pure = true)
+    public int getPointCount() {
+        return count;
+    }
+
+    /**
+     * @return The number of points that will be used by {@link #solve}
+     */
+    @Contract(pure = true)
+    public int getInlierCount() {
+        return inlierCount;
+    }
+
+    @Contract(pure = true)
+    public double getCenterX() {
+        return centerX;
+    }
+
+    @Contract(pure = true)
+    public double getCenterY() {
+        return centerY;
+    }
+
+    @Contract(pure = true)
+    public double getCovarianceXX() {
+        return covarianceXX;
+    }
+
+    @Contract(pure = true)
+    public double getCovarianceXY() {
+        return covarianceXY;
+    }
+
+    @Contract(pure = true)
+    public double getCovarianceYY() {
+        return covarianceYY;
+    }
+
+    /**
+     * @return The root mean square distance of the points from the fitted ring
+     */
+    @Contract(pure = true)
+    public double getRmsResidual() {
+        return rmsResidual;
+    }
+}
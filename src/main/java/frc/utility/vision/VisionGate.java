@@ -0,0 +1,167 @@
+package frc.utility.vision;
+
+import edu.wpi.first.math.util.Units;
+import frc.utility.LimelightFrame;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Decides which vision frames are good enough to add to the robot tracker.
+ * <p>
+ * Frames first go through {@link #checkFrame}, which doesn't need any math, so that bad frames are thrown away before doing any
+ * work on them. Once the position is calculated, {@link #checkPosition} compares it with where the robot tracker thinks we are.
+ * The tracker's uncertainty grows the longer it's been since vision was last used, so we can't get stuck rejecting vision after
+ * the odometry drifts.
+ */
+public final class VisionGate {
+
+    /**
+     * Reasons a frame can be thrown away. They're counted so that the checks can be tuned from logs.
+     */
+    public enum Rejection {
+        NO_TARGET("No target visible", false),
+        CORNERS_TOUCHING_EDGE("Corners touching edge", false),
+        WRONG_CORNER_COUNT("Wrong number of corners", true),
+        NO_POSE_HISTORY("Frame is older than the pose history", false),
+        TOO_FAR_FROM_EXPECTED("Position is too far from expected", true);
+
+        public final @NotNull String name;
+        public final @NotNull String countKey;
+
+        /**
+         * If this should count as bad vision instead of just not seeing the target
+         */
+        public final boolean badVision;
+
+        Rejection(@NotNull String name, boolean badVision) {
+            this.name = name;
+            this.countKey = "Vision Rejections " + name;
+            this.badVision = badVision;
+        }
+    }
+
+    private final int minCorners;
+    private final int maxCorners;
+    private final double trackerStdDev;
+    private final double trackerDriftRate;
+    private final double maxDistanceSquared;
+
+    /**
+     * The time of the last frame that was added to the robot tracker. NaN until the first frame passes the gate.
+     */
+    private double lastAcceptedTime = Double.NaN;
+    private double lastDistanceSquared = 0;
+
+    /**
+     * @param minCorners         Frames with fewer corners than this are thrown away
+     * @param maxCorners         Frames with more corners than this are thrown away
+     * @param trackerStdDev      Standard deviation of the robot tracker's position right after a vision update (meters)
+     * @param trackerDriftRate   How fast the robot tracker's standard deviation grows while vision isn't being used (meters/s)
+     * @param maxDistanceSquared Positions with a squared Mahalanobis distance larger than this are thrown away
+     */
+    public VisionGate(int minCorners, int maxCorners, double trackerStdDev, double trackerDriftRate,
+                      double maxDistanceSquared) {
+        this.minCorners = minCorners;
+        this.maxCorners = maxCorners;
+        this.trackerStdDev = trackerStdDev;
+        this.trackerDriftRate = trackerDriftRate;
+        this.maxDistanceSquared = maxDistanceSquared;
+    }
+
+    /**
+     * @return Why the frame should be thrown away, or null if it's fine
+     */
+    @Contract(pure = true)
+    public @Nullable Rejection checkFrame(@NotNull LimelightFrame frame) {
+        if (!frame.targetVisible) return Rejection.NO_TARGET;
+        if (frame.areCornersTouchingEdge()) return Rejection.CORNERS_TOUCHING_EDGE;
+        int cornerCount = frame.getCornerCount();
+        if (cornerCount < minCorners || cornerCount > maxCorners) return Rejection.WRONG_CORNER_COUNT;
+        return null;
+    }
+
+    /**
+     * Compares the vision position with where the robot tracker thought we were when the frame was taken. The first frame that
+     * gets here starts the clock for the tracker's drift, even if it isn't added to the tracker, so that frames from before
+     * vision is used (like in auto) are still gated.
+     *
+     * @param hasExpectedPosition If the robot tracker had a pose for the time of the frame
+     * @param errorX              The vision position minus the tracker position (meters)
+     * @param errorY              The vision position minus the tracker position (meters)
+     * @param gyroAngle           The angle of the robot when the frame was taken (radians)
+     * @param time                The time the frame was taken
+     * @param covarianceXX        Covariance of the goal relative to the robot (in^2)
+     * @param covarianceXY        Covariance of the goal relative to the robot (in^2)
+     * @param covarianceYY        Covariance of the goal relative to the robot (in^2)
+     * @return Why the frame should be thrown away, or null if it's fine
+     */
+    public @Nullable Rejection checkPosition(boolean hasExpectedPosition, double errorX, double errorY, double gyroAngle,
+                                             double time, double covarianceXX, double covarianceXY, double covarianceYY) {
+        if (!hasExpectedPosition) return Rejection.NO_POSE_HISTORY;
+
+        if (Double.isNaN(lastAcceptedTime)) {
+            // Nothing to compare against yet
+            lastDistanceSquared = 0;
+            lastAcceptedTime = time;
+            return null;
+        }
+
+        lastDistanceSquared = getMahalanobisDistanceSquared(errorX, errorY, gyroAngle, time,
+                covarianceXX, covarianceXY, covarianceYY);
+        if (lastDistanceSquared > maxDistanceSquared) return Rejection.TOO_FAR_FROM_EXPECTED;
+        return null;
+    }
+
+    /**
+     * Call when a frame that passed the gate is added to the robot tracker
+     *
+     * @param time The time the frame was taken
+     */
+    public void onMeasurementUsed(double time) {
+        lastAcceptedTime = time;
+    }
+
+    /**
+     * @return The squared Mahalanobis distance from the last call to {@link #checkPosition}
+     */
+    @Contract(pure = true)
+    public double getLastDistanceSquared() {
+        return lastDistanceSquared;
+    }
+
+    /**
+     * @return The time of the last frame that was added to the robot tracker, or NaN if no frame has passed the gate yet
+     */
+    @Contract(pure = true)
+    public double getLastAcceptedTime() {
+        return lastAcceptedTime;
+    }
+
+    /**
+     * How many standard deviations the vision position is from where the robot tracker thinks we are. Only valid once
+     * {@link #lastAcceptedTime} is set.
+     *
+     * @return The squared Mahalanobis distance
+     */
+    @Contract(pure = true)
+    private double getMahalanobisDistanceSquared(double errorX, double errorY, double gyroAngle, double time,
+                                                 double covarianceXX, double covarianceXY, double covarianceYY) {
+        // Rotate the covariance into the field frame. This is the jacobian of VisionManager.getVisionTranslation() with
+        // respect to the goal position relative to the robot.
+        double sin = Math.sin(gyroAngle);
+        double cos = Math.cos(gyroAngle);
+        double inchesToMetersSquared = Units.inchesToMeters(1) * Units.inchesToMeters(1);
+        double xx = (sin * sin * covarianceXX + 2 * sin * cos * covarianceXY + cos * cos * covarianceYY) * inchesToMetersSquared;
+        double xy = (-sin * cos * covarianceXX + (sin * sin - cos * cos) * covarianceXY + sin * cos * covarianceYY)
+                * inchesToMetersSquared;
+        double yy = (cos * cos * covarianceXX - 2 * sin * cos * covarianceXY + sin * sin * covarianceYY) * inchesToMetersSquared;
+
+        double stdDev = trackerStdDev + trackerDriftRate * Math.max(0, time - lastAcceptedTime);
+        xx += stdDev * stdDev;
+        yy += stdDev * stdDev;
+
+        double determinant = xx * yy - xy * xy;
+        return (yy * errorX * errorX - 2 * xy * errorX * errorY + xx * errorY * errorY) / determinant;
+    }
+}
@@ -4,6 +4,7 @@
 
 package frc.utility.wpimodified;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.geometry.Pose2d;
@@ -23,8 +24,9 @@ import edu.wpi.first.math.trajectory.Trajectory;
  */
 @SuppressWarnings("MemberName")
 public class HolonomicDriveController {
-  private Pose2d m_poseError = new Pose2d();
-  private Rotation2d m_rotationError = new Rotation2d();
+  private double m_xError;
+  private double m_yError;
+  private double m_rotationErrorRadians;
   private Pose2d m_poseTolerance = new Pose2d();
   private boolean m_enabled = true;
 
@@ -55,13 +57,11 @@ public class HolonomicDriveController {
    * @return True if the pose error is within tolerance of the reference.
    */
   public boolean atReference() {
-    final var eTranslate = m_poseError.getTranslation();
-    final var eRotate = m_rotationError;
     final var tolTranslate = m_poseTolerance.getTranslation();
     final var tolRotate = m_poseTolerance.getRotation();
-    return Math.abs(eTranslate.getX()) < tolTranslate.getX()
-            && Math.abs(eTranslate.getY()) < tolTranslate.getY()
-            && Math.abs(eRotate.getRadians()) < tolRotate.getRadians();
+    return Math.abs(m_xError) < tolTranslate.getX()
+            && Math.abs(m_yError) < tolTranslate.getY()
+            && Math.abs(m_rotationErrorRadians) < tolRotate.getRadians();
   }
 
   /**
@@ -99,8 +99,10 @@ public class HolonomicDriveController {
     double thetaFF =
             m_thetaController.calculate(currentPose.getRotation().getRadians(), angleRef.getRadians());
 
-    m_poseError = correctionRef.relativeTo(currentPose);
-    m_rotationError = angleRef.minus(currentPose.getRotation());
+    Pose2d poseError = correctionRef.relativeTo(currentPose);
+    m_xError = poseError.getX();
+    m_yError = poseError.getY();
+    m_rotationErrorRadians = angleRef.minus(currentPose.getRotation()).getRadians();
 
     if (!m_enabled) {
       return ChassisSpeeds.fromFieldRelativeSpeeds(xFF, yFF, thetaFF, currentPose.getRotation());
@@ -144,6 +146,51 @@ public class HolonomicDriveController {
             currentPose, desiredState.poseMeters, correctionState.poseMeters, desiredState.velocityMetersPerSecond, angleRef);
   }
 
+  /**
+   * Returns the next output of the holonomic drive controller. Unlike the other overloads this doesn't allocate any intermediate
+   * poses, so it is the one to use with a {@link frc.utility.trajectory.SampledTrajectory}.
+   *
+   * @param currentPose      The current pose.
+   * @param xRef             The desired field-relative x position (m).
+   * @param yRef             The desired field-relative y position (m).
+   * @param headingRef       The desired direction of travel (rad).
+   * @param velocityRef      The linear velocity reference (m/s).
+   * @param angleRefRadians  The desired robot angle (rad).
+   * @return The next output of the holonomic drive controller.
+   */
+  @SuppressWarnings("LocalVariableName")
+  public ChassisSpeeds calculate(
+          Pose2d currentPose, double xRef, double yRef, double headingRef, double velocityRef, double angleRefRadians) {
+    double currentAngle = currentPose.getRotation().getRadians();
+    if (m_firstRun) {
+      m_thetaController.reset(currentAngle);
+      m_firstRun = false;
+    }
+
+    double xFF = velocityRef * Math.cos(headingRef);
+    double yFF = velocityRef * Math.sin(headingRef);
+    double thetaFF = m_thetaController.calculate(currentAngle, angleRefRadians);
+
+    // Pose error in the robot's frame, same as correctionRef.relativeTo(currentPose)
+    double cos = currentPose.getRotation().getCos();
+    double sin = currentPose.getRotation().getSin();
+    double dx = xRef - currentPose.getX();
+    double dy = yRef - currentPose.getY();
+    m_xError = dx * cos + dy * sin;
+    m_yError = -dx * sin + dy * cos;
+    m_rotationErrorRadians = MathUtil.angleModulus(angleRefRadians - currentAngle);
+
+    double vx = xFF;
+    double vy = yFF;
+    if (m_enabled) {
+      vx += m_xController.calculate(currentPose.getX(), xRef);
+      vy += m_yController.calculate(currentPose.getY(), yRef);
+    }
+
+    // Same as ChassisSpeeds.fromFieldRelativeSpeeds, without the intermediate objects
+    return new ChassisSpeeds(vx * cos + vy * sin, -vx * sin + vy * cos, thetaFF);
+  }
+
   /**
    * Enables and disables the controller for troubleshooting problems. When calculate() is called on a disabled controller, only
    * feedforward values are returned.
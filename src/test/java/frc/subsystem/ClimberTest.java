@@ -30,6 +30,6 @@ public class ClimberTest {
         WPIUtilJNI.setMockTime((long) (1000.0d * 1.0e+9));
         System.out.println("test\n");
         System.out.println(Climber.getInstance().getClimbState());
-        System.out.println(Climber.getInstance().getClimbState().climbStep.waitCondition.apply(Climber.getInstance()));
+        System.out.println(Climber.getInstance().isPaused());
     }
 }
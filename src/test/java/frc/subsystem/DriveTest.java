@@ -1,6 +1,5 @@
 package frc.subsystem;
 
-import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.util.WPIUtilJNI;
 import frc.robot.Constants;
@@ -10,7 +9,6 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
-import java.lang.reflect.Field;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -39,18 +37,13 @@ public class DriveTest {
     }
 
     @Disabled
-    void testStopMovement1() throws NoSuchFieldException, IllegalAccessException {
-        Field lastRequestedVelocity = Drive.class.getDeclaredField("lastRequestedVelocity");
-        lastRequestedVelocity.setAccessible(true);
-        lastRequestedVelocity.set(drive, new Translation2d());
-
-        Field lastRequestedRotation = Drive.class.getDeclaredField("lastRequestedRotation");
-        lastRequestedRotation.setAccessible(true);
-        lastRequestedRotation.set(drive, 0.0);
+    void testStopMovement1() {
+        drive.motionLimiter.reset(0, 0, 0);
 
         WPIUtilJNI.enableMockTime();
         WPIUtilJNI.setMockTime((long) (55.0d * 1.0e+9));
         drive.swerveDrive(new ChassisSpeeds(1, 1, 0.0));
+        drive.update();
         for (LazyTalonFX swerveDriveMotor : drive.swerveDriveMotors) {
             assertNotEquals(0.0, swerveDriveMotor.getSetpoint(), DELTA);
         }
@@ -70,21 +63,17 @@ public class DriveTest {
      * Test that the acceleration limit is working
      */
     @Test
-    void testStopMovement2() throws NoSuchFieldException, IllegalAccessException {
-        Field lastRequestedVelocity = Drive.class.getDeclaredField("lastRequestedVelocity");
-        lastRequestedVelocity.setAccessible(true);
-        lastRequestedVelocity.set(drive, new Translation2d(10, 10));
-
-        Field lastRequestedRotation = Drive.class.getDeclaredField("lastRequestedRotation");
-        lastRequestedRotation.setAccessible(true);
-        lastRequestedRotation.set(drive, 0.0);
+    void testStopMovement2() {
+        drive.motionLimiter.reset(10, 10, 0);
 
         WPIUtilJNI.enableMockTime();
         WPIUtilJNI.setMockTime((long) (54.9d * 1.0e+9));
         drive.swerveDrive(new ChassisSpeeds(10, 10, 0.0));
+        drive.update();
 
         WPIUtilJNI.setMockTime((long) (55.0d * 1.0e+9));
         drive.swerveDrive(new ChassisSpeeds(10, 10, 0.0));
+        drive.update();
         for (LazyTalonFX swerveDriveMotor : drive.swerveDriveMotors) {
             assertNotEquals(0.0, swerveDriveMotor.getSetpoint(), DELTA);
         }
@@ -103,21 +92,17 @@ public class DriveTest {
      * Test that the acceleration limit is working
      */
     @Disabled
-    void testStopMovement3() throws NoSuchFieldException, IllegalAccessException {
-        Field lastRequestedVelocity = Drive.class.getDeclaredField("lastRequestedVelocity");
-        lastRequestedVelocity.setAccessible(true);
-        lastRequestedVelocity.set(drive, new Translation2d(0.2, 0.2));
-
-        Field lastRequestedRotation = Drive.class.getDeclaredField("lastRequestedRotation");
-        lastRequestedRotation.setAccessible(true);
-        lastRequestedRotation.set(drive, 0.0);
+    void testStopMovement3() {
+        drive.motionLimiter.reset(0.2, 0.2, 0);
 
         WPIUtilJNI.enableMockTime();
         WPIUtilJNI.setMockTime((long) (54.9d * 1.0e+9));
         drive.swerveDrive(new ChassisSpeeds(0.2, 0.2, 0.0));
+        drive.update();
 
         WPIUtilJNI.setMockTime((long) (55.0d * 1.0e+9));
         drive.swerveDrive(new ChassisSpeeds(0.2, 0.2, 0.0));
+        drive.update();
         for (LazyTalonFX swerveDriveMotor : drive.swerveDriveMotors) {
             assertNotEquals(0.0, swerveDriveMotor.getSetpoint(), DELTA);
         }
@@ -0,0 +1,42 @@
+package frc.utility;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.utility.DriveCommand.Priority;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DriveCommandTest {
+    public static final double HOLD_TIME = 0.1;
+
+    @Test
+    void lowerPriorityWaitsForHoldTime() {
+        DriveCommand aiming = DriveCommand.ofHeading(0, 0, false, 1, 0, 4, 0.1, Priority.AIMING, 1);
+        DriveCommand driver = DriveCommand.ofChassisSpeeds(new ChassisSpeeds(1, 0, 0), Priority.DRIVER, 1.05);
+        assertFalse(driver.supersedes(aiming, HOLD_TIME));
+        assertTrue(DriveCommand.ofChassisSpeeds(new ChassisSpeeds(), Priority.DRIVER, 1.2).supersedes(aiming, HOLD_TIME));
+    }
+
+    @Test
+    void releaseReplacesReleasedPriority() {
+        DriveCommand aiming = DriveCommand.ofHeading(0, 0, false, 1, 0, 4, 0.1, Priority.AIMING, 1);
+        DriveCommand release = DriveCommand.ofRelease(Priority.AIMING, 1.01);
+        assertTrue(release.supersedes(aiming, HOLD_TIME));
+        assertTrue(release.isChassisSpeeds());
+        assertFalse(release.hasHeadingGoal());
+    }
+
+    @Test
+    void releaseDoesNotReplaceHigherPriority() {
+        DriveCommand climber = DriveCommand.ofChassisSpeeds(new ChassisSpeeds(), Priority.CLIMBER, 1);
+        assertFalse(DriveCommand.ofRelease(Priority.AIMING, 1.01).supersedes(climber, HOLD_TIME));
+    }
+
+    @Test
+    void newAimingCommandReplacesRelease() {
+        DriveCommand release = DriveCommand.ofRelease(Priority.AIMING, 1);
+        DriveCommand aiming = DriveCommand.ofHeading(0, 0, false, 1, 0, 4, 0.1, Priority.AIMING, 1.01);
+        assertTrue(aiming.supersedes(release, HOLD_TIME));
+    }
+}
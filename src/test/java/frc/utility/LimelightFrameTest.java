@@ -0,0 +1,152 @@
+package frc.utility;
+
+import frc.utility.Limelight.LimelightResolution;
+import frc.utility.geometry.MutableTranslation2d;
+import frc.utility.vision.CameraProjection;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimelightFrameTest {
+    public static final double DELTA = 1.0E-6;
+
+    private static final double[] CAMERA_MATRIX_INVERSE = {
+            0.00392173, 0, -0.6274771,
+            0, 0.00389782, -0.46773827,
+            0, 0, 1
+    };
+
+    private static final double ANGLE = Math.toRadians(-34.5);
+    private static final double[] ROTATION = {
+            1, 0, 0,
+            0, Math.cos(ANGLE), -Math.sin(ANGLE),
+            0, Math.sin(ANGLE), Math.cos(ANGLE)
+    };
+
+    private static final double CENTER_OFFSET_Z = 18;
+
+    /**
+     * Where a point relative to the robot shows up in a 320x240 image with y going up, like the crosshair
+     *
+     * @return {x, y} (pixels)
+     */
+    private static double[] toImage(double x, double height, double forward) {
+        double pointX = x;
+        double pointY = height;
+        double pointZ = forward - CENTER_OFFSET_Z;
+
+        // Robot to camera is the transpose of the camera rotation
+        double camX = ROTATION[0] * pointX + ROTATION[3] * pointY + ROTATION[6] * pointZ;
+        double camY = ROTATION[1] * pointX + ROTATION[4] * pointY + ROTATION[7] * pointZ;
+        double camZ = ROTATION[2] * pointX + ROTATION[5] * pointY + ROTATION[8] * pointZ;
+        return new double[]{
+                (camX / camZ - CAMERA_MATRIX_INVERSE[2]) / CAMERA_MATRIX_INVERSE[0],
+                (camY / camZ - CAMERA_MATRIX_INVERSE[5]) / CAMERA_MATRIX_INVERSE[4]
+        };
+    }
+
+    private static LimelightFrame frame(double horizontalOffset, double verticalOffset, double[] corners) {
+        return new LimelightFrame(1, 22, 0, LimelightResolution.k320x240, true, horizontalOffset, verticalOffset, 0.5, -10,
+                corners);
+    }
+
+    @Test
+    void cornersAreCopied() {
+        double[] corners = {10, 20, 30, 40};
+        LimelightFrame frame = frame(0, 0, corners);
+
+        // Network tables could reuse the array for the next frame
+        corners[0] = 100;
+        corners[3] = 100;
+
+        assertEquals(2, frame.getCornerCount());
+        assertEquals(10, frame.getCornerX(0), DELTA);
+        assertEquals(20, frame.getCornerY(0), DELTA);
+        assertEquals(30, frame.getCornerX(1), DELTA);
+        assertEquals(40, frame.getCornerY(1), DELTA);
+    }
+
+    @Test
+    void cornersAsVectors() {
+        LimelightFrame frame = frame(0, 0, new double[]{10, 20, 30, 40, 50, 60});
+        assertEquals(3, frame.getCorners().length);
+        assertEquals(50, frame.getCorners()[2].x, DELTA);
+        assertEquals(60, frame.getCorners()[2].y, DELTA);
+        assertEquals(0, LimelightFrame.EMPTY.getCornerCount());
+    }
+
+    @Test
+    void targetPixelsFromOffsets() {
+        // Centered on the crosshair
+        assertEquals(160, frame(0, 0, new double[0]).getTargetPixelX(), DELTA);
+        assertEquals(120, frame(0, 0, new double[0]).getTargetPixelY(), DELTA);
+
+        // At the edges of the field of view
+        assertEquals(320, frame(29.8, 24.85, new double[0]).getTargetPixelX(), DELTA);
+        assertEquals(240, frame(29.8, 24.85, new double[0]).getTargetPixelY(), DELTA);
+        assertEquals(0, frame(-29.8, -24.85, new double[0]).getTargetPixelX(), DELTA);
+        assertEquals(0, frame(-29.8, -24.85, new double[0]).getTargetPixelY(), DELTA);
+    }
+
+    @Test
+    void cornerProjectsBackToTarget() {
+        CameraProjection projection = new CameraProjection(CAMERA_MATRIX_INVERSE, ROTATION, 59.75, 14, 0, CENTER_OFFSET_Z);
+
+        // A corner of the tape 10 in to the right, 120 in ahead, and level with the tape, with another corner 2 in above it
+        double[] image = toImage(10, 59.75, 120);
+        double[] higherImage = toImage(10, 61.75, 120);
+        // The limelight sends the corners of a 960x720 pipeline with y going down
+        LimelightFrame frame = new LimelightFrame(1, 22, 0, LimelightResolution.k960x720, true,
+                (image[0] - 160) / 160 * 29.8, (image[1] - 120) / 120 * 24.85, 0.5, -10,
+                new double[]{image[0] * 3, (240 - image[1]) * 3, higherImage[0] * 3, (240 - higherImage[1]) * 3});
+
+        // The higher corner is nearer the top of the image
+        assertTrue(frame.getCornerY(1) < frame.getCornerY(0));
+
+        // Corners come out the same way as the crosshair
+        assertEquals(frame.getTargetPixelX(), frame.getCornerPixelX(0), DELTA);
+        assertEquals(frame.getTargetPixelY(), frame.getCornerPixelY(0), DELTA);
+
+        MutableTranslation2d corner = projection.projectToHeight(frame.getCornerPixelX(0), frame.getCornerPixelY(0), 59.75,
+                new MutableTranslation2d());
+        assertEquals(10, corner.getX(), DELTA);
+        assertEquals(120, corner.getY(), DELTA);
+
+        projection.projectToHeight(frame.getCornerPixelX(1), frame.getCornerPixelY(1), 61.75, corner);
+        assertEquals(10, corner.getX(), DELTA);
+        assertEquals(120, corner.getY(), DELTA);
+    }
+
+    @Test
+    void fullSubscriberDropsOldestFrame() {
+        BlockingQueue<LimelightFrame> subscriber = new ArrayBlockingQueue<>(2);
+        LimelightFrame first = frame(1, 0, new double[0]);
+        LimelightFrame second = frame(2, 0, new double[0]);
+        LimelightFrame third = frame(3, 0, new double[0]);
+
+        Limelight.offerDroppingOldest(subscriber, first);
+        Limelight.offerDroppingOldest(subscriber, second);
+        Limelight.offerDroppingOldest(subscriber, third);
+
+        assertEquals(2, subscriber.size());
+        assertSame(second, subscriber.poll());
+        assertSame(third, subscriber.poll());
+        assertNull(subscriber.poll());
+    }
+
+    @Test
+    void slowSubscriberOnlyKeepsLatestFrame() {
+        BlockingQueue<LimelightFrame> subscriber = new ArrayBlockingQueue<>(1);
+        LimelightFrame latest = null;
+        for (int i = 0; i < 5; i++) {
+            latest = frame(i, 0, new double[0]);
+            Limelight.offerDroppingOldest(subscriber, latest);
+        }
+
+        assertEquals(1, subscriber.size());
+        assertSame(latest, subscriber.poll());
+    }
+}
@@ -0,0 +1,59 @@
+package frc.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpdateSignalTest {
+
+    @Test
+    void doesNotMissEarlierSignals() throws InterruptedException {
+        UpdateSignal signal = new UpdateSignal();
+        long count = signal.getCount();
+        signal.signal();
+        // Should return right away instead of waiting for the timeout
+        long start = System.nanoTime();
+        assertEquals(count + 1, signal.awaitUpdate(count, 10000));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+    }
+
+    @Test
+    void timesOut() throws InterruptedException {
+        UpdateSignal signal = new UpdateSignal();
+        long count = signal.getCount();
+        assertEquals(count, signal.awaitUpdate(count, 20));
+    }
+
+    @Test
+    void wakesUpWaitingThread() throws InterruptedException {
+        UpdateSignal signal = new UpdateSignal();
+        long count = signal.getCount();
+        Thread signaler = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ignored) {
+            }
+            signal.signal();
+        });
+        signaler.start();
+        assertEquals(count + 1, signal.awaitUpdate(count, 10000));
+        signaler.join();
+    }
+
+    @Test
+    void runsListeners() {
+        UpdateSignal signal = new UpdateSignal();
+        UpdateSignal chained = new UpdateSignal();
+        AtomicInteger calls = new AtomicInteger();
+        signal.addListener(chained::signal);
+        signal.addListener(calls::incrementAndGet);
+
+        signal.signal();
+        signal.signal();
+        assertEquals(2, chained.getCount());
+        assertEquals(2, calls.get());
+    }
+}
@@ -0,0 +1,59 @@
+package frc.utility.control;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BallChaseControllerTest {
+    public static final double DELTA = 1.0E-6;
+
+    private static BallChaseController createController() {
+        return new BallChaseController(4, 3, 1, 0.5, 0.2, 1, 0.5);
+    }
+
+    @Test
+    void drivesStraightAtStillBall() {
+        BallChaseController controller = createController();
+        controller.addBallDetection(0, 3, 4);
+        assertTrue(controller.calculate(0, 0, 0));
+        assertEquals(5, controller.getDistance(), DELTA);
+        assertEquals(Math.atan2(4, 3), controller.getTargetHeading(), DELTA);
+        // sqrt(1 + 2 * 3 * 5) > 4, so full speed
+        assertEquals(4, Math.hypot(controller.getVelocityX(), controller.getVelocityY()), DELTA);
+    }
+
+    @Test
+    void slowsDownToCaptureSpeed() {
+        BallChaseController controller = createController();
+        controller.addBallDetection(0, 0.5, 0);
+        assertTrue(controller.calculate(0, 0, 0));
+        assertEquals(Math.sqrt(1 + 2 * 3 * 0.5), controller.getVelocityX(), DELTA);
+        assertEquals(0, controller.getVelocityY(), DELTA);
+    }
+
+    @Test
+    void leadsRollingBall() {
+        BallChaseController controller = createController();
+        // Ball rolling in +y at 1 m/s
+        for (int i = 0; i <= 50; i++) {
+            double time = i * 0.02;
+            controller.addBallDetection(time, 4, time);
+        }
+        assertTrue(controller.calculate(1, 0, 1));
+        // The intercept should be ahead of the ball
+        assertTrue(controller.getVelocityY() > 0);
+        assertTrue(controller.getTargetHeading() > 0);
+    }
+
+    @Test
+    void forgetsLostBall() {
+        BallChaseController controller = createController();
+        controller.addBallDetection(0, 1, 1);
+        assertFalse(controller.calculate(1, 0, 0));
+        controller.addBallDetection(1, 2, 2);
+        controller.reset();
+        assertFalse(controller.hasBall(1));
+    }
+}
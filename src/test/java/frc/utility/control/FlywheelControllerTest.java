@@ -0,0 +1,91 @@
+package frc.utility.control;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlywheelControllerTest {
+    private static final double KS = 0.76;
+    private static final double KV = 0.114;
+    private static final double KA = 0.01;
+    private static final double DT = 0.005;
+
+    private static FlywheelController createController() {
+        return new FlywheelController(KS, KV, KA, DT, 5, 0, 9, 0.5, 0.5, DT, 2 * DT);
+    }
+
+    private static double simulate(FlywheelController controller, double reference, int loops, double kvError) {
+        return simulate(controller, 0, reference, loops, kvError);
+    }
+
+    /**
+     * Simulates the flywheel with a 2 loop measurement delay and a 1 loop input delay. Like the shooter's Talon, the motor
+     * can't apply a negative voltage.
+     *
+     * @return The actual velocity after {@code loops} loops
+     */
+    private static double simulate(FlywheelController controller, double startVelocity, double reference, int loops,
+                                   double kvError) {
+        double a = Math.exp(-KV * kvError / KA * DT);
+        double b = (1 - a) / (KV * kvError);
+
+        double velocity = startVelocity;
+        double[] measurements = {startVelocity, startVelocity, startVelocity};
+        double appliedVoltage = 0;
+        for (int i = 0; i < loops; i++) {
+            measurements[i % 3] = velocity;
+            controller.correct(measurements[(i + 1) % 3]);
+            double voltage = controller.calculate(reference);
+            assertTrue(voltage >= 0, "voltage " + voltage);
+
+            velocity = a * velocity + b * (Math.max(0, appliedVoltage) - KS * Math.signum(velocity));
+            appliedVoltage = voltage;
+        }
+        return velocity;
+    }
+
+    @Test
+    void reachesReference() {
+        FlywheelController controller = createController();
+        double velocity = simulate(controller, 50, 200, 1);
+        assertEquals(50, velocity, 0.5);
+        assertEquals(50, controller.getEstimatedVelocity(), 0.5);
+    }
+
+    @Test
+    void handlesModelError() {
+        // The flywheel is 10% harder to spin than the model says
+        FlywheelController controller = createController();
+        double velocity = simulate(controller, 50, 400, 1.1);
+        assertEquals(50, velocity, 5);
+        assertEquals(velocity, controller.getEstimatedVelocity(), 1);
+    }
+
+    @Test
+    void outputIsLimited() {
+        FlywheelController controller = createController();
+        assertEquals(9, controller.calculate(1000), 1.0E-9);
+    }
+
+    @Test
+    void delayedMeasurementCorrectsCurrentEstimate() {
+        FlywheelController controller = createController();
+        controller.reset(40);
+        controller.correct(50);
+        assertTrue(controller.getEstimatedVelocity() > 40);
+    }
+
+    @Test
+    void estimateCoastsWhenReferenceStepsDown() {
+        // Going to a lower preset. The flywheel can only coast down, so the estimate shouldn't drop faster than it does, or the
+        // shooter would report being at the lower speed too early.
+        for (int loops = 1; loops <= 60; loops++) {
+            FlywheelController controller = createController();
+            controller.reset(60);
+            double velocity = simulate(controller, 60, 30, loops, 1);
+            assertTrue(controller.getEstimatedVelocity() > velocity - 0.5,
+                    "estimate " + controller.getEstimatedVelocity() + " velocity " + velocity + " after " + loops + " loops");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package frc.utility.control;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateFilterTest {
+    public static final double DELTA = 1.0E-6;
+
+    @Test
+    void firstSampleHasNoRate() {
+        RateFilter filter = new RateFilter(0.01, 0.2, 0);
+        assertEquals(0, filter.calculate(5, 1), DELTA);
+    }
+
+    @Test
+    void unfilteredRateIsDifferenced() {
+        RateFilter filter = new RateFilter(0.01, 0.2, 0);
+        filter.calculate(0, 1);
+        assertEquals(10, filter.calculate(0.2, 1.02), DELTA);
+    }
+
+    @Test
+    void skipsSamplesThatAreTooClose() {
+        RateFilter filter = new RateFilter(0.01, 0.2, 0);
+        filter.calculate(0, 1);
+        // A noisy sample 1 ms later would be a rate of 100
+        assertEquals(0, filter.calculate(0.1, 1.001), DELTA);
+        // The next sample is differenced against the last one that was used
+        assertEquals(10, filter.calculate(0.2, 1.02), DELTA);
+    }
+
+    @Test
+    void resetsAfterLongGap() {
+        RateFilter filter = new RateFilter(0.01, 0.2, 0);
+        filter.calculate(0, 1);
+        filter.calculate(0.2, 1.02);
+        assertEquals(0, filter.calculate(5, 2), DELTA);
+        assertEquals(1, filter.calculate(5.02, 2.02), DELTA);
+    }
+
+    @Test
+    void filtersNoise() {
+        RateFilter filter = new RateFilter(0.01, 0.2, 0.05);
+        double time = 0;
+        double maxRate = 0;
+        filter.calculate(0, time);
+        for (int i = 1; i < 100; i++) {
+            time += 0.01;
+            // Alternates by 0.01 every sample, which is a rate of +-1 unfiltered
+            maxRate = Math.max(maxRate, Math.abs(filter.calculate((i % 2) * 0.01, time)));
+        }
+        assertTrue(maxRate < 0.5);
+    }
+
+    @Test
+    void followsConstantRate() {
+        RateFilter filter = new RateFilter(0.01, 0.2, 0.05);
+        double time = 0;
+        for (int i = 0; i < 100; i++) {
+            filter.calculate(3 * time, time);
+            time += 0.01;
+        }
+        assertEquals(3, filter.getRate(), 1.0E-3);
+    }
+}
@@ -0,0 +1,48 @@
+package frc.utility.control;
+
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecursiveLeastSquaresFeedforwardTest {
+    public static final double DELTA = 1.0E-2;
+
+    private static final SimpleMotorFeedforward NOMINAL = new SimpleMotorFeedforward(0.2, 2.5, 0.4);
+
+    private static void drive(RecursiveLeastSquaresFeedforward feedforward, SimpleMotorFeedforward actual) {
+        for (int i = 0; i < 2000; i++) {
+            double velocity = 3 * Math.sin(i * 0.05) + 0.5;
+            double acceleration = 3 * Math.cos(i * 0.05);
+            feedforward.update(actual.calculate(velocity, acceleration), velocity, acceleration);
+        }
+    }
+
+    @Test
+    void startsAtNominalGains() {
+        RecursiveLeastSquaresFeedforward feedforward = new RecursiveLeastSquaresFeedforward(NOMINAL, 0.998, 0.7, 1.3, 1);
+        assertEquals(NOMINAL.calculate(2, 1), feedforward.calculate(2, 1), 1.0E-9);
+    }
+
+    @Test
+    void convergesToActualGains() {
+        RecursiveLeastSquaresFeedforward feedforward = new RecursiveLeastSquaresFeedforward(NOMINAL, 0.998, 0.7, 1.3, 1);
+        drive(feedforward, new SimpleMotorFeedforward(0.25, 2.8, 0.45));
+        assertEquals(0.25, feedforward.getKs(), DELTA);
+        assertEquals(2.8, feedforward.getKv(), DELTA);
+        assertEquals(0.45, feedforward.getKa(), DELTA);
+    }
+
+    @Test
+    void gainsStayWithinBounds() {
+        RecursiveLeastSquaresFeedforward feedforward = new RecursiveLeastSquaresFeedforward(NOMINAL, 0.998, 0.7, 1.3, 1);
+        drive(feedforward, new SimpleMotorFeedforward(0.2, 10, 0.4));
+        assertTrue(feedforward.getKv() <= 2.5 * 1.3);
+        assertTrue(feedforward.getKs() >= 0.2 * 0.7 && feedforward.getKs() <= 0.2 * 1.3);
+        assertTrue(feedforward.getKa() >= 0.4 * 0.7 && feedforward.getKa() <= 0.4 * 1.3);
+
+        feedforward.reset();
+        assertEquals(2.5, feedforward.getKv(), 1.0E-9);
+    }
+}
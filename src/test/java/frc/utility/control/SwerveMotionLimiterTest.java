@@ -0,0 +1,104 @@
+package frc.utility.control;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SwerveMotionLimiterTest {
+    public static final double DELTA = 1.0E-6;
+
+    // Center of mass at the same height as the wheels are from the center, so the robot tips at 1g
+    private final SwerveMotionLimiter limiter = new SwerveMotionLimiter(0.3, 0.3, 0.3, 1, 1000, 10);
+
+    @Test
+    void accelerationIsJerkLimited() {
+        limiter.reset(0, 0, 0);
+        limiter.calculate(5, 0, 0, 100, 0, 0, 0, 0.005);
+        assertEquals(5, limiter.getAccelerationX(), DELTA);
+        assertEquals(0.025, limiter.getVelocityX(), DELTA);
+    }
+
+    @Test
+    void accelerationIsTipLimited() {
+        limiter.reset(0, 0, 0);
+        for (int i = 0; i < 10; i++) {
+            limiter.calculate(5, 0, 0, 100, 0, 0, 0, 0.01);
+        }
+        assertEquals(9.80665, limiter.getAccelerationX(), 1.0E-3);
+
+        // Tilting the robot makes it easier to tip
+        limiter.calculate(5, 0, 0, 100, 0, Math.toRadians(10), 0, 0.01);
+        assertTrue(limiter.getAccelerationX() < 9.80665 * 0.9);
+    }
+
+    @Test
+    void tipLimitUsesRobotFrame() {
+        // Driving field forward while the robot is turned 90 degrees uses the left/right tip limit
+        SwerveMotionLimiter narrowLimiter = new SwerveMotionLimiter(0.3, 0.6, 0.3, 1, 1.0E6, 10);
+        narrowLimiter.reset(0, 0, 0);
+        narrowLimiter.calculate(5, 0, 0, 100, Math.PI / 2, 0, 0, 0.01);
+        assertEquals(9.80665, narrowLimiter.getAccelerationX(), 1.0E-3);
+
+        narrowLimiter.reset(0, 0, 0);
+        narrowLimiter.calculate(5, 0, 0, 100, 0, 0, 0, 0.01);
+        assertEquals(2 * 9.80665, narrowLimiter.getAccelerationX(), 1.0E-3);
+    }
+
+    @Test
+    void stoppingIsNotDelayedByJerkLimit() {
+        limiter.reset(0, 0, 0);
+        for (int i = 0; i < 10; i++) {
+            limiter.calculate(5, 0, 0, 100, 0, 0, 0, 0.01);
+        }
+        limiter.calculate(0, 0, 0, 100, 0, 0, 0, 0.01);
+        assertTrue(limiter.getAccelerationX() < 0);
+    }
+
+    @Test
+    void robotRelativeVelocityIsRotatedBack() {
+        // Facing left on the field, driving robot forward is driving field left
+        limiter.reset(0, 0, 0);
+        ChassisSpeeds velocity = new ChassisSpeeds(5, 0, 20);
+        limiter.calculateRobotRelative(velocity, 100, Math.PI / 2, 0, 0, 0.005);
+        assertEquals(0, limiter.getVelocityX(), DELTA);
+        assertEquals(0.025, limiter.getVelocityY(), DELTA);
+        assertEquals(0.025, velocity.vxMetersPerSecond, DELTA);
+        assertEquals(0, velocity.vyMetersPerSecond, DELTA);
+        assertEquals(0.05, velocity.omegaRadiansPerSecond, DELTA);
+    }
+
+    @Test
+    void reversingIsJerkLimited() {
+        SwerveMotionLimiter jerkLimiter = new SwerveMotionLimiter(0.3, 0.3, 0.3, 1, 100, 10);
+        jerkLimiter.reset(0, 0, 0);
+        for (int i = 0; i < 20; i++) {
+            jerkLimiter.calculate(5, 0, 0, 3, 0, 0, 0, 0.01);
+        }
+        assertEquals(3, jerkLimiter.getAccelerationX(), DELTA);
+
+        // Reverse at the same magnitude, then turn the acceleration sideways
+        double lastAccelerationX = jerkLimiter.getAccelerationX();
+        double lastAccelerationY = jerkLimiter.getAccelerationY();
+        for (int i = 0; i < 100; i++) {
+            jerkLimiter.calculate(i < 50 ? -5 : jerkLimiter.getVelocityX(), i < 50 ? 0 : 5, 0, 3, 0, 0, 0, 0.01);
+            double change = Math.hypot(jerkLimiter.getAccelerationX() - lastAccelerationX,
+                    jerkLimiter.getAccelerationY() - lastAccelerationY);
+            assertTrue(change <= 100 * 0.01 + DELTA, "acceleration changed by " + change);
+            lastAccelerationX = jerkLimiter.getAccelerationX();
+            lastAccelerationY = jerkLimiter.getAccelerationY();
+        }
+    }
+
+    @Test
+    void reachesVelocityWithoutOvershoot() {
+        SwerveMotionLimiter jerkLimiter = new SwerveMotionLimiter(0.3, 0.3, 0.3, 1, 100, 10);
+        jerkLimiter.reset(0, 0, 0);
+        for (int i = 0; i < 300; i++) {
+            jerkLimiter.calculate(2, 0, 0, 5, 0, 0, 0, 0.01);
+            assertTrue(jerkLimiter.getVelocityX() < 2 + 0.02, "velocity " + jerkLimiter.getVelocityX());
+        }
+        assertEquals(2, jerkLimiter.getVelocityX(), 1.0E-3);
+    }
+}
@@ -0,0 +1,59 @@
+package frc.utility.control;
+
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOptimalHeadingControllerTest {
+    public static final double DELTA = 1.0E-6;
+
+    @Test
+    void largeErrorTurnsAtMaxSpeed() {
+        TimeOptimalHeadingController controller = new TimeOptimalHeadingController(10, 10, 0);
+        assertEquals(4, controller.calculate(0, 0, 2, 0, 4), DELTA);
+        assertEquals(-4, controller.calculate(0, 0, -2, 0, 4), DELTA);
+    }
+
+    @Test
+    void smallErrorIsProportional() {
+        TimeOptimalHeadingController controller = new TimeOptimalHeadingController(10, 10, 0);
+        assertEquals(0.1, controller.calculate(0, 0, 0.01, 0, 4), DELTA);
+        assertEquals(0.01, controller.getError(), DELTA);
+    }
+
+    @Test
+    void slowsDownToStopOnTarget() {
+        // Braking at 10 rad/s^2 from 2 rad/s takes exactly 0.2 rad
+        TimeOptimalHeadingController controller = new TimeOptimalHeadingController(100, 10, 0);
+        assertEquals(2, controller.calculate(0, 3, 0.2, 0, 4), DELTA);
+    }
+
+    @Test
+    void followsMovingTarget() {
+        TimeOptimalHeadingController controller = new TimeOptimalHeadingController(10, 10, 0);
+        assertEquals(1, controller.calculate(0, 0, 0, 1, 4), DELTA);
+    }
+
+    @Test
+    void predictsAheadByHorizon() {
+        // Turning at 1 rad/s for 0.1 s will put us on the target
+        TimeOptimalHeadingController controller = new TimeOptimalHeadingController(10, 10, 0.1);
+        assertEquals(0, controller.calculate(0, 1, 0.1, 0, 4), DELTA);
+    }
+
+    @Test
+    void errorWrapsAround() {
+        TimeOptimalHeadingController controller = new TimeOptimalHeadingController(10, 10, 0);
+        assertTrue(controller.calculate(3.1, 0, -3.1, 0, 4) > 0);
+        assertEquals(2 * Math.PI - 6.2, controller.getError(), DELTA);
+    }
+
+    @Test
+    void maxAngularAccelerationFromFeedforward() {
+        SimpleMotorFeedforward feedforward = new SimpleMotorFeedforward(0.5, 2, 0.5);
+        // (12 - 0.5 - 2 * 2 * 0.5) / (0.5 * 0.5)
+        assertEquals(38, TimeOptimalHeadingController.getMaxAngularAcceleration(feedforward, 0.5, 12, 2), DELTA);
+    }
+}
@@ -0,0 +1,29 @@
+package frc.utility.replay;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayDiffTest {
+
+    @Test
+    void countsMismatches() {
+        ReplayDiff diff = new ReplayDiff(0.01);
+        diff.compare("Ball Count", 1, 2, 2);
+        diff.compare("Ball Count", 2, 2, 3);
+        diff.compare("Arrival Time", 1, 0.5, 0.505);
+        diff.compare("Arrival Time", 2, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        diff.compare("Arrival Time", 3, Double.NaN, Double.NaN);
+        diff.compare("Arrival Time", 4, Double.POSITIVE_INFINITY, 0.2);
+
+        assertEquals(1, diff.getMismatchCount("Ball Count"));
+        assertEquals(1, diff.getMismatchCount("Arrival Time"));
+        assertEquals(2, diff.getMismatchCount());
+        assertEquals(0, diff.getMismatchCount("Balls Shot"));
+
+        String report = diff.toString();
+        assertTrue(report.contains("Ball Count"));
+        assertTrue(report.contains("first at 2.000 s"));
+    }
+}
@@ -0,0 +1,104 @@
+package frc.utility.replay;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayLogWriterTest {
+    public static final double DELTA = 1.0E-6;
+
+    private static byte[] writeLog() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ReplayLogWriter writer = new ReplayLogWriter(bytes, "Test")) {
+            writer.beginCycle(1.5);
+            writer.record("Position", 2.25);
+            writer.record("Switch", true);
+            writer.endCycle();
+
+            writer.beginCycle(2);
+            writer.record("Detection", -3);
+            writer.endCycle();
+
+            writer.beginCycle(2.5);
+            writer.record("Position", Double.POSITIVE_INFINITY);
+            writer.record("Switch", false);
+            writer.endCycle();
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void readsBackCycles() throws IOException {
+        ReplayLogReader reader = new ReplayLogReader(new ByteArrayInputStream(writeLog()));
+        assertEquals("Test", reader.getSource());
+
+        assertTrue(reader.nextCycle());
+        assertEquals(1.5, reader.getTime(), DELTA);
+        assertEquals(2.25, reader.getDouble("Position"), DELTA);
+        assertTrue(reader.getBoolean("Switch"));
+        assertFalse(reader.has("Detection"));
+
+        assertTrue(reader.nextCycle());
+        assertEquals(2, reader.getTime(), DELTA);
+        assertEquals(-3, reader.getDouble("Detection"), DELTA);
+        // Values don't carry over from the last cycle
+        assertFalse(reader.has("Position"));
+
+        assertTrue(reader.nextCycle());
+        assertEquals(Double.POSITIVE_INFINITY, reader.getDouble("Position"));
+        assertFalse(reader.getBoolean("Switch"));
+
+        assertFalse(reader.nextCycle());
+    }
+
+    @Test
+    void stopsAtCutOffCycle() throws IOException {
+        byte[] log = writeLog();
+        ReplayLogReader reader = new ReplayLogReader(new ByteArrayInputStream(Arrays.copyOf(log, log.length - 4)));
+        assertTrue(reader.nextCycle());
+        assertTrue(reader.nextCycle());
+        assertFalse(reader.nextCycle());
+    }
+
+    @Test
+    void rejectsOtherFiles() {
+        assertThrows(IOException.class, () -> new ReplayLogReader(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6})));
+    }
+
+    @Test
+    void deletesOldestLogs() throws IOException {
+        File directory = Files.createTempDirectory("replay").toFile();
+        try {
+            for (int i = 0; i < 5; i++) {
+                ReplayLogWriter writer = ReplayLogWriter.create(directory, "Test", 3);
+                assertNotNull(writer);
+                writer.close();
+            }
+            // Logs from other sources are left alone
+            ReplayLogWriter other = ReplayLogWriter.create(directory, "Other", 3);
+            assertNotNull(other);
+            other.close();
+
+            assertArrayEquals(new long[]{2, 3, 4}, ReplayLogWriter.getLogNumbers(directory, "Test"));
+            assertArrayEquals(new long[]{0}, ReplayLogWriter.getLogNumbers(directory, "Other"));
+        } finally {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) file.delete();
+            }
+            directory.delete();
+        }
+    }
+}
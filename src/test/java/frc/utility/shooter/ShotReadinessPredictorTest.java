@@ -0,0 +1,60 @@
+package frc.utility.shooter;
+
+import frc.utility.shooter.ShotReadinessPredictor.Check;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShotReadinessPredictorTest {
+    public static final double DELTA = 1.0E-9;
+
+    @Test
+    void commitsEarlyWhenCheckWillPass() {
+        ShotReadinessPredictor predictor = new ShotReadinessPredictor(0.1);
+        predictor.beginCycle(0);
+        // Aim error of 0.1 rad closing at 1 rad/s will be 0 when the ball leaves
+        predictor.update(Check.AIM, 0.1, -1, 0.05);
+        assertTrue(predictor.endCycle());
+        assertFalse(predictor.isPassing(Check.AIM));
+        assertTrue(predictor.isPredictedPassing(Check.AIM));
+        assertEquals(1, predictor.getEarlyCommits());
+    }
+
+    @Test
+    void waitsWhenCheckWillFail() {
+        ShotReadinessPredictor predictor = new ShotReadinessPredictor(0.1);
+        predictor.beginCycle(0);
+        // Passing now, but accelerating past the limit before the ball leaves
+        predictor.update(Check.STOPPED, 0.01, 1, 0.05);
+        assertFalse(predictor.endCycle());
+        assertTrue(predictor.isPassing(Check.STOPPED));
+        assertEquals(1, predictor.getFailures(Check.STOPPED));
+    }
+
+    @Test
+    void allUpdatesOfACheckMustPass() {
+        ShotReadinessPredictor predictor = new ShotReadinessPredictor(0.1);
+        predictor.beginCycle(0);
+        predictor.update(Check.FLAT_ON_GROUND, 0, 0, 3);
+        predictor.update(Check.FLAT_ON_GROUND, 5, 0, 3);
+        assertFalse(predictor.endCycle());
+    }
+
+    @Test
+    void tracksBlockingTime() {
+        ShotReadinessPredictor predictor = new ShotReadinessPredictor(0.1);
+        for (int i = 0; i < 11; i++) {
+            predictor.beginCycle(i * 0.05);
+            predictor.update(Check.VISION, false);
+            predictor.update(Check.AIM, i < 5 ? 1 : 0, 0, 0.05);
+            predictor.endCycle();
+        }
+        // Aim and vision both fail for the first 5 cycles, after that only vision is blocking
+        assertEquals(0.3, predictor.getBlockingTime(Check.VISION), DELTA);
+        assertEquals(0, predictor.getBlockingTime(Check.AIM), DELTA);
+        assertEquals(11, predictor.getFailures(Check.VISION));
+        assertEquals(5, predictor.getFailures(Check.AIM));
+    }
+}
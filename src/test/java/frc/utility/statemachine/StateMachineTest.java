@@ -0,0 +1,142 @@
+package frc.utility.statemachine;
+
+import frc.utility.statemachine.StateMachine.Command;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateMachineTest {
+    public static final double DELTA = 1.0E-6;
+
+    enum TestState {
+        IDLE, A, B, C
+    }
+
+    private final List<String> events = new ArrayList<>();
+    private boolean aDone = false;
+    private boolean bDone = false;
+    private boolean goToC = false;
+
+    private StateMachine<TestState> createMachine() {
+        StateMachine<TestState> machine = new StateMachine<>(TestState.class, TestState.IDLE, TestState.A);
+        machine.addState(TestState.A, () -> events.add("enter A"), () -> aDone, () -> events.add("exit A"), false)
+                .addState(TestState.B, () -> events.add("enter B"), () -> bDone, () -> events.add("exit B"), true)
+                .addState(TestState.C, () -> events.add("enter C"), () -> false, () -> {}, false)
+                .addTransition(TestState.A, TestState.B)
+                .addTransition(TestState.B, TestState.C, () -> goToC, () -> events.add("B to C"))
+                .addTransition(TestState.B, TestState.IDLE)
+                .setCommandAction(Command.PAUSE, () -> events.add("pause"))
+                .setCommandAction(Command.RESUME, () -> events.add("resume"));
+        return machine;
+    }
+
+    @Test
+    void followsTransitionTable() {
+        StateMachine<TestState> machine = createMachine();
+        machine.sendCommand(Command.START);
+        machine.update(0);
+        assertEquals(TestState.A, machine.getState());
+
+        machine.update(1);
+        assertEquals(TestState.A, machine.getState());
+
+        aDone = true;
+        machine.update(2);
+        assertEquals(TestState.B, machine.getState());
+
+        goToC = true;
+        bDone = true;
+        machine.update(2.5);
+        assertEquals(TestState.C, machine.getState());
+        assertEquals(List.of("enter A", "exit A", "enter B", "exit B", "B to C", "enter C"), events);
+
+        machine.update(3);
+        assertEquals(2, machine.getTotalTime(TestState.A), DELTA);
+        assertEquals(0.5, machine.getLastVisitDuration(TestState.B), DELTA);
+        assertEquals(0.5, machine.getTimeInState(), DELTA);
+        assertEquals(2.5, machine.getStateEntryTime(), DELTA);
+        assertEquals(1, machine.getEntryCount(TestState.C));
+    }
+
+    @Test
+    void stepModeWaitsForAdvance() {
+        StateMachine<TestState> machine = createMachine();
+        machine.setStepMode(true);
+        machine.sendCommand(Command.START);
+        aDone = true;
+        machine.update(0);
+        machine.update(1);
+        // The exit action runs as soon as the state is done, but the machine waits to leave it
+        assertEquals(TestState.A, machine.getState());
+        assertTrue(machine.isStateDone());
+        assertEquals(List.of("enter A", "exit A"), events);
+
+        machine.sendCommand(Command.ADVANCE);
+        machine.update(2);
+        // B is skipped in step mode, so none of its actions are run
+        assertEquals(TestState.IDLE, machine.getState());
+        assertEquals(0, machine.getEntryCount(TestState.B));
+        assertEquals(List.of("enter A", "exit A"), events);
+    }
+
+    @Test
+    void handlesCommands() {
+        StateMachine<TestState> machine = createMachine();
+        machine.sendCommand(Command.PAUSE);
+        machine.update(0);
+        // Can't pause a stopped machine
+        assertFalse(machine.isPaused());
+
+        machine.sendCommand(Command.START);
+        machine.sendCommand(Command.PAUSE);
+        machine.sendCommand(Command.PAUSE);
+        machine.update(1);
+        assertTrue(machine.isPaused());
+
+        aDone = true;
+        machine.update(2);
+        assertEquals(TestState.A, machine.getState());
+
+        machine.sendCommand(Command.FORCE_ADVANCE);
+        machine.update(3);
+        assertFalse(machine.isPaused());
+        assertEquals(TestState.B, machine.getState());
+
+        // Forcing ignores the done condition but not the guards
+        machine.sendCommand(Command.FORCE_ADVANCE);
+        machine.update(4);
+        assertEquals(TestState.IDLE, machine.getState());
+        assertEquals(List.of("enter A", "pause", "resume", "exit A", "enter B", "exit B"), events);
+
+        machine.sendCommand(Command.START);
+        machine.sendCommand(Command.STOP);
+        machine.update(5);
+        assertEquals(TestState.IDLE, machine.getState());
+        assertEquals(2, machine.getEntryCount(TestState.A));
+    }
+
+    @Test
+    void interruptActionRunsAfterMachineStops() {
+        StateMachine<TestState> machine = createMachine();
+        machine.sendCommand(Command.START);
+        machine.update(0);
+
+        // The action takes over after the interrupt, so A's actions can't run after it
+        aDone = true;
+        machine.sendCommand(Command.INTERRUPT, () -> events.add("manual"));
+        machine.update(1);
+        machine.update(2);
+        assertEquals(TestState.IDLE, machine.getState());
+        assertEquals(List.of("enter A", "manual"), events);
+
+        // The action still runs when the command doesn't do anything
+        machine.sendCommand(Command.PAUSE, () -> events.add("manual"));
+        machine.update(3);
+        assertEquals(List.of("enter A", "manual", "manual"), events);
+    }
+}
@@ -0,0 +1,62 @@
+package frc.utility.sysid;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeedforwardFitterTest {
+    public static final double DELTA = 1.0E-2;
+
+    private static double voltage(double velocity, double acceleration) {
+        return 0.2 * Math.signum(velocity) + 2.5 * velocity + 0.4 * acceleration;
+    }
+
+    @Test
+    void fitsExactData() {
+        FeedforwardFitter fitter = new FeedforwardFitter();
+        for (int i = 1; i <= 100; i++) {
+            double velocity = i * 0.04 * (i % 2 == 0 ? 1 : -1);
+            double acceleration = (i % 7) - 3;
+            fitter.addSample(voltage(velocity, acceleration), velocity, acceleration);
+        }
+
+        FeedforwardGains gains = fitter.fit();
+        assertEquals(0.2, gains.ks, DELTA);
+        assertEquals(2.5, gains.kv, DELTA);
+        assertEquals(0.4, gains.ka, DELTA);
+        assertEquals(1, gains.rSquared, DELTA);
+    }
+
+    @Test
+    void rejectsOutliers() {
+        Random random = new Random(3476);
+        FeedforwardFitter fitter = new FeedforwardFitter();
+        for (int i = 0; i < 2000; i++) {
+            double velocity = random.nextDouble() * 8 - 4;
+            double acceleration = random.nextDouble() * 10 - 5;
+            double noise = random.nextGaussian() * 0.02;
+            fitter.addSample(voltage(velocity, acceleration) + noise, velocity, acceleration);
+        }
+        // Acceleration spikes like the ones at the start of a dynamic test
+        for (int i = 0; i < 20; i++) {
+            fitter.addSample(7, 0.1, 60);
+        }
+
+        FeedforwardGains gains = fitter.fit();
+        assertEquals(0.2, gains.ks, DELTA);
+        assertEquals(2.5, gains.kv, DELTA);
+        assertEquals(0.4, gains.ka, DELTA);
+        assertTrue(gains.rejectedSamples >= 20);
+    }
+
+    @Test
+    void needsEnoughSamples() {
+        FeedforwardFitter fitter = new FeedforwardFitter();
+        fitter.addSample(1, 1, 1);
+        assertThrows(IllegalStateException.class, fitter::fit);
+    }
+}
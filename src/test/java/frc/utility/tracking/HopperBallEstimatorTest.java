@@ -0,0 +1,102 @@
+package frc.utility.tracking;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HopperBallEstimatorTest {
+    public static final double DELTA = 1.0E-6;
+
+    private static final double BEAM_BREAK = 0.2;
+    private static final double FEEDER = 0.8;
+    private static final double DIAMETER = 0.24;
+
+    private double time = 0;
+    private double belt = 0;
+
+    private void step(HopperBallEstimator estimator, double travel, boolean beamBroken, boolean feederRunning) {
+        time += 0.01;
+        belt += travel;
+        estimator.update(time, belt, beamBroken, false, feederRunning, false);
+    }
+
+    /**
+     * Runs a ball in through the beam break, moving the belt 1cm per update
+     */
+    private void intakeBall(HopperBallEstimator estimator) {
+        for (int i = 0; i < 24; i++) {
+            step(estimator, 0.01, true, false);
+        }
+        step(estimator, 0.01, false, false);
+    }
+
+    @Test
+    void countsBallsIn() {
+        HopperBallEstimator estimator = new HopperBallEstimator(BEAM_BREAK, FEEDER, DIAMETER, 0.08);
+        step(estimator, 0, false, false);
+
+        intakeBall(estimator);
+        assertEquals(1, estimator.getBallCount());
+        // The trailing edge just passed the beam break
+        assertEquals(BEAM_BREAK + DIAMETER / 2, estimator.getBallPosition(0), DELTA);
+
+        for (int i = 0; i < 100; i++) {
+            step(estimator, 0.01, false, false);
+        }
+        assertEquals(FEEDER, estimator.getBallPosition(0), DELTA);
+
+        intakeBall(estimator);
+        for (int i = 0; i < 100; i++) {
+            step(estimator, 0.01, false, false);
+        }
+        assertEquals(2, estimator.getBallCount());
+        assertEquals(FEEDER - DIAMETER, estimator.getBallPosition(1), DELTA);
+    }
+
+    @Test
+    void countsBallsShot() {
+        HopperBallEstimator estimator = new HopperBallEstimator(BEAM_BREAK, FEEDER, DIAMETER, 0.08);
+        step(estimator, 0, false, false);
+        intakeBall(estimator);
+        intakeBall(estimator);
+        for (int i = 0; i < 100; i++) {
+            step(estimator, 0.01, false, false);
+        }
+        assertEquals(2, estimator.getBallCount());
+
+        for (int i = 0; i < 5; i++) {
+            step(estimator, 0.01, false, true);
+        }
+        // Not long enough for the feeder to push the ball out
+        assertEquals(2, estimator.getBallCount());
+
+        for (int i = 0; i < 60; i++) {
+            step(estimator, 0.01, false, true);
+        }
+        assertEquals(0, estimator.getBallCount());
+        assertEquals(2, estimator.getBallsShot());
+    }
+
+    @Test
+    void stallStacksBallsAtFeeder() {
+        HopperBallEstimator estimator = new HopperBallEstimator(BEAM_BREAK, FEEDER, DIAMETER, 0.08);
+        step(estimator, 0, false, false);
+        intakeBall(estimator);
+        time += 0.01;
+        estimator.update(time, belt, false, true, false, false);
+        assertEquals(FEEDER, estimator.getBallPosition(0), DELTA);
+    }
+
+    @Test
+    void removesEjectedBalls() {
+        HopperBallEstimator estimator = new HopperBallEstimator(BEAM_BREAK, FEEDER, DIAMETER, 0.08);
+        step(estimator, 0, false, false);
+        intakeBall(estimator);
+        assertEquals(1, estimator.getBallCount());
+
+        time += 0.01;
+        belt -= 1;
+        estimator.update(time, belt, false, false, false, true);
+        assertEquals(0, estimator.getBallCount());
+    }
+}
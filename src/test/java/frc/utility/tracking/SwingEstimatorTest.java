@@ -0,0 +1,99 @@
+package frc.utility.tracking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SwingEstimatorTest {
+    public static final double DELTA = 1.0E-6;
+
+    private static final double SAMPLE_PERIOD = 0.005;
+    private static final double FREQUENCY = 2 * Math.PI / 2.2;
+    private static final double DAMPING = 0.15;
+    private static final double AMPLITUDE = 30;
+    private static final double EQUILIBRIUM = 5;
+
+    private static double swingAngle(double time) {
+        return EQUILIBRIUM + AMPLITUDE * Math.exp(-DAMPING * time) * Math.cos(FREQUENCY * time + 0.3);
+    }
+
+    @Test
+    void fitsDampedSwing() {
+        SwingEstimator estimator = new SwingEstimator(SAMPLE_PERIOD, 400, 5, 1);
+        double time = 0;
+        for (int i = 0; i < 400; i++) {
+            time = i * SAMPLE_PERIOD;
+            estimator.addSample(time, swingAngle(time));
+        }
+
+        assertTrue(estimator.fit());
+        assertEquals(FREQUENCY, estimator.getFrequency(), 1.0E-4);
+        assertEquals(DAMPING, estimator.getDamping(), 1.0E-4);
+        assertEquals(EQUILIBRIUM, estimator.getEquilibrium(), 1.0E-3);
+        assertEquals(AMPLITUDE * Math.exp(-DAMPING * time), estimator.getAmplitude(), 1.0E-3);
+        assertEquals(0, estimator.getResidual(), 1.0E-3);
+
+        assertEquals(swingAngle(time + 0.5), estimator.predictAngle(time + 0.5), 1.0E-3);
+    }
+
+    @Test
+    void predictsCrossing() {
+        SwingEstimator estimator = new SwingEstimator(SAMPLE_PERIOD, 400, 5, 1);
+        Random random = new Random(3476);
+        double time = 0;
+        for (int i = 0; i < 400; i++) {
+            time = i * SAMPLE_PERIOD;
+            estimator.addSample(time, swingAngle(time) + random.nextGaussian() * 0.2);
+        }
+        assertTrue(estimator.fit());
+
+        double timeUntilCrossing = estimator.getTimeUntilFallingCrossing(time, 0);
+        double crossingTime = time + timeUntilCrossing;
+        assertEquals(0, swingAngle(crossingTime), 0.5);
+        // Should be the first downward crossing
+        assertTrue(swingAngle(crossingTime + 0.01) < swingAngle(crossingTime - 0.01));
+        for (double t = time; t < crossingTime - 0.05; t += 0.01) {
+            assertTrue(swingAngle(t) > 0 || swingAngle(t + 0.01) > swingAngle(t));
+        }
+    }
+
+    @Test
+    void rejectsStillRobot() {
+        SwingEstimator estimator = new SwingEstimator(SAMPLE_PERIOD, 400, 5, 1);
+        Random random = new Random(3476);
+        for (int i = 0; i < 400; i++) {
+            estimator.addSample(i * SAMPLE_PERIOD, random.nextGaussian() * 0.2);
+        }
+        assertFalse(estimator.fit());
+        assertEquals(Double.POSITIVE_INFINITY, estimator.getTimeUntilFallingCrossing(2, 0));
+    }
+
+    @Test
+    void copyFitsSameAsOriginal() {
+        SwingEstimator estimator = new SwingEstimator(SAMPLE_PERIOD, 400, 5, 1);
+        SwingEstimator copy = new SwingEstimator(SAMPLE_PERIOD, 400, 5, 1);
+        // More samples than the history so the ring buffer has wrapped
+        double time = 0;
+        for (int i = 0; i < 500; i++) {
+            time = i * SAMPLE_PERIOD;
+            estimator.addSample(time, swingAngle(time));
+        }
+
+        assertTrue(copy.copySamplesFrom(estimator));
+        // Nothing new to copy
+        assertFalse(copy.copySamplesFrom(estimator));
+
+        assertTrue(estimator.fit());
+        assertTrue(copy.fit());
+        assertEquals(estimator.getFrequency(), copy.getFrequency(), DELTA);
+        assertEquals(estimator.getAmplitude(), copy.getAmplitude(), DELTA);
+        assertEquals(estimator.getTimeUntilFallingCrossing(time, 0), copy.getTimeUntilFallingCrossing(time, 0), DELTA);
+
+        estimator.addSample(time + SAMPLE_PERIOD, swingAngle(time + SAMPLE_PERIOD));
+        assertTrue(copy.copySamplesFrom(estimator));
+    }
+}
@@ -0,0 +1,148 @@
+package frc.utility.trajectory;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.trajectory.Trajectory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeedForwardHolonomicFollowerTest {
+    public static final double DELTA = 1.0E-6;
+
+    private static final double DT = 0.02;
+    private static final double TRANSLATION_TOLERANCE = 0.05;
+    private static final double HEADING_TOLERANCE = Math.toRadians(2);
+
+    private final FeedForwardHolonomicFollower follower = new FeedForwardHolonomicFollower(3, 8, 4, 4);
+
+    /**
+     * Drives 4 m at 30 degrees: 1 s accelerating at 2 m/s^2, 1 s at 2 m/s and 1 s slowing down
+     */
+    private static SampledTrajectory straightTrajectory() {
+        double angle = Math.toRadians(30);
+        List<Trajectory.State> states = new ArrayList<>();
+        for (int i = 0; i <= 300; i++) {
+            double t = i * 0.01;
+            double distance, velocity, acceleration;
+            if (t < 1) {
+                distance = t * t;
+                velocity = 2 * t;
+                acceleration = 2;
+            } else if (t < 2) {
+                distance = 1 + 2 * (t - 1);
+                velocity = 2;
+                acceleration = 0;
+            } else {
+                double slowingTime = t - 2;
+                distance = 3 + 2 * slowingTime - slowingTime * slowingTime;
+                velocity = 2 - 2 * slowingTime;
+                acceleration = -2;
+            }
+            states.add(new Trajectory.State(t, velocity, acceleration,
+                    new Pose2d(distance * Math.cos(angle), distance * Math.sin(angle), new Rotation2d(angle)), 0));
+        }
+        return new SampledTrajectory(new Trajectory(states), 0.01);
+    }
+
+    /**
+     * Drives a quarter circle with a 2 m radius at 1.5 m/s, turning left from the origin
+     */
+    private static SampledTrajectory curvedTrajectory() {
+        double radius = 2;
+        double velocity = 1.5;
+        double totalTime = (Math.PI / 2) * radius / velocity;
+        List<Trajectory.State> states = new ArrayList<>();
+        int count = (int) Math.ceil(totalTime / 0.01);
+        for (int i = 0; i <= count; i++) {
+            double t = Math.min(i * 0.01, totalTime);
+            double theta = velocity * t / radius;
+            states.add(new Trajectory.State(t, velocity, 0,
+                    new Pose2d(radius * Math.sin(theta), radius - radius * Math.cos(theta), new Rotation2d(theta)), 1 / radius));
+        }
+        return new SampledTrajectory(new Trajectory(states), 0.01);
+    }
+
+    /**
+     * Follows the trajectory with a robot that drives exactly at the commanded speeds
+     *
+     * @param endTime How long to keep following for after the end of the trajectory (s)
+     * @return The largest distance from the reference after {@code settleTime}
+     */
+    private double follow(SampledTrajectory trajectory, Pose2d startPose, double targetAngle, double settleTime,
+                          double endTime) {
+        double x = startPose.getX();
+        double y = startPose.getY();
+        double angle = startPose.getRotation().getRadians();
+        double maxError = 0;
+        for (double t = 0; t <= trajectory.getTotalTimeSeconds() + endTime; t += DT) {
+            follower.calculate(trajectory, t, new Pose2d(x, y, new Rotation2d(angle)), t, targetAngle);
+            if (t > settleTime) {
+                maxError = Math.max(maxError, Math.hypot(follower.getAlongTrackError(), follower.getCrossTrackError()));
+            }
+
+            ChassisSpeeds speeds = follower.getChassisSpeeds();
+            x += (speeds.vxMetersPerSecond * Math.cos(angle) - speeds.vyMetersPerSecond * Math.sin(angle)) * DT;
+            y += (speeds.vxMetersPerSecond * Math.sin(angle) + speeds.vyMetersPerSecond * Math.cos(angle)) * DT;
+            angle += speeds.omegaRadiansPerSecond * DT;
+        }
+        return maxError;
+    }
+
+    @Test
+    void tracksStraightTrajectory() {
+        // Start off to the side of the path and facing the wrong way
+        double maxError = follow(straightTrajectory(), new Pose2d(0.1, -0.3, Rotation2d.fromDegrees(-40)), 0, 1.5, 1);
+        assertTrue(maxError < TRANSLATION_TOLERANCE, "max error " + maxError);
+        assertTrue(follower.atReference(TRANSLATION_TOLERANCE, HEADING_TOLERANCE));
+    }
+
+    @Test
+    void tracksCurvedTrajectory() {
+        // The curve ends while still moving, so stop following at the end of it
+        double maxError = follow(curvedTrajectory(), new Pose2d(-0.2, 0.2, new Rotation2d()), Math.PI / 2, 1.5, 0);
+        assertTrue(maxError < TRANSLATION_TOLERANCE, "max error " + maxError);
+        assertTrue(follower.atReference(TRANSLATION_TOLERANCE, HEADING_TOLERANCE));
+    }
+
+    @Test
+    void curveFeedForwardIncludesCentripetalAcceleration() {
+        // Facing along the x-axis at the start of the curve, the center of the circle is directly to the left
+        follower.calculate(curvedTrajectory(), 0, new Pose2d(), 0, 0);
+        assertEquals(0, follower.getAccelerationX(), DELTA);
+        assertEquals(1.5 * 1.5 / 2, follower.getAccelerationY(), DELTA);
+        assertEquals(1.5, follower.getChassisSpeeds().vxMetersPerSecond, DELTA);
+        assertEquals(0, follower.getChassisSpeeds().vyMetersPerSecond, DELTA);
+    }
+
+    @Test
+    void finishesWhenSettledAtEnd() {
+        SampledTrajectory trajectory = straightTrajectory();
+        double totalTime = trajectory.getTotalTimeSeconds();
+        Pose2d endPose = new Pose2d(4 * Math.cos(Math.toRadians(30)), 4 * Math.sin(Math.toRadians(30)), new Rotation2d());
+
+        follower.calculate(trajectory, totalTime, endPose, totalTime, 0);
+        // Being at the end early doesn't count
+        assertFalse(follower.isFinished(totalTime - 0.1, totalTime, 1, TRANSLATION_TOLERANCE, HEADING_TOLERANCE));
+        assertTrue(follower.isFinished(totalTime, totalTime, 1, TRANSLATION_TOLERANCE, HEADING_TOLERANCE));
+    }
+
+    @Test
+    void finishesAfterSettleTimeout() {
+        SampledTrajectory trajectory = straightTrajectory();
+        double totalTime = trajectory.getTotalTimeSeconds();
+
+        // Stuck half a meter short of the end
+        follower.calculate(trajectory, totalTime, new Pose2d(3.5 * Math.cos(Math.toRadians(30)),
+                3.5 * Math.sin(Math.toRadians(30)), new Rotation2d()), totalTime, 0);
+        assertEquals(0.5, follower.getAlongTrackError(), 1.0E-3);
+        assertFalse(follower.isFinished(totalTime + 0.5, totalTime, 1, TRANSLATION_TOLERANCE, HEADING_TOLERANCE));
+        assertTrue(follower.isFinished(totalTime + 1, totalTime, 1, TRANSLATION_TOLERANCE, HEADING_TOLERANCE));
+    }
+}
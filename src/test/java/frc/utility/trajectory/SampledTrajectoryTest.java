@@ -0,0 +1,55 @@
+package frc.utility.trajectory;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SampledTrajectoryTest {
+    public static final double DELTA = 1.0E-2;
+
+    private final Trajectory trajectory = TrajectoryGenerator.generateTrajectory(
+            new Pose2d(0, 0, Rotation2d.fromDegrees(170)),
+            List.of(new Translation2d(-2, 1), new Translation2d(-4, -1)),
+            new Pose2d(-6, 0, Rotation2d.fromDegrees(-170)),
+            new TrajectoryConfig(3, 3));
+
+    @Test
+    void sampleMatchesTrajectory() {
+        SampledTrajectory sampledTrajectory = new SampledTrajectory(trajectory, 0.005);
+        SampledTrajectory.Sample sample = new SampledTrajectory.Sample();
+
+        for (double t = 0; t < trajectory.getTotalTimeSeconds(); t += 0.0137) {
+            Trajectory.State expected = trajectory.sample(t);
+            sampledTrajectory.sample(t, sample);
+
+            assertEquals(expected.poseMeters.getX(), sample.x, DELTA);
+            assertEquals(expected.poseMeters.getY(), sample.y, DELTA);
+            assertEquals(expected.velocityMetersPerSecond, sample.velocity, DELTA);
+            // The sampled heading is unwrapped, so compare the rotations instead of the raw angles
+            assertEquals(0, expected.poseMeters.getRotation().minus(new Rotation2d(sample.heading)).getRadians(), DELTA);
+        }
+    }
+
+    @Test
+    void sampleClampsToEnds() {
+        SampledTrajectory sampledTrajectory = new SampledTrajectory(trajectory, 0.005);
+        SampledTrajectory.Sample sample = new SampledTrajectory.Sample();
+
+        sampledTrajectory.sample(-1, sample);
+        assertEquals(0, sample.x, DELTA);
+        assertEquals(0, sample.y, DELTA);
+
+        sampledTrajectory.sample(trajectory.getTotalTimeSeconds() + 1, sample);
+        assertEquals(-6, sample.x, DELTA);
+        assertEquals(0, sample.y, DELTA);
+        assertEquals(0, sample.velocity, DELTA);
+    }
+}
@@ -0,0 +1,99 @@
+package frc.utility.trajectory;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.trajectory.Trajectory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrajectoryPlannerTest {
+    public static final double DELTA = 1.0E-2;
+
+    private final SwerveDriveKinematics kinematics = new SwerveDriveKinematics(
+            new Translation2d(0.3, 0.3), new Translation2d(-0.3, 0.3),
+            new Translation2d(0.3, -0.3), new Translation2d(-0.3, -0.3));
+
+    private Trajectory plan(Pose2d start, Translation2d target, Translation2d obstacleCenter, double obstacleRadius) {
+        return TrajectoryPlanner.planToPosition(start, 0, 0, target, 3.5, 4, kinematics, 4.2, 0.05,
+                obstacleCenter, obstacleRadius);
+    }
+
+    private static void assertEndsAt(Translation2d expected, Trajectory trajectory) {
+        List<Trajectory.State> states = trajectory.getStates();
+        Trajectory.State end = states.get(states.size() - 1);
+        assertEquals(expected.getX(), end.poseMeters.getX(), DELTA);
+        assertEquals(expected.getY(), end.poseMeters.getY(), DELTA);
+        assertEquals(0, end.velocityMetersPerSecond, DELTA);
+    }
+
+    @Test
+    void plansFromRotatedStartPose() {
+        // The robot is facing away from the target, but a swerve drive can drive straight there
+        Trajectory trajectory = plan(new Pose2d(1, 1, Rotation2d.fromDegrees(-135)), new Translation2d(4, 5), null, 0);
+        assertNotNull(trajectory);
+
+        Trajectory.State start = trajectory.getStates().get(0);
+        assertEquals(1, start.poseMeters.getX(), DELTA);
+        assertEquals(1, start.poseMeters.getY(), DELTA);
+        assertEquals(Math.atan2(4, 3), start.poseMeters.getRotation().getRadians(), DELTA);
+        assertEndsAt(new Translation2d(4, 5), trajectory);
+    }
+
+    @Test
+    void changeFrameAppliesRotation() {
+        // The odometry frame is rotated 90 degrees from the field frame
+        Pose2d robotOnField = new Pose2d(2, 3, Rotation2d.fromDegrees(90));
+        Pose2d robotInOdometry = new Pose2d(1, 0, Rotation2d.fromDegrees(0));
+
+        // 2 m in front of the robot, facing to its left
+        Pose2d target = TrajectoryPlanner.changeFrame(new Pose2d(2, 5, Rotation2d.fromDegrees(180)), robotOnField,
+                robotInOdometry);
+        assertEquals(3, target.getX(), DELTA);
+        assertEquals(0, target.getY(), DELTA);
+        assertEquals(90, target.getRotation().getDegrees(), DELTA);
+
+        // Same frame leaves the pose alone
+        Pose2d unchanged = TrajectoryPlanner.changeFrame(new Pose2d(2, 5, Rotation2d.fromDegrees(180)), robotOnField,
+                robotOnField);
+        assertEquals(2, unchanged.getX(), DELTA);
+        assertEquals(5, unchanged.getY(), DELTA);
+        assertEquals(180, Math.abs(unchanged.getRotation().getDegrees()), DELTA);
+    }
+
+    @Test
+    void drivesAroundObstacle() {
+        Translation2d obstacle = new Translation2d(0, 0);
+        double radius = 1;
+        Trajectory trajectory = plan(new Pose2d(-3, 0.1, new Rotation2d()), new Translation2d(3, 0), obstacle, radius);
+        assertNotNull(trajectory);
+        assertEndsAt(new Translation2d(3, 0), trajectory);
+
+        for (Trajectory.State state : trajectory.getStates()) {
+            assertTrue(state.poseMeters.getTranslation().getDistance(obstacle) > radius,
+                    "Path goes through the obstacle at " + state.poseMeters);
+        }
+    }
+
+    @Test
+    void ignoresObstacleOutOfTheWay() {
+        Translation2d target = new Translation2d(3, 0);
+        Trajectory trajectory = plan(new Pose2d(-3, 0, new Rotation2d()), target, new Translation2d(0, 2), 1);
+        assertNotNull(trajectory);
+
+        // Straight line to the target
+        for (Trajectory.State state : trajectory.getStates()) {
+            assertEquals(0, state.poseMeters.getY(), DELTA);
+        }
+        assertEndsAt(target, trajectory);
+    }
+
+    @Test
+    void noTrajectoryWhenAtTarget() {
+        assertNull(plan(new Pose2d(1, 1, new Rotation2d()), new Translation2d(1.01, 1), null, 0));
+    }
+}
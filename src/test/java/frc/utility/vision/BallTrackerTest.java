@@ -0,0 +1,77 @@
+package frc.utility.vision;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BallTrackerTest {
+    public static final double DELTA = 1.0E-6;
+
+    private static BallTracker createTracker() {
+        return new BallTracker(0.5, 50, 4, 0.3);
+    }
+
+    @Test
+    void predictsArrival() {
+        BallTracker tracker = createTracker();
+        // Ball moving down at 20 degrees/s
+        for (int i = 0; i <= 10; i++) {
+            double time = i * 0.02;
+            tracker.addDetection(time, 15 - 20 * time);
+        }
+        assertEquals(-20, tracker.getVelocity(), 0.5);
+        // At 0.2s the ball is at 11 degrees, so it should reach 0 in 0.55s
+        assertEquals(0.55, tracker.getTimeUntilBelow(0.2, 0), 0.03);
+        assertEquals(1, tracker.getTrackCount());
+    }
+
+    @Test
+    void noArrivalWhenMovingAway() {
+        BallTracker tracker = createTracker();
+        for (int i = 0; i <= 10; i++) {
+            double time = i * 0.02;
+            tracker.addDetection(time, 5 + 20 * time);
+        }
+        assertEquals(Double.POSITIVE_INFINITY, tracker.getTimeUntilBelow(0.2, 0));
+        // Already below the threshold
+        assertEquals(Double.POSITIVE_INFINITY, tracker.getTimeUntilBelow(0.2, 10));
+    }
+
+    @Test
+    void noArrivalAfterPassingThreshold() {
+        BallTracker tracker = createTracker();
+        // Ball moving down at 20 degrees/s, crossing 0 at 0.75s
+        for (int i = 0; i <= 35; i++) {
+            double time = i * 0.02;
+            tracker.addDetection(time, 15 - 20 * time);
+        }
+        assertEquals(0.05, tracker.getTimeUntilBelow(0.7, 0), 0.01);
+
+        // Once the ball has gone past, it shouldn't keep showing up as arriving while the track is still alive
+        assertTrue(tracker.hasTrack(0.8));
+        assertEquals(Double.POSITIVE_INFINITY, tracker.getTimeUntilBelow(0.8, 0));
+        tracker.addDetection(0.8, -1);
+        assertEquals(1, tracker.getTrackCount());
+        assertEquals(Double.POSITIVE_INFINITY, tracker.getTimeUntilBelow(0.82, 0));
+    }
+
+    @Test
+    void startsNewTracks() {
+        BallTracker tracker = createTracker();
+        for (int i = 0; i <= 10; i++) {
+            tracker.addDetection(i * 0.02, 10);
+        }
+        // Jump to a different ball
+        tracker.addDetection(0.22, 20);
+        assertEquals(2, tracker.getTrackCount());
+        assertEquals(20, tracker.getPosition(0.22), DELTA);
+
+        // Lost the ball
+        assertFalse(tracker.hasTrack(0.6));
+        tracker.addDetection(0.6, 20);
+        assertEquals(3, tracker.getTrackCount());
+        assertTrue(tracker.hasTrack(0.6));
+    }
+}
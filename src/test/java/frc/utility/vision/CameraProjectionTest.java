@@ -0,0 +1,66 @@
+package frc.utility.vision;
+
+import frc.utility.geometry.MutableTranslation2d;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CameraProjectionTest {
+    public static final double DELTA = 1.0E-6;
+
+    private static final double[] CAMERA_MATRIX_INVERSE = {
+            0.00392173, 0, -0.6274771,
+            0, 0.00389782, -0.46773827,
+            0, 0, 1
+    };
+
+    private static final double ANGLE = Math.toRadians(-34.5);
+    private static final double[] ROTATION = {
+            1, 0, 0,
+            0, Math.cos(ANGLE), -Math.sin(ANGLE),
+            0, Math.sin(ANGLE), Math.cos(ANGLE)
+    };
+
+    /**
+     * The projection done one step at a time, the way VisionManager used to do it
+     */
+    private static double[] reference(double px, double py, double height, double depth, double centerZ) {
+        double camX = CAMERA_MATRIX_INVERSE[0] * px + CAMERA_MATRIX_INVERSE[2];
+        double camY = CAMERA_MATRIX_INVERSE[4] * py + CAMERA_MATRIX_INVERSE[5];
+        double camZ = 1;
+
+        double dirX = ROTATION[0] * camX + ROTATION[1] * camY + ROTATION[2] * camZ;
+        double dirY = ROTATION[3] * camX + ROTATION[4] * camY + ROTATION[5] * camZ;
+        double dirZ = ROTATION[6] * camX + ROTATION[7] * camY + ROTATION[8] * camZ;
+        double angle = Math.atan2(dirX, dirZ);
+
+        double k = height / dirY;
+        return new double[]{
+                dirX * k + Math.sin(angle) * depth,
+                dirZ * k + centerZ + Math.cos(angle) * depth
+        };
+    }
+
+    @Test
+    void matchesStepByStepProjection() {
+        CameraProjection projection = new CameraProjection(CAMERA_MATRIX_INVERSE, ROTATION, 59.75, 14, 0, 18);
+        MutableTranslation2d out = new MutableTranslation2d();
+        for (double px = 0; px <= 320; px += 40) {
+            for (double py = 0; py <= 240; py += 40) {
+                double[] expected = reference(px, py, 59.75, 14, 18);
+                projection.project(px, py, out);
+                assertEquals(expected[0], out.getX(), DELTA);
+                assertEquals(expected[1], out.getY(), DELTA);
+            }
+        }
+    }
+
+    @Test
+    void centerPixelIsStraightAhead() {
+        CameraProjection projection = new CameraProjection(CAMERA_MATRIX_INVERSE, ROTATION, 59.75, 14, 0, 18);
+        MutableTranslation2d out = projection.project(0.6274771 / 0.00392173, 0.46773827 / 0.00389782,
+                new MutableTranslation2d());
+        assertEquals(0, out.getX(), DELTA);
+        assertEquals(59.75 / Math.tan(-ANGLE) + 14 + 18, out.getY(), DELTA);
+    }
+}
@@ -0,0 +1,48 @@
+package frc.utility.vision;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResolutionSelectorTest {
+
+    private static ResolutionSelector createSelector() {
+        return new ResolutionSelector(4, 0.5, 40, 0.5, 3);
+    }
+
+    @Test
+    void switchesWithHysteresis() {
+        ResolutionSelector selector = createSelector();
+        assertFalse(selector.update(0, 3.9, 20));
+        assertTrue(selector.update(1, 4.1, 20));
+
+        // Inside the hysteresis band
+        assertTrue(selector.update(2, 3.7, 30));
+        assertFalse(selector.update(3, 3.4, 30));
+    }
+
+    @Test
+    void waitsBetweenSwitches() {
+        ResolutionSelector selector = createSelector();
+        assertTrue(selector.update(0, 5, 20));
+        assertTrue(selector.update(0.2, 2, 30));
+        assertFalse(selector.update(0.6, 2, 30));
+    }
+
+    @Test
+    void dropsResolutionWhenTooSlow() {
+        ResolutionSelector selector = createSelector();
+        assertTrue(selector.update(0, 5, 20));
+        double time = 0;
+        while (selector.isHighResolution()) {
+            time += 0.05;
+            selector.update(time, 5, 60);
+            assertTrue(time < 2);
+        }
+
+        // Still far away, but we have to wait for the lockout
+        assertFalse(selector.update(time + 1, 5, 20));
+        assertTrue(selector.update(time + 3.1, 5, 20));
+    }
+}
@@ -0,0 +1,80 @@
+package frc.utility.vision;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TargetRingSolverTest {
+    public static final double DELTA = 1.0E-6;
+
+    private static final double RADIUS = 26.69;
+
+    /**
+     * Adds points on the near side of a ring centered at (cx, cy)
+     */
+    private static void addArc(TargetRingSolver solver, double cx, double cy, int points, double noise, Random random) {
+        double facing = Math.atan2(-cy, -cx);
+        for (int i = 0; i < points; i++) {
+            double angle = facing + Math.toRadians(-40 + 80.0 * i / (points - 1));
+            solver.addPoint(
+                    cx + RADIUS * Math.cos(angle) + random.nextGaussian() * noise,
+                    cy + RADIUS * Math.sin(angle) + random.nextGaussian() * noise,
+                    1 / Math.max(noise * noise, 1.0E-6));
+        }
+    }
+
+    @Test
+    void findsExactCenter() {
+        TargetRingSolver solver = new TargetRingSolver(RADIUS, 20);
+        addArc(solver, 12, 200, 8, 0, new Random(3476));
+        assertTrue(solver.solve(0, 180));
+        assertEquals(12, solver.getCenterX(), DELTA);
+        assertEquals(200, solver.getCenterY(), DELTA);
+        assertEquals(0, solver.getRmsResidual(), DELTA);
+    }
+
+    @Test
+    void covarianceGrowsWithNoise() {
+        TargetRingSolver quiet = new TargetRingSolver(RADIUS, 20);
+        addArc(quiet, -30, 150, 12, 0.5, new Random(1));
+        assertTrue(quiet.solve(-25, 160));
+        assertEquals(-30, quiet.getCenterX(), 1);
+        assertEquals(150, quiet.getCenterY(), 1);
+
+        TargetRingSolver noisy = new TargetRingSolver(RADIUS, 20);
+        addArc(noisy, -30, 150, 12, 2, new Random(1));
+        assertTrue(noisy.solve(-25, 160));
+
+        assertTrue(noisy.getCovarianceXX() + noisy.getCovarianceYY()
+                > quiet.getCovarianceXX() + quiet.getCovarianceYY());
+    }
+
+    @Test
+    void rejectsPointsOffTheRing() {
+        TargetRingSolver solver = new TargetRingSolver(RADIUS, 20);
+        addArc(solver, 12, 200, 8, 0, new Random(3476));
+        solver.addPoint(40, 120, 1.0E6);
+        solver.addPoint(-20, 160, 1.0E6);
+
+        assertEquals(2, solver.rejectOutliers(0, 180, 1, 30));
+        assertEquals(8, solver.getInlierCount());
+        assertTrue(solver.solve(0, 180));
+        assertEquals(12, solver.getCenterX(), DELTA);
+        assertEquals(200, solver.getCenterY(), DELTA);
+    }
+
+    @Test
+    void needsThreePoints() {
+        TargetRingSolver solver = new TargetRingSolver(RADIUS, 20);
+        solver.addPoint(0, 100, 1);
+        solver.addPoint(10, 100, 1);
+        assertFalse(solver.solve(0, 120));
+
+        solver.reset();
+        assertEquals(0, solver.getPointCount());
+    }
+}
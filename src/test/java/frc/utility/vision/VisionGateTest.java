@@ -0,0 +1,113 @@
+package frc.utility.vision;
+
+import frc.utility.Limelight.LimelightResolution;
+import frc.utility.LimelightFrame;
+import frc.utility.vision.VisionGate.Rejection;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VisionGateTest {
+    public static final double DELTA = 1.0E-6;
+
+    private static final double TRACKER_STD_DEV = 0.1;
+    private static final double DRIFT_RATE = 0.2;
+    private static final double MAX_DISTANCE_SQUARED = 13.8;
+
+    private final VisionGate visionGate = new VisionGate(8, 20, TRACKER_STD_DEV, DRIFT_RATE, MAX_DISTANCE_SQUARED);
+
+    /**
+     * Two strips of tape in the middle of a 320x240 image, with extra corners at the end if {@code cornerCount} is more than 8
+     */
+    private static LimelightFrame frame(boolean targetVisible, int cornerCount, double edgeCornerX) {
+        double[] corners = new double[cornerCount * 2];
+        for (int i = 0; i < cornerCount; i++) {
+            corners[i * 2] = 140 + (i % 8) * 5;
+            corners[i * 2 + 1] = 100 + (i % 2) * 10;
+        }
+        if (cornerCount > 0) corners[0] = edgeCornerX;
+        return new LimelightFrame(1, 22, 0, LimelightResolution.k320x240, targetVisible, 0, 0, 0.5, -10, corners);
+    }
+
+    private Rejection checkPosition(double errorX, double errorY, double time) {
+        return visionGate.checkPosition(true, errorX, errorY, 0, time, 0, 0, 0);
+    }
+
+    @Test
+    void acceptsGoodFrame() {
+        assertNull(visionGate.checkFrame(frame(true, 8, 140)));
+        assertNull(visionGate.checkFrame(frame(true, 20, 140)));
+    }
+
+    @Test
+    void rejectsFrameWithoutTarget() {
+        assertEquals(Rejection.NO_TARGET, visionGate.checkFrame(frame(false, 8, 140)));
+    }
+
+    @Test
+    void rejectsCornersTouchingEdge() {
+        assertEquals(Rejection.CORNERS_TOUCHING_EDGE, visionGate.checkFrame(frame(true, 8, 10)));
+        assertEquals(Rejection.CORNERS_TOUCHING_EDGE, visionGate.checkFrame(frame(true, 8, 300)));
+    }
+
+    @Test
+    void rejectsWrongCornerCount() {
+        assertEquals(Rejection.WRONG_CORNER_COUNT, visionGate.checkFrame(frame(true, 4, 140)));
+        assertEquals(Rejection.WRONG_CORNER_COUNT, visionGate.checkFrame(frame(true, 24, 140)));
+    }
+
+    @Test
+    void rejectsFrameWithoutPoseHistory() {
+        assertEquals(Rejection.NO_POSE_HISTORY, visionGate.checkPosition(false, 0, 0, 0, 1, 0, 0, 0));
+        // Shouldn't start the clock for the tracker's drift
+        assertTrue(Double.isNaN(visionGate.getLastAcceptedTime()));
+    }
+
+    @Test
+    void firstFrameSeedsGateWithoutBeingUsed() {
+        // Nothing to compare the first frame against
+        assertNull(checkPosition(2, 0, 10));
+        assertEquals(10, visionGate.getLastAcceptedTime(), DELTA);
+
+        // The frame was never added to the tracker (like in auto), but later frames are still gated
+        assertEquals(Rejection.TOO_FAR_FROM_EXPECTED, checkPosition(2, 0, 10.5));
+        assertEquals(10, visionGate.getLastAcceptedTime(), DELTA);
+    }
+
+    @Test
+    void gateThreshold() {
+        checkPosition(0, 0, 10);
+        double maxError = TRACKER_STD_DEV * Math.sqrt(MAX_DISTANCE_SQUARED);
+
+        assertNull(checkPosition(maxError * 0.99, 0, 10));
+        assertEquals(MAX_DISTANCE_SQUARED * 0.99 * 0.99, visionGate.getLastDistanceSquared(), DELTA);
+        assertEquals(Rejection.TOO_FAR_FROM_EXPECTED, checkPosition(maxError * 1.01, 0, 10));
+        assertEquals(Rejection.TOO_FAR_FROM_EXPECTED, checkPosition(0, -maxError * 1.01, 10));
+    }
+
+    @Test
+    void gateGrowsUntilMeasurementIsUsed() {
+        checkPosition(0, 0, 10);
+        double error = TRACKER_STD_DEV * Math.sqrt(MAX_DISTANCE_SQUARED) * 2;
+        assertEquals(Rejection.TOO_FAR_FROM_EXPECTED, checkPosition(error, 0, 10));
+
+        // The tracker could have drifted, so the same error is fine a second later
+        assertNull(checkPosition(error, 0, 11));
+        visionGate.onMeasurementUsed(11);
+        assertEquals(Rejection.TOO_FAR_FROM_EXPECTED, checkPosition(error, 0, 11));
+    }
+
+    @Test
+    void visionCovarianceIsRotatedIntoFieldFrame() {
+        checkPosition(0, 0, 10);
+        // 10 in of uncertainty forward from the robot. Facing along the field's x-axis (0 radians), forward is field x.
+        double covarianceForward = 10 * 10;
+        assertNull(visionGate.checkPosition(true, 0.4, 0, 0, 10, 0, 0, covarianceForward));
+        assertEquals(Rejection.TOO_FAR_FROM_EXPECTED, visionGate.checkPosition(true, 0, 0.4, 0, 10, 0, 0, covarianceForward));
+
+        // Turned 90 degrees, forward is field y
+        assertNull(visionGate.checkPosition(true, 0, 0.4, Math.PI / 2, 10, 0, 0, covarianceForward));
+        assertEquals(Rejection.TOO_FAR_FROM_EXPECTED,
+                visionGate.checkPosition(true, 0.4, 0, Math.PI / 2, 10, 0, 0, covarianceForward));
+    }
+}